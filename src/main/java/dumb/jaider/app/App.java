@@ -5,6 +5,7 @@ import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dumb.jaider.agents.Agent;
 import dumb.jaider.app.exceptions.*;
@@ -15,6 +16,7 @@ import dumb.jaider.model.JaiderModel;
 import dumb.jaider.suggestion.ProactiveSuggestionService;
 import dumb.jaider.toolmanager.ToolManager;
 import dumb.jaider.ui.UI;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,17 +25,24 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class App {
     private static final Logger logger = LoggerFactory.getLogger(App.class);
+    /** Config sections the agents' tools read once when built (e.g. {@code validation.testImpact} in StandardTools). */
+    private static final List<String> TOOL_SECTIONS = List.of("validation");
     private final UI ui;
     private final JaiderModel model; // Instantiation moved to constructor
     private final Config config;
     private final Map<String, Command> commands = new HashMap<>();
     private ChatMemory memory; // Will be DI-injected or default
     private EmbeddingModel embedding; // Will be created by LlmProviderFactory
+    private ChatModel chatModel; // Last chat model registered as appChatModel
+    private DependencyInjector lastInjector;
+    private Map<String, JSONObject> lastComponentDefinitions;
+    private Map<String, JSONObject> lastToolSettings;
     private State state = State.IDLE;
 
     // Services to be DI-injected
@@ -93,6 +102,7 @@ public class App {
         commands.put("/add", new AddCommand());
         commands.put("/index", new IndexCommand());
         commands.put("/undo", new UndoCommand());
+        commands.put("/redo", new RedoCommand());
         commands.put("/edit-config", new EditConfigCommand());
         commands.put("/mode", new ModeCommand());
         commands.put("/help", new HelpCommand());
@@ -101,12 +111,56 @@ public class App {
         commands.put("/accept", new AcceptSuggestionCommand());
         commands.put("/a", new AcceptSuggestionCommand());
         commands.put("/run", new RunCommand());
+        commands.put("/stats", new StatsCommand());
         commands.put("/self-develop", new SelfDevelopCommand());
         // Add new commands for project switching and global config
         commands.put("/switch_project", (args, ctx) -> switchProject());
         commands.put("/global_config", (args, ctx) -> showGlobalConfigSettings());
     }
 
+    /**
+     * Re-registers the previous agents (and their {@code AiServices} proxies) on the current injector when the
+     * chat client, embedding client, component definitions and {@link #TOOL_SECTIONS} are all unchanged, so
+     * {@link AgentService#updateAgents()} picks them up instead of rebuilding them.
+     */
+    private void reusePreviousAgentsIfUnchanged(DependencyInjector injector, ChatModel previousChatModel, EmbeddingModel previousEmbedding) {
+        var definitions = config.getComponentDefinitions();
+        var previousDefinitions = lastComponentDefinitions;
+        lastComponentDefinitions = definitions;
+        var toolSettings = new HashMap<String, JSONObject>();
+        TOOL_SECTIONS.forEach(section -> toolSettings.put(section, config.getSection(section)));
+        var previousToolSettings = lastToolSettings;
+        lastToolSettings = toolSettings;
+        if (agentService == null) {
+            return;
+        }
+        String reason = null;
+        if (previousChatModel != chatModel) reason = "chat client changed";
+        else if (previousEmbedding != embedding) reason = "embedding client changed";
+        else if (!sameDefinitions(previousDefinitions, definitions)) reason = "component definitions changed";
+        else if (!sameDefinitions(previousToolSettings, toolSettings)) reason = "tool settings changed";
+        if (reason != null) {
+            logger.info("Rebuilding agents: {}.", reason);
+            model.addLog(AiMessage.from("[Jaider] Rebuilding agents (" + reason + ")."));
+            return;
+        }
+        var reused = 0;
+        for (var entry : Map.of("coderAgent", "Coder", "architectAgent", "Architect", "askAgent", "Ask").entrySet()) {
+            var agent = agentService.getAgent(entry.getValue());
+            if (agent != null) {
+                injector.registerSingleton(entry.getKey(), agent);
+                reused++;
+            }
+        }
+        logger.info("Reusing {} agents: LLM clients, component definitions and tool settings unchanged.", reused);
+        model.addLog(AiMessage.from("[Jaider] Reusing " + reused + " agents (LLM configuration unchanged)."));
+    }
+
+    private static boolean sameDefinitions(Map<String, JSONObject> a, Map<String, JSONObject> b) {
+        if (a == null || b == null || !a.keySet().equals(b.keySet())) return false;
+        return a.entrySet().stream().allMatch(e -> e.getValue().similar(b.get(e.getKey())));
+    }
+
     public synchronized void update() {
         var injector = config.getInjector();
         if (injector == null) { // Should be prevented by Config constructor
@@ -121,6 +175,11 @@ public class App {
         injector.registerSingleton("jaiderModel", model);
         injector.registerSingleton("ui", ui);
         injector.registerSingleton("commandsMap", commands); // Register commands map for UserInputHandler
+        if (injector != lastInjector && memory != null) {
+            // Config.save() replaces the injector; keep the conversation instead of letting DI create a new memory.
+            injector.registerSingleton("chatMemory", memory);
+        }
+        lastInjector = injector;
 
 
         LlmProviderFactory llmFactory;
@@ -131,12 +190,28 @@ public class App {
             llmFactory = config.getComponent("llmProviderFactory", LlmProviderFactory.class);
             toolManager = config.getComponent("toolManager", ToolManager.class);
 
+            var previousChatModel = this.chatModel;
+            var previousEmbedding = this.embedding;
             var localChatModel = llmFactory.createChatModel(); // Changed from ChatModel
             //this.tokenizer = llmFactory.createTokenizer();
             this.embedding = llmFactory.createEmbeddingModel(); // Fallbacks to NoOpEmbeddingModel
+            this.chatModel = localChatModel;
+            reusePreviousAgentsIfUnchanged(injector, previousChatModel, previousEmbedding);
 
             if (localChatModel != null) {
                 injector.registerSingleton("appChatModel", localChatModel);
+                for (var target : LlmProviderFactory.ROUTING_TARGETS) {
+                    var routed = llmFactory.createRoutedChatModel(target, localChatModel);
+                    injector.registerSingleton(target + "ChatModel", routed != null ? routed : localChatModel);
+                }
+                var unrouted = llmFactory.unreferencedRoutingTargets(config.getComponentDefinitions());
+                if (!unrouted.isEmpty()) {
+                    var warning = String.format("modelRouting binds %s, but no component references %s; those agents still use appChatModel. "
+                            + "Point their chat model ref at <target>ChatModel as in the default configuration.", unrouted,
+                            unrouted.stream().map(t -> t + "ChatModel").toList());
+                    logger.warn(warning);
+                    model.addLog(AiMessage.from("[Jaider] WARNING: " + warning));
+                }
             } else {
                 throw new ChatModelInitializationException("Chat model resolved to null from factory.");
             }
@@ -333,6 +408,11 @@ public class App {
     }
 
     private boolean isGitRepoClean() {
+        var statusSettings = config == null ? null : config.getSection("status");
+        if (statusSettings != null && statusSettings.optBoolean("watch", false)) {
+            // Later status checks then only look at files the watcher reports as changed.
+            dumb.jaider.vcs.RepositoryService.of(this.model.dir).statusTracker().watch();
+        }
         var userProjectGitService = new dumb.jaider.vcs.GitService(this.model.dir);
         return userProjectGitService.isGitRepoClean();
     }
@@ -351,6 +431,8 @@ public class App {
                 Path newPath = Paths.get(newDirStr.trim());
                 // Validate if the new path is a directory
                 if (java.nio.file.Files.isDirectory(newPath)) {
+                    dumb.jaider.vcs.RepositoryService.close(model.getDir()); // Release the old project's git handle.
+                    dumb.jaider.vcs.SandboxManager.close(model.getDir());
                     model.setDir(newPath); // This now also clears files, resets isIndexed, and updates statusBarText
                     // Potentially update config object if it stores project path and needs to be aware of changes
                     // config.updateProjectDirectory(newPath); // Example if Config needs update
@@ -1,9 +1,13 @@
 package dumb.jaider.app;
 
+import dumb.jaider.batch.BatchRunner;
+import dumb.jaider.server.JaiderServer;
 import dumb.jaider.ui.TUI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
+
 public class Jaider {
 
     private static final Logger logger = LoggerFactory.getLogger(Jaider.class);
@@ -11,6 +15,18 @@ public class Jaider {
     public static void main(String[] args) {
         logger.info("Jaider self-development task initiated.");
         try {
+            if (args.length > 0 && "--server".equals(args[0])) {
+                var port = args.length > 1 ? Integer.valueOf(args[1]) : null;
+                JaiderServer.start(Paths.get("").toAbsolutePath(), port);
+                Thread.currentThread().join();
+                return;
+            }
+            if (args.length > 1 && "--batch".equals(args[0])) {
+                var concurrency = args.length > 2 ? Integer.valueOf(args[2]) : null;
+                var summary = BatchRunner.start(Paths.get("").toAbsolutePath(), Paths.get(args[1]), concurrency);
+                System.out.println(summary.toString(2));
+                return;
+            }
             new App(new TUI(), args).run();
         } catch (Exception e) {
             System.err.println("Jaider failed to start: " + e.getMessage());
@@ -3,7 +3,7 @@ package dumb.jaider.app;
 import dumb.jaider.model.JaiderModel;
 import dumb.jaider.service.BasicRestartService;
 import dumb.jaider.service.BuildManagerService;
-import dumb.jaider.service.LocalGitService;
+import dumb.jaider.service.JGitService;
 import dumb.jaider.service.SelfUpdateOrchestratorService;
 import dumb.jaider.tools.JaiderTools;
 import dumb.jaider.ui.CommandLineUserInterfaceService;
@@ -29,7 +29,7 @@ public class JaiderApplication {
         System.out.println("SELF-UPDATE TARGET MARKER: This line is a target for modification."); // Marker for diff
 
         uiService = new CommandLineUserInterfaceService();
-        var gitService = new LocalGitService();
+        var gitService = new JGitService();
         var buildManagerService = new BuildManagerService();
         var restartService = new BasicRestartService();
 
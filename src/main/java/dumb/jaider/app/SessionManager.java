@@ -27,8 +27,7 @@ public class SessionManager {
 
     public void saveSession() {
         try {
-            var sessionDir = model.dir.resolve(".jaider");
-            Files.createDirectories(sessionDir);
+            var sessionDir = dumb.jaider.utils.Util.jaiderDir(model.dir);
             var session = new JSONObject();
             session.put("filesInContext", new JSONArray(model.files.stream().map(p -> model.dir.relativize(p).toString()).collect(Collectors.toList())));
             session.put("chatMemory", new JSONArray(chatMemory.messages().stream()
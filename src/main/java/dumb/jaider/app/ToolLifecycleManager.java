@@ -6,6 +6,8 @@ import dev.langchain4j.service.tool.DefaultToolExecutor;
 import dumb.jaider.config.Config;
 import dumb.jaider.tools.StandardTools;
 import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,16 +46,35 @@ public class ToolLifecycleManager {
     public void handleToolExecution(ToolExecutionRequest request) {
         if ("applyDiff".equals(request.name())) {
             app.setStatePublic(App.State.WAITING_USER_CONFIRMATION);
-            app.getUi().diffInteraction(request.arguments()).thenAccept(result -> {
-                if (result.accepted()) {
-                    // If diff was edited, build a new request with the edited diff.
-                    var finalRequest = result.edited() ?
-                        ToolExecutionRequest.builder().name(request.name()).id(request.id()).arguments(result.newDiff()).build() :
-                        request;
-                    executeAndContinue(finalRequest);
-                } else {
-                    // Pass null for ChatMessage as finishTurnPublic(ToolExecutionRequest, String) will handle it
+            // The arguments are the tool call's JSON; the reviewer needs the diff inside it to split it into hunks.
+            app.getUi().diffInteraction(firstArgument(request)).thenAccept(result -> {
+                if (!result.accepted()) {
                     app.finishTurnPublic(request, "User rejected the diff.");
+                } else if (result.edited()) {
+                    // Rejected hunks or a hand-edited diff: apply what the user kept, not the agent's original.
+                    var standardTools = findStandardTools();
+                    app.finishTurnPublic(request, standardTools != null ? standardTools.applyEditedDiff(result.newDiff())
+                            : "Error: Cannot apply the edited diff: StandardTools not found for current agent.");
+                } else {
+                    executeAndContinue(request);
+                }
+            });
+        } else if ("applyEdits".equals(request.name()) && findStandardTools() != null) {
+            // SEARCH/REPLACE edits are reviewed as the unified diff they would produce.
+            var standardTools = findStandardTools();
+            var preview = standardTools.previewEdits(firstArgument(request));
+            if (preview.startsWith("Error")) {
+                executeAndContinue(request); // Let the tool report which blocks did not match.
+                return;
+            }
+            app.setStatePublic(App.State.WAITING_USER_CONFIRMATION);
+            app.getUi().diffInteraction(preview).thenAccept(result -> {
+                if (!result.accepted()) {
+                    app.finishTurnPublic(request, "User rejected the edits.");
+                } else if (result.edited()) {
+                    app.finishTurnPublic(request, standardTools.applyEditedDiff(result.newDiff()));
+                } else {
+                    executeAndContinue(request);
                 }
             });
         } else {
@@ -61,6 +82,29 @@ public class ToolLifecycleManager {
         }
     }
 
+    private StandardTools findStandardTools() {
+        var currentAgent = agentService.getCurrentAgent();
+        if (currentAgent == null || currentAgent.tools() == null) {
+            return null;
+        }
+        for (var tool : currentAgent.tools()) {
+            if (tool instanceof StandardTools standardTools) {
+                return standardTools;
+            }
+        }
+        return null;
+    }
+
+    /** The single string argument of a tool call, whatever the parameter is named. */
+    private static String firstArgument(ToolExecutionRequest request) {
+        try {
+            var json = new JSONObject(request.arguments());
+            return json.isEmpty() ? "" : json.optString(json.keys().next());
+        } catch (JSONException e) {
+            return request.arguments();
+        }
+    }
+
     private void executeAndContinue(ToolExecutionRequest request) {
         // Log tool execution attempt to JaiderModel
         app.getModel().addLog(AiMessage.from(String.format("[ToolLifecycleManager] Attempting to execute tool: %s with args: %s", request.name(), request.arguments())));
@@ -76,7 +120,8 @@ public class ToolLifecycleManager {
         app.getModel().addLog(AiMessage.from(String.format("[ToolLifecycleManager Result: %s]\n%s", request.name(), toolResult)));
         app.getUi().redraw(app.getModel()); // Update UI to show tool result
 
-        var diffApplied = "applyDiff".equals(request.name()) && toolResult.startsWith("Diff applied");
+        var diffApplied = ("applyDiff".equals(request.name()) && toolResult.startsWith("Diff applied"))
+                || ("applyEdits".equals(request.name()) && toolResult.startsWith("Edits applied successfully"));
         var currentConfig = app.getConfig(); // Get config from App
 
         if (diffApplied && currentConfig.getRunCommand() != null && !currentConfig.getRunCommand().isBlank()) {
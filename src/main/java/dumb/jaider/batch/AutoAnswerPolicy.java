@@ -0,0 +1,22 @@
+package dumb.jaider.batch;
+
+import org.json.JSONObject;
+
+/**
+ * Fixed answers given to interactive prompts when no human is present.
+ *
+ * @param confirm     Answer to {@code confirm} prompts, e.g. "Run Validation?".
+ * @param confirmPlan Whether proposed plans are approved.
+ * @param applyDiffs  Whether diffs proposed by the agent are accepted.
+ */
+public record AutoAnswerPolicy(boolean confirm, boolean confirmPlan, boolean applyDiffs) {
+    public static final AutoAnswerPolicy ACCEPT_ALL = new AutoAnswerPolicy(true, true, true);
+
+    public static AutoAnswerPolicy fromJson(JSONObject json) {
+        if (json == null) return ACCEPT_ALL;
+        return new AutoAnswerPolicy(
+                json.optBoolean("confirm", true),
+                json.optBoolean("confirmPlan", true),
+                json.optBoolean("applyDiffs", true));
+    }
+}
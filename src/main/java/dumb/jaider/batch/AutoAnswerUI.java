@@ -0,0 +1,91 @@
+package dumb.jaider.batch;
+
+import dev.langchain4j.data.message.AiMessage;
+import dumb.jaider.app.App;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.ui.DiffInteractionResult;
+import dumb.jaider.ui.UI;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link UI} that never blocks on a human: every prompt is answered from an {@link AutoAnswerPolicy}
+ * and counted, so batch reports can show what was approved on the user's behalf.
+ */
+public class AutoAnswerUI implements UI {
+    private static final Logger logger = LoggerFactory.getLogger(AutoAnswerUI.class);
+
+    private final AutoAnswerPolicy policy;
+    private final AtomicInteger confirms = new AtomicInteger();
+    private final AtomicInteger plansApproved = new AtomicInteger();
+    private final AtomicInteger plansRejected = new AtomicInteger();
+    private final AtomicInteger diffsAccepted = new AtomicInteger();
+    private final AtomicInteger diffsRejected = new AtomicInteger();
+
+    public AutoAnswerUI(AutoAnswerPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void init(App app) {
+    }
+
+    @Override
+    public void redraw(JaiderModel model) {
+    }
+
+    @Override
+    public CompletableFuture<Boolean> confirm(String title, String text) {
+        confirms.incrementAndGet();
+        logger.debug("Auto-answering '{}' with {}", title, policy.confirm());
+        return CompletableFuture.completedFuture(policy.confirm());
+    }
+
+    @Override
+    public CompletableFuture<DiffInteractionResult> diffInteraction(String diff) {
+        (policy.applyDiffs() ? diffsAccepted : diffsRejected).incrementAndGet();
+        return CompletableFuture.completedFuture(new DiffInteractionResult(policy.applyDiffs(), false, policy.applyDiffs() ? diff : null));
+    }
+
+    @Override
+    public CompletableFuture<String> configEdit(String currentConfig) {
+        return CompletableFuture.completedFuture(currentConfig);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> confirmPlan(String title, String planText, AiMessage agentMessage) {
+        (policy.confirmPlan() ? plansApproved : plansRejected).incrementAndGet();
+        return CompletableFuture.completedFuture(policy.confirmPlan());
+    }
+
+    @Override
+    public void setInputText(String text) {
+    }
+
+    @Override
+    public CompletableFuture<String> switchProjectDirectory(String currentDirectory) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> showGlobalConfiguration() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public JSONObject answers() {
+        return new JSONObject()
+                .put("confirms", confirms.get())
+                .put("plansApproved", plansApproved.get())
+                .put("plansRejected", plansRejected.get())
+                .put("diffsAccepted", diffsAccepted.get())
+                .put("diffsRejected", diffsRejected.get());
+    }
+}
@@ -0,0 +1,327 @@
+package dumb.jaider.batch;
+
+import dumb.jaider.config.Config;
+import dumb.jaider.llm.LlmProviderFactory;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.server.SessionRegistry;
+import dumb.jaider.utils.Util;
+import dumb.jaider.vcs.SandboxManager;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs scripted tasks unattended. Each task gets its own copy of the project under
+ * {@code .jaider/batch/<runId>/<taskId>} and its own session from a shared {@link SessionRegistry};
+ * prompts are answered by an {@link AutoAnswerUI}. One JSON line per task is appended to the report
+ * as soon as the task finishes, followed by a summary written next to it.
+ * <p>
+ * With {@code sandboxes} on (the {@code batch} config default) and the project under git, tasks run in pooled
+ * {@link SandboxManager} sandboxes instead: they share the project's git objects rather than copying its history,
+ * preparing one rewrites only the files that differ, and the report lists each task's changed files. Sandboxes are
+ * recycled, so {@code keepWorkingCopies} does not apply to them. A task with several {@link BatchTask#attempts()} runs
+ * them in parallel sandboxes, and the first attempt to pass validation wins. With {@code promote} on, the winner's
+ * changes are copied into the project as one undoable edit; otherwise the project directory is never written.
+ */
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+    private static final Set<String> SKIPPED_DIRS = Set.of(".jaider", "target");
+
+    private final SessionRegistry registry;
+    private final Path projectDir;
+    private final AutoAnswerPolicy policy;
+    private final int concurrency;
+    private final boolean keepWorkingCopies;
+    private final boolean sandboxes;
+    private final boolean promote;
+
+    public BatchRunner(SessionRegistry registry, Path projectDir, AutoAnswerPolicy policy, int concurrency, boolean keepWorkingCopies) {
+        this(registry, projectDir, policy, concurrency, keepWorkingCopies, false);
+    }
+
+    public BatchRunner(SessionRegistry registry, Path projectDir, AutoAnswerPolicy policy, int concurrency, boolean keepWorkingCopies,
+                       boolean sandboxes) {
+        this(registry, projectDir, policy, concurrency, keepWorkingCopies, sandboxes, false);
+    }
+
+    /** @param promote copy each task's winning sandbox attempt into the project; only applies with {@code sandboxes}. */
+    public BatchRunner(SessionRegistry registry, Path projectDir, AutoAnswerPolicy policy, int concurrency, boolean keepWorkingCopies,
+                       boolean sandboxes, boolean promote) {
+        this.registry = registry;
+        this.projectDir = projectDir.toAbsolutePath().normalize();
+        this.policy = policy;
+        this.concurrency = Math.max(1, concurrency);
+        this.keepWorkingCopies = keepWorkingCopies;
+        this.sandboxes = sandboxes;
+        this.promote = promote;
+    }
+
+    /** Reads one task per non-blank, non-comment line; a malformed line or a repeated task id is rejected. */
+    public static List<BatchTask> readTasks(Path taskFile) throws IOException {
+        var tasks = new ArrayList<BatchTask>();
+        var ids = new HashSet<String>();
+        var lines = Files.readAllLines(taskFile, StandardCharsets.UTF_8);
+        for (var i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            if (line.isBlank() || line.trim().startsWith("#")) continue;
+            BatchTask task;
+            try {
+                task = BatchTask.parse(line, i + 1);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(taskFile.getFileName() + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+            if (!ids.add(task.id())) {
+                throw new IllegalArgumentException(taskFile.getFileName() + ":" + (i + 1) + ": duplicate task id '" + task.id() + "'.");
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Runs all tasks and writes {@code report.jsonl} and {@code summary.json} to the run directory.
+     *
+     * @return The summary.
+     */
+    public JSONObject run(List<BatchTask> tasks) throws IOException, InterruptedException {
+        if (tasks.stream().map(BatchTask::id).distinct().count() != tasks.size()) {
+            throw new IllegalArgumentException("Task ids must be unique; each names its working directory.");
+        }
+        var runId = "run-" + Instant.now().toEpochMilli();
+        var runDir = Util.jaiderDir(projectDir).resolve("batch").resolve(runId);
+        Files.createDirectories(runDir);
+        var reportFile = runDir.resolve("report.jsonl");
+        var inSandboxes = sandboxes && Files.isDirectory(projectDir.resolve(".git"));
+        if (sandboxes && !inSandboxes) logger.info("{} is not a git repository; batch tasks run in copies instead of sandboxes.", projectDir);
+        if (!inSandboxes && tasks.stream().anyMatch(t -> t.attempts() > 1)) {
+            logger.warn("Parallel attempts need sandboxes; each task runs once in a copy of the project.");
+        }
+
+        var succeeded = new AtomicInteger();
+        var inputTokens = new AtomicLong();
+        var outputTokens = new AtomicLong();
+        var start = System.nanoTime();
+        try (var writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+             var pool = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("batch-", 0).factory())) {
+            for (var task : tasks) {
+                pool.submit(() -> {
+                    var row = inSandboxes ? runInSandbox(task) : runTask(task, runDir.resolve(task.id()));
+                    if ("ok".equals(row.getString("status"))) succeeded.incrementAndGet();
+                    inputTokens.addAndGet(row.optLong("inputTokens"));
+                    outputTokens.addAndGet(row.optLong("outputTokens"));
+                    appendLine(writer, row);
+                });
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS)) {
+                logger.warn("Batch pool did not terminate.");
+            }
+        }
+        var elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        var summary = new JSONObject()
+                .put("runId", runId)
+                .put("tasks", tasks.size())
+                .put("succeeded", succeeded.get())
+                .put("failed", tasks.size() - succeeded.get())
+                .put("concurrency", concurrency)
+                .put("wallClockMs", elapsedMs)
+                .put("tasksPerMinute", tasks.size() * 60_000.0 / Math.max(1, elapsedMs))
+                .put("inputTokens", inputTokens.get())
+                .put("outputTokens", outputTokens.get())
+                .put("report", reportFile.toString());
+        Files.writeString(runDir.resolve("summary.json"), summary.toString(2));
+        logger.info("Batch {} finished: {}/{} tasks succeeded in {} ms", runId, succeeded.get(), tasks.size(), elapsedMs);
+        return summary;
+    }
+
+    JSONObject runTask(BatchTask task, Path workDir) {
+        return runTask(task, workDir, true);
+    }
+
+    /**
+     * Runs the task's attempts in parallel sandboxes, which go back to the pool afterwards. The row is the winning
+     * attempt's, or the first one's if none passed validation, and lists the files it changed; with several attempts
+     * it also summarizes each of them and counts the tokens of all.
+     */
+    JSONObject runInSandbox(BatchTask task) {
+        var start = System.nanoTime();
+        var manager = SandboxManager.of(projectDir);
+        var attempts = manager.runParallel(Collections.nCopies(task.attempts(), (SandboxManager.Task<JSONObject>) sandbox -> {
+            var prepareMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            var row = runTask(task, sandbox.dir(), false).put("copyMs", prepareMs);
+            return row.put("changedFiles", new JSONArray(sandbox.changedPaths()));
+        }));
+        try {
+            var rows = new ArrayList<JSONObject>();
+            var winner = -1;
+            for (var attempt : attempts) {
+                var row = attempt.succeeded() ? attempt.result() : new JSONObject().put("taskId", task.id()).put("status", "error")
+                        .put("error", attempt.error().getClass().getSimpleName() + ": " + attempt.error().getMessage());
+                if (!attempt.succeeded()) logger.warn("Batch task {} attempt failed in its sandbox", task.id(), attempt.error());
+                if (winner < 0 && passed(row)) winner = rows.size();
+                rows.add(row);
+            }
+            var row = rows.get(Math.max(0, winner));
+            if (rows.size() > 1) {
+                var summaries = new JSONArray();
+                var inputTokens = 0L;
+                var outputTokens = 0L;
+                for (var attempt : rows) {
+                    summaries.put(new JSONObject().put("workDir", attempt.optString("workDir")).put("status", attempt.getString("status"))
+                            .put("changedFiles", attempt.has("changedFiles") ? attempt.getJSONArray("changedFiles") : new JSONArray()));
+                    inputTokens += attempt.optLong("inputTokens");
+                    outputTokens += attempt.optLong("outputTokens");
+                }
+                row.put("attempts", summaries).put("winner", winner).put("inputTokens", inputTokens).put("outputTokens", outputTokens);
+            }
+            if (promote && winner >= 0 && !row.getJSONArray("changedFiles").isEmpty()) {
+                try {
+                    row.put("promoted", new JSONArray(manager.promote(attempts.get(winner).sandbox())));
+                } catch (IOException | IllegalStateException e) {
+                    logger.warn("Could not promote batch task {}: {}", task.id(), e.getMessage());
+                    row.put("status", "promote-failed").put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+            return row.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            for (var attempt : attempts) {
+                if (attempt.sandbox() != null) attempt.sandbox().close();
+            }
+        }
+    }
+
+    /** Whether an attempt finished and its validation ran and passed. */
+    private static boolean passed(JSONObject row) {
+        var validation = row.optJSONObject("validation");
+        return "ok".equals(row.getString("status")) && validation != null && validation.optBoolean("success");
+    }
+
+    private JSONObject runTask(BatchTask task, Path workDir, boolean copy) {
+        var row = new JSONObject().put("taskId", task.id()).put("workDir", workDir.toString());
+        var ui = new AutoAnswerUI(policy);
+        var start = System.nanoTime();
+        String sessionId = null;
+        try {
+            if (copy) {
+                copyProject(projectDir, workDir);
+                row.put("copyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            var session = registry.create(task.mode(), workDir, ui);
+            sessionId = session.id();
+            task.files().forEach(f -> session.model().files.add(workDir.resolve(f).normalize()));
+
+            String reply;
+            var status = "ok";
+            if (task.plan()) {
+                var plan = registry.send(sessionId, "Propose a step-by-step plan for the following task. Do not make any changes yet.\n\n" + task.prompt());
+                if (ui.confirmPlan("Agent's Proposed Plan", plan, null).join()) {
+                    reply = registry.send(sessionId, "Plan approved. Proceed.");
+                } else {
+                    reply = plan;
+                    status = "plan-rejected";
+                }
+            } else {
+                reply = registry.send(sessionId, task.prompt());
+            }
+            row.put("reply", reply);
+
+            if ("ok".equals(status) && ui.confirm("Run Validation?", "Run the configured validation command?").join()) {
+                var validation = session.validate();
+                validation.remove("output");
+                row.put("validation", validation);
+                if (!validation.optBoolean("success")) status = "validation-failed";
+            }
+            row.put("status", status);
+            session.usage().toJson().toMap().forEach(row::put);
+        } catch (Exception e) {
+            logger.warn("Batch task {} failed", task.id(), e);
+            row.put("status", "error").put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            if (sessionId != null) registry.get(sessionId).usage().toJson().toMap().forEach(row::put);
+        } finally {
+            if (sessionId != null) registry.close(sessionId);
+        }
+        row.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        row.put("prompts", ui.answers());
+        if (copy && !keepWorkingCopies && "ok".equals(row.getString("status"))) {
+            deleteQuietly(workDir);
+        }
+        return row;
+    }
+
+    private static synchronized void appendLine(BufferedWriter writer, JSONObject row) {
+        try {
+            writer.write(row.toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            logger.error("Failed to write batch report line for {}", row.optString("taskId"), e);
+        }
+    }
+
+    static void copyProject(Path from, Path to) throws IOException {
+        Files.walkFileTree(from, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(from) && SKIPPED_DIRS.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.copy(file, to.resolve(from.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete working copy {}", dir, e);
+        }
+    }
+
+    /**
+     * Entry point for {@code --batch}: builds shared models from the project's {@code .jaider.json}
+     * and reads the {@code batch} config section for concurrency and the answer policy.
+     */
+    public static JSONObject start(Path projectDir, Path taskFile, Integer concurrencyOverride) throws IOException, InterruptedException {
+        var tasks = readTasks(taskFile);
+        var config = new Config(projectDir);
+        var factory = new LlmProviderFactory(config, new JaiderModel(projectDir, "Jaider batch"));
+        var batchConfig = config.getSection("batch");
+        var concurrency = concurrencyOverride != null ? concurrencyOverride : batchConfig.optInt("concurrency", 4);
+        var registry = new SessionRegistry(config, factory.createChatModel(), factory.createEmbeddingModel(), concurrency,
+                config.getSection("server").optInt("memoryWindow", 20));
+        registry.setModelRouter(factory::createRoutedChatModel);
+        var runner = new BatchRunner(registry, projectDir, AutoAnswerPolicy.fromJson(batchConfig), concurrency,
+                batchConfig.optBoolean("keepWorkingCopies", false), batchConfig.optBoolean("sandboxes", true),
+                batchConfig.optBoolean("promote", false));
+        return runner.run(tasks);
+    }
+}
@@ -0,0 +1,48 @@
+package dumb.jaider.batch;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One scripted request for {@link BatchRunner}.
+ *
+ * @param id   Names the task's working directory, so it is limited to letters, digits, '_', '.' and '-' (not "." or "..").
+ * @param plan If true the agent first proposes a plan, which must pass {@link AutoAnswerPolicy#confirmPlan()}.
+ * @param attempts How many independent attempts run in parallel, each in its own sandbox; the first to pass validation
+ *                 wins. More than one needs sandboxes (see {@link BatchRunner}).
+ */
+public record BatchTask(String id, String prompt, String mode, List<String> files, boolean plan, int attempts) {
+    private static final Pattern ID = Pattern.compile("[\\w.-]+");
+
+    public BatchTask {
+        if (id == null || !ID.matcher(id).matches() || id.equals(".") || id.equals("..")) {
+            throw new IllegalArgumentException("Invalid task id '" + id + "': use letters, digits, '_', '.' or '-'.");
+        }
+        if (attempts < 1) throw new IllegalArgumentException("Task '" + id + "' needs at least one attempt.");
+    }
+
+    public BatchTask(String id, String prompt, String mode, List<String> files, boolean plan) {
+        this(id, prompt, mode, files, plan, 1);
+    }
+
+    /**
+     * Parses a task line: either a JSON object ({@code {"id", "prompt", "mode", "files", "plan", "attempts"}}) or a bare prompt.
+     */
+    static BatchTask parse(String line, int lineNumber) {
+        var trimmed = line.trim();
+        if (!trimmed.startsWith("{")) {
+            return new BatchTask("task-" + lineNumber, trimmed, "coder", List.of(), false);
+        }
+        var json = new JSONObject(trimmed);
+        var files = new ArrayList<String>();
+        var array = json.optJSONArray("files");
+        if (array != null) {
+            for (var i = 0; i < array.length(); i++) files.add(array.getString(i));
+        }
+        return new BatchTask(json.optString("id", "task-" + lineNumber), json.getString("prompt"),
+                json.optString("mode", "coder"), files, json.optBoolean("plan", false), json.optInt("attempts", 1));
+    }
+}
@@ -25,8 +25,10 @@ public class HelpCommand implements Command {
         COMMANDS_HELP.put("/editconfig", "Edit the .jaider.json configuration file.");
         COMMANDS_HELP.put("/summarize [files...]", "Summarize specified files or the current context if no files are given.");
         COMMANDS_HELP.put("/mode <mode_name>", "Switch the active agent mode (e.g., Coder, Architect, Ask).");
-        COMMANDS_HELP.put("/undo", "Revert the last code modification applied by Jaider.");
+        COMMANDS_HELP.put("/undo [N]", "Revert the last N file edits made by Jaider (default 1), using the edit journal.");
+        COMMANDS_HELP.put("/redo [N]", "Re-apply the last N edits reverted by /undo.");
         COMMANDS_HELP.put("/index", "Manage the project's semantic index (used by some agents for context).");
+        COMMANDS_HELP.put("/stats [json]", "Show LLM request counts, latency, token usage and error rates per provider and model.");
         COMMANDS_HELP.put("/selfdevelop <task_description>", "EXPERIMENTAL: Allow Jaider to attempt a task by developing a plan and executing it.");
         COMMANDS_HELP.put("/exit", "Exit Jaider.");
         COMMANDS_HELP.put("/help", "Show this help message.");
@@ -89,7 +89,9 @@ public class IndexCommand implements Command {
                 }
 
                 m.embeddings = new InMemoryEmbeddingStore<>();
+                var embedStart = System.nanoTime();
                 var embeddingResponse = context.app().getEmbeddingModel().embedAll(segments);
+                var segmentsPerSecond = segments.size() * 1e9 / Math.max(1, System.nanoTime() - embedStart);
                 if (embeddingResponse == null) {
                     context.app().finishTurnPublic(AiMessage.from("[Error] Failed to index project: EmbeddingModel returned null or empty embeddings."));
                     return;
@@ -97,7 +99,8 @@ public class IndexCommand implements Command {
                 var embeddings = embeddingResponse.content();
                 m.embeddings.addAll(embeddings, segments);
                 m.isIndexed = true;
-                context.app().finishTurnPublic(AiMessage.from("[Jaider] Project successfully indexed with " + segments.size() + " segments."));
+                context.app().finishTurnPublic(AiMessage.from("[Jaider] Project successfully indexed with " + segments.size() + " segments."
+                        + String.format(" (%.1f segments/sec)", segmentsPerSecond)));
             } catch (Exception e) {
                 logger.error("Error during indexing for path '{}': {}", args, e.getMessage(), e); // Added SLF4J logging
                 // Log the full stack trace for better debugging on the server/log file
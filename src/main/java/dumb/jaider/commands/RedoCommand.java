@@ -0,0 +1,12 @@
+package dumb.jaider.commands;
+
+/**
+ * Handles "/redo [N]": re-applies the last N edits reverted by "/undo". A new edit after an undo discards the
+ * redo history, as in an editor.
+ */
+public class RedoCommand implements Command {
+    @Override
+    public void execute(String args, AppContext appContext) {
+        UndoCommand.run(args, appContext, false);
+    }
+}
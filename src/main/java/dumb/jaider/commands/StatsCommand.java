@@ -0,0 +1,54 @@
+package dumb.jaider.commands;
+
+import dev.langchain4j.data.message.AiMessage;
+import dumb.jaider.llm.LlmMetrics;
+
+/**
+ * Handles the "/stats" command: per-provider/model LLM request counts, latency, time-to-first-token, token usage
+ * and error rates, plus failover and routing state. {@code /stats json} prints the full snapshot, the same
+ * document that is periodically written to {@code .jaider/metrics/}.
+ */
+public class StatsCommand implements Command {
+    private final LlmMetrics metrics;
+
+    /** Reports the metrics of the current project. */
+    public StatsCommand() {
+        this(null);
+    }
+
+    StatsCommand(LlmMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(String args, AppContext context) {
+        var snapshot = (metrics != null ? metrics : LlmMetrics.of(context.model().dir)).snapshot();
+        if (args != null && args.trim().equalsIgnoreCase("json")) {
+            context.model().addLog(AiMessage.from("[Stats]\n" + snapshot.toString(2)));
+            return;
+        }
+        var series = snapshot.getJSONArray("series");
+        if (series.isEmpty()) {
+            context.model().addLog(AiMessage.from("[Stats] No LLM calls recorded yet."));
+            return;
+        }
+        var text = new StringBuilder("[Stats] LLM calls since start:");
+        for (var i = 0; i < series.length(); i++) {
+            var s = series.getJSONObject(i);
+            var latency = s.getJSONObject("latencyMs");
+            var ttft = s.getJSONObject("timeToFirstTokenMs");
+            text.append(String.format("%n- %s %s/%s: %d requests, %d errors (%.1f%%), latency p50 %d ms / p95 %d ms / p99 %d ms, first token p50 %d ms, tokens in %d / out %d",
+                    s.getString("kind"), s.getString("provider"), s.getString("model"), s.getLong("requests"), s.getLong("errors"),
+                    s.getDouble("errorRate") * 100, latency.getLong("p50"), latency.getLong("p95"), latency.getLong("p99"), ttft.getLong("p50"),
+                    s.getLong("inputTokens"), s.getLong("outputTokens")));
+            if (s.getLong("items") > 0) {
+                text.append(", ").append(s.getLong("items")).append(" segments");
+            }
+        }
+        var components = snapshot.getJSONObject("components");
+        for (var name : components.keySet().stream().sorted().toList()) {
+            text.append(String.format("%n- %s: %s", name, components.get(name)));
+        }
+        context.model().addLog(AiMessage.from(text.toString()));
+    }
+}
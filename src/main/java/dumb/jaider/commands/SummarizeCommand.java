@@ -42,7 +42,7 @@ public class SummarizeCommand implements Command {
         }
 
         try {
-            var chatModel = appContext.app().getConfig().getComponent("appChatModel", ChatModel.class); // Changed from ChatModel
+            var chatModel = summarizeChatModel(appContext); // Tier bound to "summarize" in modelRouting, else appChatModel
             if (chatModel == null) {
                 appContext.model().addLog(AiMessage.from("[SummarizeCommand] Error: ChatModel is not available.")); // Corrected
                 return;
@@ -60,4 +60,13 @@ public class SummarizeCommand implements Command {
             e.printStackTrace(); // For more detailed error logging to console
         }
     }
+
+    private static ChatModel summarizeChatModel(AppContext appContext) {
+        var config = appContext.app().getConfig();
+        try {
+            return config.getComponent("summarizeChatModel", ChatModel.class);
+        } catch (RuntimeException e) {
+            return config.getComponent("appChatModel", ChatModel.class);
+        }
+    }
 }
@@ -1,50 +1,71 @@
 package dumb.jaider.commands;
 
-// import com.github.difflib.unifieddiff.UnifiedDiff; // Commented out
-// import dumb.jaider.utils.Util; // Util.diffReader is commented out
 import dev.langchain4j.data.message.AiMessage;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.tools.EditJournal;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Handles "/undo [N]": reverts the last N edits made by Jaider's tools (default 1) from the {@link EditJournal},
+ * rewriting only the files those edits touched. Files created by an edit are deleted, deleted files come back.
+ * Undone edits can be re-applied with "/redo".
+ */
 public class UndoCommand implements Command {
     @Override
-    public void execute(String args, AppContext appContext) { // Changed context to appContext to match usage
-        appContext.model().addLog(AiMessage.from("[UndoCommand] Error: Undo functionality is temporarily disabled due to library issues."));
-        /*
-        if (appContext.getModel().lastAppliedDiff == null) {
-            appContext.getModel().addLog(AiMessage.from("[Jaider] No change to undo."));
+    public void execute(String args, AppContext appContext) {
+        run(args, appContext, true);
+    }
+
+    static void run(String args, AppContext appContext, boolean undo) {
+        var model = appContext.model();
+        var name = undo ? "undo" : "redo";
+        int steps;
+        try {
+            steps = args == null || args.isBlank() ? 1 : Integer.parseInt(args.trim());
+        } catch (NumberFormatException e) {
+            steps = 0;
+        }
+        if (steps < 1) {
+            model.addLog(AiMessage.from("[Jaider] Usage: /" + name + " [N], where N is the number of edits to " + name + "."));
             return;
         }
-        GitService gitService = new GitService(appContext.getAppInstance().getProjectDir());
+        var journal = EditJournal.of(model.dir);
+        if ((undo ? journal.undoable() : journal.redoable()).isEmpty()) {
+            model.addLog(AiMessage.from("[Jaider] No change to " + name + "."));
+            return;
+        }
+        List<EditJournal.Entry> done = List.of();
+        String error = null;
         try {
-            // The Git.open() call is now handled by GitService.
-            // We still need to read the diff to know which files were affected.
-            com.github.difflib.unifieddiff.UnifiedDiff unifiedDiff = dumb.jaider.utils.Util.diffReader(appContext.getModel().lastAppliedDiff);
-            for (var fileDiff : unifiedDiff.getFiles()) {
-                Path filePath = appContext.getAppInstance().getProjectDir().resolve(fileDiff.getFromFile());
-                String fileName = fileDiff.getFromFile();
-                boolean isNewFile = "/dev/null".equals(fileDiff.getOldName());
+            done = undo ? journal.undo(steps) : journal.redo(steps);
+        } catch (IllegalStateException | IOException e) {
+            error = e.getMessage();
+        }
+        // The journal stops at the first conflict; report what it managed before that.
+        if (!done.isEmpty() || error == null) {
+            updateContext(model, done);
+            model.lastAppliedDiff = null;
+            model.addLog(AiMessage.from("[Jaider] " + (undo ? "Undid " : "Redid ") + done.size() + (done.size() == 1 ? " edit:" : " edits:")
+                    + done.stream().map(e -> "\n- " + e.description() + " (" + e.files().stream().map(EditJournal.FileState::path)
+                    .collect(Collectors.joining(", ")) + ")").collect(Collectors.joining())));
+        }
+        if (error != null) {
+            model.addLog(AiMessage.from("[Error] " + error));
+        }
+    }
 
-                if (isNewFile) {
-                    try {
-                        if (Files.deleteIfExists(filePath)) {
-                            appContext.getModel().addLog(AiMessage.from("[Jaider] Reverted (deleted) newly created file: " + fileName));
-                            appContext.getModel().filesInContext.remove(filePath);
-                        } else {
-                            appContext.getModel().addLog(AiMessage.from("[Jaider] Undo: File intended for deletion was already gone: " + fileName));
-                        }
-                    } catch (IOException e) {
-                        appContext.getModel().addLog(AiMessage.from("[Error] Failed to delete newly created file for undo: " + fileName + " - " + e.getMessage()));
-                    }
-                } else {
-                    String undoResult = gitService.undoFileChange(fileName);
-                    appContext.getModel().addLog(AiMessage.from("[Jaider] " + undoResult));
-                }
+    /** Keeps the context in step with files that the journal just deleted or brought back. */
+    private static void updateContext(JaiderModel model, List<EditJournal.Entry> entries) {
+        for (var entry : entries) {
+            for (var file : entry.files()) {
+                var path = model.dir.resolve(file.path());
+                if (!Files.exists(path)) model.files.remove(path);
+                else if (file.before() == null || file.after() == null) model.files.add(path);
             }
-            appContext.getModel().addLog(AiMessage.from("[Jaider] Undo attempt finished. Note: For existing files, this reverts them to their last committed state. For files newly created by the last diff, they are deleted. Please review changes carefully."));
-            appContext.getModel().lastAppliedDiff = null;
-        } catch (Exception e) {
-            appContext.getModel().addLog(AiMessage.from("[Error] Failed to process undo operation: " + e.getMessage()));
-            appContext.getModel().lastAppliedDiff = null;
         }
-        */
     }
 }
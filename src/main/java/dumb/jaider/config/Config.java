@@ -579,6 +579,26 @@ public class Config {
     /** @return The directory path for tool descriptor manifest files. */
     public String getToolManifestsDir() { return toolManifestsDir; }
 
+    /**
+     * @return A copy of the component definitions currently used by the dependency injector, keyed by id.
+     */
+    public Map<String, JSONObject> getComponentDefinitions() {
+        var copy = new HashMap<String, JSONObject>();
+        componentDefinitions.forEach((id, def) -> copy.put(id, new JSONObject(def.toString())));
+        return copy;
+    }
+
+    /**
+     * Returns a nested settings object (e.g., {@code "server"}) from the merged configuration.
+     *
+     * @param key The top-level key of the section.
+     * @return A copy of the section, or an empty {@link JSONObject} if it is absent or not an object.
+     */
+    public JSONObject getSection(String key) {
+        var section = loadedJsonConfig == null ? null : loadedJsonConfig.optJSONObject(key);
+        return section == null ? new JSONObject() : new JSONObject(section.toString());
+    }
+
 
     /**
      * Retrieves a component instance of the specified type from the dependency injector.
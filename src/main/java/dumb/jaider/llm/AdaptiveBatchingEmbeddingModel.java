@@ -0,0 +1,206 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits {@link #embedAll} into token-sized batches and sends several at once.
+ * <p>
+ * Batch size (in estimated tokens) and the number of in-flight batches follow AIMD: a batch that succeeds under
+ * {@code targetLatencyMillis} grows the batch budget additively and, every few successes, allows one more
+ * concurrent batch; a failure or a slow batch halves both. Only a failed batch is retried, split in two when it
+ * holds more than one segment, up to {@code maxRetries} times. Learned limits persist across calls.
+ */
+public class AdaptiveBatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatchingEmbeddingModel.class);
+    /** Successes needed before concurrency grows by one. */
+    private static final int SUCCESSES_PER_CONCURRENCY_STEP = 4;
+
+    public record Settings(int initialBatchTokens, int minBatchTokens, int maxBatchTokens,
+                           int initialConcurrency, int maxConcurrency, long targetLatencyMillis, int maxRetries) {
+        public static Settings fromJson(JSONObject json) {
+            var j = json == null ? new JSONObject() : json;
+            return new Settings(j.optInt("initialBatchTokens", 4096), j.optInt("minBatchTokens", 256), j.optInt("maxBatchTokens", 32_768),
+                    j.optInt("initialConcurrency", 2), j.optInt("maxConcurrency", 8), j.optLong("targetLatencyMs", 10_000), j.optInt("maxRetries", 3));
+        }
+    }
+
+    private record Batch(int from, int to, int attempt) {
+    }
+
+    private final EmbeddingModel delegate;
+    private final Settings settings;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private int batchTokens;
+    private int concurrency;
+    private int successStreak;
+    private volatile double lastSegmentsPerSecond;
+
+    public AdaptiveBatchingEmbeddingModel(EmbeddingModel delegate, Settings settings) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.batchTokens = settings.initialBatchTokens();
+        this.concurrency = Math.max(1, settings.initialConcurrency());
+    }
+
+    public EmbeddingModel delegate() {
+        return delegate;
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        var start = System.nanoTime();
+        var results = new Embedding[segments.size()];
+        var retries = new ArrayDeque<Batch>();
+        var completion = new ExecutorCompletionService<Response<List<Embedding>>>(executor);
+        var inFlight = new HashMap<Future<Response<List<Embedding>>>, Batch>();
+        var launchedAt = new HashMap<Future<Response<List<Embedding>>>, Long>();
+        var cursor = 0;
+        var batches = 0;
+        var retried = 0;
+        var inputTokens = 0;
+        try {
+            while (cursor < segments.size() || !retries.isEmpty() || !inFlight.isEmpty()) {
+                while (inFlight.size() < currentConcurrency() && (cursor < segments.size() || !retries.isEmpty())) {
+                    Batch batch;
+                    if (!retries.isEmpty()) {
+                        batch = retries.poll();
+                    } else {
+                        batch = nextBatch(segments, cursor);
+                        cursor = batch.to();
+                    }
+                    var slice = segments.subList(batch.from(), batch.to());
+                    var future = completion.submit(() -> delegate.embedAll(slice));
+                    inFlight.put(future, batch);
+                    launchedAt.put(future, System.nanoTime());
+                    batches++;
+                }
+
+                var done = completion.take();
+                var batch = inFlight.remove(done);
+                var latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchedAt.remove(done));
+                try {
+                    var response = done.get();
+                    var embeddings = response == null ? null : response.content();
+                    if (embeddings == null || embeddings.size() != batch.to() - batch.from()) {
+                        throw new IllegalStateException("Embedding model returned " + (embeddings == null ? "no" : embeddings.size())
+                                + " embeddings for " + (batch.to() - batch.from()) + " segments");
+                    }
+                    for (var i = 0; i < embeddings.size(); i++) results[batch.from() + i] = embeddings.get(i);
+                    if (response.tokenUsage() != null && response.tokenUsage().inputTokenCount() != null) {
+                        inputTokens += response.tokenUsage().inputTokenCount();
+                    }
+                    onSuccess(latencyMillis);
+                } catch (ExecutionException | IllegalStateException e) {
+                    var cause = e instanceof ExecutionException ? e.getCause() : e;
+                    onFailure();
+                    if (batch.attempt() >= settings.maxRetries()) {
+                        throw new RuntimeException("Embedding batch of " + (batch.to() - batch.from()) + " segments failed after "
+                                + (batch.attempt() + 1) + " attempts: " + cause.getMessage(), cause);
+                    }
+                    retried++;
+                    logger.warn("Embedding batch [{}, {}) failed (attempt {}): {}. Retrying with batch budget {} tokens, concurrency {}.",
+                            batch.from(), batch.to(), batch.attempt() + 1, cause.getMessage(), currentBatchTokens(), currentConcurrency());
+                    if (batch.to() - batch.from() > 1) {
+                        var mid = (batch.from() + batch.to()) >>> 1;
+                        retries.add(new Batch(batch.from(), mid, batch.attempt() + 1));
+                        retries.add(new Batch(mid, batch.to(), batch.attempt() + 1));
+                    } else {
+                        retries.add(new Batch(batch.from(), batch.to(), batch.attempt() + 1));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while embedding segments", e);
+        } finally {
+            inFlight.keySet().forEach(f -> f.cancel(true));
+        }
+
+        var elapsedNanos = Math.max(1, System.nanoTime() - start);
+        lastSegmentsPerSecond = segments.size() * 1e9 / elapsedNanos;
+        logger.info("Embedded {} segments in {} ms ({} segments/sec; {} batches, {} retried, batch budget now {} tokens, concurrency {})",
+                segments.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", lastSegmentsPerSecond),
+                batches, retried, currentBatchTokens(), currentConcurrency());
+        return Response.from(Arrays.asList(results), inputTokens > 0 ? new TokenUsage(inputTokens) : null);
+    }
+
+    /** Throughput of the most recent {@link #embedAll} call. */
+    public double lastSegmentsPerSecond() {
+        return lastSegmentsPerSecond;
+    }
+
+    private Batch nextBatch(List<TextSegment> segments, int from) {
+        var budget = currentBatchTokens();
+        var to = from;
+        var tokens = 0;
+        while (to < segments.size()) {
+            var t = estimateTokens(segments.get(to));
+            if (to > from && tokens + t > budget) break;
+            tokens += t;
+            to++;
+        }
+        return new Batch(from, to, 0);
+    }
+
+    static int estimateTokens(TextSegment segment) {
+        return segment.text().length() / 4 + 1;
+    }
+
+    private synchronized int currentBatchTokens() {
+        return batchTokens;
+    }
+
+    private synchronized int currentConcurrency() {
+        return concurrency;
+    }
+
+    private synchronized void onSuccess(long latencyMillis) {
+        if (latencyMillis > settings.targetLatencyMillis()) {
+            decrease();
+            return;
+        }
+        batchTokens = Math.min(settings.maxBatchTokens(), batchTokens + settings.minBatchTokens());
+        if (++successStreak >= SUCCESSES_PER_CONCURRENCY_STEP) {
+            successStreak = 0;
+            concurrency = Math.min(settings.maxConcurrency(), concurrency + 1);
+        }
+    }
+
+    private synchronized void onFailure() {
+        decrease();
+    }
+
+    private void decrease() {
+        successStreak = 0;
+        batchTokens = Math.max(settings.minBatchTokens(), batchTokens / 2);
+        concurrency = Math.max(1, concurrency / 2);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
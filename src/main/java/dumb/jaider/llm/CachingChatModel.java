@@ -0,0 +1,216 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays previously seen chat responses from disk.
+ * <p>
+ * The key is a SHA-256 of a canonical rendering of the request: messages, tool specifications (sorted, so tool
+ * registration order does not matter) and all sampling parameters, plus the delegate's default model name and the
+ * endpoint (provider and base URL) serving it, so two servers answering for the same model name never share entries.
+ * Entries are appended to {@code responses.jsonl} in the cache directory and kept in an access-ordered LRU map;
+ * when the file grows past twice {@code maxEntries} lines it is rewritten with the live entries, least recently
+ * used first, so the LRU order survives restarts. In offline mode a miss fails instead of calling the delegate.
+ */
+public final class CachingChatModel extends ChatModelDecorator {
+    private static final Logger logger = LoggerFactory.getLogger(CachingChatModel.class);
+    static final String CACHE_FILE = "responses.jsonl";
+
+    private final String endpoint;
+    private final Path file;
+    private final int maxEntries;
+    private final boolean offline;
+    private final Map<String, ChatResponse> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private BufferedWriter appender;
+    private int linesOnDisk;
+
+    /** @param endpoint identifies where {@code delegate} sends requests, e.g. {@code ollama@http://localhost:11434}. */
+    public CachingChatModel(ChatModel delegate, String endpoint, Path cacheDir, int maxEntries, boolean offline) {
+        super(delegate);
+        this.endpoint = endpoint;
+        this.file = cacheDir.resolve(CACHE_FILE);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.offline = offline;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatResponse> eldest) {
+                return size() > CachingChatModel.this.maxEntries;
+            }
+        };
+        load();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        var key = key(request);
+        synchronized (this) {
+            var cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        if (offline) {
+            throw new IllegalStateException("LLM cache miss for request " + key.substring(0, 12) + " while llmCache.offline is enabled.");
+        }
+        var response = delegate.chat(request);
+        if (response != null && response.aiMessage() != null) {
+            store(key, response);
+        }
+        return response;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Canonical request hash; stable across JVMs and independent of tool registration order. */
+    String key(ChatRequest request) {
+        var p = request.parameters();
+        var defaults = delegate.defaultRequestParameters();
+        var canonical = new StringBuilder()
+                .append("endpoint=").append(endpoint)
+                .append("\nmodel=").append(p.modelName() != null ? p.modelName() : defaults == null ? null : defaults.modelName())
+                .append("\ntemperature=").append(p.temperature())
+                .append("\ntopP=").append(p.topP())
+                .append("\ntopK=").append(p.topK())
+                .append("\nfrequencyPenalty=").append(p.frequencyPenalty())
+                .append("\npresencePenalty=").append(p.presencePenalty())
+                .append("\nmaxOutputTokens=").append(p.maxOutputTokens())
+                .append("\nstop=").append(p.stopSequences())
+                .append("\ntoolChoice=").append(p.toolChoice())
+                .append("\nresponseFormat=").append(p.responseFormat())
+                .append("\ntools=");
+        if (p.toolSpecifications() != null) {
+            p.toolSpecifications().stream().map(String::valueOf).sorted().forEach(t -> canonical.append(t).append('\n'));
+        }
+        canonical.append("\nmessages=").append(ChatMessageSerializer.messagesToJson(request.messages()));
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private synchronized void store(String key, ChatResponse response) {
+        entries.put(key, response);
+        try {
+            if (appender == null) {
+                Files.createDirectories(file.getParent());
+                appender = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            appender.write(toJson(key, response).toString());
+            appender.newLine();
+            appender.flush();
+            if (++linesOnDisk > maxEntries * 2) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to persist LLM cache entry to {}", file, e);
+        }
+    }
+
+    private synchronized void load() {
+        if (!Files.exists(file)) return;
+        try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                linesOnDisk++;
+                try {
+                    var json = new JSONObject(line);
+                    entries.put(json.getString("k"), fromJson(json));
+                } catch (RuntimeException e) {
+                    logger.debug("Skipping unreadable LLM cache line in {}", file, e);
+                }
+            });
+        } catch (IOException | java.io.UncheckedIOException e) {
+            logger.warn("Failed to load LLM cache from {}", file, e);
+            return;
+        }
+        logger.info("Loaded {} cached LLM responses from {}", entries.size(), file);
+        if (linesOnDisk > entries.size() * 2 && linesOnDisk > 16) {
+            compact();
+        }
+    }
+
+    /** Rewrites the file with only the live entries, least recently used first, via an atomic rename. */
+    synchronized void compact() {
+        try {
+            if (appender != null) {
+                appender.close();
+                appender = null;
+            }
+            Files.createDirectories(file.getParent());
+            var tmp = file.resolveSibling(CACHE_FILE + ".tmp");
+            try (var out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (var e : entries.entrySet()) {
+                    out.write(toJson(e.getKey(), e.getValue()).toString());
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Compacted LLM cache {} from {} to {} lines", file, linesOnDisk, entries.size());
+            linesOnDisk = entries.size();
+        } catch (IOException e) {
+            logger.warn("Failed to compact LLM cache {}", file, e);
+        }
+    }
+
+    private static JSONObject toJson(String key, ChatResponse response) {
+        var json = new JSONObject().put("k", key).put("ai", ChatMessageSerializer.messageToJson(response.aiMessage()));
+        var usage = response.tokenUsage();
+        if (usage != null) {
+            json.put("in", usage.inputTokenCount()).put("out", usage.outputTokenCount());
+        }
+        if (response.finishReason() != null) {
+            json.put("finish", response.finishReason().name());
+        }
+        return json;
+    }
+
+    private static ChatResponse fromJson(JSONObject json) {
+        var builder = ChatResponse.builder().aiMessage((AiMessage) ChatMessageDeserializer.messageFromJson(json.getString("ai")));
+        if (json.has("in") || json.has("out")) {
+            builder.tokenUsage(new TokenUsage(json.has("in") ? json.getInt("in") : null, json.has("out") ? json.getInt("out") : null));
+        }
+        if (json.has("finish")) {
+            builder.finishReason(FinishReason.valueOf(json.getString("finish")));
+        }
+        return builder.build();
+    }
+}
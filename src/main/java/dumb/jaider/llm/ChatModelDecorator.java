@@ -0,0 +1,50 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Base class for {@link ChatModel} wrappers. Subclasses intercept {@link #chat(ChatRequest)};
+ * request defaults, capabilities and provider information are taken from the wrapped model.
+ */
+public abstract class ChatModelDecorator implements ChatModel {
+    protected final ChatModel delegate;
+
+    protected ChatModelDecorator(ChatModel delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    public ChatModel delegate() {
+        return delegate;
+    }
+
+    @Override
+    public abstract ChatResponse chat(ChatRequest request);
+
+    @Override
+    public ChatResponse doChat(ChatRequest request) {
+        return chat(request);
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
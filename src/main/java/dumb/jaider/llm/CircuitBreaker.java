@@ -0,0 +1,61 @@
+package dumb.jaider.llm;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the breaker opens for
+ * {@code openMillis}; the first call after that is a half-open trial whose outcome closes or re-opens it.
+ */
+public class CircuitBreaker {
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private int consecutiveFailures;
+    private long openedAt;
+    private State state = State.CLOSED;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /** Whether a call may go through now; moves an expired open breaker to half-open and admits one trial. */
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> false;
+            case OPEN -> {
+                if (System.currentTimeMillis() - openedAt < openMillis) yield false;
+                state = State.HALF_OPEN;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /** @return {@code true} if this failure opened the breaker. */
+    public synchronized boolean onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    /** A trial that neither succeeded nor failed (e.g. cancelled) leaves the breaker ready for another trial. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis() - openMillis;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,216 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends each request to an ordered list of providers.
+ * <ul>
+ *     <li><b>Failover</b>: an error or a call exceeding {@code timeoutMillis} moves on to the next provider.</li>
+ *     <li><b>Hedging</b>: if the first attempt has not answered after its provider's p95 latency (or
+ *     {@code initialHedgeDelayMillis} until enough samples exist), the next provider is started as well and the first
+ *     successful response wins; the loser is cancelled.</li>
+ *     <li><b>Circuit breakers</b>: providers failing repeatedly are skipped until their breaker lets a trial through.</li>
+ * </ul>
+ */
+public class FailoverChatModel extends ChatModelDecorator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FailoverChatModel.class);
+    private static final int MIN_SAMPLES_FOR_P95 = 10;
+    private static final int STATS_LOG_INTERVAL = 50;
+
+    public record Settings(boolean hedging, long initialHedgeDelayMillis, long minHedgeDelayMillis, long timeoutMillis,
+                           int breakerFailures, long breakerOpenMillis) {
+        public static Settings fromJson(JSONObject json) {
+            var j = json == null ? new JSONObject() : json;
+            return new Settings(j.optBoolean("hedging", true), j.optLong("initialHedgeDelayMs", 5000), j.optLong("minHedgeDelayMs", 250),
+                    j.optLong("timeoutMs", 120_000), j.optInt("breakerFailures", 3), j.optLong("breakerOpenMs", 30_000));
+        }
+    }
+
+    /** One provider with its own latency window, breaker and counters. */
+    static final class Backend {
+        final String name;
+        final ChatModel model;
+        final CircuitBreaker breaker;
+        final LatencyStats latency = new LatencyStats(256);
+        final LongAdder successes = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder hedgeWins = new LongAdder();
+
+        Backend(String name, ChatModel model, Settings settings) {
+            this.name = name;
+            this.model = model;
+            this.breaker = new CircuitBreaker(settings.breakerFailures(), settings.breakerOpenMillis());
+        }
+
+        JSONObject stats() {
+            return new JSONObject()
+                    .put("successes", successes.sum())
+                    .put("failures", failures.sum())
+                    .put("timeouts", timeouts.sum())
+                    .put("hedgeWins", hedgeWins.sum())
+                    .put("breaker", breaker.state().name())
+                    .put("p50Ms", latency.percentile(0.50))
+                    .put("p95Ms", latency.percentile(0.95))
+                    .put("p99Ms", latency.percentile(0.99));
+        }
+    }
+
+    private record Attempt(Backend backend, long startNanos, boolean hedge) {
+    }
+
+    private final List<Backend> backends = new ArrayList<>();
+    private final Settings settings;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedgesFired = new LongAdder();
+
+    /**
+     * @param providers Provider name to chat model, in preference order.
+     */
+    public FailoverChatModel(List<java.util.Map.Entry<String, ChatModel>> providers, Settings settings) {
+        super(providers.getFirst().getValue());
+        this.settings = settings;
+        providers.forEach(e -> backends.add(new Backend(e.getKey(), e.getValue(), settings)));
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        requests.increment();
+        var order = new ArrayList<Backend>();
+        backends.stream().filter(b -> b.breaker.tryAcquire()).forEach(order::add);
+        if (order.isEmpty()) {
+            order.add(backends.getFirst()); // All breakers open: still try the preferred provider rather than fail outright.
+        }
+
+        var completion = new ExecutorCompletionService<ChatResponse>(executor);
+        var inFlight = new HashMap<Future<ChatResponse>, Attempt>();
+        var next = 0;
+        var hedged = false;
+        RuntimeException lastError = null;
+        launch(request, completion, inFlight, order.get(next++), false);
+        try {
+            while (true) {
+                var now = System.nanoTime();
+                var first = inFlight.values().stream().filter(a -> !a.hedge()).findFirst().orElse(null);
+                var hedgeAt = settings.hedging() && !hedged && next < order.size() && first != null
+                        ? first.startNanos() + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis(first.backend())) : Long.MAX_VALUE;
+                var timeoutAt = inFlight.values().stream().mapToLong(a -> a.startNanos() + TimeUnit.MILLISECONDS.toNanos(settings.timeoutMillis()))
+                        .min().orElse(now);
+                var done = completion.poll(Math.max(0, Math.min(hedgeAt, timeoutAt) - now), TimeUnit.NANOSECONDS);
+
+                if (done == null) {
+                    now = System.nanoTime();
+                    if (now >= hedgeAt) {
+                        hedged = true;
+                        hedgesFired.increment();
+                        logger.info("Hedging LLM request: {} slower than {} ms, also asking {}", first.backend().name, hedgeDelayMillis(first.backend()), order.get(next).name);
+                        launch(request, completion, inFlight, order.get(next++), true);
+                        continue;
+                    }
+                    for (var it = inFlight.entrySet().iterator(); it.hasNext(); ) {
+                        var entry = it.next();
+                        var attempt = entry.getValue();
+                        if (now - attempt.startNanos() >= TimeUnit.MILLISECONDS.toNanos(settings.timeoutMillis())) {
+                            entry.getKey().cancel(true);
+                            it.remove();
+                            attempt.backend().timeouts.increment();
+                            recordFailure(attempt.backend());
+                            lastError = new RuntimeException(new TimeoutException(attempt.backend().name + " did not answer within " + settings.timeoutMillis() + " ms"));
+                        }
+                    }
+                } else {
+                    var attempt = inFlight.remove(done);
+                    if (attempt == null) {
+                        continue; // A timed-out attempt we already cancelled and accounted for.
+                    }
+                    try {
+                        var response = done.get();
+                        var latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startNanos());
+                        attempt.backend().latency.record(latencyMillis);
+                        attempt.backend().successes.increment();
+                        attempt.backend().breaker.onSuccess();
+                        if (attempt.hedge()) attempt.backend().hedgeWins.increment();
+                        return response;
+                    } catch (ExecutionException e) {
+                        recordFailure(attempt.backend());
+                        lastError = e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+                        logger.warn("LLM provider {} failed: {}", attempt.backend().name, e.getCause().getMessage());
+                    }
+                }
+
+                if (inFlight.isEmpty()) {
+                    if (next >= order.size()) {
+                        throw lastError != null ? lastError : new IllegalStateException("No LLM provider produced a response.");
+                    }
+                    logger.info("Failing over to LLM provider {}", order.get(next).name);
+                    launch(request, completion, inFlight, order.get(next++), false);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for LLM providers", e);
+        } finally {
+            inFlight.forEach((future, attempt) -> {
+                future.cancel(true);
+                attempt.backend().breaker.release();
+            });
+            // Providers admitted by tryAcquire but never launched must not stay stuck in a half-open trial.
+            for (var i = next; i < order.size(); i++) order.get(i).breaker.release();
+            if (requests.sum() % STATS_LOG_INTERVAL == 0) {
+                logger.info("LLM provider stats: {}", stats());
+            }
+        }
+    }
+
+    private static void launch(ChatRequest request, ExecutorCompletionService<ChatResponse> completion,
+                               HashMap<Future<ChatResponse>, Attempt> inFlight, Backend backend, boolean hedge) {
+        inFlight.put(completion.submit(() -> backend.model.chat(request)), new Attempt(backend, System.nanoTime(), hedge));
+    }
+
+    private void recordFailure(Backend backend) {
+        backend.failures.increment();
+        if (backend.breaker.onFailure()) {
+            logger.warn("Circuit breaker opened for LLM provider {} for {} ms", backend.name, settings.breakerOpenMillis());
+        }
+    }
+
+    long hedgeDelayMillis(Backend backend) {
+        if (backend.latency.size() < MIN_SAMPLES_FOR_P95) {
+            return settings.initialHedgeDelayMillis();
+        }
+        return Math.max(settings.minHedgeDelayMillis(), backend.latency.percentile(0.95));
+    }
+
+    /** Per-provider success/failure counts, breaker state and p50/p95/p99 latency, plus hedging totals. */
+    public JSONObject stats() {
+        var providers = new JSONObject();
+        backends.forEach(b -> providers.put(b.name, b.stats()));
+        return new JSONObject()
+                .put("requests", requests.sum())
+                .put("hedgesFired", hedgesFired.sum())
+                .put("providers", providers);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,46 @@
+package dumb.jaider.llm;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent latency samples, for tail percentiles without unbounded memory.
+ */
+public class LatencyStats {
+    private final long[] samples;
+    private int next;
+    private int count;
+    private long total;
+
+    public LatencyStats(int window) {
+        this.samples = new long[window];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        total++;
+    }
+
+    /** Samples currently in the window. */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** All samples ever recorded. */
+    public synchronized long total() {
+        return total;
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.95.
+     * @return The nearest-rank percentile of the window, or -1 if empty.
+     */
+    public synchronized long percentile(double quantile) {
+        if (count == 0) return -1;
+        var copy = Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        var rank = (int) Math.ceil(quantile * count) - 1;
+        return copy[Math.clamp(rank, 0, count - 1)];
+    }
+}
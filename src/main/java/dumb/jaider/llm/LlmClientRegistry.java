@@ -0,0 +1,108 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of LLM clients keyed by their effective connection settings.
+ * <p>
+ * {@code Config.save} replaces the dependency injector, so every {@code App.update()} gets a fresh
+ * {@link LlmProviderFactory}. Looking clients up here lets an unchanged configuration keep its warm HTTP client
+ * and keep-alive connections instead of building new ones. API keys are only held as a hash in the key.
+ */
+public class LlmClientRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(LlmClientRegistry.class);
+    private static final LlmClientRegistry SHARED = new LlmClientRegistry();
+
+    /**
+     * Everything that affects how a client connects; two equal keys may share one client.
+     *
+     * @param kind    "chat" or "embedding".
+     * @param options Settings of decorators wrapped around the client (e.g. the response cache), empty if none.
+     */
+    public record ClientKey(String kind, String provider, String baseUrl, String modelName, String apiKeyHash, String options) {
+        @Override
+        public String toString() {
+            return kind + ":" + provider + ":" + modelName + "@" + (baseUrl == null ? "default" : baseUrl) + " key#" + apiKeyHash
+                    + (options.isEmpty() ? "" : " [" + options + "]");
+        }
+
+        public ClientKey withOptions(String options) {
+            return new ClientKey(kind, provider, baseUrl, modelName, apiKeyHash, options);
+        }
+    }
+
+    private final Map<ClientKey, ChatModel> chatModels = new ConcurrentHashMap<>();
+    private final Map<ClientKey, EmbeddingModel> embeddingModels = new ConcurrentHashMap<>();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder built = new LongAdder();
+
+    public static LlmClientRegistry shared() {
+        return SHARED;
+    }
+
+    public static ClientKey key(String kind, String provider, String baseUrl, String modelName, String apiKey) {
+        return new ClientKey(kind, provider == null ? null : provider.toLowerCase(), baseUrl, modelName, hash(apiKey), "");
+    }
+
+    public ChatModel chatModel(ClientKey key) {
+        return hit(key, chatModels.get(key));
+    }
+
+    public EmbeddingModel embeddingModel(ClientKey key) {
+        return hit(key, embeddingModels.get(key));
+    }
+
+    public void register(ClientKey key, ChatModel model) {
+        built.increment();
+        chatModels.put(key, model);
+        logger.info("Built new LLM client {} ({} built, {} reused so far)", key, built.sum(), reused.sum());
+    }
+
+    public void register(ClientKey key, EmbeddingModel model) {
+        built.increment();
+        embeddingModels.put(key, model);
+        logger.info("Built new LLM client {} ({} built, {} reused so far)", key, built.sum(), reused.sum());
+    }
+
+    public long reusedCount() {
+        return reused.sum();
+    }
+
+    public long builtCount() {
+        return built.sum();
+    }
+
+    public void clear() {
+        chatModels.clear();
+        embeddingModels.clear();
+    }
+
+    private <T> T hit(ClientKey key, T client) {
+        if (client != null) {
+            reused.increment();
+            logger.info("Reusing warm LLM client {} ({} built, {} reused so far)", key, built.sum(), reused.sum());
+        }
+        return client;
+    }
+
+    private static String hash(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) return "none";
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
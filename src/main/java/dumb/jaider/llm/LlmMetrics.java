@@ -0,0 +1,215 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.output.TokenUsage;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Request counts, latency, time-to-first-token, token usage and errors for every LLM client, kept per
+ * kind ({@code chat}/{@code embedding}), provider and model. Fed by {@link MeteredChatModel} and
+ * {@link MeteredEmbeddingModel}; shown by {@code /stats} and periodically written to {@value #FILE_NAME}.
+ * One instance per project ({@link #of}), so projects and server sessions in one JVM never share numbers or files.
+ */
+public class LlmMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(LlmMetrics.class);
+    private static final Map<Path, LlmMetrics> PROJECTS = new ConcurrentHashMap<>();
+    /** Instances with a flush directory; the shutdown hook writes each one to its own directory. */
+    private static final Set<LlmMetrics> FLUSHING = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong IDS = new AtomicLong();
+    private static ScheduledExecutorService flusher;
+    public static final String FILE_NAME = "llm-metrics.json";
+    /** Upper bounds of the latency histogram buckets; a last bucket collects everything slower. */
+    static final long[] BUCKET_BOUNDS_MS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000};
+
+    /** Metrics for one kind/provider/model combination. */
+    public static final class Series {
+        final String kind;
+        final String provider;
+        final String model;
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder inputTokens = new LongAdder();
+        final LongAdder outputTokens = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final LatencyStats latency = new LatencyStats(1024);
+        final LatencyStats firstToken = new LatencyStats(1024);
+        final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+
+        Series(String kind, String provider, String model) {
+            this.kind = kind;
+            this.provider = provider;
+            this.model = model;
+            for (var i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        /**
+         * @param firstTokenMillis Time until the first token arrived; for blocking calls this is the full latency.
+         * @param items            Segments embedded, or 0 for chat calls.
+         */
+        public void recordSuccess(long latencyMillis, long firstTokenMillis, TokenUsage usage, int items) {
+            requests.increment();
+            record(latencyMillis);
+            firstToken.record(firstTokenMillis);
+            this.items.add(items);
+            if (usage != null) {
+                if (usage.inputTokenCount() != null) inputTokens.add(usage.inputTokenCount());
+                if (usage.outputTokenCount() != null) outputTokens.add(usage.outputTokenCount());
+            }
+        }
+
+        public void recordError(long latencyMillis) {
+            requests.increment();
+            errors.increment();
+            record(latencyMillis);
+        }
+
+        private void record(long latencyMillis) {
+            latency.record(latencyMillis);
+            var bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && latencyMillis > BUCKET_BOUNDS_MS[bucket]) bucket++;
+            buckets[bucket].increment();
+        }
+
+        public String label() {
+            return kind + " " + provider + "/" + model;
+        }
+
+        JSONObject toJson() {
+            var histogram = new JSONObject();
+            for (var i = 0; i < buckets.length; i++) {
+                histogram.put(i < BUCKET_BOUNDS_MS.length ? "le" + BUCKET_BOUNDS_MS[i] + "ms" : "slower", buckets[i].sum());
+            }
+            var total = requests.sum();
+            return new JSONObject()
+                    .put("kind", kind)
+                    .put("provider", provider)
+                    .put("model", model)
+                    .put("requests", total)
+                    .put("errors", errors.sum())
+                    .put("errorRate", total == 0 ? 0.0 : (double) errors.sum() / total)
+                    .put("inputTokens", inputTokens.sum())
+                    .put("outputTokens", outputTokens.sum())
+                    .put("items", items.sum())
+                    .put("latencyMs", percentiles(latency))
+                    .put("timeToFirstTokenMs", percentiles(firstToken))
+                    .put("latencyHistogram", histogram);
+        }
+
+        private static JSONObject percentiles(LatencyStats stats) {
+            return new JSONObject()
+                    .put("p50", stats.percentile(0.50))
+                    .put("p95", stats.percentile(0.95))
+                    .put("p99", stats.percentile(0.99));
+        }
+    }
+
+    private final long id = IDS.incrementAndGet();
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<JSONObject>> extraStats = new ConcurrentHashMap<>();
+    private volatile Path flushDir;
+
+    /** The metrics of the given project, shared like {@link LlmClientRegistry#shared()} so numbers survive client rebuilds. */
+    public static LlmMetrics of(Path projectDir) {
+        return PROJECTS.computeIfAbsent(projectDir.toAbsolutePath().normalize(), dir -> new LlmMetrics());
+    }
+
+    /** Distinguishes instances in client keys: a metered client records into one instance and must not be reused by another. */
+    public long id() {
+        return id;
+    }
+
+    public Series series(String kind, String provider, String model) {
+        var p = provider == null ? "unknown" : provider.toLowerCase();
+        var m = model == null ? "unknown" : model;
+        return series.computeIfAbsent(kind + "|" + p + "|" + m, k -> new Series(kind, p, m));
+    }
+
+    /** Adds (or replaces) a named block of component statistics, e.g. failover breaker state, to snapshots. */
+    public void registerStats(String name, Supplier<JSONObject> stats) {
+        extraStats.put(name, stats);
+    }
+
+    public JSONObject snapshot() {
+        var all = new JSONArray();
+        series.values().stream()
+                .sorted(java.util.Comparator.comparing(Series::label))
+                .forEach(s -> all.put(s.toJson()));
+        var extra = new JSONObject();
+        extraStats.forEach((name, stats) -> {
+            try {
+                extra.put(name, stats.get());
+            } catch (RuntimeException e) {
+                logger.debug("Could not collect stats '{}'.", name, e);
+            }
+        });
+        return new JSONObject()
+                .put("generatedAt", Instant.now().toString())
+                .put("series", all)
+                .put("components", extra);
+    }
+
+    /**
+     * Writes a snapshot to {@code dir/}{@value #FILE_NAME} every {@code intervalSeconds} and at shutdown. The directory
+     * is fixed by the first call; later calls with another directory are ignored, so one instance never writes to two
+     * places. One background thread serves the whole process.
+     */
+    public synchronized void startFlushing(Path dir, long intervalSeconds) {
+        if (flushDir != null) {
+            if (!flushDir.equals(dir)) logger.warn("LLM metrics already flush to {}; ignoring {}.", flushDir, dir);
+            return;
+        }
+        flushDir = dir;
+        FLUSHING.add(this);
+        var scheduler = scheduler();
+        if (intervalSeconds > 0) scheduler.scheduleAtFixedRate(this::flushQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService scheduler() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                var t = new Thread(r, "jaider-llm-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> FLUSHING.forEach(LlmMetrics::flushQuietly), "jaider-llm-metrics-final"));
+        }
+        return flusher;
+    }
+
+    void flushQuietly() {
+        var dir = flushDir;
+        if (dir == null || series.isEmpty()) return;
+        try {
+            flush(dir);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write LLM metrics to {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /** Writes the current snapshot atomically, so readers never see a partial file. */
+    public Path flush(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        var file = dir.resolve(FILE_NAME);
+        var tmp = dir.resolve(FILE_NAME + ".tmp");
+        Files.writeString(tmp, snapshot().toString(2));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+}
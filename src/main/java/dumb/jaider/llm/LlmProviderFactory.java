@@ -12,12 +12,24 @@ import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import dumb.jaider.app.Jaider;
 import dumb.jaider.config.Config;
 import dumb.jaider.model.JaiderModel;
+import dumb.jaider.utils.Util;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 
 public class LlmProviderFactory {
     private static final Logger logger = LoggerFactory.getLogger(LlmProviderFactory.class);
+    private static final String OPENAI_EMBEDDING_MODEL = "text-embedding-ada-002";
+    private static final String DEFAULT_LLM_CACHE_DIR = ".jaider/llm-cache";
+    private static final String DEFAULT_METRICS_DIR = ".jaider/metrics";
+    /** Agents and commands that can be bound to a model tier in the {@code modelRouting.bindings} config section. */
+    public static final List<String> ROUTING_TARGETS = List.of("coder", "architect", "ask", "summarize");
     private final Config config;
     private final JaiderModel model;
 
@@ -25,31 +37,312 @@ public class LlmProviderFactory {
     //    private Tokenizer tokenizer;
     private EmbeddingModel embeddingModel;
 
+    private final LlmClientRegistry clients;
+    private final LlmMetrics metrics;
+
     public LlmProviderFactory(Config config, JaiderModel model) {
+        this(config, model, LlmClientRegistry.shared());
+    }
+
+    public LlmProviderFactory(Config config, JaiderModel model, LlmClientRegistry clients) {
+        this(config, model, clients, model.dir != null ? LlmMetrics.of(model.dir) : new LlmMetrics());
+    }
+
+    public LlmProviderFactory(Config config, JaiderModel model, LlmClientRegistry clients, LlmMetrics metrics) {
         this.config = config;
         this.model = model;
+        this.clients = clients;
+        this.metrics = metrics;
     }
 
     public ChatModel createChatModel() { // Changed from ChatModel
-        if ("ollama".equalsIgnoreCase(config.getLlm())) {
-            setupOllama();
-        } else if ("genericOpenai".equalsIgnoreCase(config.getLlm())) {
-            setupGenericOpenAI();
-        } else if ("openai".equalsIgnoreCase(config.getLlm())) {
-            setupOpenAI();
-        } else if ("gemini".equalsIgnoreCase(config.getLlm())) {
-            setupGemini();
+        var provider = config.getLlm();
+        if (!isKnownProvider(provider)) {
+            model.addLog(AiMessage.from(String.format("[Jaider] WARNING: Unknown llmProvider '%s' in config. Defaulting to Ollama.", provider)));
+        }
+        var cacheSettings = config.getSection("llmCache");
+        var cacheEnabled = cacheSettings != null && cacheSettings.optBoolean("enabled", false);
+        // Resolved per project: the client registry outlives project switches, so the key must tell caches apart.
+        var cacheDir = cacheEnabled ? model.dir.resolve(cacheSettings.optString("dir", DEFAULT_LLM_CACHE_DIR)).toAbsolutePath().normalize() : null;
+        var failoverSettings = config.getSection("llmFailover");
+        var failoverProviders = failoverProviders(failoverSettings);
+        startMetricsFlushing();
+        var key = safeKey(this::chatClientKey);
+        if (key != null) {
+            var options = new ArrayList<String>();
+            if (metricsEnabled()) {
+                options.add(meteredOption());
+            }
+            if (failoverProviders.size() > 1) {
+                var keys = new ArrayList<String>();
+                for (var p : failoverProviders) {
+                    var providerKey = safeKey(() -> chatClientKey(p));
+                    keys.add(providerKey == null ? p : providerKey.toString());
+                }
+                options.add("failover=" + keys + ",settings=" + failoverSettings.toString());
+            }
+            var routingSettings = config.getSection("modelRouting");
+            if (routingSettings != null && routingSettings.optBoolean("enabled", false)) {
+                options.add("routing=" + routingSettings); // Agents hold routed models, so routing changes must rebuild them.
+            }
+            if (cacheEnabled) {
+                options.add("cache=" + cacheDir + ",max=" + cacheSettings.optInt("maxEntries", 2000)
+                        + ",offline=" + cacheSettings.optBoolean("offline", false));
+            }
+            key = key.withOptions(String.join(";", options));
+        }
+        var cached = key == null ? null : clients.chatModel(key);
+        if (cached != null) {
+            this.chatModel = cached;
+            model.addLog(AiMessage.from(String.format("[Jaider] Reusing warm %s chat client '%s' (connection settings unchanged).", key.provider(), key.modelName())));
+            return this.chatModel;
+        }
+
+        if (failoverProviders.size() > 1) {
+            setupFailover(failoverProviders, failoverSettings);
         } else {
-            model.addLog(AiMessage.from(String.format("[Jaider] WARNING: Unknown llmProvider '%s' in config. Defaulting to Ollama.", config.getLlm())));
-            setupOllama(); // Defaulting to Ollama
+            setupChatModel(provider);
         }
 
         if (this.chatModel == null) {
             throw new dumb.jaider.app.exceptions.ChatModelInitializationException("Failed to initialize any chat model provider after trying all configured options.");
         }
+        if (cacheEnabled) {
+            ignoreJaiderDir();
+            var offline = cacheSettings.optBoolean("offline", false);
+            var endpoints = (failoverProviders.size() > 1 ? failoverProviders : List.of(provider)).stream().map(this::endpoint).toList();
+            this.chatModel = new CachingChatModel(this.chatModel, String.join(",", endpoints), cacheDir, cacheSettings.optInt("maxEntries", 2000), offline);
+            model.addLog(AiMessage.from(String.format("[Jaider] LLM response cache enabled at %s%s.", cacheDir, offline ? " (offline: cache misses fail)" : "")));
+        }
+        if (this.chatModel instanceof FailoverChatModel failover) {
+            metrics.registerStats("failover", failover::stats);
+        }
+        if (key != null) {
+            clients.register(key, this.chatModel);
+        }
         return this.chatModel;
     }
 
+    private ChatModel setupChatModel(String provider) {
+        return setupChatModel(provider, null);
+    }
+
+    /** @param modelName Overrides the provider's configured model name when not {@code null}. */
+    private ChatModel setupChatModel(String provider, String modelName) {
+        this.chatModel = null;
+        if ("ollama".equalsIgnoreCase(provider)) {
+            setupOllama(modelName);
+        } else if ("genericOpenai".equalsIgnoreCase(provider)) {
+            setupGenericOpenAI(modelName);
+        } else if ("openai".equalsIgnoreCase(provider)) {
+            setupOpenAI(modelName);
+        } else if ("gemini".equalsIgnoreCase(provider)) {
+            setupGemini(modelName);
+        } else {
+            setupOllama(modelName); // Defaulting to Ollama
+        }
+        if (this.chatModel != null && metricsEnabled()) {
+            var key = safeKey(() -> chatClientKey(provider, modelName));
+            this.chatModel = new MeteredChatModel(this.chatModel, metrics.series("chat", key == null ? provider : key.provider(), key == null ? modelName : key.modelName()));
+        }
+        return this.chatModel;
+    }
+
+    private boolean metricsEnabled() {
+        var section = config.getSection("metrics");
+        return section != null && section.optBoolean("enabled", false);
+    }
+
+    /** Metered clients record into this factory's metrics, so they are only reused by factories sharing them. */
+    private String meteredOption() {
+        return "metered=" + metrics.id();
+    }
+
+    /** Cache and metrics files default to {@code .jaider/}; keep them out of the project's git status. */
+    private void ignoreJaiderDir() {
+        if (model.dir == null) return;
+        try {
+            Util.jaiderDir(model.dir);
+        } catch (IOException e) {
+            logger.warn("Could not create {} in {}: {}", Util.JAIDER_DIR, model.dir, e.getMessage());
+        }
+    }
+
+    private void startMetricsFlushing() {
+        var section = config.getSection("metrics");
+        if (section != null && section.optBoolean("enabled", false) && model.dir != null) {
+            ignoreJaiderDir();
+            metrics.startFlushing(model.dir.resolve(section.optString("dir", DEFAULT_METRICS_DIR)), section.optLong("flushIntervalSeconds", 60));
+        }
+    }
+
+    /**
+     * Chat model for one agent or command ({@link #ROUTING_TARGETS}). When {@code modelRouting} is enabled and binds the
+     * target, returns a {@link RoutingChatModel} over the configured tiers; otherwise {@code defaultModel}.
+     * A tier without a {@code provider} uses {@code defaultModel}; others are built once and shared by all targets.
+     */
+    public ChatModel createRoutedChatModel(String target, ChatModel defaultModel) {
+        var routing = config.getSection("modelRouting");
+        if (routing == null || !routing.optBoolean("enabled", false)) {
+            return defaultModel;
+        }
+        var bindings = routing.optJSONObject("bindings");
+        var binding = bindings == null ? null : bindings.optString(target, null);
+        var tierDefs = routing.optJSONArray("tiers");
+        if (binding == null || tierDefs == null || tierDefs.isEmpty()) {
+            return defaultModel;
+        }
+        var tiers = new ArrayList<RoutingChatModel.Tier>();
+        for (var i = 0; i < tierDefs.length(); i++) {
+            var def = tierDefs.getJSONObject(i);
+            var name = def.optString("name", "tier" + i);
+            var tierModel = tierModel(def, defaultModel);
+            if (tierModel != null) {
+                tiers.add(new RoutingChatModel.Tier(name, tierModel));
+            } else {
+                model.addLog(AiMessage.from(String.format("[Jaider] WARNING: Model tier '%s' could not be initialized and is skipped.", name)));
+            }
+        }
+        if (tiers.isEmpty()) {
+            return defaultModel;
+        }
+        logger.info("Routing {} over tiers {} with binding '{}'.", target, tiers.stream().map(RoutingChatModel.Tier::name).toList(), binding);
+        var routed = new RoutingChatModel(target, tiers, binding, TaskClassifier.fromJson(routing), routing.optBoolean("escalate", true));
+        metrics.registerStats("routing." + target, routed::stats);
+        return routed;
+    }
+
+    /**
+     * Targets that {@code modelRouting} binds but that no component references as {@code <target>ChatModel}, e.g. agents
+     * in an older {@code .jaider.json} still wired to {@code appChatModel}: routing has no effect on them. Empty when
+     * routing is off. {@code summarize} is looked up by name and always counts as referenced.
+     */
+    public List<String> unreferencedRoutingTargets(Map<String, JSONObject> componentDefinitions) {
+        var routing = config.getSection("modelRouting");
+        var bindings = routing == null || !routing.optBoolean("enabled", false) ? null : routing.optJSONObject("bindings");
+        if (bindings == null) return List.of();
+        return ROUTING_TARGETS.stream()
+                .filter(target -> bindings.has(target) && !"summarize".equals(target))
+                .filter(target -> componentDefinitions.values().stream()
+                        .noneMatch(def -> def.toString().contains("\"ref\":\"" + target + "ChatModel\"")))
+                .toList();
+    }
+
+    private ChatModel tierModel(JSONObject def, ChatModel defaultModel) {
+        var provider = def.optString("provider", null);
+        if (provider == null || provider.isBlank()) {
+            return defaultModel;
+        }
+        var modelName = def.optString("modelName", null);
+        var key = safeKey(() -> chatClientKey(provider, modelName));
+        if (key != null) {
+            key = key.withOptions(metricsEnabled() ? meteredOption() : "");
+        }
+        var cached = key == null ? null : clients.chatModel(key);
+        if (cached != null) {
+            return cached;
+        }
+        var appModel = this.chatModel; // setupChatModel() overwrites the field
+        try {
+            var built = setupChatModel(provider, modelName);
+            if (built != null && key != null) {
+                clients.register(key, built);
+            }
+            return built;
+        } finally {
+            this.chatModel = appModel;
+        }
+    }
+
+    /** Builds every provider listed in {@code llmFailover.providers} and combines them in a {@link FailoverChatModel}. */
+    private void setupFailover(List<String> providers, JSONObject failoverSettings) {
+        var built = new ArrayList<Map.Entry<String, ChatModel>>();
+        for (var p : providers) {
+            var m = setupChatModel(p);
+            if (m != null) {
+                built.add(Map.entry(p, m));
+            } else {
+                model.addLog(AiMessage.from(String.format("[Jaider] WARNING: Failover provider '%s' could not be initialized and is skipped.", p)));
+            }
+        }
+        if (built.size() < 2) {
+            this.chatModel = built.isEmpty() ? null : built.getFirst().getValue();
+            return;
+        }
+        this.chatModel = new FailoverChatModel(built, FailoverChatModel.Settings.fromJson(failoverSettings));
+        model.addLog(AiMessage.from(String.format("[Jaider] Using %d LLM providers with failover%s: %s.", built.size(),
+                failoverSettings.optBoolean("hedging", true) ? " and hedging" : "", built.stream().map(Map.Entry::getKey).toList())));
+    }
+
+    private static List<String> failoverProviders(JSONObject failoverSettings) {
+        var list = failoverSettings == null ? null : failoverSettings.optJSONArray("providers");
+        var providers = new ArrayList<String>();
+        if (list != null) {
+            for (var i = 0; i < list.length(); i++) providers.add(list.getString(i));
+        }
+        return providers;
+    }
+
+    private static boolean isKnownProvider(String provider) {
+        return "ollama".equalsIgnoreCase(provider) || "genericOpenai".equalsIgnoreCase(provider)
+                || "openai".equalsIgnoreCase(provider) || "gemini".equalsIgnoreCase(provider);
+    }
+
+    /** Key lookups must never break client creation; a failing config read just bypasses the cache. */
+    private static LlmClientRegistry.ClientKey safeKey(java.util.function.Supplier<LlmClientRegistry.ClientKey> keySupplier) {
+        try {
+            return keySupplier.get();
+        } catch (RuntimeException e) {
+            logger.debug("Could not derive LLM client cache key; building uncached client.", e);
+            return null;
+        }
+    }
+
+    /** Provider and base URL a chat request to {@code provider} goes to, for keys that must not mix endpoints. */
+    private String endpoint(String provider) {
+        var key = safeKey(() -> chatClientKey(provider));
+        return key == null ? provider : key.provider() + "@" + (key.baseUrl() == null ? "default" : key.baseUrl());
+    }
+
+    /** Connection settings that identify the chat client {@link #createChatModel()} would build. */
+    LlmClientRegistry.ClientKey chatClientKey() {
+        return chatClientKey(config.getLlm());
+    }
+
+    LlmClientRegistry.ClientKey chatClientKey(String provider) {
+        return chatClientKey(provider, null);
+    }
+
+    LlmClientRegistry.ClientKey chatClientKey(String provider, String modelName) {
+        if ("genericOpenai".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("chat", provider, config.getGenericOpenaiBaseUrl(), orConfigured(modelName, config::getGenericOpenaiModelName), config.getGenericOpenaiApiKey());
+        } else if ("openai".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("chat", provider, null, orConfigured(modelName, config::getOpenaiModelName), config.getOpenaiApiKey());
+        } else if ("gemini".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("chat", provider, null, orConfigured(modelName, config::getGeminiModelName), config.getGeminiApiKey());
+        }
+        return LlmClientRegistry.key("chat", "ollama", config.getOllamaBaseUrl(), orConfigured(modelName, config::getOllamaModelName), null);
+    }
+
+    private static String orConfigured(String modelName, java.util.function.Supplier<String> configured) {
+        return modelName != null && !modelName.isBlank() ? modelName : configured.get();
+    }
+
+    /** Connection settings for the embedding client, or {@code null} when the provider has none. */
+    LlmClientRegistry.ClientKey embeddingClientKey() {
+        var provider = config.getLlm();
+        if ("ollama".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("embedding", provider, config.getOllamaBaseUrl(), config.getOllamaModelName(), null);
+        } else if ("genericOpenai".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("embedding", provider, config.getGenericOpenaiBaseUrl(), config.getGenericOpenaiEmbeddingModelName(), config.getGenericOpenaiApiKey());
+        } else if ("openai".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("embedding", provider, null, OPENAI_EMBEDDING_MODEL, config.getOpenaiApiKey());
+        } else if ("gemini".equalsIgnoreCase(provider)) {
+            return LlmClientRegistry.key("embedding", provider, null, config.getGeminiEmbeddingModelName(), config.getGeminiApiKey());
+        }
+        return null;
+    }
+
 //    public Tokenizer createTokenizer() {
 //        if (this.tokenizer == null) {
 //            if (this.chatModel == null) {
@@ -71,6 +364,23 @@ public class LlmProviderFactory {
 //    }
 
     public EmbeddingModel createEmbeddingModel() {
+        var batchingSettings = config.getSection("embeddingBatching");
+        var batchingEnabled = batchingSettings != null && batchingSettings.optBoolean("enabled", false);
+        var key = this.embeddingModel == null ? safeKey(this::embeddingClientKey) : null;
+        if (key != null) {
+            var options = new ArrayList<String>();
+            if (metricsEnabled()) options.add(meteredOption());
+            if (batchingEnabled) options.add("batching=" + batchingSettings);
+            key = key.withOptions(String.join(";", options));
+        }
+        if (key != null) {
+            var cached = clients.embeddingModel(key);
+            if (cached != null) {
+                this.embeddingModel = cached;
+                model.addLog(AiMessage.from(String.format("[Jaider] Reusing warm %s embedding client '%s' (connection settings unchanged).", key.provider(), key.modelName())));
+                return this.embeddingModel;
+            }
+        }
         if (this.embeddingModel == null) {
             var provider = config.getLlm(); // Safe to call config.getLlm() here as it's a simple getter
             if ("ollama".equalsIgnoreCase(provider)) {
@@ -90,6 +400,18 @@ public class LlmProviderFactory {
              model.addLog(AiMessage.from("[Jaider] WARNING: Embedding model was still null after setup attempts. Defaulting to NoOpEmbeddingModel."));
              this.embeddingModel = new dumb.jaider.llm.NoOpEmbeddingModel();
         }
+        if (metricsEnabled() && !(this.embeddingModel instanceof NoOpEmbeddingModel) && !(this.embeddingModel instanceof MeteredEmbeddingModel)
+                && !(this.embeddingModel instanceof AdaptiveBatchingEmbeddingModel)) {
+            var metricsKey = safeKey(this::embeddingClientKey);
+            this.embeddingModel = new MeteredEmbeddingModel(this.embeddingModel, metrics.series("embedding",
+                    metricsKey == null ? config.getLlm() : metricsKey.provider(), metricsKey == null ? null : metricsKey.modelName()));
+        }
+        if (batchingEnabled && !(this.embeddingModel instanceof NoOpEmbeddingModel) && !(this.embeddingModel instanceof AdaptiveBatchingEmbeddingModel)) {
+            this.embeddingModel = new AdaptiveBatchingEmbeddingModel(this.embeddingModel, AdaptiveBatchingEmbeddingModel.Settings.fromJson(batchingSettings));
+        }
+        if (key != null && !(this.embeddingModel instanceof NoOpEmbeddingModel)) {
+            clients.register(key, this.embeddingModel);
+        }
         return this.embeddingModel;
     }
 
@@ -145,12 +467,12 @@ public class LlmProviderFactory {
         }
     }
 
-    private void setupOllama() {
+    private void setupOllama(String modelNameOverride) {
         var baseUrl = "UNKNOWN";
         var modelName = "UNKNOWN";
         try {
             baseUrl = config.getOllamaBaseUrl();
-            modelName = config.getOllamaModelName();
+            modelName = orConfigured(modelNameOverride, config::getOllamaModelName);
             this.chatModel = OllamaChatModel.builder()
                     .baseUrl(baseUrl)
                     .modelName(modelName)
@@ -164,14 +486,14 @@ public class LlmProviderFactory {
         }
     }
 
-    private void setupGenericOpenAI() {
+    private void setupGenericOpenAI(String modelNameOverride) {
         String apiKey = null;
         var baseUrl = "UNKNOWN";
         var modelName = "UNKNOWN";
         try {
             apiKey = config.getGenericOpenaiApiKey();
             baseUrl = config.getGenericOpenaiBaseUrl();
-            modelName = config.getGenericOpenaiModelName();
+            modelName = orConfigured(modelNameOverride, config::getGenericOpenaiModelName);
 
             if (apiKey == null || apiKey.isEmpty()) {
                 // model.addLog(AiMessage.from("[Jaider] INFO: Generic OpenAI API key is not configured in .jaider.json or related environment variables. The endpoint might require an API key."));
@@ -196,10 +518,10 @@ public class LlmProviderFactory {
         }
     }
 
-    private void setupGemini() {
+    private void setupGemini(String modelNameOverride) {
         var modelName = "UNKNOWN";
         try {
-            modelName = config.getGeminiModelName();
+            modelName = orConfigured(modelNameOverride, config::getGeminiModelName);
 
             this.chatModel = GoogleAiGeminiChatModel.builder()
                     .modelName(modelName)
@@ -236,12 +558,12 @@ public class LlmProviderFactory {
         }
     }
 
-    private void setupOpenAI() {
+    private void setupOpenAI(String modelNameOverride) {
         String apiKey = null;
         var modelName = "UNKNOWN";
         try {
             apiKey = config.getOpenaiApiKey();
-            modelName = config.getOpenaiModelName();
+            modelName = orConfigured(modelNameOverride, config::getOpenaiModelName);
 
             if (apiKey == null || apiKey.trim().isEmpty()) {
                 // model.addLog(AiMessage.from("[Jaider] INFO: OpenAI API key is not configured. Langchain4j might attempt to find it in environment variables or system properties."));
@@ -264,7 +586,7 @@ public class LlmProviderFactory {
 
     private void setupOpenAIEmbeddingModel() {
         String apiKey = null;
-        var embeddingModelName = "text-embedding-ada-002"; // Hardcoded default
+        var embeddingModelName = OPENAI_EMBEDDING_MODEL; // Hardcoded default
         try {
             apiKey = config.getOpenaiApiKey();
             // Using hardcoded default for embeddingModelName as getOpenaiEmbeddingModelName() doesn't exist on Config
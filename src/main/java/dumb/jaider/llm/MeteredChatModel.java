@@ -0,0 +1,37 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Records latency, token usage and errors of each call into an {@link LlmMetrics.Series}. Calls are blocking, so the
+ * first token arrives with the whole response and time-to-first-token equals latency.
+ */
+public class MeteredChatModel extends ChatModelDecorator {
+    private final LlmMetrics.Series series;
+
+    public MeteredChatModel(ChatModel delegate, LlmMetrics.Series series) {
+        super(delegate);
+        this.series = series;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        var start = System.nanoTime();
+        ChatResponse response;
+        try {
+            response = delegate.chat(request);
+        } catch (RuntimeException e) {
+            series.recordError(elapsedMillis(start));
+            throw e;
+        }
+        var elapsed = elapsedMillis(start);
+        series.recordSuccess(elapsed, elapsed, response.tokenUsage(), 0);
+        return response;
+    }
+
+    static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
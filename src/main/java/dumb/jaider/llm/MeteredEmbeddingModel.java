@@ -0,0 +1,43 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/** Embedding counterpart of {@link MeteredChatModel}; also counts the segments embedded. */
+public class MeteredEmbeddingModel implements EmbeddingModel {
+    private final EmbeddingModel delegate;
+    private final LlmMetrics.Series series;
+
+    public MeteredEmbeddingModel(EmbeddingModel delegate, LlmMetrics.Series series) {
+        this.delegate = delegate;
+        this.series = series;
+    }
+
+    public EmbeddingModel delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        var start = System.nanoTime();
+        Response<List<Embedding>> response;
+        try {
+            response = delegate.embedAll(textSegments);
+        } catch (RuntimeException e) {
+            series.recordError(MeteredChatModel.elapsedMillis(start));
+            throw e;
+        }
+        var elapsed = MeteredChatModel.elapsedMillis(start);
+        series.recordSuccess(elapsed, elapsed, response.tokenUsage(), textSegments.size());
+        return response;
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -0,0 +1,129 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Picks one of several model tiers (ordered from cheapest to largest) for each turn of an agent or command.
+ * A fixed binding always uses its tier; the {@value #AUTO} binding lets {@link TaskClassifier} choose.
+ * With escalation enabled, a turn moves up one tier when it follows a failed tool call or validation run, and the
+ * request is retried on the next tier when the chosen one errors or returns a tool call that cannot be parsed.
+ */
+public class RoutingChatModel extends ChatModelDecorator {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingChatModel.class);
+    public static final String AUTO = "auto";
+
+    public record Tier(String name, ChatModel model) {
+    }
+
+    private final String target;
+    private final List<Tier> tiers;
+    private final String binding;
+    private final TaskClassifier classifier;
+    private final boolean escalate;
+    private final LongAdder[] routed;
+    private final LongAdder escalations = new LongAdder();
+
+    /**
+     * @param target  Agent or command name, used for logging.
+     * @param tiers   Tiers from cheapest to largest; must not be empty.
+     * @param binding A tier name or {@value #AUTO}. Unknown names fall back to the largest tier.
+     */
+    public RoutingChatModel(String target, List<Tier> tiers, String binding, TaskClassifier classifier, boolean escalate) {
+        super(tiers.get(fixedTier(tiers, binding)).model());
+        this.target = target;
+        this.tiers = List.copyOf(tiers);
+        this.binding = binding;
+        this.classifier = classifier;
+        this.escalate = escalate;
+        this.routed = new LongAdder[tiers.size()];
+        for (var i = 0; i < routed.length; i++) routed[i] = new LongAdder();
+    }
+
+    private static int fixedTier(List<Tier> tiers, String binding) {
+        for (var i = 0; i < tiers.size(); i++) {
+            if (tiers.get(i).name().equalsIgnoreCase(binding)) return i;
+        }
+        return tiers.size() - 1;
+    }
+
+    /** Tier index the request starts on, before any error-driven escalation. */
+    int initialTier(ChatRequest request) {
+        var tier = AUTO.equalsIgnoreCase(binding) ? classifier.classify(request, tiers.size()) : fixedTier(tiers, binding);
+        if (escalate && tier < tiers.size() - 1 && TaskClassifier.followsFailure(request.messages())) {
+            tier++;
+        }
+        return tier;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        var tier = initialTier(request);
+        while (true) {
+            var current = tiers.get(tier);
+            var canEscalate = escalate && tier < tiers.size() - 1;
+            routed[tier].increment();
+            logger.debug("Routing {} turn to tier '{}'.", target, current.name());
+            ChatResponse response;
+            try {
+                response = current.model().chat(request);
+            } catch (RuntimeException e) {
+                if (!canEscalate) throw e;
+                logger.warn("Tier '{}' failed for {} ({}); escalating to '{}'.", current.name(), target, e.getMessage(), tiers.get(tier + 1).name());
+                escalations.increment();
+                tier++;
+                continue;
+            }
+            if (canEscalate && hasMalformedToolCall(request, response)) {
+                logger.info("Tier '{}' returned an unusable tool call for {}; escalating to '{}'.", current.name(), target, tiers.get(tier + 1).name());
+                escalations.increment();
+                tier++;
+                continue;
+            }
+            return response;
+        }
+    }
+
+    /** A tool call naming a tool that was not offered, or whose arguments are not a JSON object. */
+    static boolean hasMalformedToolCall(ChatRequest request, ChatResponse response) {
+        var ai = response.aiMessage();
+        if (ai == null || !ai.hasToolExecutionRequests()) {
+            return false;
+        }
+        var offered = request.toolSpecifications() == null ? java.util.Set.<String>of()
+                : request.toolSpecifications().stream().map(ToolSpecification::name).collect(Collectors.toSet());
+        for (var call : ai.toolExecutionRequests()) {
+            if (call.name() == null || !offered.contains(call.name())) {
+                return true;
+            }
+            var args = call.arguments();
+            if (args != null && !args.isBlank()) {
+                try {
+                    new JSONObject(args);
+                } catch (RuntimeException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Turns handled per tier and the number of escalations. */
+    public JSONObject stats() {
+        var perTier = new JSONObject();
+        for (var i = 0; i < tiers.size(); i++) perTier.put(tiers.get(i).name(), routed[i].sum());
+        return new JSONObject()
+                .put("binding", binding)
+                .put("routed", perTier)
+                .put("escalations", escalations.sum());
+    }
+}
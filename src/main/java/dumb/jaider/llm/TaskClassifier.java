@@ -0,0 +1,82 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Cheap local heuristics that estimate how demanding a turn is, so that {@link RoutingChatModel} can send simple
+ * questions to a small model. Each signal adds one point; the score is the index of the tier to use.
+ * <ul>
+ *     <li>the latest user message is longer than {@code longMessageChars},</li>
+ *     <li>it contains code (fences, diffs or common declarations),</li>
+ *     <li>the turn needs tools: tools are offered and the user asks for a change, or the agent is mid tool loop.</li>
+ * </ul>
+ */
+public class TaskClassifier {
+    private static final Pattern CODE = Pattern.compile(
+            "```|^(\\+\\+\\+|---|@@) |\\b(class|interface|public|private|def|function|import|return)\\b.*[;{(]", Pattern.MULTILINE);
+    private static final Pattern CHANGE_REQUEST = Pattern.compile(
+            "\\b(add|change|create|delete|edit|fix|implement|modify|refactor|remove|rename|replace|update|write)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final int longMessageChars;
+
+    public TaskClassifier(int longMessageChars) {
+        this.longMessageChars = longMessageChars;
+    }
+
+    public static TaskClassifier fromJson(JSONObject json) {
+        return new TaskClassifier(json == null ? 1500 : json.optInt("longMessageChars", 1500));
+    }
+
+    /** @return a tier index in {@code [0, tierCount)}. */
+    public int classify(ChatRequest request, int tierCount) {
+        var messages = request.messages();
+        var text = lastUserText(messages);
+        var score = 0;
+        if (text.length() > longMessageChars) score++;
+        if (CODE.matcher(text).find()) score++;
+        var toolsOffered = request.toolSpecifications() != null && !request.toolSpecifications().isEmpty();
+        if (toolsOffered && (CHANGE_REQUEST.matcher(text).find() || (!messages.isEmpty() && messages.getLast() instanceof ToolExecutionResultMessage))) {
+            score++;
+        }
+        return Math.min(score, tierCount - 1);
+    }
+
+    /**
+     * True when the turn is answering a failed tool call: an error string from a tool, or a validation run that did
+     * not succeed. Such turns are worth escalating to a larger model.
+     */
+    public static boolean followsFailure(List<ChatMessage> messages) {
+        if (messages.isEmpty() || !(messages.getLast() instanceof ToolExecutionResultMessage result)) {
+            return false;
+        }
+        var text = result.text() == null ? "" : result.text().strip();
+        if (text.startsWith("Error") || text.startsWith("{\"error\"")) {
+            return true;
+        }
+        if (text.startsWith("{")) {
+            try {
+                var json = new JSONObject(text);
+                return json.has("success") && !json.optBoolean("success", true);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String lastUserText(List<ChatMessage> messages) {
+        for (var i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage user) {
+                return user.hasSingleText() ? user.singleText() : user.contents().toString();
+            }
+        }
+        return "";
+    }
+}
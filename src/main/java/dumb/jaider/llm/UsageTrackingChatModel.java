@@ -0,0 +1,65 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts calls, tokens and requested tool executions passing through a shared {@link ChatModel}.
+ * A thin per-consumer wrapper, so many sessions can share one underlying client while keeping
+ * their own usage figures.
+ */
+public class UsageTrackingChatModel extends ChatModelDecorator {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+    private final LongAdder toolCalls = new LongAdder();
+
+    public UsageTrackingChatModel(ChatModel delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        calls.increment();
+        try {
+            var response = delegate.chat(request);
+            var usage = response.tokenUsage();
+            if (usage != null) {
+                if (usage.inputTokenCount() != null) inputTokens.add(usage.inputTokenCount());
+                if (usage.outputTokenCount() != null) outputTokens.add(usage.outputTokenCount());
+            }
+            if (response.aiMessage() != null && response.aiMessage().hasToolExecutionRequests()) {
+                toolCalls.add(response.aiMessage().toolExecutionRequests().size());
+            }
+            return response;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    public Usage snapshot() {
+        return new Usage(calls.sum(), failures.sum(), inputTokens.sum(), outputTokens.sum(), toolCalls.sum());
+    }
+
+    public record Usage(long calls, long failures, long inputTokens, long outputTokens, long toolCalls) {
+        public Usage minus(Usage earlier) {
+            return new Usage(calls - earlier.calls, failures - earlier.failures, inputTokens - earlier.inputTokens,
+                    outputTokens - earlier.outputTokens, toolCalls - earlier.toolCalls);
+        }
+
+        public JSONObject toJson() {
+            return new JSONObject()
+                    .put("llmCalls", calls)
+                    .put("llmFailures", failures)
+                    .put("inputTokens", inputTokens)
+                    .put("outputTokens", outputTokens)
+                    .put("toolCalls", toolCalls);
+        }
+    }
+}
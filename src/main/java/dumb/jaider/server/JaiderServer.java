@@ -0,0 +1,230 @@
+package dumb.jaider.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dumb.jaider.config.Config;
+import dumb.jaider.llm.LlmProviderFactory;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.utils.Util;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless HTTP front end for {@link SessionRegistry}. Binds to localhost only.
+ * <pre>
+ * POST   /sessions                 {"mode":"coder|architect|ask","projectDir":"...","files":["..."]} -> {"sessionId":...}
+ * POST   /sessions/{id}/messages   {"message":"..."} -> {"reply":..., "usage":{...}}
+ * POST   /sessions/{id}/index      builds the project's embedding index once and shares it with its sessions
+ * GET    /sessions/{id}/metrics
+ * DELETE /sessions/{id}
+ * GET    /metrics
+ * </pre>
+ * Sessions write files without asking, so every request must carry {@code Authorization: Bearer <token>} with the
+ * token of this launch ({@value #TOKEN_FILE} under the project when started by {@link #start}). Requests with an
+ * {@code Origin} header, i.e. sent by a web page, and request bodies that are not {@code application/json} are refused,
+ * so a page open in the developer's browser cannot drive the agent.
+ */
+public class JaiderServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(JaiderServer.class);
+
+    /** Where {@link #start} writes the bearer token, relative to the project directory. */
+    public static final String TOKEN_FILE = Util.JAIDER_DIR + "/server-token";
+
+    private final SessionRegistry registry;
+    private final byte[] token;
+    private final HttpServer http;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** @param token The bearer token clients must send; see {@link #newToken}. */
+    public JaiderServer(SessionRegistry registry, int port, String token) throws IOException {
+        if (token == null || token.isBlank()) throw new IllegalArgumentException("The server needs a bearer token.");
+        this.registry = registry;
+        this.token = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+        this.http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.http.setExecutor(executor);
+        this.http.createContext("/sessions", exchange -> {
+            if (authorized(exchange)) handleSessions(exchange);
+        });
+        this.http.createContext("/metrics", exchange -> {
+            if (!authorized(exchange)) return;
+            if (!"GET".equals(exchange.getRequestMethod())) respond(exchange, 405, error("Method not allowed"));
+            else respond(exchange, 200, registry.metrics());
+        });
+    }
+
+    /** A random token for one launch of the server. */
+    public static String newToken() {
+        var bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    /** Answers the request with an error and returns false unless it may reach a handler. */
+    private boolean authorized(HttpExchange exchange) throws IOException {
+        var headers = exchange.getRequestHeaders();
+        if (headers.containsKey("Origin")) {
+            respond(exchange, 403, error("Requests from web pages are not accepted."));
+            return false;
+        }
+        var authorization = headers.getFirst("Authorization");
+        if (authorization == null || !MessageDigest.isEqual(token, authorization.getBytes(StandardCharsets.UTF_8))) {
+            respond(exchange, 401, error("Missing or wrong bearer token; see " + TOKEN_FILE + "."));
+            return false;
+        }
+        var contentType = headers.getFirst("Content-Type");
+        if ("POST".equals(exchange.getRequestMethod())
+                && (contentType == null || !contentType.toLowerCase().startsWith("application/json"))) {
+            respond(exchange, 415, error("Request bodies must be application/json."));
+            return false;
+        }
+        return true;
+    }
+
+    public void start() {
+        http.start();
+        logger.info("Jaider server listening on http://127.0.0.1:{}", port());
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        var parts = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+        var method = exchange.getRequestMethod();
+        try {
+            if (parts.length == 1 && "POST".equals(method)) {
+                var body = readJson(exchange);
+                var dir = body.has("projectDir") ? Paths.get(body.getString("projectDir")) : Paths.get("");
+                var files = contextFiles(dir, body.optJSONArray("files"));
+                var session = registry.create(body.optString("mode", "coder"), dir);
+                session.model().files.addAll(files);
+                respond(exchange, 201, new JSONObject().put("sessionId", session.id()).put("mode", session.agent().name()));
+            } else if (parts.length == 2 && "DELETE".equals(method)) {
+                respond(exchange, registry.close(parts[1]) ? 200 : 404, new JSONObject().put("sessionId", parts[1]));
+            } else if (parts.length == 3 && "messages".equals(parts[2]) && "POST".equals(method)) {
+                var message = readJson(exchange).getString("message");
+                var session = registry.get(parts[1]);
+                var before = session.usage();
+                var reply = registry.send(parts[1], message);
+                respond(exchange, 200, new JSONObject().put("reply", reply).put("usage", session.usage().minus(before).toJson()));
+            } else if (parts.length == 3 && "index".equals(parts[2]) && "POST".equals(method)) {
+                var session = registry.get(parts[1]);
+                registry.index(session.model().dir);
+                respond(exchange, 200, new JSONObject().put("sessionId", session.id()).put("indexed", true));
+            } else if (parts.length == 3 && "metrics".equals(parts[2]) && "GET".equals(method)) {
+                respond(exchange, 200, registry.get(parts[1]).metrics());
+            } else {
+                respond(exchange, 404, error("No route for " + method + " " + exchange.getRequestURI().getPath()));
+            }
+        } catch (NoSuchElementException e) {
+            respond(exchange, 404, error(e.getMessage()));
+        } catch (JSONException | IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            respond(exchange, 409, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Interrupted while waiting for a turn slot."));
+        } catch (Exception e) {
+            logger.error("Request {} {} failed", method, exchange.getRequestURI(), e);
+            respond(exchange, 500, error(e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+    }
+
+    /** The requested context files, resolved against the project; any that would leave it is rejected. */
+    static List<Path> contextFiles(Path projectDir, JSONArray files) {
+        var root = projectDir.toAbsolutePath().normalize();
+        var paths = new ArrayList<Path>();
+        if (files == null) return paths;
+        for (var i = 0; i < files.length(); i++) {
+            var path = root.resolve(files.getString(i)).normalize();
+            if (!path.startsWith(root)) {
+                throw new IllegalArgumentException("File '" + files.getString(i) + "' is outside the project directory.");
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    private static JSONObject readJson(HttpExchange exchange) throws IOException {
+        try (var in = exchange.getRequestBody()) {
+            var text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return text.isBlank() ? new JSONObject() : new JSONObject(text);
+        }
+    }
+
+    private static JSONObject error(String message) {
+        return new JSONObject().put("error", message);
+    }
+
+    private static void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        var bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Starts a server for the project in the working directory, using its {@code .jaider.json}
+     * for LLM settings and its {@code server} section for port and concurrency. A new bearer token is written to
+     * {@value #TOKEN_FILE}, readable by the owner only where the file system allows it.
+     */
+    public static JaiderServer start(Path projectDir, Integer portOverride) throws IOException {
+        var config = new Config(projectDir);
+        var bootstrapModel = new JaiderModel(projectDir, "Jaider server");
+        var factory = new LlmProviderFactory(config, bootstrapModel);
+        var chatModel = factory.createChatModel();
+        var embeddingModel = factory.createEmbeddingModel();
+        var serverConfig = config.getSection("server");
+        var registry = new SessionRegistry(config, chatModel, embeddingModel,
+                serverConfig.optInt("maxConcurrentTurns", 4), serverConfig.optInt("memoryWindow", 20));
+        registry.setModelRouter(factory::createRoutedChatModel);
+        var token = newToken();
+        writeToken(projectDir, token);
+        var server = new JaiderServer(registry, portOverride != null ? portOverride : serverConfig.optInt("port", 8765), token);
+        server.start();
+        logger.info("Clients authenticate with the bearer token in {}", projectDir.resolve(TOKEN_FILE));
+        return server;
+    }
+
+    private static void writeToken(Path projectDir, String token) throws IOException {
+        Util.jaiderDir(projectDir);
+        var file = projectDir.resolve(TOKEN_FILE);
+        Files.deleteIfExists(file); // Created afresh, so the permissions below hold before the token is written.
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+        Files.writeString(file, token + "\n", StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
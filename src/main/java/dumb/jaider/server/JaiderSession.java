@@ -0,0 +1,108 @@
+package dumb.jaider.server;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dumb.jaider.agents.Agent;
+import dumb.jaider.agents.ArchitectAgent;
+import dumb.jaider.agents.AskAgent;
+import dumb.jaider.agents.CoderAgent;
+import dumb.jaider.llm.UsageTrackingChatModel;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.tools.StandardTools;
+import dumb.jaider.ui.UI;
+import org.json.JSONObject;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One headless conversation: its own {@link JaiderModel}, {@link ChatMemory} and {@link Agent},
+ * driven by the chat and embedding models shared through {@link SessionRegistry}.
+ * Turns of a single session are serialized by {@link #turnLock}.
+ */
+public class JaiderSession {
+    private final String id;
+    private final long createdAtMillis = System.currentTimeMillis();
+    private final JaiderModel model;
+    private final ChatMemory memory;
+    private final UsageTrackingChatModel chatModel;
+    private final StandardTools tools;
+    private final Agent agent;
+    final ReentrantLock turnLock = new ReentrantLock(true);
+
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder failedTurns = new LongAdder();
+    private final AtomicLong turnNanos = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    JaiderSession(String id, String mode, Path projectDir, SessionRegistry registry, UI approver) {
+        this.id = id;
+        this.model = new JaiderModel(projectDir, "Jaider server session " + id);
+        this.model.embeddings = registry.sharedIndex(projectDir);
+        this.model.isIndexed = this.model.embeddings != null;
+        this.memory = MessageWindowChatMemory.withMaxMessages(registry.memoryWindow());
+        var target = mode == null ? "coder" : mode.toLowerCase();
+        this.chatModel = new UsageTrackingChatModel(registry.chatModel(target));
+        this.tools = new StandardTools(model, registry.config(), registry.embeddingModel());
+        this.tools.setDiffApprover(approver);
+        this.agent = createAgent(target);
+        this.model.mode = agent.name();
+    }
+
+    private Agent createAgent(String mode) {
+        return switch (mode) {
+            case "ask" -> new AskAgent(chatModel, memory);
+            case "architect" -> new ArchitectAgent(chatModel, memory, tools);
+            default -> new CoderAgent(chatModel, memory, tools, null, null, null, null);
+        };
+    }
+
+    String runTurn(String message, long queuedNanos) {
+        queueNanos.addAndGet(queuedNanos);
+        maxQueueNanos.accumulateAndGet(queuedNanos, Math::max);
+        var start = System.nanoTime();
+        try {
+            return agent.act(message);
+        } catch (RuntimeException e) {
+            failedTurns.increment();
+            throw e;
+        } finally {
+            turns.increment();
+            turnNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs the configured validation command in this session's project directory.
+     *
+     * @return The JSON result of {@link StandardTools#runValidationCommand}.
+     */
+    public JSONObject validate() {
+        return new JSONObject(tools.runValidationCommand(""));
+    }
+
+    public String id() { return id; }
+    public JaiderModel model() { return model; }
+    public ChatMemory memory() { return memory; }
+    public Agent agent() { return agent; }
+    public UsageTrackingChatModel.Usage usage() { return chatModel.snapshot(); }
+
+    public JSONObject metrics() {
+        var count = turns.sum();
+        var uptimeSeconds = Math.max(1e-3, (System.currentTimeMillis() - createdAtMillis) / 1000.0);
+        return usage().toJson()
+                .put("sessionId", id)
+                .put("mode", agent.name())
+                .put("projectDir", model.dir.toString())
+                .put("turns", count)
+                .put("failedTurns", failedTurns.sum())
+                .put("avgTurnMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(turnNanos.get() / count))
+                .put("avgQueueWaitMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(queueNanos.get() / count))
+                .put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.get()))
+                .put("turnsPerMinute", count * 60.0 / uptimeSeconds);
+    }
+}
@@ -0,0 +1,195 @@
+package dumb.jaider.server;
+
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import dumb.jaider.config.Config;
+import dumb.jaider.ui.UI;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Session-scoped container for running many Jaider conversations in one JVM.
+ * <p>
+ * Heavy components (chat model client, embedding model, per-project embedding indexes) are created once
+ * and shared. Each {@link JaiderSession} owns its model, memory and agent. Fairness: a session queues for one
+ * of {@code maxConcurrentTurns} permits only while holding its own turn lock, so a chatty session occupies at
+ * most one slot in the FIFO permit queue and cannot starve the others.
+ */
+public class SessionRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private final Config config;
+    private final ChatModel chatModel;
+    private final EmbeddingModel embeddingModel;
+    private final int memoryWindow;
+    private final Semaphore turnPermits;
+    private final int maxConcurrentTurns;
+    private final Map<String, JaiderSession> sessions = new ConcurrentHashMap<>();
+    private final Map<Path, EmbeddingStore<TextSegment>> indexes = new ConcurrentHashMap<>();
+    private final Map<Path, Object> indexLocks = new ConcurrentHashMap<>();
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final LongAdder completedTurns = new LongAdder();
+    private final Map<String, ChatModel> routedChatModels = new ConcurrentHashMap<>();
+    private volatile BiFunction<String, ChatModel, ChatModel> modelRouter = (target, model) -> model;
+
+    public SessionRegistry(Config config, ChatModel chatModel, EmbeddingModel embeddingModel, int maxConcurrentTurns, int memoryWindow) {
+        if (maxConcurrentTurns < 1) throw new IllegalArgumentException("maxConcurrentTurns must be at least 1.");
+        this.config = config;
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+        this.maxConcurrentTurns = maxConcurrentTurns;
+        this.memoryWindow = memoryWindow;
+        this.turnPermits = new Semaphore(maxConcurrentTurns, true);
+    }
+
+    /**
+     * Maps a session mode ({@code coder}, {@code architect}, {@code ask}) and the shared chat model to the model its
+     * agent should use, e.g. {@link dumb.jaider.llm.LlmProviderFactory#createRoutedChatModel}. Applies to sessions
+     * created afterwards.
+     */
+    public void setModelRouter(BiFunction<String, ChatModel, ChatModel> modelRouter) {
+        this.modelRouter = modelRouter;
+        routedChatModels.clear();
+    }
+
+    public JaiderSession create(String mode, Path projectDir) {
+        return create(mode, projectDir, null);
+    }
+
+    /**
+     * @param approver If non-null, asked via {@link UI#diffInteraction} before the session's agent applies a diff.
+     */
+    public JaiderSession create(String mode, Path projectDir, UI approver) {
+        var id = UUID.randomUUID().toString();
+        var session = new JaiderSession(id, mode, projectDir.toAbsolutePath().normalize(), this, approver);
+        sessions.put(id, session);
+        logger.info("Created session {} ({} mode) for {}", id, session.agent().name(), session.model().dir);
+        return session;
+    }
+
+    public JaiderSession get(String id) {
+        var session = sessions.get(id);
+        if (session == null) throw new NoSuchElementException("Unknown session: " + id);
+        return session;
+    }
+
+    public boolean close(String id) {
+        var removed = sessions.remove(id) != null;
+        if (removed) logger.info("Closed session {}", id);
+        return removed;
+    }
+
+    public Collection<JaiderSession> sessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Runs one agent turn for the session, waiting for a fair share of the global turn capacity.
+     *
+     * @return The agent's reply.
+     * @throws InterruptedException if interrupted while waiting for capacity.
+     */
+    public String send(String sessionId, String message) throws InterruptedException {
+        var session = get(sessionId);
+        var queuedAt = System.nanoTime();
+        session.turnLock.lockInterruptibly();
+        try {
+            turnPermits.acquire();
+            try {
+                return session.runTurn(message, System.nanoTime() - queuedAt);
+            } finally {
+                turnPermits.release();
+                completedTurns.increment();
+            }
+        } finally {
+            session.turnLock.unlock();
+        }
+    }
+
+    /** Makes an embedding index available to all current and future sessions on {@code projectDir}. */
+    public void shareIndex(Path projectDir, EmbeddingStore<TextSegment> store) {
+        var dir = projectDir.toAbsolutePath().normalize();
+        indexes.put(dir, store);
+        sessions.values().stream().filter(s -> s.model().dir.equals(dir)).forEach(s -> {
+            s.model().embeddings = store;
+            s.model().isIndexed = true;
+        });
+    }
+
+    /**
+     * The shared embedding index of {@code projectDir}, built on first call and published with {@link #shareIndex};
+     * concurrent callers for the same project wait for the one build.
+     *
+     * @throws IllegalStateException if there is no embedding model.
+     */
+    public EmbeddingStore<TextSegment> index(Path projectDir) {
+        var dir = projectDir.toAbsolutePath().normalize();
+        var existing = indexes.get(dir);
+        if (existing != null) return existing;
+        synchronized (indexLocks.computeIfAbsent(dir, d -> new Object())) {
+            existing = indexes.get(dir);
+            if (existing != null) return existing;
+            if (embeddingModel == null) throw new IllegalStateException("No embedding model is configured; cannot index.");
+            var started = System.nanoTime();
+            var documents = FileSystemDocumentLoader.loadDocumentsRecursively(dir, (PathMatcher) relative -> {
+                var path = dir.resolve(relative);
+                try {
+                    return !relative.toString().contains(".git") && !relative.startsWith(".jaider")
+                            && Files.isRegularFile(path) && Files.size(path) > 0;
+                } catch (IOException e) {
+                    return false;
+                }
+            });
+            var segments = DocumentSplitters.recursive(500, 100).splitAll(documents);
+            var store = new InMemoryEmbeddingStore<TextSegment>();
+            if (!segments.isEmpty()) store.addAll(embeddingModel.embedAll(segments).content(), segments);
+            logger.info("Indexed {} segments of {} in {} ms", segments.size(), dir, (System.nanoTime() - started) / 1_000_000);
+            shareIndex(dir, store);
+            return store;
+        }
+    }
+
+    EmbeddingStore<TextSegment> sharedIndex(Path projectDir) {
+        return indexes.get(projectDir.toAbsolutePath().normalize());
+    }
+
+    public JSONObject metrics() {
+        var uptimeSeconds = Math.max(1e-3, (System.currentTimeMillis() - startedAtMillis) / 1000.0);
+        var perSession = new JSONArray();
+        sessions.values().forEach(s -> perSession.put(s.metrics()));
+        return new JSONObject()
+                .put("sessions", sessions.size())
+                .put("maxConcurrentTurns", maxConcurrentTurns)
+                .put("activeTurns", maxConcurrentTurns - turnPermits.availablePermits())
+                .put("queuedTurns", turnPermits.getQueueLength())
+                .put("completedTurns", completedTurns.sum())
+                .put("turnsPerSecond", completedTurns.sum() / uptimeSeconds)
+                .put("perSession", perSession);
+    }
+
+    Config config() { return config; }
+    ChatModel chatModel() { return chatModel; }
+    ChatModel chatModel(String mode) { return routedChatModels.computeIfAbsent(mode, m -> modelRouter.apply(m, chatModel)); }
+    EmbeddingModel embeddingModel() { return embeddingModel; }
+    int memoryWindow() { return memoryWindow; }
+}
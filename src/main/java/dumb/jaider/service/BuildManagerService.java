@@ -8,19 +8,40 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs Maven builds for the project. With the warm worker enabled, {@code mvn} commands run in a long-lived
+ * {@link BuildWorker} JVM instead of a fresh Maven process each time; other commands, builds that need JVM options of
+ * their own, or a machine without a local Maven installation, use a plain process. Either way each result carries per-phase {@link BuildTimings}.
+ */
 public class BuildManagerService {
 
     private static final Logger logger = LoggerFactory.getLogger(BuildManagerService.class);
     private static final long MAVEN_TIMEOUT_SECONDS = 120; // 2 minutes timeout for Maven commands
 
-    public record BuildResult(boolean success, String output, int exitCode) {
+    /** {@code timings}: milliseconds per build phase, see {@link BuildTimings}; empty if the build did not run. */
+    public record BuildResult(boolean success, String output, int exitCode, Map<String, Long> timings) {
+        public BuildResult(boolean success, String output, int exitCode) {
+            this(success, output, exitCode, Map.of());
+        }
     }
 
+    private final boolean warmWorker;
+    private volatile BuildWorker worker;
+    private boolean workerUnavailable;
+
     public BuildManagerService() {
-        // Default constructor
+        this(false);
+    }
+
+    /** @param warmWorker run {@code mvn} commands in a reused {@link BuildWorker} JVM rather than a new process each. */
+    public BuildManagerService(boolean warmWorker) {
+        this.warmWorker = warmWorker;
     }
 
     public BuildResult compileProject(JaiderModel jaiderModel) {
@@ -51,7 +72,12 @@ public class BuildManagerService {
 
     public BuildResult executeMavenCommand(String[] command, File projectDir) { // Changed to public
         logger.info("Executing Maven command: {} in directory: {}", Arrays.toString(command), projectDir.getAbsolutePath());
+        if (warmWorker && command.length > 0 && command[0].equals("mvn") && !BuildWorker.needsOwnJvm(projectDir)) {
+            var result = executeInWorker(command, projectDir);
+            if (result != null) return result;
+        }
         var output = new StringBuilder();
+        var timings = new BuildTimings();
         var processBuilder = new ProcessBuilder(command);
         processBuilder.directory(projectDir);
         processBuilder.redirectErrorStream(true); // Merge stderr with stdout
@@ -63,6 +89,7 @@ public class BuildManagerService {
                 String line;
                 while ((line = reader.readLine()) != null) {
                     output.append(line).append(System.lineSeparator());
+                    timings.accept(line);
                     logger.debug("Maven output: {}", line); // Log line-by-line at DEBUG
                 }
             }
@@ -80,7 +107,9 @@ public class BuildManagerService {
                 return new BuildResult(false, output.toString(), -1); // Use a special exit code for timeout
             }
 
-            return new BuildResult(exitCode == 0, output.toString(), exitCode);
+            var phases = timings.finish();
+            logger.info("Maven command {} phase timings (ms): {}", Arrays.toString(command), phases);
+            return new BuildResult(exitCode == 0, output.toString(), exitCode, phases);
 
         } catch (IOException e) {
             logger.error("IOException during Maven command execution: {}. Command: {}, Directory: {}", e.getMessage(), Arrays.toString(command), projectDir.getAbsolutePath(), e);
@@ -93,4 +122,64 @@ public class BuildManagerService {
             return new BuildResult(false, output.toString(), -1);
         }
     }
+
+    /**
+     * Runs an {@code mvn} command in the warm worker, starting it on first use. Returns {@code null} to fall back to a
+     * plain process when there is no worker: no local Maven installation, or it failed to start or broke mid-build.
+     */
+    private synchronized BuildResult executeInWorker(String[] command, File projectDir) {
+        var worker = worker();
+        if (worker == null) return null;
+        var output = new StringBuilder();
+        var timings = new BuildTimings();
+        try {
+            var args = Arrays.asList(command).subList(1, command.length);
+            var exitCode = worker.run(args, projectDir, Duration.ofSeconds(MAVEN_TIMEOUT_SECONDS), line -> {
+                output.append(line).append(System.lineSeparator());
+                timings.accept(line);
+                logger.debug("Maven output: {}", line);
+            });
+            var phases = timings.finish();
+            logger.info("Maven command {} completed in the build worker with exit code: {}; phase timings (ms): {}", Arrays.toString(command), exitCode, phases);
+            return new BuildResult(exitCode == 0, output.toString(), exitCode, phases);
+        } catch (SocketTimeoutException e) {
+            logger.warn("Maven command {} timed out after {} seconds in the build worker.", Arrays.toString(command), MAVEN_TIMEOUT_SECONDS);
+            output.append("\nERROR: Maven command timed out after ").append(MAVEN_TIMEOUT_SECONDS).append(" seconds.");
+            return new BuildResult(false, output.toString(), -1);
+        } catch (IOException e) {
+            logger.warn("Build worker failed running {}: {}. Running it in a new Maven process instead.", Arrays.toString(command), e.getMessage());
+            return null;
+        }
+    }
+
+    private BuildWorker worker() {
+        if (worker != null && worker.isAlive()) return worker;
+        if (workerUnavailable) return null;
+        var mavenHome = BuildWorker.findMavenHome();
+        if (mavenHome == null) {
+            logger.info("No local Maven installation found for the build worker; Maven commands run as separate processes.");
+            workerUnavailable = true;
+            return null;
+        }
+        try {
+            var started = System.nanoTime();
+            var first = worker == null;
+            worker = BuildWorker.start(mavenHome);
+            logger.info("Started build worker for Maven at {} in {} ms", mavenHome, (System.nanoTime() - started) / 1_000_000);
+            if (first) {
+                Runtime.getRuntime().addShutdownHook(new Thread(this::closeWorker, "build-worker-shutdown"));
+            }
+            return worker;
+        } catch (IOException e) {
+            logger.warn("Could not start the build worker: {}. Maven commands run as separate processes.", e.getMessage());
+            workerUnavailable = true; // Do not pay for a failing start on every build.
+            return null;
+        }
+    }
+
+    /** Stops the warm build worker, if one is running. */
+    public void closeWorker() {
+        var running = worker;
+        if (running != null) running.close();
+    }
 }
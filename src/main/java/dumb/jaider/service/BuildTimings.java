@@ -0,0 +1,45 @@
+package dumb.jaider.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Per-phase wall-clock timings of a Maven build, taken from its console output as it streams: fed one line at a time,
+ * it charges the time between one plugin goal header ({@code --- compiler:3.14.0:compile (default-compile) @ app ---})
+ * and the next to that goal. Time before the first goal is {@value #STARTUP}: JVM start, project loading and plugin
+ * resolution, the part a warm worker saves. Goals run more than once (modules, executions) are summed.
+ */
+public class BuildTimings implements Consumer<String> {
+    public static final String STARTUP = "startup";
+    public static final String TOTAL = "total";
+    /** "--- compiler:3.14.0:compile (default-compile) @ app ---"; before Maven 3.9 "maven-compiler-plugin:3.8.1:compile". */
+    private static final Pattern GOAL = Pattern.compile("--- ([\\w.-]+):[\\w.-]+:([\\w.-]+) \\(");
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+    private String current = STARTUP;
+    private long currentStart = start;
+
+    @Override
+    public void accept(String line) {
+        var matcher = GOAL.matcher(line);
+        if (!matcher.find()) return;
+        var now = System.nanoTime();
+        nanos.merge(current, now - currentStart, Long::sum);
+        current = matcher.group(1) + ":" + matcher.group(2);
+        currentStart = now;
+    }
+
+    /** Milliseconds per phase in the order first seen, ending with {@value #TOTAL}; call once the build has finished. */
+    public Map<String, Long> finish() {
+        var now = System.nanoTime();
+        nanos.merge(current, now - currentStart, Long::sum);
+        currentStart = now;
+        var millis = new LinkedHashMap<String, Long>();
+        nanos.forEach((phase, n) -> millis.put(phase, n / 1_000_000));
+        millis.put(TOTAL, (now - start) / 1_000_000);
+        return millis;
+    }
+}
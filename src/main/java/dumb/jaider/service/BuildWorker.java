@@ -0,0 +1,323 @@
+package dumb.jaider.service;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A long-lived child JVM that runs Maven builds in-process, so repeated builds skip JVM startup and run on classes that
+ * are already loaded and JIT-compiled. {@link BuildManagerService} starts one on demand and talks to it over a
+ * loopback socket; {@link #main} is the worker side.
+ * <p>
+ * The worker boots the local Maven installation the way {@code bin/mvn} does (plexus-classworlds with
+ * {@code bin/m2.conf}) and calls {@code MavenCli.doMain} once per request, one build at a time. Each request is one
+ * JSON line {@code {"token", "dir", "args"}}; the reply is one {@code {"out": line}} per line of build output and a
+ * final {@code {"exit": code}}. The token, handed over on the worker's stdin, keeps other local processes out. The
+ * worker exits when its stdin closes, i.e. when the parent JVM goes away.
+ * <p>
+ * System properties a build sets ({@code -Dkey=value}, {@code maven.multiModuleProjectDirectory}) are rolled back after
+ * it, so they do not carry over into the next one. Builds that need JVM options of their own cannot share the worker;
+ * see {@link #needsOwnJvm}.
+ */
+public class BuildWorker implements AutoCloseable {
+    private static final String READY = "JAIDER-BUILD-WORKER-READY ";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Process process;
+    private final int port;
+    private final String token;
+
+    private BuildWorker(Process process, int port, String token) {
+        this.process = process;
+        this.port = port;
+        this.token = token;
+    }
+
+    /** The Maven installation {@code mvn} on the PATH belongs to, or {@code null} if there is none. */
+    static Path findMavenHome() {
+        for (var env : new String[]{"MAVEN_HOME", "M2_HOME"}) {
+            var home = System.getenv(env);
+            if (home != null && isMavenHome(Path.of(home))) return Path.of(home);
+        }
+        var pathVariable = System.getenv("PATH");
+        if (pathVariable == null) return null;
+        for (var dir : pathVariable.split(File.pathSeparator)) {
+            var mvn = Path.of(dir, "mvn");
+            if (!Files.isExecutable(mvn)) continue;
+            try {
+                var home = mvn.toRealPath().getParent().getParent(); // Follows e.g. /usr/bin/mvn -> /usr/share/maven/bin/mvn.
+                if (isMavenHome(home)) return home;
+            } catch (IOException e) {
+                // Broken link; keep looking.
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMavenHome(Path home) {
+        return home != null && Files.isRegularFile(home.resolve("bin/m2.conf")) && Files.isDirectory(home.resolve("boot"));
+    }
+
+    /**
+     * Whether a build in {@code dir} must run in a JVM of its own: {@code bin/mvn} would start it with JVM options from
+     * {@code MAVEN_OPTS} or {@code .mvn/jvm.config}, which a running worker cannot apply.
+     */
+    static boolean needsOwnJvm(File dir) {
+        var options = System.getenv("MAVEN_OPTS");
+        return (options != null && !options.isBlank()) || new File(topDirectory(dir), ".mvn/jvm.config").isFile();
+    }
+
+    /** What {@code bin/mvn} uses as the project root: the nearest directory above {@code dir} holding .mvn/, else dir itself. */
+    private static File topDirectory(File dir) {
+        var start = dir.getAbsoluteFile();
+        for (var d = start; d != null; d = d.getParentFile()) {
+            if (new File(d, ".mvn").isDirectory()) return d;
+        }
+        return start;
+    }
+
+    /** Starts a worker JVM for the given Maven installation and waits until it accepts builds. */
+    static BuildWorker start(Path mavenHome) throws IOException {
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var command = List.of(java, "-XX:+UseParallelGC", "-cp", System.getProperty("java.class.path"),
+                BuildWorker.class.getName(), mavenHome.toAbsolutePath().toString());
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        var token = UUID.randomUUID().toString();
+        var port = new CompletableFuture<Integer>();
+        // Reads the port announcement, then discards what the worker prints outside of builds, so its pipe never fills.
+        var output = new Thread(() -> {
+            try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!port.isDone() && line.startsWith(READY)) port.complete(Integer.parseInt(line.substring(READY.length()).trim()));
+                }
+            } catch (IOException | NumberFormatException e) {
+                port.completeExceptionally(e);
+            }
+            port.completeExceptionally(new IOException("Build worker exited"));
+        }, "build-worker-output");
+        output.setDaemon(true);
+        output.start();
+        try {
+            var stdin = process.getOutputStream(); // Kept open: the worker exits when it closes.
+            stdin.write((token + "\n").getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+            return new BuildWorker(process, port.get(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS), token);
+        } catch (IOException | ExecutionException | TimeoutException | InterruptedException e) {
+            process.destroyForcibly();
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            var cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException("Build worker did not start: " + cause, cause);
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Runs {@code mvn <args>} in {@code dir}, passing each output line to {@code output}, and returns Maven's exit code.
+     * Throws {@link SocketTimeoutException} if the build runs past {@code timeout}; the worker is then stopped, since an
+     * in-process build cannot be cancelled.
+     */
+    public synchronized int run(List<String> args, File dir, Duration timeout, Consumer<String> output) throws IOException {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var request = new JSONObject().put("token", token).put("dir", dir.getAbsolutePath()).put("args", new JSONArray(args));
+            var out = socket.getOutputStream();
+            out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while (true) {
+                var remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) throw new SocketTimeoutException("Build did not finish within " + timeout.toSeconds() + " seconds");
+                socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, remaining));
+                if ((line = reader.readLine()) == null) throw new IOException("Build worker closed the connection");
+                var message = new JSONObject(line);
+                if (message.has("exit")) return message.getInt("exit");
+                output.accept(message.optString("out"));
+            }
+        } catch (IOException | JSONException e) {
+            close(); // Busy with a build we gave up on, or broken: either way it cannot take the next one.
+            throw e instanceof IOException io ? io : new IOException("Malformed reply from build worker: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        process.destroyForcibly();
+    }
+
+    // --- Worker side ---
+
+    public static void main(String[] args) throws Exception {
+        var mavenHome = Path.of(args[0]).toAbsolutePath();
+        var stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        var token = stdin.readLine();
+        var stdout = System.out;
+        var maven = new EmbeddedMaven(mavenHome);
+        try (var server = new ServerSocket(0, 8, InetAddress.getLoopbackAddress())) {
+            var parentWatch = new Thread(() -> {
+                try {
+                    while (stdin.readLine() != null) {
+                        // Nothing else is sent; wait for EOF.
+                    }
+                } catch (IOException ignored) {
+                    // Treated as EOF.
+                }
+                Runtime.getRuntime().halt(0); // The parent is gone.
+            }, "build-worker-parent-watch");
+            parentWatch.setDaemon(true);
+            parentWatch.start();
+
+            stdout.println(READY + server.getLocalPort());
+            stdout.flush();
+            while (true) {
+                try (var client = server.accept()) {
+                    serve(client, token, maven);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Build worker request failed: " + e);
+                }
+            }
+        }
+    }
+
+    private static void serve(Socket client, String token, EmbeddedMaven maven) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        var line = reader.readLine();
+        if (line == null) return;
+        var request = new JSONObject(line);
+        if (!token.equals(request.optString("token"))) return;
+        var array = request.getJSONArray("args");
+        var args = new ArrayList<String>();
+        for (var i = 0; i < array.length(); i++) args.add(array.getString(i));
+
+        var writer = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+        var lines = new PrintStream(new LineOutputStream(writer), true, StandardCharsets.UTF_8);
+        int exitCode;
+        try {
+            exitCode = maven.run(args.toArray(String[]::new), new File(request.getString("dir")), lines);
+        } catch (Exception e) {
+            lines.println("ERROR: Build worker failed to run Maven: " + e);
+            exitCode = 1;
+        }
+        lines.close(); // Sends a last line without a newline; the socket stays open.
+        writer.write(new JSONObject().put("exit", exitCode) + "\n");
+        writer.flush();
+    }
+
+    /** Maven booted once from its installation; {@link #run} may be called any number of times, one at a time. */
+    private static final class EmbeddedMaven {
+        private final Object cli;
+        private final Method doMain;
+
+        EmbeddedMaven(Path mavenHome) throws Exception {
+            System.setProperty("maven.home", mavenHome.toString());
+            System.setProperty("classworlds.conf", mavenHome.resolve("bin/m2.conf").toString());
+            System.setProperty("library.jansi.path", mavenHome.resolve("lib/jansi-native").toString());
+            var boot = new ArrayList<URL>();
+            try (var jars = Files.newDirectoryStream(mavenHome.resolve("boot"), "plexus-classworlds-*.jar")) {
+                for (var jar : jars) boot.add(jar.toUri().toURL());
+            }
+            var bootLoader = new URLClassLoader(boot.toArray(URL[]::new), ClassLoader.getPlatformClassLoader());
+            // Maven's realms get the launcher's context loader as parent: keep Jaider's own classpath out of them.
+            Thread.currentThread().setContextClassLoader(bootLoader);
+            var launcherClass = bootLoader.loadClass("org.codehaus.plexus.classworlds.launcher.Launcher");
+            var launcher = launcherClass.getConstructor().newInstance();
+            try (InputStream conf = new FileInputStream(mavenHome.resolve("bin/m2.conf").toFile())) {
+                launcherClass.getMethod("configure", InputStream.class).invoke(launcher, conf);
+            }
+            var world = launcherClass.getMethod("getWorld").invoke(launcher);
+            var realm = (ClassLoader) launcherClass.getMethod("getMainRealm").invoke(launcher);
+            var cliClass = realm.loadClass("org.apache.maven.cli.MavenCli");
+            this.cli = cliClass.getConstructor(world.getClass()).newInstance(world);
+            this.doMain = cliClass.getMethod("doMain", String[].class, String.class, PrintStream.class, PrintStream.class);
+        }
+
+        int run(String[] args, File dir, PrintStream out) throws Exception {
+            var properties = (Properties) System.getProperties().clone(); // MavenCli copies -D options into them.
+            System.setProperty("maven.multiModuleProjectDirectory", topDirectory(dir).getPath());
+            var previous = Thread.currentThread().getContextClassLoader();
+            try {
+                Thread.currentThread().setContextClassLoader(cli.getClass().getClassLoader());
+                return (int) doMain.invoke(cli, args, dir.getAbsolutePath(), out, out);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+                System.setProperties(properties);
+            }
+        }
+    }
+
+    /** Sends each line written to it as one {@code {"out": line}} JSON line. */
+    private static final class LineOutputStream extends OutputStream {
+        private final Writer writer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineOutputStream(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (b == '\n') {
+                emit();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (line.size() > 0) emit();
+            flush();
+        }
+
+        private void emit() throws IOException {
+            var text = line.toString(StandardCharsets.UTF_8);
+            if (text.endsWith("\r")) text = text.substring(0, text.length() - 1);
+            line.reset();
+            writer.write(new JSONObject().put("out", text) + "\n");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package dumb.jaider.service;
+
+import dumb.jaider.vcs.RepositoryService;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.patch.Patch;
+import org.eclipse.jgit.patch.PatchApplier;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link GitService} on JGit, running in-process against the project's shared {@link RepositoryService} handle instead
+ * of forking a {@code git} process per step as {@link LocalGitService} does. Diffs are parsed from memory, without
+ * temporary patch files. Semantics follow the subprocess commands it replaces: {@code applyDiff} is {@code git apply}
+ * (working tree only, all or nothing), {@code revertChanges} checks the file out from {@code HEAD~1} and commits it.
+ */
+public class JGitService implements GitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JGitService.class);
+
+    @Override
+    public boolean applyDiff(File projectRoot, String filePath, String diffContent) {
+        logger.info("Attempting to apply diff to file: {} in project root: {}", filePath, projectRoot.getAbsolutePath());
+        var patch = new Patch();
+        try {
+            patch.parse(new ByteArrayInputStream(diffContent.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            logger.error("Could not read diff for {}: {}", filePath, e.getMessage());
+            return false;
+        }
+        if (!patch.getErrors().isEmpty() || patch.getFiles().isEmpty()) {
+            logger.error("Diff for {} is malformed or empty: {}", filePath, patch.getErrors());
+            return false;
+        }
+
+        var root = projectRoot.toPath();
+        Map<Path, byte[]> originals;
+        try {
+            originals = snapshot(root, patch);
+        } catch (IOException e) {
+            logger.error("Could not read files touched by the diff for {}: {}", filePath, e.getMessage(), e);
+            return false;
+        }
+        try {
+            var result = RepositoryService.of(root).write(git -> new PatchApplier(git.getRepository()).applyPatch(patch));
+            if (result.getErrors().isEmpty()) {
+                logger.info("Diff applied successfully for {}", filePath);
+                return true;
+            }
+            logger.error("Diff does not apply to {}: {}", filePath, result.getErrors());
+        } catch (IOException | GitAPIException | JGitInternalException e) {
+            logger.error("Applying diff to {} failed: {}", filePath, e.getMessage(), e);
+        }
+        restore(originals); // Like 'git apply --check' first: a failed diff leaves no file changed.
+        return false;
+    }
+
+    /** Current content of every file the patch touches, or null for files that do not exist yet. */
+    private static Map<Path, byte[]> snapshot(Path root, Patch patch) throws IOException {
+        var originals = new LinkedHashMap<Path, byte[]>();
+        for (var file : patch.getFiles()) {
+            for (var name : new String[]{file.getOldPath(), file.getNewPath()}) {
+                if (name == null || name.equals(DiffEntry.DEV_NULL)) continue;
+                var path = root.resolve(name).normalize();
+                if (!path.startsWith(root.normalize())) throw new IOException("Diff path is outside the project: " + name);
+                if (!originals.containsKey(path)) originals.put(path, Files.isRegularFile(path) ? Files.readAllBytes(path) : null);
+            }
+        }
+        return originals;
+    }
+
+    private static void restore(Map<Path, byte[]> originals) {
+        for (var e : originals.entrySet()) {
+            try {
+                if (e.getValue() == null) Files.deleteIfExists(e.getKey());
+                else Files.write(e.getKey(), e.getValue());
+            } catch (IOException ex) {
+                logger.error("Could not restore {} after a failed diff: {}", e.getKey(), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean revertChanges(File projectRoot, String filePath) {
+        logger.info("Attempting to revert {} to its state at HEAD~1 in project root: {}", filePath, projectRoot.getAbsolutePath());
+        try {
+            return RepositoryService.of(projectRoot.toPath()).write(git -> {
+                git.checkout().setStartPoint("HEAD~1").addPath(filePath).call();
+                git.add().addFilepattern(filePath).call();
+                git.commit().setMessage("Rollback: Reverted changes to " + filePath + " due to failed validation").call();
+                logger.info("Successfully committed revert of {}.", filePath);
+                return true;
+            });
+        } catch (IOException | GitAPIException | JGitInternalException e) {
+            logger.error("Failed to revert {} to HEAD~1: {}", filePath, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public String commitChanges(File projectRoot, String filePath, String commitMessage) {
+        logger.info("Attempting to commit changes for file: {} with message: '{}' in project root: {}", filePath, commitMessage, projectRoot.getAbsolutePath());
+        try {
+            var commitHash = RepositoryService.of(projectRoot.toPath()).write(git -> {
+                git.add().addFilepattern(filePath).call();
+                return git.commit().setMessage(commitMessage).call().getName();
+            });
+            logger.info("Successfully committed changes for {} with message '{}'. Commit hash: {}", filePath, commitMessage, commitHash);
+            return commitHash;
+        } catch (IOException | GitAPIException | JGitInternalException e) {
+            logger.error("Failed to commit changes for {} with message '{}': {}", filePath, commitMessage, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isWorkingDirectoryClean(File projectRoot) {
+        logger.info("Checking if working directory is clean in: {}", projectRoot.getAbsolutePath());
+        try {
+            var status = RepositoryService.of(projectRoot.toPath()).statusTracker().status();
+            if (status.isClean()) {
+                logger.info("Working directory is clean.");
+                return true;
+            }
+            logger.warn("Working directory is not clean. Changed paths: {}", status.changedPaths());
+            return false;
+        } catch (IOException e) {
+            logger.error("Failed to read git status in {}: {}", projectRoot, e.getMessage());
+            return false; // Treat as not clean if status fails, to be safe.
+        }
+    }
+
+    @Override
+    public boolean revertLastCommittedUpdate(File projectRoot, String commitHashToRevert) {
+        if (commitHashToRevert == null || commitHashToRevert.trim().isEmpty()) {
+            logger.error("commitHashToRevert cannot be null or empty for revertLastCommittedUpdate.");
+            return false;
+        }
+        logger.info("Attempting to revert commit: {} in project root: {}", commitHashToRevert, projectRoot.getAbsolutePath());
+        try {
+            return RepositoryService.of(projectRoot.toPath()).write(git -> {
+                var id = git.getRepository().resolve(commitHashToRevert.trim());
+                if (id == null) {
+                    logger.error("Unknown commit {}; nothing reverted.", commitHashToRevert);
+                    return false;
+                }
+                if (id.equals(git.getRepository().resolve(Constants.HEAD)) && revertHead(git.getRepository(), id)) {
+                    logger.info("Successfully reverted commit {}.", commitHashToRevert);
+                    return true;
+                }
+                var revert = git.revert().include(id);
+                var reverted = revert.call();
+                if (reverted == null || revert.getFailingResult() != null || revert.getUnmergedPaths() != null) {
+                    logger.error("Failed to revert commit {}: failing result {}, unmerged paths {}",
+                            commitHashToRevert, revert.getFailingResult(), revert.getUnmergedPaths());
+                    return false;
+                }
+                logger.info("Successfully reverted commit {}.", commitHashToRevert);
+                return true;
+            });
+        } catch (IOException | GitAPIException | JGitInternalException e) {
+            logger.error("Failed to revert commit {}: {}", commitHashToRevert, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Reverts HEAD when it is a plain (single-parent) commit, which is what a self-update rollback does: HEAD's changes
+     * are checked out back to its parent's tree and committed. This skips the three-way merge {@code RevertCommand}
+     * runs, which is not needed when nothing was committed on top. Returns false to fall back to {@code RevertCommand}.
+     */
+    private static boolean revertHead(Repository repository, ObjectId head) throws IOException {
+        try (var walk = new RevWalk(repository); var inserter = repository.newObjectInserter()) {
+            var commit = walk.parseCommit(head);
+            if (commit.getParentCount() != 1) return false;
+            var parent = walk.parseCommit(commit.getParent(0));
+            var checkout = new DirCacheCheckout(repository, commit.getTree(), repository.lockDirCache(), parent.getTree());
+            checkout.setFailOnConflict(true);
+            checkout.checkout(); // Throws CheckoutConflictException if the working tree has local changes to those files.
+
+            var ident = new PersonIdent(repository);
+            var builder = new CommitBuilder();
+            builder.setTreeId(parent.getTree());
+            builder.setParentId(commit);
+            builder.setAuthor(ident);
+            builder.setCommitter(ident);
+            builder.setMessage("Revert \"" + commit.getShortMessage() + "\"\n\nThis reverts commit " + commit.name() + ".\n");
+            var revertId = inserter.insert(builder);
+            inserter.flush();
+
+            var update = repository.updateRef(Constants.HEAD);
+            update.setNewObjectId(revertId);
+            update.setExpectedOldObjectId(commit);
+            update.setRefLogMessage("revert: " + commit.getShortMessage(), false);
+            return switch (update.update()) {
+                case NEW, FAST_FORWARD, FORCED -> true;
+                default -> throw new IOException("Could not move HEAD to the revert commit: " + update.getResult());
+            };
+        }
+    }
+}
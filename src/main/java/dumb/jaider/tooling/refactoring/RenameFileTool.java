@@ -2,7 +2,8 @@ package dumb.jaider.tooling.refactoring;
 
 import dumb.jaider.tooling.Tool;
 import dumb.jaider.tooling.ToolContext;
-import org.eclipse.jgit.api.Git;
+import dumb.jaider.tools.EditJournal;
+import dumb.jaider.vcs.RepositoryService;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 
 import java.io.File;
@@ -63,13 +64,20 @@ public class RenameFileTool implements Tool {
             Files.createDirectories(newFileParentDir);
         }
 
-        // Perform the rename
-        Files.move(oldFilePath, newFilePath, StandardCopyOption.ATOMIC_MOVE);
+        // Perform the rename, journaled so /undo can move it back
+        var edit = EditJournal.of(projectRoot).begin("rename " + oldFilePathStr + " -> " + newFilePathStr);
+        edit.capture(oldFilePath);
+        edit.capture(newFilePath);
+        try {
+            Files.move(oldFilePath, newFilePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (java.io.IOException | RuntimeException e) {
+            edit.abort();
+            throw e;
+        }
 
         // Stage the changes using JGit
-        try (var repository = FileRepositoryBuilder.create(projectRoot.resolve(".git").toFile());
-             var git = new Git(repository)) {
-
+        try {
+            var repositories = RepositoryService.of(projectRoot);
             // `git add <newFilePath>` (for the renamed file)
             // `git rm <oldFilePath>` (if it was tracked)
             // JGit's AddCommand handles rename detection if the content is similar enough,
@@ -80,23 +88,25 @@ public class RenameFileTool implements Tool {
             var oldRepoPath = projectRoot.relativize(oldFilePath).toString().replace('\\', '/');
             var newRepoPath = projectRoot.relativize(newFilePath).toString().replace('\\', '/');
 
-            // Remove the old file path from index if it was tracked
-            // This check is important because `git.rm()` will fail if the file is not tracked.
-            if (repository.resolve(oldRepoPath) != null && git.status().call().getRemoved().contains(oldRepoPath)) {
-                 // File already removed by Files.move, ensure git knows
-            } else if (repository.resolve(oldRepoPath) != null && !git.status().call().getUntracked().contains(oldRepoPath)) {
-                 git.rm().addFilepattern(oldRepoPath).call();
-            }
-
-            git.add().addFilepattern(newRepoPath).call();
+            repositories.write(git -> {
+                // Remove the old file path from index if it was tracked
+                // This check is important because `git.rm()` will fail if the file is not tracked.
+                if (repositories.dirCache().findEntry(oldRepoPath) >= 0) {
+                    git.rm().addFilepattern(oldRepoPath).call();
+                }
+                return git.add().addFilepattern(newRepoPath).call();
+            });
 
+            edit.commit();
             return String.format("File %s renamed to %s and staged.", oldFilePathStr, newFilePathStr);
         } catch (Exception e) {
             // If JGit fails, try to revert the file move if possible, though this can be tricky
             try {
                 Files.move(newFilePath, oldFilePath, StandardCopyOption.ATOMIC_MOVE);
+                edit.abort();
                 return String.format("Failed to stage rename with Git: %s. File move reverted.", e.getMessage());
             } catch (java.io.IOException ex) {
+                edit.commit(); // The rename stuck; keep it undoable.
                 return String.format("Failed to stage rename with Git: %s. CRITICAL: File move could not be reverted: %s", e.getMessage(), ex.getMessage());
             }
         }
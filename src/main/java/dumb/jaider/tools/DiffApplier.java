@@ -2,14 +2,33 @@ package dumb.jaider.tools;
 
 import com.github.difflib.patch.Patch;
 import com.github.difflib.patch.PatchFailedException;
+import com.github.difflib.unifieddiff.UnifiedDiff;
 import dumb.jaider.model.JaiderModel;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class DiffApplier {
+    private final FuzzyPatcher.Settings fuzzy;
+
+    public DiffApplier() {
+        this(FuzzyPatcher.Settings.DEFAULTS);
+    }
+
+    /** @param fuzzy How far {@link FuzzyPatcher} may search when a hunk does not apply at its stated position. */
+    public DiffApplier(FuzzyPatcher.Settings fuzzy) {
+        this.fuzzy = fuzzy;
+    }
 
     public String apply(JaiderModel model, Patch<String> patch, String originalFileName, String revisedFileName) {
         if (patch == null) {
@@ -36,7 +55,10 @@ public class DiffApplier {
         // Deletion scenario
         if ("/dev/null".equals(revisedFileName)) {
             try {
+                var edit = EditJournal.of(model.dir).begin("delete " + originalFileName);
+                edit.capture(filePath);
                 Files.deleteIfExists(filePath);
+                edit.commit();
                 model.files.remove(filePath);
                 return "File " + originalFileName + " deleted successfully.";
             } catch (IOException e) {
@@ -56,10 +78,19 @@ public class DiffApplier {
             return "Error reading original file '" + originalFileName + "' for diff application: " + e.getMessage();
         }
 
+        var notes = new ArrayList<String>();
         try {
-            var patchedLines = patch.applyTo(originalLines);
+            var patchedLines = patch(originalLines, patch, fileName, notes);
             Files.createDirectories(filePath.getParent()); // Ensure parent directory exists
-            Files.write(filePath, patchedLines);
+            var edit = EditJournal.of(model.dir).begin("applyDiff " + fileName);
+            edit.capture(filePath);
+            try {
+                Files.write(filePath, patchedLines);
+            } catch (IOException | RuntimeException e) {
+                edit.commit(); // A half-written file stays undoable; an untouched one is dropped and its blob freed.
+                throw e;
+            }
+            edit.commit();
 
             // Add if new or was previously removed
             model.files.add(filePath);
@@ -69,10 +100,225 @@ public class DiffApplier {
             return "Error writing patched file '" + fileName + "': " + e.getMessage();
         }
 
-        return "Diff applied successfully to file " + fileName + ".";
+        return "Diff applied successfully to file " + fileName + "." + fuzzyNote(notes);
+    }
+
+    /**
+     * Applies the patch strictly, falling back to {@link FuzzyPatcher} when hunks do not match at their stated lines.
+     * A note describing any fuzzy match is added to {@code notes}.
+     */
+    private List<String> patch(List<String> lines, Patch<String> patch, String fileName, List<String> notes) throws PatchFailedException {
+        try {
+            return patch.applyTo(lines);
+        } catch (PatchFailedException e) {
+            if (!fuzzy.enabled()) throw e;
+            try {
+                var result = new FuzzyPatcher(fuzzy).apply(lines, patch);
+                notes.add(fileName + ": " + result.summary());
+                return result.lines();
+            } catch (PatchFailedException fuzzyFailure) {
+                throw new PatchFailedException(e.getMessage() + " Fuzzy matching also failed: " + fuzzyFailure.getMessage());
+            }
+        }
+    }
+
+    private static String fuzzyNote(List<String> notes) {
+        return notes.isEmpty() ? "" : " Some hunks did not match exactly and were placed by fuzzy matching; please review: " + String.join("; ", notes) + ".";
+    }
+
+    /** Target state of one file after the whole diff: new lines, or {@code null} lines for a deletion. */
+    private record FileChange(String name, Path path, List<String> lines, byte[] originalBytes, String kind) {
+        boolean deletion() {
+            return lines == null;
+        }
+    }
+
+    /**
+     * Applies every file of a (possibly multi-file) unified diff, or none of them. All hunks are first applied in
+     * memory; only if every file patches cleanly are the new contents written to temp files beside their targets and
+     * renamed into place. If a write or rename fails, files already replaced are restored from their original bytes.
+     * Several sections for the same file are applied in order; a rename ({@code a/x} to {@code b/y}) writes {@code y}
+     * and deletes {@code x}.
+     */
+    public String applyAll(JaiderModel model, UnifiedDiff diff) {
+        if (diff == null || diff.getFiles() == null || diff.getFiles().isEmpty()) {
+            return "Error: Could not find any file changes in the diff. Expected '--- a/<file>' and '+++ b/<file>' headers.";
+        }
+        var root = model.dir.toAbsolutePath().normalize();
+        var changes = new LinkedHashMap<Path, FileChange>();
+        var errors = new ArrayList<String>();
+        var notes = new ArrayList<String>();
+        for (var file : diff.getFiles()) {
+            var from = file.getFromFile();
+            var to = file.getToFile();
+            var fileName = emptyFileName(to) ? from : to;
+            if (emptyFileName(fileName)) {
+                errors.add("(unknown file): could not determine file name from the diff header.");
+                continue;
+            }
+            try {
+                var source = emptyFileName(from) ? null : resolveInProject(root, from);
+                var target = resolveInProject(root, fileName);
+                var sourceState = source == null ? null : currentState(model, changes, source, from);
+                var lines = sourceState == null ? new ArrayList<String>() : sourceState.lines();
+                if (emptyFileName(to)) {
+                    changes.put(target, new FileChange(from, target, null, originalBytes(changes, target), "deleted"));
+                    continue;
+                }
+                var patched = patch(lines, file.getPatch(), fileName, notes);
+                var targetState = target.equals(source) ? sourceState : currentState(model, changes, target, fileName);
+                if (source == null && targetState != null) {
+                    throw new IllegalArgumentException("diff creates a file that already exists.");
+                }
+                var kind = targetState == null || targetState.deletion() ? "created" : "modified";
+                if (changes.containsKey(target) && "created".equals(changes.get(target).kind())) kind = "created";
+                changes.put(target, new FileChange(fileName, target, patched, originalBytes(changes, target), kind));
+                if (source != null && !source.equals(target)) {
+                    changes.put(source, new FileChange(from, source, null, originalBytes(changes, source), "deleted"));
+                }
+            } catch (PatchFailedException e) {
+                errors.add(fileName + ": Patch application failed. Details: " + e.getMessage());
+            } catch (IOException | IllegalArgumentException e) {
+                errors.add(fileName + ": " + e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            return "Error: Diff not applied; no files were changed. " + errors.size() + " of " + diff.getFiles().size()
+                    + " file sections failed:\n- " + String.join("\n- ", errors);
+        }
+
+        // Journaled as one edit, so a single undo reverts every file of the diff.
+        var edit = EditJournal.of(model.dir).begin("applyDiff " + changes.values().stream().map(FileChange::name).collect(Collectors.joining(", ")));
+        changes.keySet().forEach(edit::capture);
+        var failure = commit(changes);
+        if (failure != null) {
+            edit.abort(); // Every file was restored, so there is nothing to undo.
+            return failure;
+        }
+        edit.commit();
+        for (var change : changes.values()) {
+            if (change.deletion()) model.files.remove(change.path());
+            else model.files.add(change.path());
+        }
+        if (changes.size() == 1) {
+            var change = changes.values().iterator().next();
+            return change.deletion() ? "File " + change.name() + " deleted successfully." : "Diff applied successfully to file " + change.name() + "." + fuzzyNote(notes);
+        }
+        return "Diff applied successfully to " + changes.size() + " files: "
+                + changes.values().stream().map(c -> c.name() + " (" + c.kind() + ")").collect(Collectors.joining(", ")) + "." + fuzzyNote(notes);
+    }
+
+    private static Path resolveInProject(Path root, String fileName) {
+        var path = root.resolve(fileName).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("path is outside the project directory.");
+        }
+        return path;
+    }
+
+    /** Content of {@code path} as already changed by this diff, else on disk, else {@code null} if absent. */
+    private static FileChange currentState(JaiderModel model, Map<Path, FileChange> changes, Path path, String name) throws IOException {
+        var pending = changes.get(path);
+        if (pending != null) {
+            return pending.deletion() ? null : pending;
+        }
+        if (!Files.exists(path)) {
+            return null;
+        }
+        if (!model.files.contains(path)) {
+            throw new IllegalArgumentException("Cannot apply diff to an existing file not in context.");
+        }
+        return new FileChange(name, path, new ArrayList<>(Files.readAllLines(path)), null, "modified");
+    }
+
+    private static byte[] originalBytes(Map<Path, FileChange> changes, Path path) throws IOException {
+        var pending = changes.get(path);
+        if (pending != null) {
+            return pending.originalBytes();
+        }
+        return Files.exists(path) ? Files.readAllBytes(path) : null;
+    }
+
+    /** Writes all changes or restores every file; returns an error message, or {@code null} on success. */
+    private static String commit(Map<Path, FileChange> changes) {
+        var writes = new ArrayList<FileWrite>();
+        for (var change : changes.values()) {
+            writes.add(new FileWrite(change.name(), change.path(), change.deletion() ? null : toBytes(change.lines()), change.originalBytes()));
+        }
+        return writeAll(writes);
+    }
+
+    /** Lines as {@link Files#write(Path, Iterable, java.nio.file.OpenOption...)} would store them. */
+    private static byte[] toBytes(List<String> lines) {
+        var text = new StringBuilder();
+        for (var line : lines) text.append(line).append(System.lineSeparator());
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** New content of one file for {@link #writeAll}: {@code null} content deletes it, {@code null} original means it did not exist. */
+    record FileWrite(String name, Path path, byte[] content, byte[] original) {
+    }
+
+    /**
+     * Writes every file or none: new contents go to temp files beside their targets, then are renamed into place. If a
+     * write or rename fails, files already replaced are restored from their original bytes. Returns an error message,
+     * or {@code null} on success.
+     */
+    static String writeAll(List<FileWrite> writes) {
+        Map<Path, Path> temps = new HashMap<>();
+        var done = new ArrayList<FileWrite>();
+        try {
+            for (var write : writes) {
+                if (write.content() == null) continue;
+                var parent = write.path().getParent();
+                Files.createDirectories(parent);
+                var tmp = Files.createTempFile(parent, "." + write.path().getFileName() + ".", ".jaider-tmp");
+                temps.put(write.path(), tmp);
+                Files.write(tmp, write.content());
+            }
+            for (var write : writes) {
+                if (write.content() == null) {
+                    Files.deleteIfExists(write.path());
+                } else {
+                    move(temps.get(write.path()), write.path());
+                }
+                done.add(write);
+            }
+            return null;
+        } catch (IOException e) {
+            var restoreErrors = new ArrayList<String>();
+            for (var i = done.size() - 1; i >= 0; i--) {
+                var write = done.get(i);
+                try {
+                    if (write.original() != null) Files.write(write.path(), write.original());
+                    else Files.deleteIfExists(write.path());
+                } catch (IOException restoreError) {
+                    restoreErrors.add(write.name() + " (" + restoreError.getMessage() + ")");
+                }
+            }
+            return restoreErrors.isEmpty()
+                    ? "Error writing patched files; all files were left unchanged: " + e.getMessage()
+                    : "Error writing patched files: " + e.getMessage() + ". Could not restore: " + String.join(", ", restoreErrors);
+        } finally {
+            for (var tmp : temps.values()) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                    // Best effort; a stray temp file is harmless.
+                }
+            }
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
-    private boolean emptyFileName(String fileName) {
+    private static boolean emptyFileName(String fileName) {
         return fileName == null || fileName.isEmpty() || "/dev/null".equals(fileName);
     }
 }
@@ -0,0 +1,458 @@
+package dumb.jaider.tools;
+
+import dumb.jaider.utils.Util;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of every file mutation made by Jaider's tools, so edits can be undone and redone step by step
+ * without git. Lives under {@code .jaider/journal/}:
+ * <ul>
+ *     <li>{@code blobs/ab/cdef...}: file contents, stored once per SHA-256;</li>
+ *     <li>{@code journal.jsonl}: one line per event. An {@code edit} lists each touched file with the hash of its
+ *     content before and after ({@code null} = absent); {@code undo}/{@code redo} name the edit they reverted or
+ *     re-applied.</li>
+ * </ul>
+ * The undo and redo stacks are rebuilt by replaying the log, so they survive restarts. Undo and redo rewrite only the
+ * files of the edits involved, and only if those files still hold the content the journal expects; a file changed
+ * behind Jaider's back is reported as a conflict instead of being overwritten.
+ * <p>
+ * A failure to journal never fails the edit itself: it is logged and the edit simply cannot be undone.
+ */
+public class EditJournal {
+    private static final Logger logger = LoggerFactory.getLogger(EditJournal.class);
+
+    public static final String DIR = ".jaider/journal";
+    static final String LOG_FILE = "journal.jsonl";
+    /** Undoable edits kept; older ones, and blobs only they referred to, are dropped. */
+    static final int MAX_ENTRIES = 200;
+
+    private static final Map<Path, EditJournal> JOURNALS = new ConcurrentHashMap<>();
+
+    /** One file touched by an edit, relative to the project root, with content hashes ({@code null} = absent). */
+    public record FileState(String path, String before, String after) {
+    }
+
+    public record Entry(long seq, long time, String description, List<FileState> files) {
+    }
+
+    private final Path root;
+    private final Path dir;
+    private final Deque<Entry> undoable = new ArrayDeque<>();
+    private final Deque<Entry> redoable = new ArrayDeque<>();
+    /** Files touched by each event (edit, undo or redo), by event sequence number. */
+    private final NavigableMap<Long, List<FileState>> changes = new TreeMap<>();
+    /** Events up to this sequence number were compacted away, so {@link #changes} no longer knows their files. */
+    private long prunedThrough;
+    private final Map<String, Integer> pendingBlobs = new HashMap<>();
+    private final int maxEntries;
+    private long nextSeq = 1;
+    private boolean loaded;
+
+    EditJournal(Path projectDir) {
+        this(projectDir, MAX_ENTRIES);
+    }
+
+    EditJournal(Path projectDir, int maxEntries) {
+        this.root = projectDir.toAbsolutePath().normalize();
+        this.dir = root.resolve(DIR);
+        this.maxEntries = maxEntries;
+    }
+
+    /** The journal of the given project; one instance per project directory, so concurrent tools share its stacks. */
+    public static EditJournal of(Path projectDir) {
+        return JOURNALS.computeIfAbsent(projectDir.toAbsolutePath().normalize(), EditJournal::new);
+    }
+
+    /**
+     * Starts recording an edit. {@link Edit#capture} each file before changing it, then {@link Edit#commit}, or
+     * {@link Edit#abort} if the change was rolled back.
+     */
+    public Edit begin(String description) {
+        return new Edit(description);
+    }
+
+    public final class Edit {
+        private final String description;
+        private final Map<Path, String> before = new LinkedHashMap<>();
+        private boolean failed;
+
+        private Edit(String description) {
+            this.description = description;
+        }
+
+        /** Saves the current content of {@code file} (or notes its absence). Later captures of the same file are ignored. */
+        public void capture(Path file) {
+            var path = file.toAbsolutePath().normalize();
+            if (failed || before.containsKey(path)) return;
+            try {
+                synchronized (EditJournal.this) { // Compaction must not delete the blob before it is counted.
+                    var hash = store(path);
+                    before.put(path, hash);
+                    if (hash != null) pending(hash, 1);
+                }
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                logger.warn("Could not journal {} before '{}'; this edit will not be undoable", file, description, e);
+            }
+        }
+
+        /**
+         * Records the captured files' new state. Files left unchanged are dropped; returns {@code null} if none changed,
+         * and then deletes the captured blobs nothing else refers to, like {@link #abort}.
+         */
+        public Entry commit() {
+            if (before.isEmpty()) return null;
+            synchronized (EditJournal.this) { // Blobs stored here must be recorded before a compaction can look for them.
+                Entry entry = null;
+                try {
+                    if (failed) return null;
+                    var files = new ArrayList<FileState>();
+                    for (var e : before.entrySet()) {
+                        var after = store(e.getKey());
+                        if (!Objects.equals(e.getValue(), after)) {
+                            files.add(new FileState(relative(e.getKey()), e.getValue(), after));
+                        }
+                    }
+                    entry = files.isEmpty() ? null : recordEdit(description, files);
+                    return entry;
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not journal '{}'; this edit will not be undoable", description, e);
+                    return null;
+                } finally {
+                    release();
+                    if (entry == null) discardBlobs(before.values());
+                    before.clear();
+                }
+            }
+        }
+
+        /** Discards the edit after its changes were rolled back, deleting captured blobs nothing else refers to. */
+        public void abort() {
+            if (before.isEmpty()) return;
+            release();
+            discardBlobs(before.values());
+            before.clear();
+        }
+
+        private void release() {
+            before.values().stream().filter(Objects::nonNull).forEach(hash -> pending(hash, -1));
+        }
+    }
+
+    /** Counts blobs captured by edits still in progress, which must survive pruning. */
+    private synchronized void pending(String hash, int delta) {
+        pendingBlobs.merge(hash, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    /** Deletes those of {@code hashes} that no recorded or in-progress edit refers to. */
+    private synchronized void discardBlobs(Collection<String> hashes) {
+        load();
+        var referenced = referencedBlobs();
+        for (var hash : hashes) {
+            if (hash == null || referenced.contains(hash)) continue;
+            try {
+                Files.deleteIfExists(blob(hash));
+            } catch (IOException e) {
+                logger.debug("Could not delete journal blob {}", hash, e);
+            }
+        }
+    }
+
+    /** Hashes of every blob recorded edits or edits in progress need. */
+    private Set<String> referencedBlobs() {
+        var referenced = new HashSet<>(pendingBlobs.keySet());
+        for (var stack : List.of(undoable, redoable)) {
+            for (var entry : stack) {
+                for (var f : entry.files()) {
+                    if (f.before() != null) referenced.add(f.before());
+                    if (f.after() != null) referenced.add(f.after());
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /** Edits that can currently be undone, most recent first. */
+    public synchronized List<Entry> undoable() {
+        load();
+        return List.copyOf(undoable);
+    }
+
+    public synchronized List<Entry> redoable() {
+        load();
+        return List.copyOf(redoable);
+    }
+
+    /** Sequence number of the latest event (edit, undo or redo); 0 if there is none. */
+    public synchronized long lastSeq() {
+        load();
+        return nextSeq - 1;
+    }
+
+    /**
+     * Paths written by edits, undos and redos recorded after event {@code seq}, e.g. since the last test run; {@code null}
+     * if some of those events were compacted away, so the answer would be incomplete.
+     */
+    public synchronized Set<String> pathsChangedSince(long seq) {
+        load();
+        if (seq < prunedThrough) return null;
+        var paths = new TreeSet<String>();
+        for (var files : changes.tailMap(seq, false).values()) {
+            for (var f : files) paths.add(f.path());
+        }
+        return paths;
+    }
+
+    /**
+     * Reverts the last {@code steps} edits, most recent first, and returns the ones reverted. Stops at the first edit
+     * whose files no longer match what it wrote, with an {@link IllegalStateException} naming them; edits reverted
+     * before that stay reverted.
+     */
+    public synchronized List<Entry> undo(int steps) throws IOException {
+        load();
+        var done = new ArrayList<Entry>();
+        for (var i = 0; i < steps && !undoable.isEmpty(); i++) {
+            var entry = undoable.peek();
+            restore(entry, true);
+            changes.put(nextSeq, entry.files());
+            append(new JSONObject().put("seq", nextSeq++).put("type", "undo").put("target", entry.seq()).put("time", System.currentTimeMillis()));
+            redoable.push(undoable.pop());
+            done.add(entry);
+        }
+        return done;
+    }
+
+    /** Re-applies the last {@code steps} undone edits; the counterpart of {@link #undo}. */
+    public synchronized List<Entry> redo(int steps) throws IOException {
+        load();
+        var done = new ArrayList<Entry>();
+        for (var i = 0; i < steps && !redoable.isEmpty(); i++) {
+            var entry = redoable.peek();
+            restore(entry, false);
+            changes.put(nextSeq, entry.files());
+            append(new JSONObject().put("seq", nextSeq++).put("type", "redo").put("target", entry.seq()).put("time", System.currentTimeMillis()));
+            undoable.push(redoable.pop());
+            done.add(entry);
+        }
+        return done;
+    }
+
+    private synchronized Entry recordEdit(String description, List<FileState> files) throws IOException {
+        load();
+        var entry = new Entry(nextSeq++, System.currentTimeMillis(), description, List.copyOf(files));
+        append(editEvent(entry));
+        changes.put(entry.seq(), entry.files());
+        undoable.push(entry);
+        var discardedRedo = !redoable.isEmpty();
+        redoable.clear();
+        if (undoable.size() > maxEntries + maxEntries / 4 || (discardedRedo && undoable.size() > maxEntries)) {
+            compact();
+        }
+        return entry;
+    }
+
+    /**
+     * Keeps the newest {@link #maxEntries} undoable edits: rewrites the log with just those (redo history is already
+     * gone after a new edit), forgets the files of older events and deletes blobs nothing refers to any more. Runs once
+     * the stack has grown a quarter past the limit, so the cost is spread over many edits. Event numbers are kept, so
+     * positions taken earlier stay valid.
+     */
+    private void compact() throws IOException {
+        while (undoable.size() > maxEntries) undoable.removeLast();
+        prunedThrough = undoable.getLast().seq() - 1;
+        changes.headMap(prunedThrough, true).clear();
+        var log = new StringBuilder();
+        undoable.descendingIterator().forEachRemaining(entry -> log.append(editEvent(entry)).append('\n'));
+        var tmp = Files.createTempFile(dir, LOG_FILE, ".tmp");
+        Files.writeString(tmp, log, StandardCharsets.UTF_8);
+        move(tmp, dir.resolve(LOG_FILE));
+        var referenced = referencedBlobs();
+        var blobs = dir.resolve("blobs");
+        if (!Files.isDirectory(blobs)) return;
+        try (var files = Files.walk(blobs)) {
+            for (var blob : files.filter(f -> Files.isRegularFile(f) && !f.getFileName().toString().endsWith(".tmp")).toList()) {
+                var hash = blob.getParent().getFileName().toString() + blob.getFileName();
+                if (!referenced.contains(hash)) Files.deleteIfExists(blob);
+            }
+        }
+        logger.debug("Compacted edit journal {} to {} edits", dir, undoable.size());
+    }
+
+    private static JSONObject editEvent(Entry entry) {
+        var array = new JSONArray();
+        for (var f : entry.files()) {
+            array.put(new JSONObject().put("path", f.path()).put("before", f.before() == null ? JSONObject.NULL : f.before())
+                    .put("after", f.after() == null ? JSONObject.NULL : f.after()));
+        }
+        return new JSONObject().put("seq", entry.seq()).put("type", "edit").put("time", entry.time())
+                .put("description", entry.description()).put("files", array);
+    }
+
+    /** Puts every file of {@code entry} back to its before ({@code undo}) or after state, after checking them all. */
+    private void restore(Entry entry, boolean undo) throws IOException {
+        var conflicts = new ArrayList<String>();
+        for (var f : entry.files()) {
+            var expected = undo ? f.after() : f.before();
+            if (!Objects.equals(expected, hash(root.resolve(f.path())))) conflicts.add(f.path());
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Cannot " + (undo ? "undo" : "redo") + " edit " + entry.seq() + " (" + entry.description()
+                    + "): changed since then: " + String.join(", ", conflicts));
+        }
+        for (var f : entry.files()) {
+            var target = root.resolve(f.path());
+            var content = undo ? f.before() : f.after();
+            if (content == null) {
+                Files.deleteIfExists(target);
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            var tmp = Files.createTempFile(target.getParent(), "." + target.getFileName() + ".", ".jaider-tmp");
+            try {
+                Files.copy(blob(content), tmp, StandardCopyOption.REPLACE_EXISTING);
+                move(tmp, target);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /** Stores the content of {@code file} as a blob; returns its hash, or {@code null} if the file does not exist. */
+    private String store(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        var bytes = Files.readAllBytes(file);
+        var hash = hash(bytes);
+        var blob = blob(hash);
+        if (!Files.exists(blob)) {
+            Util.jaiderDir(root);
+            Files.createDirectories(blob.getParent());
+            var tmp = Files.createTempFile(blob.getParent(), hash, ".tmp");
+            Files.write(tmp, bytes);
+            move(tmp, blob);
+        }
+        return hash;
+    }
+
+    private Path blob(String hash) {
+        return dir.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    private static String hash(Path file) throws IOException {
+        return Files.isRegularFile(file) ? hash(Files.readAllBytes(file)) : null;
+    }
+
+    static String hash(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private String relative(Path path) {
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the project directory: " + path);
+        }
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private void append(JSONObject event) throws IOException {
+        Util.jaiderDir(root);
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(LOG_FILE), event + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+    }
+
+    /** Rebuilds the stacks from the log on first use. A torn last line (crash mid-append) is skipped. */
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        var file = dir.resolve(LOG_FILE);
+        if (!Files.exists(file)) return;
+        var edits = 0;
+        try {
+            for (var line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                JSONObject json;
+                try {
+                    json = new JSONObject(line);
+                } catch (JSONException e) {
+                    logger.warn("Skipping unreadable journal line in {}", file);
+                    continue;
+                }
+                var seq = json.getLong("seq");
+                if (nextSeq == 1) prunedThrough = seq - 1; // A compacted log starts past the events it dropped.
+                nextSeq = Math.max(nextSeq, seq + 1);
+                switch (json.getString("type")) {
+                    case "edit" -> {
+                        var files = new ArrayList<FileState>();
+                        var array = json.getJSONArray("files");
+                        for (var i = 0; i < array.length(); i++) {
+                            var f = array.getJSONObject(i);
+                            files.add(new FileState(f.getString("path"), f.optString("before", null), f.optString("after", null)));
+                        }
+                        var entry = new Entry(seq, json.optLong("time"), json.optString("description"), List.copyOf(files));
+                        edits++;
+                        changes.put(seq, entry.files());
+                        undoable.push(entry);
+                        redoable.clear();
+                    }
+                    case "undo" -> {
+                        if (!undoable.isEmpty() && undoable.peek().seq() == json.getLong("target")) {
+                            changes.put(seq, undoable.peek().files());
+                            redoable.push(undoable.pop());
+                        }
+                    }
+                    case "redo" -> {
+                        if (!redoable.isEmpty() && redoable.peek().seq() == json.getLong("target")) {
+                            changes.put(seq, redoable.peek().files());
+                            undoable.push(redoable.pop());
+                        }
+                    }
+                    default -> logger.warn("Unknown journal event type in {}: {}", file, json.getString("type"));
+                }
+            }
+            logger.debug("Loaded edit journal {}: {} edits, {} undoable", file, edits, undoable.size());
+        } catch (IOException | JSONException e) {
+            logger.warn("Failed to read edit journal {}", file, e);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package dumb.jaider.tools;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+import com.github.difflib.patch.PatchFailedException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a patch whose hunks do not sit exactly where their headers say, as LLM-written diffs often do.
+ * Each hunk is located in the original file by:
+ * <ol>
+ *     <li>an index from (whitespace-normalized) line content to line numbers, built once per file;</li>
+ *     <li>anchoring on the hunk's rarest line and verifying the whole hunk around each occurrence, preferring the
+ *     candidate closest to the expected position (shifted by the drift of earlier hunks) within {@code maxOffset};</li>
+ *     <li>if that fails, comparing with whitespace ignored, then dropping up to {@code fuzz} leading and trailing
+ *     context lines, like {@code patch --fuzz}. Removed lines always have to match.</li>
+ * </ol>
+ * Every hunk gets a confidence: 1.0 for an exact match at the expected line, lowered for whitespace-only matches,
+ * dropped context and distance from the expected line. Matches below {@code minConfidence} are rejected. Context
+ * lines keep the file's own text, so whitespace drift in the diff does not leak into unchanged lines.
+ */
+public class FuzzyPatcher {
+
+    public record Settings(boolean enabled, int maxOffset, int fuzz, boolean ignoreWhitespace, double minConfidence) {
+        public static final Settings DEFAULTS = new Settings(true, 500, 2, true, 0.5);
+
+        public static Settings fromJson(JSONObject json) {
+            if (json == null) return DEFAULTS;
+            return new Settings(json.optBoolean("fuzzy", DEFAULTS.enabled), json.optInt("maxOffset", DEFAULTS.maxOffset),
+                    json.optInt("fuzz", DEFAULTS.fuzz), json.optBoolean("ignoreWhitespace", DEFAULTS.ignoreWhitespace),
+                    json.optDouble("minConfidence", DEFAULTS.minConfidence));
+        }
+    }
+
+    /** Where one hunk was applied. Line numbers are 1-based, in the original file. */
+    public record HunkMatch(int hunk, int expectedLine, int actualLine, boolean whitespaceInsensitive, int fuzz, double confidence) {
+        boolean exact() {
+            return expectedLine == actualLine && !whitespaceInsensitive && fuzz == 0;
+        }
+
+        String describe() {
+            var how = new ArrayList<String>();
+            if (expectedLine != actualLine) how.add("at line " + actualLine + " instead of " + expectedLine);
+            if (whitespaceInsensitive) how.add("ignoring whitespace");
+            if (fuzz > 0) how.add("fuzz " + fuzz);
+            return "hunk " + hunk + " " + String.join(", ", how) + String.format(" (confidence %.2f)", confidence);
+        }
+    }
+
+    public record Result(List<String> lines, List<HunkMatch> hunks) {
+        /** Lowest hunk confidence; 1.0 for an empty patch. */
+        public double confidence() {
+            return hunks.stream().mapToDouble(HunkMatch::confidence).min().orElse(1.0);
+        }
+
+        public boolean exact() {
+            return hunks.stream().allMatch(HunkMatch::exact);
+        }
+
+        /** Human-readable note about the hunks that needed fuzzy matching; empty if none did. */
+        public String summary() {
+            var fuzzy = hunks.stream().filter(h -> !h.exact()).map(HunkMatch::describe).toList();
+            return fuzzy.isEmpty() ? "" : String.join("; ", fuzzy);
+        }
+    }
+
+    private record Location(int start, int fuzzStart, int fuzzEnd, boolean whitespace, double confidence) {
+    }
+
+    private final Settings settings;
+
+    public FuzzyPatcher(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Result apply(List<String> original, Patch<String> patch) throws PatchFailedException {
+        var index = new LineIndex(original);
+        var locations = new ArrayList<Location>();
+        var matches = new ArrayList<HunkMatch>();
+        var deltas = patch.getDeltas();
+        var minStart = 0;
+        var drift = 0;
+        for (var i = 0; i < deltas.size(); i++) {
+            var delta = deltas.get(i);
+            var expected = delta.getSource().getPosition() + drift;
+            var location = locate(index, original, delta, expected, minStart);
+            if (location == null) {
+                throw new PatchFailedException("Hunk " + (i + 1) + " (expected near line " + (delta.getSource().getPosition() + 1)
+                        + ") not found within " + settings.maxOffset() + " lines" + (settings.fuzz() > 0 ? " with fuzz " + settings.fuzz() : "") + ".");
+            }
+            if (location.confidence() < settings.minConfidence()) {
+                throw new PatchFailedException(String.format("Hunk %d only matched with confidence %.2f (minimum %.2f).",
+                        i + 1, location.confidence(), settings.minConfidence()));
+            }
+            var sourceStart = location.start() - location.fuzzStart(); // where the untrimmed hunk would begin
+            drift = sourceStart - delta.getSource().getPosition();
+            minStart = location.start() + delta.getSource().size() - location.fuzzStart() - location.fuzzEnd();
+            locations.add(location);
+            matches.add(new HunkMatch(i + 1, delta.getSource().getPosition() + 1, sourceStart + 1, location.whitespace(),
+                    Math.max(location.fuzzStart(), location.fuzzEnd()), location.confidence()));
+        }
+
+        var out = new ArrayList<String>(original.size() + 16);
+        var cursor = 0;
+        for (var i = 0; i < deltas.size(); i++) {
+            var delta = deltas.get(i);
+            var location = locations.get(i);
+            out.addAll(original.subList(cursor, location.start()));
+            var source = trim(delta.getSource().getLines(), location.fuzzStart(), location.fuzzEnd());
+            var target = trim(delta.getTarget().getLines(), location.fuzzStart(), location.fuzzEnd());
+            var fileLines = original.subList(location.start(), location.start() + source.size());
+            out.addAll(rewrite(fileLines, source, target, location.whitespace()));
+            cursor = location.start() + source.size();
+        }
+        out.addAll(original.subList(cursor, original.size()));
+        return new Result(out, matches);
+    }
+
+    private Location locate(LineIndex index, List<String> file, AbstractDelta<String> delta, int expected, int minStart) {
+        var source = delta.getSource().getLines();
+        var target = delta.getTarget().getLines();
+        if (source.isEmpty()) { // Pure insertion without context: trust the position, clamped to the file.
+            var at = Math.max(minStart, Math.min(expected, file.size()));
+            return new Location(at, 0, 0, false, at == expected ? 1.0 : 0.5);
+        }
+        var prefix = commonPrefix(source, target);
+        var suffix = commonSuffix(source, target, prefix);
+        for (var fuzz = 0; fuzz <= settings.fuzz(); fuzz++) {
+            var fuzzStart = Math.min(fuzz, prefix);
+            var fuzzEnd = Math.min(fuzz, suffix);
+            if (fuzz > 0 && fuzzStart == 0 && fuzzEnd == 0) break; // No context left to drop.
+            var lines = trim(source, fuzzStart, fuzzEnd);
+            if (lines.isEmpty()) break;
+            for (var whitespace : settings.ignoreWhitespace() ? new boolean[]{false, true} : new boolean[]{false}) {
+                var start = find(index, file, lines, expected + fuzzStart, minStart, whitespace);
+                if (start >= 0) {
+                    var offset = Math.abs(start - fuzzStart - expected);
+                    var confidence = 1.0 - (whitespace ? 0.1 : 0) - 0.15 * Math.max(fuzzStart, fuzzEnd)
+                            - 0.2 * offset / Math.max(1, settings.maxOffset());
+                    return new Location(start, fuzzStart, fuzzEnd, whitespace, confidence);
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Start of the occurrence of {@code lines} closest to {@code expected}, or -1. */
+    private int find(LineIndex index, List<String> file, List<String> lines, int expected, int minStart, boolean whitespace) {
+        if (matchesAt(file, lines, expected, whitespace) && expected >= minStart) {
+            return expected;
+        }
+        var anchor = 0;
+        var anchorCount = Integer.MAX_VALUE;
+        for (var i = 0; i < lines.size(); i++) {
+            var count = index.positions(lines.get(i)).size();
+            if (count < anchorCount) {
+                anchor = i;
+                anchorCount = count;
+            }
+        }
+        var best = -1;
+        for (int position : index.positions(lines.get(anchor))) {
+            var start = position - anchor;
+            if (start < minStart || Math.abs(start - expected) > settings.maxOffset()) continue;
+            if (best >= 0 && Math.abs(start - expected) >= Math.abs(best - expected)) continue;
+            if (matchesAt(file, lines, start, whitespace)) best = start;
+        }
+        return best;
+    }
+
+    private static boolean matchesAt(List<String> file, List<String> lines, int start, boolean whitespace) {
+        if (start < 0 || start + lines.size() > file.size()) return false;
+        for (var i = 0; i < lines.size(); i++) {
+            var a = file.get(start + i);
+            var b = lines.get(i);
+            if (whitespace ? !normalize(a).equals(normalize(b)) : !a.equals(b)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Target lines for a matched region. Lines the hunk leaves unchanged are copied from the file, so a
+     * whitespace-insensitive match keeps the file's indentation for context lines.
+     */
+    private static List<String> rewrite(List<String> fileLines, List<String> source, List<String> target, boolean whitespace) {
+        if (!whitespace) return target;
+        var patch = DiffUtils.diff(source, target, (a, b) -> normalize(a).equals(normalize(b)));
+        var out = new ArrayList<String>(target.size());
+        var cursor = 0;
+        for (var delta : patch.getDeltas()) {
+            out.addAll(fileLines.subList(cursor, delta.getSource().getPosition()));
+            out.addAll(delta.getTarget().getLines());
+            cursor = delta.getSource().getPosition() + delta.getSource().size();
+        }
+        out.addAll(fileLines.subList(cursor, fileLines.size()));
+        return out;
+    }
+
+    private static List<String> trim(List<String> lines, int start, int end) {
+        return lines.subList(start, lines.size() - end);
+    }
+
+    private static int commonPrefix(List<String> a, List<String> b) {
+        var n = 0;
+        while (n < a.size() && n < b.size() && a.get(n).equals(b.get(n))) n++;
+        return n;
+    }
+
+    private static int commonSuffix(List<String> a, List<String> b, int prefix) {
+        var n = 0;
+        while (n < a.size() - prefix && n < b.size() - prefix && a.get(a.size() - 1 - n).equals(b.get(b.size() - 1 - n))) n++;
+        return n;
+    }
+
+    /** Trims and collapses runs of whitespace to one space. */
+    static String normalize(String line) {
+        var sb = new StringBuilder(line.length());
+        var pendingSpace = false;
+        for (var i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !sb.isEmpty();
+            } else {
+                if (pendingSpace) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Normalized line content to the (ascending) line numbers it occurs at. */
+    private static final class LineIndex {
+        private final Map<String, List<Integer>> positions = new HashMap<>();
+
+        LineIndex(List<String> lines) {
+            for (var i = 0; i < lines.size(); i++) {
+                positions.computeIfAbsent(normalize(lines.get(i)), k -> new ArrayList<>(1)).add(i);
+            }
+        }
+
+        List<Integer> positions(String line) {
+            return positions.getOrDefault(normalize(line), List.of());
+        }
+    }
+}
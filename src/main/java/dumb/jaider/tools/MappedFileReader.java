@@ -0,0 +1,175 @@
+package dumb.jaider.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Reads slices of (possibly very large) files without loading them whole. The first read of a file memory-maps it
+ * and records the byte offset of every line start; the index is cached per path and rebuilt when the file's size or
+ * modification time changes. A slice then maps just its own byte range and decodes only that.
+ */
+public class MappedFileReader {
+    private static final MappedFileReader SHARED = new MappedFileReader(32);
+    private static final int REGION = 1 << 30; // Largest chunk mapped at once while indexing.
+
+    /** A decoded part of a file. Lines are 1-based and inclusive; an empty slice has {@code lastLine < firstLine}. */
+    public record Slice(String text, int firstLine, int lastLine, int totalLines, long totalBytes) {
+    }
+
+    private record Index(long size, FileTime modified, long[] lineStarts, int lines) {
+        long end(int line) { // Exclusive byte end of a 0-based line, including its terminator.
+            return line + 1 < lines ? lineStarts[line + 1] : size;
+        }
+
+        int lineAt(long offset) { // 0-based line containing the byte offset.
+            var i = Arrays.binarySearch(lineStarts, 0, lines, offset);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    private final int maxCachedFiles;
+    private final Map<Path, Index> cache;
+
+    public MappedFileReader(int maxCachedFiles) {
+        this.maxCachedFiles = maxCachedFiles;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static MappedFileReader shared() {
+        return SHARED;
+    }
+
+    /** Up to {@code count} lines starting at 1-based {@code startLine}, without their line terminators. */
+    public Slice lines(Path file, int startLine, int count) throws IOException {
+        var index = index(file);
+        var from = Math.max(1, startLine) - 1;
+        var to = (int) Math.min((long) from + Math.max(0, count), index.lines()) - 1;
+        if (from >= index.lines() || to < from) {
+            return new Slice("", from + 1, from, index.lines(), index.size());
+        }
+        var text = decode(file, index.lineStarts()[from], index.end(to));
+        return new Slice(stripTerminator(text), from + 1, to + 1, index.lines(), index.size());
+    }
+
+    /** The bytes {@code [offset, offset + length)}, decoded as UTF-8, with the lines they fall on. */
+    public Slice bytes(Path file, long offset, int length) throws IOException {
+        var index = index(file);
+        var from = Math.max(0, Math.min(offset, index.size()));
+        var to = Math.min(index.size(), from + Math.max(0, length));
+        if (to <= from) {
+            return new Slice("", 1, 0, index.lines(), index.size());
+        }
+        return new Slice(decode(file, from, to), index.lineAt(from) + 1, index.lineAt(to - 1) + 1, index.lines(), index.size());
+    }
+
+    /**
+     * 1-based line where {@code symbol} is declared, else its first whole-word occurrence, or -1. Only lines holding
+     * the symbol's bytes are decoded. A declaration is a line where the name follows a declaring keyword
+     * ({@code class}, {@code def}, {@code function}, ...) or is followed by a parameter list on a line that does not
+     * look like a call statement.
+     */
+    public int findSymbol(Path file, String symbol) throws IOException {
+        var index = index(file);
+        var needle = symbol.getBytes(StandardCharsets.UTF_8);
+        if (needle.length == 0 || index.size() == 0) return -1;
+        var word = Pattern.compile("(?<![\\w$])" + Pattern.quote(symbol) + "(?![\\w$])");
+        var declaration = Pattern.compile("\\b(class|interface|enum|record|struct|trait|type|def|fun|fn|func|function|var|val|let|const)\\s+"
+                + Pattern.quote(symbol) + "(?![\\w$])|^\\s*[\\w<>\\[\\],.?@\\s]*\\s" + Pattern.quote(symbol) + "\\s*\\([^;]*$");
+        var first = -1;
+        var line = -1;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long regionStart = 0; regionStart < index.size(); regionStart += REGION) {
+                // Overlap regions by the needle length so a match across a boundary is not lost.
+                var regionSize = (int) Math.min(index.size() - regionStart, (long) REGION + needle.length);
+                var buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                for (var i = 0; i + needle.length <= regionSize; i++) {
+                    if (!matches(buffer, i, needle)) continue;
+                    var at = index.lineAt(regionStart + i);
+                    if (at == line) continue; // Already checked this line.
+                    line = at;
+                    var text = stripTerminator(decode(channel, index.lineStarts()[at], index.end(at)));
+                    if (!word.matcher(text).find()) continue;
+                    if (declaration.matcher(text).find()) return at + 1;
+                    if (first < 0) first = at + 1;
+                }
+            }
+        }
+        return first;
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, int at, byte[] needle) {
+        for (var j = 0; j < needle.length; j++) {
+            if (buffer.get(at + j) != needle[j]) return false;
+        }
+        return true;
+    }
+
+    private synchronized Index cached(Path file, long size, FileTime modified) {
+        var index = cache.get(file);
+        return index != null && index.size() == size && index.modified().equals(modified) ? index : null;
+    }
+
+    private Index index(Path file) throws IOException {
+        var path = file.toAbsolutePath().normalize();
+        var size = Files.size(path);
+        var modified = Files.getLastModifiedTime(path);
+        var index = cached(path, size, modified);
+        if (index != null) return index;
+
+        var starts = new long[(int) Math.min(1024, size / 16 + 1)];
+        var lines = 0;
+        if (size > 0) {
+            starts[lines++] = 0;
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (long regionStart = 0; regionStart < size; regionStart += REGION) {
+                    var regionSize = (int) Math.min(size - regionStart, REGION);
+                    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                    for (var i = 0; i < regionSize; i++) {
+                        if (buffer.get(i) != '\n') continue;
+                        var next = regionStart + i + 1;
+                        if (next >= size) break; // A trailing newline does not start another line.
+                        if (lines == starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+                        starts[lines++] = next;
+                    }
+                }
+            }
+        }
+        index = new Index(size, modified, starts, lines);
+        synchronized (this) {
+            cache.put(path, index);
+            if (cache.size() > maxCachedFiles) {
+                cache.remove(cache.keySet().iterator().next());
+            }
+        }
+        return index;
+    }
+
+    private static String decode(Path file, long from, long to) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(channel, from, to);
+        }
+    }
+
+    private static String decode(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private static String stripTerminator(String text) {
+        var end = text.length();
+        if (end > 0 && text.charAt(end - 1) == '\n') end--;
+        if (end > 0 && text.charAt(end - 1) == '\r') end--;
+        return text.substring(0, end).replace("\r\n", "\n");
+    }
+}
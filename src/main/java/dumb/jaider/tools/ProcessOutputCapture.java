@@ -0,0 +1,138 @@
+package dumb.jaider.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Streams process output line by line without holding all of it in memory.
+ * <p>
+ * The first {@code headLines} lines and a ring buffer of the last {@code tailLines} lines are retained for the
+ * summary shown to the model; every line is also handed to a listener (for incremental parsing) and, when a spill
+ * directory is given, appended to {@code <runsDir>/<runId>.log} so the full log can be paged later.
+ */
+public class ProcessOutputCapture {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessOutputCapture.class);
+
+    public static final int DEFAULT_HEAD_LINES = 40;
+    public static final int DEFAULT_TAIL_LINES = 120;
+    public static final int MAX_LINE_CHARS = 1000;
+    /** Spilled logs beyond this count are deleted, oldest first. */
+    public static final int MAX_RETAINED_LOGS = 20;
+
+    private final int headLines;
+    private final int tailLines;
+    private final List<String> head = new ArrayList<>();
+    private final ArrayDeque<String> tail = new ArrayDeque<>();
+    private long totalLines;
+    private long totalChars;
+
+    public ProcessOutputCapture(int headLines, int tailLines) {
+        this.headLines = headLines;
+        this.tailLines = tailLines;
+    }
+
+    /**
+     * Consumes {@code in} to EOF.
+     *
+     * @param spillFile Destination of the full log, or {@code null} to keep only head and tail.
+     * @param listener  Receives every (untruncated) line as it arrives.
+     */
+    public void capture(InputStream in, Path spillFile, Consumer<String> listener) throws IOException {
+        BufferedWriter spill = null;
+        try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            if (spillFile != null) {
+                Files.createDirectories(spillFile.getParent());
+                spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (spill != null) {
+                    spill.write(line);
+                    spill.newLine();
+                }
+                listener.accept(line);
+                accept(line);
+            }
+        } finally {
+            if (spill != null) spill.close();
+        }
+    }
+
+    private void accept(String line) {
+        totalLines++;
+        totalChars += line.length() + 1;
+        var kept = line.length() > MAX_LINE_CHARS ? line.substring(0, MAX_LINE_CHARS) + " ...[line truncated]" : line;
+        if (head.size() < headLines) {
+            head.add(kept);
+            return;
+        }
+        if (tail.size() == tailLines) tail.removeFirst();
+        tail.addLast(kept);
+    }
+
+    public long totalLines() {
+        return totalLines;
+    }
+
+    public long totalChars() {
+        return totalChars;
+    }
+
+    public boolean truncated() {
+        return totalLines > head.size() + tail.size();
+    }
+
+    /**
+     * @param moreHint Appended to the elision marker, e.g. how to fetch the omitted lines.
+     * @return Head and tail joined, with a marker where lines were dropped.
+     */
+    public String summary(String moreHint) {
+        var out = new StringBuilder();
+        head.forEach(l -> out.append(l).append('\n'));
+        if (truncated()) {
+            var omitted = totalLines - head.size() - tail.size();
+            out.append("... [").append(omitted).append(" lines omitted (lines ").append(head.size() + 1)
+                    .append('-').append(head.size() + omitted).append(")").append(moreHint == null ? "" : "; " + moreHint).append("] ...\n");
+        }
+        tail.forEach(l -> out.append(l).append('\n'));
+        return out.toString().trim();
+    }
+
+    /** Deletes the oldest {@code *.log} files in {@code runsDir} so at most {@link #MAX_RETAINED_LOGS} remain. */
+    public static void pruneLogs(Path runsDir) {
+        if (!Files.isDirectory(runsDir)) return;
+        try (Stream<Path> logs = Files.list(runsDir)) {
+            var sorted = logs.filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .sorted(Comparator.comparing(ProcessOutputCapture::lastModified).reversed())
+                    .toList();
+            for (var i = MAX_RETAINED_LOGS; i < sorted.size(); i++) {
+                Files.deleteIfExists(sorted.get(i));
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to prune run logs in {}", runsDir, e);
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
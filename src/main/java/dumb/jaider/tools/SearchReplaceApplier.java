@@ -0,0 +1,296 @@
+package dumb.jaider.tools;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import dumb.jaider.model.JaiderModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Applies edits written as SEARCH/REPLACE blocks, a format models produce more cheaply and reliably than unified
+ * diffs because it needs no line numbers:
+ * <pre>
+ * path/to/File.java
+ * &lt;&lt;&lt;&lt;&lt;&lt;&lt; SEARCH
+ * exact existing lines
+ * =======
+ * replacement lines
+ * &gt;&gt;&gt;&gt;&gt;&gt;&gt; REPLACE
+ * </pre>
+ * Each block's SEARCH text must occur exactly once in its file (as already changed by earlier blocks). It is matched
+ * verbatim first, then line by line with whitespace normalized; a normalized match re-indents the replacement to the
+ * file's indentation. An empty SEARCH creates a new file. Blocks are applied in memory, and files are only written,
+ * atomically and all together, if every block matched.
+ */
+public class SearchReplaceApplier {
+    static final String SEARCH = "<<<<<<< SEARCH";
+    static final String DIVIDER = "=======";
+    static final String REPLACE = ">>>>>>> REPLACE";
+
+    public record Block(int number, String file, String search, String replace) {
+    }
+
+    /** How one block went: applied (exactly or whitespace-normalized, at a line) or why not. */
+    public record BlockResult(Block block, boolean applied, String detail) {
+        @Override
+        public String toString() {
+            return "block " + block.number() + " (" + block.file() + "): " + detail;
+        }
+    }
+
+    private static final class FileState {
+        final String name;
+        final Path path;
+        final byte[] original;
+        String content;
+
+        FileState(String name, Path path, byte[] original) {
+            this.name = name;
+            this.path = path;
+            this.original = original;
+            this.content = original == null ? null : new String(original, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Blocks applied in memory; {@link #ok()} only if every block matched. */
+    record Plan(List<BlockResult> results, Map<Path, FileState> files) {
+        public boolean ok() {
+            return results.stream().allMatch(BlockResult::applied);
+        }
+    }
+
+    /** Splits the text into blocks. The file name is the last non-blank, non-fence line before each SEARCH marker. */
+    public static List<Block> parse(String text) {
+        var blocks = new ArrayList<Block>();
+        if (text == null) return blocks;
+        var lines = text.replace("\r\n", "\n").split("\n", -1);
+        String file = null;
+        for (var i = 0; i < lines.length; i++) {
+            var line = lines[i];
+            if (!line.strip().equals(SEARCH)) {
+                var name = line.strip();
+                if (!name.isEmpty() && !name.startsWith("```")) file = stripDecoration(name);
+                continue;
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("Block " + (blocks.size() + 1) + " has no file name before '" + SEARCH + "'.");
+            }
+            var search = new StringBuilder();
+            var replace = new StringBuilder();
+            var section = search;
+            var closed = false;
+            for (i++; i < lines.length; i++) {
+                var l = lines[i];
+                if (section == search && l.strip().equals(DIVIDER)) {
+                    section = replace;
+                } else if (section == replace && l.strip().equals(REPLACE)) {
+                    closed = true;
+                    break;
+                } else {
+                    section.append(l).append('\n');
+                }
+            }
+            if (!closed) {
+                throw new IllegalArgumentException("Block " + (blocks.size() + 1) + " (" + file + ") is missing its '"
+                        + (section == search ? DIVIDER : REPLACE) + "' line.");
+            }
+            blocks.add(new Block(blocks.size() + 1, file, search.toString(), replace.toString()));
+            // The next block may reuse this file name without repeating it.
+        }
+        return blocks;
+    }
+
+    /** Parses, matches and writes the blocks; returns a per-block report, or an error if nothing was written. */
+    public String apply(JaiderModel model, String text) {
+        List<Block> blocks;
+        try {
+            blocks = parse(text);
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+        if (blocks.isEmpty()) {
+            return "Error: No SEARCH/REPLACE blocks found. Expected a file path line, then '" + SEARCH + "', the existing lines, '"
+                    + DIVIDER + "', the new lines and '" + REPLACE + "'.";
+        }
+        var plan = plan(model, blocks);
+        var report = plan.results().stream().map(r -> "\n- " + r).collect(Collectors.joining());
+        if (!plan.ok()) {
+            var failed = plan.results().stream().filter(r -> !r.applied()).count();
+            return "Error: Edits not applied; no files were changed. " + failed + " of " + blocks.size() + " blocks failed:" + report;
+        }
+        var changed = plan.files().values().stream().filter(f -> f.original == null || !f.content.equals(new String(f.original, StandardCharsets.UTF_8))).toList();
+        if (changed.isEmpty()) {
+            return "Edits applied; no file content changed." + report;
+        }
+        var edit = EditJournal.of(model.dir).begin("applyEdits " + changed.stream().map(f -> f.name).collect(Collectors.joining(", ")));
+        var writes = new ArrayList<DiffApplier.FileWrite>();
+        for (var f : changed) {
+            edit.capture(f.path);
+            writes.add(new DiffApplier.FileWrite(f.name, f.path, f.content.getBytes(StandardCharsets.UTF_8), f.original));
+        }
+        var failure = DiffApplier.writeAll(writes);
+        if (failure != null) {
+            edit.abort(); // writeAll rolled the files back.
+            return failure;
+        }
+        edit.commit();
+        changed.forEach(f -> model.files.add(f.path));
+        return "Edits applied successfully: " + blocks.size() + (blocks.size() == 1 ? " block in " : " blocks in ") + changed.stream()
+                .map(f -> f.name + (f.original == null ? " (created)" : "")).collect(Collectors.joining(", ")) + "." + report;
+    }
+
+    /** The blocks as a unified diff, for review before applying, or an error message starting with "Error". */
+    public String preview(JaiderModel model, String text) {
+        try {
+            var plan = plan(model, parse(text));
+            if (!plan.ok()) {
+                return "Error: " + plan.results().stream().filter(r -> !r.applied()).map(BlockResult::toString).collect(Collectors.joining("; "));
+            }
+            var diff = new StringBuilder();
+            for (var f : plan.files().values()) {
+                var before = f.original == null ? List.<String>of() : lines(new String(f.original, StandardCharsets.UTF_8));
+                var after = lines(f.content);
+                var patch = DiffUtils.diff(before, after);
+                if (patch.getDeltas().isEmpty()) continue;
+                var from = f.original == null ? "/dev/null" : "a/" + f.name;
+                UnifiedDiffUtils.generateUnifiedDiff(from, "b/" + f.name, before, patch, 3).forEach(l -> diff.append(l).append('\n'));
+            }
+            return diff.toString();
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    Plan plan(JaiderModel model, List<Block> blocks) {
+        var root = model.dir.toAbsolutePath().normalize();
+        var files = new LinkedHashMap<Path, FileState>();
+        var results = new ArrayList<BlockResult>();
+        for (var block : blocks) {
+            try {
+                var path = root.resolve(block.file()).normalize();
+                if (!path.startsWith(root)) {
+                    throw new IllegalArgumentException("path is outside the project directory.");
+                }
+                var state = files.get(path);
+                if (state == null) {
+                    if (Files.exists(path) && !model.files.contains(path)) {
+                        throw new IllegalArgumentException("cannot edit an existing file that is not in context; add it first.");
+                    }
+                    state = new FileState(block.file(), path, Files.exists(path) ? Files.readAllBytes(path) : null);
+                    files.put(path, state);
+                }
+                results.add(new BlockResult(block, true, applyBlock(state, block)));
+            } catch (IOException | IllegalArgumentException e) {
+                results.add(new BlockResult(block, false, e.getMessage()));
+            }
+        }
+        return new Plan(results, files);
+    }
+
+    /** Applies one block to the file's in-memory content; returns how it matched or throws with the reason. */
+    private static String applyBlock(FileState state, Block block) {
+        if (block.search().isBlank()) {
+            if (state.content != null && !state.content.isBlank()) {
+                throw new IllegalArgumentException("empty SEARCH only creates new files, but this file already has content.");
+            }
+            state.content = block.replace();
+            return state.original == null ? "created" : "written";
+        }
+        if (state.content == null) {
+            throw new IllegalArgumentException("file does not exist; use an empty SEARCH section to create it.");
+        }
+        var content = state.content;
+        var crlf = content.contains("\r\n");
+        var search = crlf ? block.search().replace("\n", "\r\n") : block.search();
+        var replace = crlf ? block.replace().replace("\n", "\r\n") : block.replace();
+        var at = content.indexOf(search);
+        if (at >= 0) {
+            if (content.indexOf(search, at + 1) >= 0) {
+                throw new IllegalArgumentException("SEARCH text occurs more than once; include more surrounding lines to make it unique.");
+            }
+            state.content = content.substring(0, at) + replace + content.substring(at + search.length());
+            return "applied at line " + lineOf(content, at);
+        }
+        return applyNormalized(state, block, crlf);
+    }
+
+    /** Line-by-line match ignoring whitespace differences; the replacement takes the matched lines' indentation. */
+    private static String applyNormalized(FileState state, Block block, boolean crlf) {
+        var fileLines = state.content.split("\n", -1);
+        var searchLines = trimBlankEnds(lines(block.search()));
+        if (searchLines.isEmpty()) {
+            throw new IllegalArgumentException("SEARCH text not found in file.");
+        }
+        var needle = searchLines.stream().map(FuzzyPatcher::normalize).toList();
+        var match = -1;
+        for (var i = 0; i + needle.size() <= fileLines.length; i++) {
+            var j = 0;
+            while (j < needle.size() && FuzzyPatcher.normalize(fileLines[i + j]).equals(needle.get(j))) j++;
+            if (j < needle.size()) continue;
+            if (match >= 0) {
+                throw new IllegalArgumentException("SEARCH text (ignoring whitespace) occurs more than once; include more surrounding lines to make it unique.");
+            }
+            match = i;
+        }
+        if (match < 0) {
+            throw new IllegalArgumentException("SEARCH text not found in file, even ignoring whitespace. Copy the existing lines exactly, or re-read the file.");
+        }
+        var fromIndent = indentOfFirstNonBlank(searchLines);
+        var toIndent = indentOfFirstNonBlank(Arrays.asList(fileLines).subList(match, match + needle.size()));
+        var replacement = new ArrayList<String>();
+        for (var line : lines(block.replace())) {
+            replacement.add(!line.isBlank() && line.startsWith(fromIndent) ? toIndent + line.substring(fromIndent.length()) : line);
+        }
+        var out = new ArrayList<>(Arrays.asList(fileLines).subList(0, match));
+        var separator = crlf ? "\r" : "";
+        replacement.forEach(l -> out.add(l + separator));
+        out.addAll(Arrays.asList(fileLines).subList(match + needle.size(), fileLines.length));
+        state.content = String.join("\n", out);
+        return "applied at line " + (match + 1) + " ignoring whitespace";
+    }
+
+    private static List<String> lines(String text) {
+        var list = new ArrayList<>(Arrays.asList(text.replace("\r\n", "\n").split("\n", -1)));
+        if (!list.isEmpty() && list.getLast().isEmpty()) list.removeLast(); // The terminator of the last line.
+        return list;
+    }
+
+    private static List<String> trimBlankEnds(List<String> lines) {
+        var from = 0;
+        var to = lines.size();
+        while (from < to && lines.get(from).isBlank()) from++;
+        while (to > from && lines.get(to - 1).isBlank()) to--;
+        return lines.subList(from, to);
+    }
+
+    private static String indentOfFirstNonBlank(List<String> lines) {
+        for (var line : lines) {
+            if (!line.isBlank()) return line.substring(0, line.length() - line.stripLeading().length());
+        }
+        return "";
+    }
+
+    private static int lineOf(String content, int offset) {
+        var line = 1;
+        for (var i = 0; i < offset; i++) {
+            if (content.charAt(i) == '\n') line++;
+        }
+        return line;
+    }
+
+    private static String stripDecoration(String name) {
+        // Models sometimes wrap the path in backticks or prefix it with "File:" or a markdown heading.
+        var n = name.replaceFirst("^(#+\\s*|[Ff]ile:\\s*)", "");
+        if (n.length() > 1 && n.startsWith("`") && n.endsWith("`")) n = n.substring(1, n.length() - 1);
+        return n.strip();
+    }
+}
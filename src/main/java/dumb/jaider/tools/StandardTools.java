@@ -7,17 +7,21 @@ import dev.langchain4j.web.search.WebSearchEngine;
 import dev.langchain4j.web.search.tavily.TavilyWebSearchEngine;
 import dumb.jaider.config.Config;
 import dumb.jaider.model.JaiderModel;
+import dumb.jaider.ui.UI;
 import dumb.jaider.utils.Util;
+import dumb.jaider.vcs.FileListing;
 import dumb.jaider.vcs.GitService;
+import dumb.jaider.vcs.HistoryService;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -26,18 +30,48 @@ public class StandardTools {
     private final Config config;
     private final EmbeddingModel embedding;
     private final ProcessExecutor processExecutor;
+    private UI diffApprover;
+    private TestImpactAnalyzer testImpact;
+    /** Journal position of the last passing validation run; edits after it select the tests to run. */
+    private long validatedJournalSeq = -1;
+
+    /** Where full validation logs are spilled, relative to the project root. */
+    static final String RUNS_DIR = ".jaider/runs";
+    private static final Pattern MAVEN_TEST_COMMAND = Pattern.compile("\\bmvnw?\\b.*\\b(test|verify|install)\\b");
+    private static final Pattern RUN_ID = Pattern.compile("run-\\d+(-\\d+)?");
+    /** Disambiguates runs started in the same millisecond, e.g. parallel batch attempts or two sessions. */
+    private static final AtomicLong RUN_COUNTER = new AtomicLong();
+    private static final int MAX_LOG_LINES_PER_READ = 400;
+    private static final int MAX_BYTES_PER_READ = 64 * 1024;
+    private static final int SLOW_TESTS_REPORTED = 5;
+    /** Reports written up to this long before a run started still count as its own (coarse file timestamps). */
+    private static final long REPORT_CLOCK_SLACK_MILLIS = 2000;
+    /** Files larger than this are not returned whole by {@link #readFile}; the ranged reads cover the rest. */
+    static final long LARGE_FILE_BYTES = 256 * 1024;
 
     public StandardTools(JaiderModel model, Config config, EmbeddingModel embedding, ProcessExecutor processExecutor) {
         this.model = model;
         this.config = config;
         this.embedding = embedding;
         this.processExecutor = processExecutor;
+        if (testImpactEnabled() && model != null && model.dir != null) {
+            this.testImpact = new TestImpactAnalyzer(model.dir);
+            this.validatedJournalSeq = EditJournal.of(model.dir).lastSeq(); // Edits from here on select the tests.
+        }
     }
 
     public StandardTools(JaiderModel model, Config config, EmbeddingModel embedding) {
         this(model, config, embedding, (command, directory) -> new ProcessBuilder(command).directory(directory).redirectErrorStream(true).start());
     }
 
+    /**
+     * Routes every {@link #applyDiff} call through {@link UI#diffInteraction} before it touches disk.
+     * Used where tools run inside the agent loop without {@code ToolLifecycleManager} (e.g. batch mode).
+     */
+    public void setDiffApprover(UI diffApprover) {
+        this.diffApprover = diffApprover;
+    }
+
     // Removed diffReader method
 
     public Set<Object> getReadOnlyTools() {
@@ -70,59 +104,30 @@ public class StandardTools {
         }
     }
 
-    @Tool("Applies a code change using the unified diff format.")
+    @Tool("Applies a code change using the unified diff format. One diff may change several files (one '--- a/<file>' / '+++ b/<file>' section per file); either all files are changed or none.")
     public String applyDiff(String diff) {
         // return "Error: Diff functionality is temporarily disabled due to library issues.";
-
-        try {
-            var patch = Util.diffReader(diff); // Step 1: Read the diff, now returns Patch<String>
-
-            // Step 2: Parse original and revised filenames from the diff string
-            String originalFileName = null;
-            String revisedFileName = null;
-            for (var line : diff.split("\n")) {
-                if (line.startsWith("--- a/")) {
-                    originalFileName = line.substring("--- a/".length());
-                } else if (line.startsWith("+++ b/")) {
-                    revisedFileName = line.substring("+++ b/".length());
-                }
-                if (originalFileName != null && revisedFileName != null) {
-                    break;
-                }
+        if (diffApprover != null) {
+            var decision = diffApprover.diffInteraction(diff).join();
+            if (!decision.accepted()) {
+                return "User rejected the diff.";
             }
-
-            if (originalFileName == null && revisedFileName == null && patch != null && !patch.getDeltas().isEmpty()) {
-                // If there are deltas, we expect filenames.
-                // However, an empty diff (no deltas) might not have filenames, which is fine.
-                // Check if patch is empty. If not, then it's an error.
-                var isEmptyPatch = patch.getDeltas().stream().allMatch(delta -> delta.getSource().getLines().isEmpty() && delta.getTarget().getLines().isEmpty());
-                if (!isEmptyPatch) {
-                   return "Error: Could not parse filenames from diff header.";
-                }
-                // If it's an empty patch with no filenames, treat as no-op / successful no-op.
-                // Or let DiffApplier decide based on null filenames if patch is also empty.
+            if (decision.edited()) {
+                diff = decision.newDiff();
             }
+        }
 
-
-            var diffApplier = new DiffApplier(); // Step 3: Instantiate DiffApplier
-            // Step 4: Apply diff, passing parsed filenames
-            var applyResult = diffApplier.apply(this.model, patch, originalFileName, revisedFileName);
-
-            // Step 5: Handle result and set lastAppliedDiff
-            // Adjusted condition to check for specific success message from DiffApplier
-            if (applyResult.startsWith("Diff applied successfully to file") ||
-                (patch != null && patch.getDeltas().isEmpty() && originalFileName == null && revisedFileName == null) ||
-                 applyResult.startsWith("File") && applyResult.endsWith("deleted successfully.")) {
-                this.model.lastAppliedDiff = diff;
-            } else {
-                this.model.lastAppliedDiff = null;
-            }
+        try {
+            // One diff may touch many files: all of them are validated in memory, then written together or not at all.
+            var unifiedDiff = Util.unifiedDiffReader(diff);
+            var applyResult = new DiffApplier(FuzzyPatcher.Settings.fromJson(config == null ? null : config.getSection("patching"))).applyAll(this.model, unifiedDiff);
+            this.model.lastAppliedDiff = applyResult.startsWith("Error") ? null : diff;
             return applyResult;
 
-        } catch (IOException e) { // Catch errors from Util.diffReader
+        } catch (IOException e) { // Catch errors from Util.unifiedDiffReader
             this.model.lastAppliedDiff = null;
             return "Error processing diff input: " + e.getMessage();
-        // PatchFailedException is handled within DiffApplier.apply and returned as a string.
+        // PatchFailedException is handled within DiffApplier.applyAll and returned as a string.
         // Thus, it's not expected to be thrown here.
         } catch (Exception e) { // Catch any other unexpected errors
             this.model.lastAppliedDiff = null;
@@ -131,9 +136,129 @@ public class StandardTools {
 
     }
 
-    @Tool("Reads the complete content of a file.")
+    @Tool("Edits one or more files with SEARCH/REPLACE blocks; cheaper and more reliable than applyDiff. Each block is: the file path on its own line, then '<<<<<<< SEARCH', the exact existing lines to replace (enough to be unique), '=======', the new lines, '>>>>>>> REPLACE'. An empty SEARCH section creates a new file. Either every block applies or no file is changed.")
+    public String applyEdits(String edits) {
+        var applier = new SearchReplaceApplier();
+        if (diffApprover != null) {
+            var preview = previewEdits(edits);
+            if (preview.startsWith("Error")) {
+                return preview.replaceFirst("^Error: ", "Error: Edits not applied; no files were changed. ");
+            }
+            var decision = diffApprover.diffInteraction(preview).join();
+            if (!decision.accepted()) {
+                return "User rejected the edits.";
+            }
+            if (decision.edited()) {
+                return applyEditedDiff(decision.newDiff());
+            }
+        }
+        var result = applier.apply(this.model, edits);
+        this.model.lastAppliedDiff = null;
+        return result;
+    }
+
+    /** The unified diff {@link #applyEdits} would make, for review; an error message starting with "Error" if a block does not match. */
+    public String previewEdits(String edits) {
+        return new SearchReplaceApplier().preview(this.model, edits);
+    }
+
+    /** Applies a diff the user edited while reviewing, bypassing the approver that produced it. */
+    public String applyEditedDiff(String diff) {
+        var approver = diffApprover;
+        diffApprover = null;
+        try {
+            return applyDiff(diff);
+        } finally {
+            diffApprover = approver;
+        }
+    }
+
+    @Tool("Reads the complete content of a file. Files over 256 KB are cut to their first lines; use readFileRange, readFileBytes or readAroundSymbol for those.")
     public String readFile(String fileName) {
-        return model.readFileContent(model.dir.resolve(fileName));
+        var path = model.dir.resolve(fileName);
+        try {
+            if (Files.isRegularFile(path) && Files.size(path) > LARGE_FILE_BYTES) {
+                return readFileRange(fileName, 1, MAX_LOG_LINES_PER_READ) + "\n[File is " + Files.size(path)
+                        + " bytes; only the first lines are shown. Use readFileRange, readFileBytes or readAroundSymbol for the rest.]";
+            }
+        } catch (IOException e) {
+            // Fall through; readFileContent reports the error.
+        }
+        return model.readFileContent(path);
+    }
+
+    @Tool("Reads lines startLine to startLine+lineCount-1 (1-based, at most 400) of a file, prefixed with line numbers, plus the file's total line count. Use for large files instead of readFile.")
+    public String readFileRange(String fileName, int startLine, int lineCount) {
+        try {
+            var path = projectFile(fileName);
+            var slice = MappedFileReader.shared().lines(path, startLine, Math.min(Math.max(1, lineCount), MAX_LOG_LINES_PER_READ));
+            return formatSlice(fileName, slice, true);
+        } catch (IOException | IllegalArgumentException e) {
+            return "Error reading '" + fileName + "': " + e.getMessage();
+        }
+    }
+
+    @Tool("Reads length bytes (at most 65536) of a file starting at byte offset, decoded as UTF-8, plus the line numbers they span and the file's total size. Useful for logs and generated files.")
+    public String readFileBytes(String fileName, long offset, int length) {
+        try {
+            var path = projectFile(fileName);
+            var slice = MappedFileReader.shared().bytes(path, offset, Math.min(Math.max(1, length), MAX_BYTES_PER_READ));
+            return formatSlice(fileName, slice, false);
+        } catch (IOException | IllegalArgumentException e) {
+            return "Error reading '" + fileName + "': " + e.getMessage();
+        }
+    }
+
+    @Tool("Finds where a symbol (class, method, function, field...) is declared in a file and returns the lines around it with line numbers: contextLines before and twice as many after (at most 400 lines in total).")
+    public String readAroundSymbol(String fileName, String symbol, int contextLines) {
+        if (symbol == null || symbol.isBlank()) {
+            return "Error: Symbol cannot be empty.";
+        }
+        try {
+            var path = projectFile(fileName);
+            var reader = MappedFileReader.shared();
+            var line = reader.findSymbol(path, symbol.trim());
+            if (line < 0) {
+                return "Symbol '" + symbol + "' not found in " + fileName + ".";
+            }
+            var before = Math.min(Math.max(0, contextLines), MAX_LOG_LINES_PER_READ / 3);
+            var slice = reader.lines(path, line - before, before * 3 + 1);
+            return "Symbol '" + symbol + "' at line " + line + ".\n" + formatSlice(fileName, slice, true);
+        } catch (IOException | IllegalArgumentException e) {
+            return "Error reading '" + fileName + "': " + e.getMessage();
+        }
+    }
+
+    private Path projectFile(String fileName) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("File name cannot be empty.");
+        }
+        var root = model.dir.toAbsolutePath().normalize();
+        var path = root.resolve(fileName).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Path is outside the project directory.");
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException("No such file: " + fileName);
+        }
+        return path;
+    }
+
+    private static String formatSlice(String fileName, MappedFileReader.Slice slice, boolean numbered) {
+        if (slice.lastLine() < slice.firstLine()) {
+            return "--- " + fileName + " (" + slice.totalLines() + " lines, " + slice.totalBytes() + " bytes) ---\nNothing in the requested range.";
+        }
+        var out = new StringBuilder("--- ").append(fileName).append(" (lines ").append(slice.firstLine()).append('-').append(slice.lastLine())
+                .append(" of ").append(slice.totalLines()).append(", ").append(slice.totalBytes()).append(" bytes) ---\n");
+        return (numbered ? numbered(out, slice) : out.append(slice.text())).toString();
+    }
+
+    private static StringBuilder numbered(StringBuilder out, MappedFileReader.Slice slice) {
+        var n = slice.firstLine();
+        for (var line : slice.text().split("\n", -1)) {
+            out.append(n++).append(": ").append(line).append('\n');
+        }
+        return out;
     }
 
     @Tool("Runs the project's configured validation command (e.g., tests, linter, build). Usage: runValidationCommand <optional_arguments_for_command>")
@@ -141,6 +266,7 @@ public class StandardTools {
         var resultJson = new JSONObject();
         if (config.getRunCommand() == null || config.getRunCommand().isBlank()) {
             resultJson.put("error", "No validation command configured in .jaider.json (key: runCommand).");
+            resultJson.put("output", "Run command is not configured.");
             resultJson.put("success", false);
             resultJson.put("exitCode", -1);
             return resultJson.toString();
@@ -149,121 +275,63 @@ public class StandardTools {
         var baseCommand = config.getRunCommand();
         String commandToExecute;
 
+        var journalSeq = -1L;
         if (commandArgs == null || commandArgs.trim().isEmpty()) {
             commandToExecute = baseCommand;
+            if (testImpact != null) {
+                // Test-impact mode: run only the tests that depend on files edited since the last passing run.
+                var journal = EditJournal.of(model.dir);
+                journalSeq = journal.lastSeq();
+                var changed = journal.pathsChangedSince(validatedJournalSeq);
+                var selection = changed != null ? testImpact.select(changed)
+                        : new TestImpactAnalyzer.Selection(null, "The edit journal no longer lists every change since the last passing run.");
+                var selected = TestImpactAnalyzer.command(baseCommand, selection);
+                if (selected != null) commandToExecute = selected;
+                resultJson.put("testSelection", new JSONObject().put("mode", selected != null ? "affected" : "full")
+                        .put("reason", selected != null || selection.full() ? selection.reason() : "The run command's test runner is not supported.")
+                        .put("tests", new JSONArray(selected != null ? selection.tests() : List.of())));
+            }
         } else {
             commandToExecute = baseCommand + " " + commandArgs.trim();
         }
 
         try {
+            var runStart = System.currentTimeMillis();
             // Ensure ProcessBuilder splits the commandToExecute correctly
             var process = this.processExecutor.execute(commandToExecute.trim().split("\\s+"), model.dir.toFile());
 
-            var output = new StringBuilder();
-            try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
+            // Stream the output: only head/tail are kept in memory, the full log is spilled to .jaider/runs/.
+            var runId = "run-" + System.currentTimeMillis() + "-" + RUN_COUNTER.incrementAndGet();
+            Util.jaiderDir(model.dir);
+            var runsDir = model.dir.resolve(RUNS_DIR);
+            var logFile = runsDir.resolve(runId + ".log");
+            var parser = new TestOutputParser();
+            var capture = new ProcessOutputCapture(ProcessOutputCapture.DEFAULT_HEAD_LINES, ProcessOutputCapture.DEFAULT_TAIL_LINES);
+            capture.capture(process.getInputStream(), logFile, parser);
+            ProcessOutputCapture.pruneLogs(runsDir);
 
             var exitCode = process.waitFor();
+            if (exitCode == 0 && journalSeq >= 0) validatedJournalSeq = journalSeq;
 
             resultJson.put("exitCode", exitCode);
             resultJson.put("success", exitCode == 0);
-            var outputString = output.toString().trim();
-            resultJson.put("output", outputString);
+            resultJson.put("output", capture.summary("use readRunLog(\"" + runId + "\", startLine, lineCount) to see them"));
+            resultJson.put("runId", runId);
+            resultJson.put("totalLines", capture.totalLines());
+            resultJson.put("outputTruncated", capture.truncated());
 
             // --- Jaider AI Agent: Added test report generation ---
-            if (config.getRunCommand() != null && config.getRunCommand().contains("mvn test")) {
-                List<Map<String, String>> testReportList = new ArrayList<>();
-                var lines = outputString.split("\n");
-                final var currentTestClassHolder = new String[1]; // Holder for effectively final variable
-                final var currentTestMethodHolder = new String[1]; // Holder for effectively final variable
-
-                for (var i = 0; i < lines.length; i++) {
-                    var line = lines[i].trim();
-
-                    // Try to capture class and method from Surefire/Failsafe error lines
-                    if (line.startsWith("[ERROR]") && line.contains("<<< FAILURE!") && line.contains(".")) {
-                        // Example: [ERROR]   TestClassName.testMethodName  Time elapsed: 0.001 s  <<< FAILURE!
-                        var testIdPart = line.substring("[ERROR]".length()).trim();
-                        testIdPart = testIdPart.substring(0, testIdPart.indexOf("Time elapsed:")).trim(); // Remove time part
-                        if (testIdPart.contains(".")) {
-                            var lastDot = testIdPart.lastIndexOf('.');
-                            currentTestClassHolder[0] = testIdPart.substring(0, lastDot);
-                            currentTestMethodHolder[0] = testIdPart.substring(lastDot + 1);
-                        } else {
-                            currentTestClassHolder[0] = testIdPart; // Unlikely, but handle if no method name
-                            currentTestMethodHolder[0] = "unknownMethod";
-                        }
-                    } else if (line.startsWith("Running ") && line.contains(".")) {
-                         // Example: Running some.package.ClassName
-                        var runningClass = line.substring("Running ".length()).trim();
-                        // If we don't have a specific failing method yet, use this as the class
-                        if (currentTestClassHolder[0] == null || !currentTestClassHolder[0].equals(runningClass)) {
-                           // currentTestClassHolder[0] = runningClass; // Prefer the one from FAILURE line if available
-                           // currentTestMethodHolder[0] = "unknownMethod"; // Reset method if class changes
-                        }
-                    }
-
-
-                    // Look for error messages, typically following a <<< FAILURE! or indication of error
-                    // This is a simplified approach: takes the next line that looks like an error message.
-                    if ((line.startsWith("java.") || line.startsWith("org.junit.") || line.startsWith("org.opentest4j.")) && currentTestClassHolder[0] != null) {
-                        // Heuristic: if the previous line indicated a failure, or we are in a stack trace context
-                        var isFailureContext = false;
-                        if (i > 0) {
-                            var prevLine = lines[i - 1].trim();
-                            if (prevLine.contains("<<< FAILURE!") || prevLine.contains("<<< ERROR!")) {
-                                isFailureContext = true;
-                            }
-                        }
-                        if (isFailureContext || (line.matches("^\\s+at .+$") && i > 0 && lines[i-1].matches("^.+Exception: .+$"))) { // If it's part of a stack trace for an already identified failure
-                            // This is a potential error message line
-                            Map<String, String> failureDetails = new HashMap<>();
-                            failureDetails.put("testClass", currentTestClassHolder[0]);
-                            failureDetails.put("testMethod", currentTestMethodHolder[0] != null ? currentTestMethodHolder[0] : "unknownMethod");
-                            failureDetails.put("errorMessage", line);
-
-                            // Avoid adding duplicate error messages for the same test method if error spans multiple lines
-                            var alreadyExists = testReportList.stream().anyMatch(entry ->
-                                entry.get("testClass").equals(currentTestClassHolder[0]) &&
-                                entry.get("testMethod").equals(currentTestMethodHolder[0]) &&
-                                entry.get("errorMessage").startsWith(line.substring(0, Math.min(line.length(), 50))) // check start of message
-                            );
-                            if(!alreadyExists) {
-                                testReportList.add(failureDetails);
-                            }
-                            // Reset after capturing one error message for this failure,
-                            // to avoid associating subsequent unrelated errors/logs.
-                            // currentTestClass = null;
-                            // currentTestMethod = null;
-                        }
-                    } else if (line.startsWith("[ERROR] Failed tests:") || line.startsWith("[ERROR] Errors:")) {
-                        // Example: [ERROR] Failed tests:   testSomething(com.example.MyTest): expected:<true> but was:<false>
-                        // Example: [ERROR] Errors:   initializationError(com.example.MyTest): java.lang.RuntimeException
-                        var failedTestInfo = line.substring(line.indexOf(":") + 1).trim();
-                        var errorMessage = failedTestInfo; // Default error message to the whole info
-
-                        if (failedTestInfo.contains("(")) { // Format: methodName(className)
-                            var methodName = failedTestInfo.substring(0, failedTestInfo.indexOf("("));
-                            var className = failedTestInfo.substring(failedTestInfo.indexOf("(") + 1, failedTestInfo.indexOf(")"));
-                             if (failedTestInfo.contains(":")) { // If there's a message after class/method
-                                errorMessage = failedTestInfo.substring(failedTestInfo.indexOf("):") + 2).trim();
-                            }
-                            Map<String, String> failureDetails = new HashMap<>();
-                            failureDetails.put("testClass", className);
-                            failureDetails.put("testMethod", methodName);
-                            failureDetails.put("errorMessage", errorMessage);
-                            testReportList.add(failureDetails);
-                        }
-                    }
+            // The JUnit XML reports this run wrote are the source of truth; the console parser covers runs without them.
+            var testCases = TestReportParser.collect(model.dir, runStart - REPORT_CLOCK_SLACK_MILLIS);
+            if (!testCases.isEmpty()) {
+                putTestResults(resultJson, testCases);
+            } else if (MAVEN_TEST_COMMAND.matcher(config.getRunCommand()).find()) {
+                resultJson.put("testReport", new JSONArray(parser.failures()));
+                if (parser.totals() != null) {
+                    resultJson.put("testTotals", parser.totals());
                 }
-                resultJson.put("testReport", new JSONArray(testReportList));
             } else {
-                // If not "mvn test", or if config.runCommand is null, put an empty array or null.
-                // For consistency, let's use an empty array.
+                // If not a Maven test run, put an empty array for consistency.
                 resultJson.put("testReport", new JSONArray(new ArrayList<>()));
             }
             // --- End Jaider AI Agent change ---
@@ -289,6 +357,63 @@ public class StandardTools {
         return resultJson.toString();
     }
 
+    /**
+     * Adds failures, totals and this run's slowest tests from the XML reports, records durations in the history, and
+     * adds the slowest tests across runs ({@code historicalSlowTests}), which one run's noise does not reorder.
+     */
+    private void putTestResults(JSONObject resultJson, List<TestReportParser.TestCase> testCases) {
+        var failures = new ArrayList<Map<String, String>>();
+        var counts = new EnumMap<TestReportParser.Status, Integer>(TestReportParser.Status.class);
+        for (var testCase : testCases) {
+            counts.merge(testCase.status(), 1, Integer::sum);
+            var failed = testCase.status() == TestReportParser.Status.FAILED || testCase.status() == TestReportParser.Status.ERROR;
+            if (failed && failures.size() < TestOutputParser.MAX_FAILURES) {
+                failures.add(Map.of("testClass", testCase.className(), "testMethod", testCase.name(),
+                        "status", testCase.status().name(), "errorMessage", Objects.requireNonNullElse(testCase.message(), "")));
+            }
+        }
+        resultJson.put("testReport", new JSONArray(failures));
+        resultJson.put("testTotals", "Tests run: " + testCases.size()
+                + ", Failures: " + counts.getOrDefault(TestReportParser.Status.FAILED, 0)
+                + ", Errors: " + counts.getOrDefault(TestReportParser.Status.ERROR, 0)
+                + ", Skipped: " + counts.getOrDefault(TestReportParser.Status.SKIPPED, 0));
+        var slowest = new JSONArray();
+        testCases.stream().filter(t -> t.millis() > 0).sorted(Comparator.comparingLong(TestReportParser.TestCase::millis).reversed())
+                .limit(SLOW_TESTS_REPORTED).forEach(t -> slowest.put(new JSONObject().put("test", t.id()).put("ms", t.millis())));
+        resultJson.put("slowTests", slowest);
+        var history = TestHistory.of(model.dir);
+        history.record(testCases);
+        var historical = new JSONArray();
+        history.slowest(SLOW_TESTS_REPORTED).forEach(s -> historical.put(new JSONObject().put("test", s.id())
+                .put("avgMs", s.averageMillis()).put("runs", s.runs()).put("lastFailed", s.lastFailed())));
+        resultJson.put("historicalSlowTests", historical);
+    }
+
+    private boolean testImpactEnabled() {
+        var section = config == null ? null : config.getSection("validation");
+        return section != null && section.optBoolean("testImpact", false);
+    }
+
+    @Tool("Reads lines from the full log of a previous runValidationCommand call. Lines are 1-based; at most 400 are returned per call.")
+    public String readRunLog(String runId, int startLine, int lineCount) {
+        if (runId == null || !RUN_ID.matcher(runId).matches()) {
+            return "Error: Invalid run id '" + runId + "'. Use the runId returned by runValidationCommand.";
+        }
+        var logFile = model.dir.resolve(RUNS_DIR).resolve(runId + ".log");
+        if (!Files.exists(logFile)) {
+            return "Error: No log found for run '" + runId + "'. Older logs are pruned.";
+        }
+        var from = Math.max(1, startLine);
+        var count = Math.min(Math.max(1, lineCount), MAX_LOG_LINES_PER_READ);
+        try {
+            var slice = MappedFileReader.shared().lines(logFile, from, count);
+            return slice.lastLine() < slice.firstLine() ? "No lines at or after line " + from + " in run '" + runId + "'."
+                    : numbered(new StringBuilder(), slice).toString();
+        } catch (IOException e) {
+            return "Error reading log for run '" + runId + "': " + e.getMessage();
+        }
+    }
+
     @Tool("Provides an overview of the project: type (e.g., Maven), key dependencies from pom.xml (if applicable), and main source directories.")
     public String getProjectOverview() {
         var report = new StringBuilder();
@@ -401,21 +526,19 @@ public class StandardTools {
     @Tool("Lists files and directories in a given path, respecting .gitignore. Path is relative to project root. If no path is given, lists project root.")
     public String listFiles(String directoryPath) {
         try {
-            var gitService = new GitService(this.model.dir);
             var pathToScan = (directoryPath == null || directoryPath.isBlank()) ? "" : directoryPath;
-            var files = gitService.listFiles(pathToScan); // Assuming GitService has such a method
+            var files = new FileListing(this.model.dir).list(pathToScan, null, 1);
 
             if (files.isEmpty()) {
                 return "No files found in " + (pathToScan.isEmpty() ? "project root" : pathToScan);
             }
 
             var result = new StringBuilder();
-            for (var filePath : files) {
-                var file = this.model.dir.resolve(filePath).toFile();
-                if (file.isDirectory()) {
-                    result.append("[DIR] ").append(filePath).append("\n");
+            for (var file : files) {
+                if (file.directory()) {
+                    result.append("[DIR] ").append(file.path()).append("/\n");
                 } else {
-                    result.append("[FILE] ").append(filePath).append("\n");
+                    result.append("[FILE] ").append(file.path()).append("\n");
                 }
             }
             return result.toString();
@@ -424,6 +547,47 @@ public class StandardTools {
         }
     }
 
+    @Tool("Lists all files under a directory as an indented tree in one call, including untracked files and leaving out .gitignore'd ones. glob (optional) filters files by name ('*.java') or by path below the directory ('src/**/test/*.py'). maxDepth limits how many levels are expanded; 0 means unlimited. Each file shows its size, modification time and M (modified) or ? (untracked).")
+    public String listTree(String directoryPath, String glob, int maxDepth) {
+        try {
+            var pathToScan = (directoryPath == null || directoryPath.isBlank()) ? "" : directoryPath;
+            var entries = new FileListing(this.model.dir).list(pathToScan, glob, maxDepth);
+            if (entries.isEmpty()) {
+                return "No files found in " + (pathToScan.isEmpty() ? "project root" : pathToScan) + (glob == null || glob.isBlank() ? "" : " matching " + glob);
+            }
+            return FileListing.format(entries, pathToScan, FileListing.DEFAULT_LIMIT);
+        } catch (Exception e) {
+            return "Error listing files: " + e.getClass().getSimpleName() + " - " + e.getMessage();
+        }
+    }
+
+    @Tool("Lists the commits that changed a file, newest first and following renames: short id, date, author, subject and lines added/removed. maxCount defaults to 20. Use blameRange or commitDiff to dig further.")
+    public String fileHistory(String filePath, int maxCount) {
+        try {
+            return HistoryService.of(model.dir).fileHistory(filePath, maxCount, HistoryService.DEFAULT_MAX_CHARS);
+        } catch (Exception e) {
+            return "Error reading history of " + filePath + ": " + e.getMessage();
+        }
+    }
+
+    @Tool("Shows which commit last changed each line of startLine..endLine (1-based, inclusive; endLine 0 means end of file) of a file as committed at HEAD, grouped into runs of lines: line range, short commit id, date, author and subject.")
+    public String blameRange(String filePath, int startLine, int endLine) {
+        try {
+            return HistoryService.of(model.dir).blameRange(filePath, startLine, endLine, HistoryService.DEFAULT_MAX_CHARS);
+        } catch (Exception e) {
+            return "Error blaming " + filePath + ": " + e.getMessage();
+        }
+    }
+
+    @Tool("Shows a commit (id, branch name or e.g. 'HEAD~2'): message, changed files with lines added/removed, and its diff. filePath (optional) limits the diff to one file or directory. Long diffs are truncated.")
+    public String commitDiff(String commitId, String filePath) {
+        try {
+            return HistoryService.of(model.dir).commitDiff(commitId, filePath, HistoryService.DEFAULT_MAX_CHARS);
+        } catch (Exception e) {
+            return "Error reading commit " + commitId + ": " + e.getMessage();
+        }
+    }
+
     @Tool("Writes content to a file, creating parent directories if necessary. Path is relative to project root.")
     public String writeFile(String filePath, String content) {
         if (filePath == null || filePath.isBlank()) {
@@ -448,7 +612,15 @@ public class StandardTools {
             }
 
             var existed = Files.exists(targetPath);
-            Files.writeString(targetPath, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            var edit = EditJournal.of(this.model.dir).begin("writeFile " + filePath);
+            edit.capture(targetPath);
+            try {
+                Files.writeString(targetPath, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException | RuntimeException e) {
+                edit.commit(); // A half-written file stays undoable; an untouched one is dropped and its blob freed.
+                throw e;
+            }
+            edit.commit();
 
             if (existed) {
                 return "File overwritten successfully: " + filePath;
@@ -0,0 +1,99 @@
+package dumb.jaider.tools;
+
+import dumb.jaider.utils.Util;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durations and last outcomes of the project's tests across runs, kept in {@value #FILE} so slow tests can be reported
+ * without rerunning anything. Durations are smoothed
+ * (exponential moving average) so one slow run on a busy machine does not dominate.
+ */
+public class TestHistory {
+    private static final Logger logger = LoggerFactory.getLogger(TestHistory.class);
+
+    public static final String FILE = ".jaider/test-history.json";
+    /** Weight of the newest duration in the moving average. */
+    static final double ALPHA = 0.3;
+    private static final Map<Path, TestHistory> HISTORIES = new ConcurrentHashMap<>();
+
+    /** One test's record: smoothed duration, how many runs it was seen in, and whether it failed last time. */
+    public record Stats(String id, long averageMillis, int runs, boolean lastFailed) {
+    }
+
+    private final Path projectDir;
+    private final Path file;
+    private final Map<String, Stats> tests = new HashMap<>();
+    private boolean loaded;
+
+    TestHistory(Path projectDir) {
+        this.projectDir = projectDir.toAbsolutePath().normalize();
+        this.file = this.projectDir.resolve(FILE);
+    }
+
+    /** The history of the given project; one instance per project directory. */
+    public static TestHistory of(Path projectDir) {
+        return HISTORIES.computeIfAbsent(projectDir.toAbsolutePath().normalize(), TestHistory::new);
+    }
+
+    /** Adds a run's results and saves the history. Skipped tests carry no timing and are left out. */
+    public synchronized void record(Collection<TestReportParser.TestCase> results) {
+        load();
+        for (var result : results) {
+            if (result.status() == TestReportParser.Status.SKIPPED) continue;
+            var failed = result.status() != TestReportParser.Status.PASSED;
+            tests.merge(result.id(), new Stats(result.id(), result.millis(), 1, failed), (old, now) -> new Stats(old.id(),
+                    Math.round(ALPHA * now.averageMillis() + (1 - ALPHA) * old.averageMillis()), old.runs() + 1, failed));
+        }
+        save();
+    }
+
+    /** The {@code limit} slowest tests by smoothed duration, slowest first. */
+    public synchronized List<Stats> slowest(int limit) {
+        load();
+        return tests.values().stream().sorted(Comparator.comparingLong(Stats::averageMillis).reversed()).limit(limit).toList();
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(file)) return;
+        try {
+            var json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            for (var id : json.keySet()) {
+                var t = json.getJSONObject(id);
+                tests.put(id, new Stats(id, t.getLong("ms"), t.getInt("runs"), t.optBoolean("failed")));
+            }
+        } catch (IOException | JSONException e) {
+            logger.warn("Ignoring unreadable test history {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void save() {
+        var json = new JSONObject();
+        tests.values().forEach(t -> json.put(t.id(), new JSONObject().put("ms", t.averageMillis()).put("runs", t.runs()).put("failed", t.lastFailed())));
+        try {
+            Util.jaiderDir(projectDir);
+            Files.createDirectories(file.getParent());
+            var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not save test history {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package dumb.jaider.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the test classes a change can affect, so the validation command runs those instead of the whole suite.
+ * <p>
+ * Java sources under {@code src/<set>/java} (any module) form a dependency graph: a file depends on the project classes
+ * it imports, and on those of its own package or its wildcard imports whose simple names it mentions. The tests
+ * affected by a change are the test classes that reach a changed file in that graph. Parsing is textual, with
+ * comments and string literals removed, and cached per file by size and modification time.
+ * <p>
+ * When the answer may be wrong the full suite runs instead: a changed file that is not a Java source (build files,
+ * resources), a class the graph does not know, no affected test, or more than {@link #MAX_SELECTED} of them.
+ * Reflection and code generation are not seen, which is why this is a mode and not the default.
+ */
+public class TestImpactAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(TestImpactAnalyzer.class);
+
+    /** Selections larger than this run the full suite: the saving is small and command lines get long. */
+    static final int MAX_SELECTED = 100;
+    private static final Set<String> SKIPPED_DIRS = Set.of(".git", ".jaider", "target", "build", "out", "node_modules", ".gradle", ".idea");
+    private static final Pattern COMMENTS_AND_STRINGS = Pattern.compile("//[^\\n]*|/\\*.*?\\*/|\"\"\".*?\"\"\"|\"(?:\\\\.|[^\"\\\\\\n])*\"|'(?:\\\\.|[^'\\\\\\n])*'", Pattern.DOTALL);
+    private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+    private static final Pattern IMPORT = Pattern.compile("\\bimport\\s+(?:static\\s+)?([\\w.]+?)(\\.\\*)?\\s*;");
+    private static final Pattern QUALIFIED = Pattern.compile("\\b(?:[a-z_]\\w*\\.)+[A-Z]\\w*");
+    private static final Pattern TYPE_NAME = Pattern.compile("\\b[A-Z]\\w*");
+    private static final Pattern TEST_CLASS = Pattern.compile("Test\\w*|\\w*(Test|Tests|TestCase)");
+    private static final Pattern MAVEN = Pattern.compile("\\bmvnw?\\b.*\\b(test|verify|install)\\b");
+    private static final Pattern GRADLE = Pattern.compile("\\bgradlew?\\b.*\\b(test|check|build)\\b");
+
+    /**
+     * The tests to run; {@code tests} is {@code null} for the full suite. {@code reason} says why, for the agent.
+     */
+    public record Selection(List<String> tests, String reason) {
+        public boolean full() {
+            return tests == null;
+        }
+    }
+
+    /** One parsed source file: what it declares and the names it may refer to. */
+    private record Source(long size, long modified, String className, boolean test, Set<String> imports,
+                          Set<String> wildcards, Set<String> names) {
+    }
+
+    private final Path root;
+    private final Map<Path, Source> sources = new HashMap<>();
+
+    public TestImpactAnalyzer(Path projectDir) {
+        this.root = projectDir.toAbsolutePath().normalize();
+    }
+
+    /** Selects the tests affected by the given changed files (paths relative to the project root). */
+    public synchronized Selection select(Collection<String> changedPaths) {
+        if (changedPaths.isEmpty()) return new Selection(null, "No recorded edits since the last passing run.");
+        Map<Path, Source> graph;
+        try {
+            graph = scan();
+        } catch (IOException e) {
+            logger.warn("Could not scan sources for test selection: {}", e.getMessage());
+            return new Selection(null, "Could not read the project's sources: " + e.getMessage());
+        }
+        var byClass = new HashMap<String, Source>();
+        for (var source : graph.values()) byClass.put(source.className(), source);
+
+        var changed = new HashSet<String>();
+        for (var path : changedPaths) {
+            var className = className(path);
+            if (className == null) return new Selection(null, path + " is not a Java source file, so any test may depend on it.");
+            if (!byClass.containsKey(className)) return new Selection(null, path + " is not in the dependency graph (deleted or renamed?).");
+            changed.add(className);
+        }
+
+        // Reverse edges: class -> classes that depend on it.
+        var dependents = new HashMap<String, Set<String>>();
+        for (var source : graph.values()) {
+            for (var dependency : dependencies(source, byClass)) {
+                dependents.computeIfAbsent(dependency, k -> new HashSet<>()).add(source.className());
+            }
+        }
+        var affected = new HashSet<>(changed);
+        var queue = new ArrayDeque<>(changed);
+        while (!queue.isEmpty()) {
+            for (var dependent : dependents.getOrDefault(queue.poll(), Set.of())) {
+                if (affected.add(dependent)) queue.add(dependent);
+            }
+        }
+        var tests = new TreeSet<String>();
+        for (var className : affected) {
+            var source = byClass.get(className);
+            if (source != null && source.test() && TEST_CLASS.matcher(simpleName(className)).matches()) tests.add(className);
+        }
+        if (tests.isEmpty()) return new Selection(null, "No test class depends on the changed files.");
+        if (tests.size() > MAX_SELECTED) return new Selection(null, tests.size() + " test classes depend on the changed files.");
+        return new Selection(List.copyOf(tests), tests.size() + " test class(es) depend on " + String.join(", ", new TreeSet<>(changedPaths)) + ".");
+    }
+
+    /**
+     * {@code runCommand} narrowed to the selected tests, or {@code null} if the runner is not recognised or already
+     * picks its tests. Maven gets {@code -Dtest=...}, Gradle {@code --tests ...}. {@code clean} is dropped so the build
+     * stays incremental; deleted sources, which could leave stale classes behind, always select the full suite.
+     */
+    public static String command(String runCommand, Selection selection) {
+        if (selection.full() || runCommand == null) return null;
+        var maven = MAVEN.matcher(runCommand).find();
+        var gradle = !maven && GRADLE.matcher(runCommand).find();
+        if (!maven && !gradle) return null;
+        if (runCommand.contains("-Dtest=") || runCommand.contains("--tests")) return null;
+
+        var parts = new ArrayList<String>();
+        for (var part : runCommand.trim().split("\\s+")) {
+            if (part.equals("clean")) continue;
+            parts.add(part);
+        }
+        if (maven) {
+            parts.add("-Dtest=" + String.join(",", selection.tests()));
+            parts.add("-Dsurefire.failIfNoSpecifiedTests=false"); // Other modules have none of the selected tests.
+        } else {
+            for (var test : selection.tests()) {
+                parts.add("--tests");
+                parts.add(test);
+            }
+        }
+        return String.join(" ", parts);
+    }
+
+    /** The class a project-relative path declares, if it is a Java file under a source root; {@code null} otherwise. */
+    static String className(String path) {
+        var p = path.replace('\\', '/');
+        if (!p.endsWith(".java")) return null;
+        var marker = p.indexOf("/java/");
+        if (marker < 0 || !p.substring(0, marker + 1).matches("(.*/)?src/\\w+/")) return null;
+        return p.substring(marker + "/java/".length(), p.length() - ".java".length()).replace('/', '.');
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static Set<String> dependencies(Source source, Map<String, Source> byClass) {
+        var result = new HashSet<String>();
+        for (var imported : source.imports()) {
+            // Nested classes and static members: a.b.Outer.Inner.member resolves to a.b.Outer.
+            var name = imported;
+            while (!byClass.containsKey(name) && name.lastIndexOf('.') > 0) name = name.substring(0, name.lastIndexOf('.'));
+            if (byClass.containsKey(name)) result.add(name);
+        }
+        var className = source.className();
+        var ownPackage = className.contains(".") ? className.substring(0, className.lastIndexOf('.') + 1) : "";
+        for (var simple : source.names()) {
+            if (byClass.containsKey(ownPackage + simple)) result.add(ownPackage + simple);
+            for (var wildcard : source.wildcards()) {
+                var candidate = wildcard + "." + simple;
+                if (byClass.containsKey(candidate)) result.add(candidate);
+            }
+        }
+        result.remove(className);
+        return result;
+    }
+
+    /** All Java sources under source roots, re-parsing only files whose size or modification time changed. */
+    private Map<Path, Source> scan() throws IOException {
+        var seen = new HashSet<Path>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(root) && SKIPPED_DIRS.contains(dir.getFileName().toString()) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!file.getFileName().toString().endsWith(".java")) return FileVisitResult.CONTINUE;
+                var relative = root.relativize(file).toString().replace('\\', '/');
+                var className = className(relative);
+                if (className == null) return FileVisitResult.CONTINUE;
+                seen.add(file);
+                var cached = sources.get(file);
+                if (cached == null || cached.size() != attrs.size() || cached.modified() != attrs.lastModifiedTime().toMillis()) {
+                    sources.put(file, parse(Files.readString(file), className, relative.contains("src/test/"), attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                logger.debug("Skipping unreadable source {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        sources.keySet().retainAll(seen);
+        return sources;
+    }
+
+    private static Source parse(String text, String className, boolean test, BasicFileAttributes attrs) {
+        var code = COMMENTS_AND_STRINGS.matcher(text).replaceAll(" ");
+        var packageMatcher = PACKAGE.matcher(code);
+        if (packageMatcher.find()) {
+            // The declared package wins over the directory layout, which may disagree.
+            className = packageMatcher.group(1) + "." + simpleName(className);
+        }
+        var imports = new HashSet<String>();
+        var wildcards = new HashSet<String>();
+        var importMatcher = IMPORT.matcher(code);
+        while (importMatcher.find()) {
+            if (importMatcher.group(2) != null) wildcards.add(importMatcher.group(1));
+            imports.add(importMatcher.group(1)); // A static wildcard import names a class.
+        }
+        var qualified = QUALIFIED.matcher(code);
+        while (qualified.find()) imports.add(qualified.group());
+        var names = new HashSet<String>();
+        var typeNames = TYPE_NAME.matcher(code);
+        while (typeNames.find()) names.add(typeNames.group());
+        return new Source(attrs.size(), attrs.lastModifiedTime().toMillis(), className, test, imports, wildcards, names);
+    }
+}
@@ -0,0 +1,75 @@
+package dumb.jaider.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental Maven Surefire console parser: fed one line at a time, keeps only the failures it recognises
+ * (capped at {@link #MAX_FAILURES}) and the last "Tests run:" totals line.
+ */
+public class TestOutputParser implements Consumer<String> {
+    public static final int MAX_FAILURES = 50;
+    private static final Pattern TOTALS = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
+
+    private final List<Map<String, String>> failures = new ArrayList<>();
+    private String currentTestClass;
+    private String currentTestMethod;
+    private String totals;
+    private boolean failureContext;
+
+    @Override
+    public void accept(String rawLine) {
+        var line = rawLine.trim();
+        if (line.startsWith("[ERROR]") && (line.contains("<<< FAILURE!") || line.contains("<<< ERROR!"))) {
+            // Example: [ERROR] com.example.MyTest.testMethod -- Time elapsed: 0.001 s <<< FAILURE!
+            var testIdPart = line.replaceFirst("^\\[ERROR]", "").trim();
+            var timeIndex = testIdPart.indexOf("Time elapsed:");
+            if (timeIndex > 0) testIdPart = testIdPart.substring(0, timeIndex);
+            testIdPart = testIdPart.replaceFirst("\\s*--\\s*$", "").trim();
+            var lastDot = testIdPart.lastIndexOf('.');
+            currentTestClass = lastDot > 0 ? testIdPart.substring(0, lastDot) : testIdPart;
+            currentTestMethod = lastDot > 0 ? testIdPart.substring(lastDot + 1) : "unknownMethod";
+            failureContext = true;
+        } else if (failureContext && currentTestClass != null
+                && (line.startsWith("java.") || line.startsWith("org.junit.") || line.startsWith("org.opentest4j."))) {
+            add(currentTestClass, currentTestMethod, line);
+            failureContext = false;
+        } else if (line.startsWith("[ERROR] Failed tests:") || line.startsWith("[ERROR] Errors:")) {
+            // Example: [ERROR] Failed tests:   testSomething(com.example.MyTest): expected:<true> but was:<false>
+            var info = line.substring(line.indexOf(':') + 1).trim();
+            if (info.contains("(") && info.contains(")")) {
+                var closing = info.indexOf(')');
+                var message = info.indexOf("):") >= 0 ? info.substring(info.indexOf("):") + 2).trim() : info;
+                add(info.substring(info.indexOf('(') + 1, closing), info.substring(0, info.indexOf('(')), message);
+            }
+        }
+        var totalsMatcher = TOTALS.matcher(line);
+        if (totalsMatcher.find()) totals = totalsMatcher.group();
+    }
+
+    private void add(String testClass, String testMethod, String errorMessage) {
+        if (failures.size() >= MAX_FAILURES) return;
+        var prefix = errorMessage.substring(0, Math.min(errorMessage.length(), 50));
+        var duplicate = failures.stream().anyMatch(f -> f.get("testClass").equals(testClass)
+                && f.get("testMethod").equals(testMethod) && f.get("errorMessage").startsWith(prefix));
+        if (duplicate) return;
+        Map<String, String> failure = new HashMap<>();
+        failure.put("testClass", testClass);
+        failure.put("testMethod", testMethod);
+        failure.put("errorMessage", errorMessage);
+        failures.add(failure);
+    }
+
+    public List<Map<String, String>> failures() {
+        return failures;
+    }
+
+    /** The last Surefire totals line seen (the aggregate one when the build completes), or {@code null}. */
+    public String totals() {
+        return totals;
+    }
+}
@@ -0,0 +1,177 @@
+package dumb.jaider.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming (StAX) reader for JUnit XML test reports, the format Surefire, Failsafe and Gradle write
+ * ({@code TEST-*.xml}): one {@link TestCase} per {@code <testcase>}, with its status, time and failure message. The
+ * reports are read element by element, so large ones (captured output included) are never held in memory.
+ */
+public class TestReportParser {
+    private static final Logger logger = LoggerFactory.getLogger(TestReportParser.class);
+
+    /** Directories JUnit XML reports are written to: Maven Surefire and Failsafe, and Gradle. */
+    static final Set<String> REPORT_DIRS = Set.of("surefire-reports", "failsafe-reports", "test-results");
+    private static final Set<String> SKIPPED_DIRS = Set.of(".git", ".jaider", "node_modules", ".gradle", ".idea", "src");
+    private static final int MAX_MESSAGE_CHARS = 500;
+
+    public enum Status {PASSED, FAILED, ERROR, SKIPPED}
+
+    /** {@code message} is {@code null} unless the test failed, errored or was skipped with a reason. */
+    public record TestCase(String className, String name, Status status, long millis, String message) {
+        /** "com.example.FooTest#bar", the key test durations are kept under. */
+        public String id() {
+            return className + "#" + name;
+        }
+    }
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false); // Reports are data: no DTDs, no external entities.
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * All test cases in the XML reports under {@code projectDir} (any module) written at or after {@code sinceMillis},
+     * so reports left over from earlier runs are ignored. An unreadable report is logged and skipped.
+     */
+    public static List<TestCase> collect(Path projectDir, long sinceMillis) throws IOException {
+        var results = new ArrayList<TestCase>();
+        Files.walkFileTree(projectDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(projectDir) && SKIPPED_DIRS.contains(dir.getFileName().toString()) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                var name = file.getFileName().toString();
+                if (name.startsWith("TEST-") && name.endsWith(".xml") && attrs.lastModifiedTime().toMillis() >= sinceMillis
+                        && inReportDir(file)) {
+                    try {
+                        results.addAll(parse(file));
+                    } catch (IOException e) {
+                        logger.warn("Skipping unreadable test report {}: {}", file, e.getMessage());
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return results;
+    }
+
+    private static boolean inReportDir(Path file) {
+        for (var dir = file.getParent(); dir != null; dir = dir.getParent()) {
+            if (REPORT_DIRS.contains(dir.getFileName() == null ? "" : dir.getFileName().toString())) return true;
+        }
+        return false;
+    }
+
+    /** The test cases of one JUnit XML report. */
+    public static List<TestCase> parse(Path report) throws IOException {
+        try (var in = Files.newInputStream(report)) {
+            var reader = FACTORY.createXMLStreamReader(in);
+            try {
+                return read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed test report " + report.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static List<TestCase> read(XMLStreamReader reader) throws XMLStreamException {
+        var cases = new ArrayList<TestCase>();
+        String suite = null;
+        String className = null;
+        String name = null;
+        long millis = 0;
+        Status status = null;
+        String message = null;
+        var depth = 0; // Depth inside the current <testcase>; 0 when outside one.
+        while (reader.hasNext()) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var element = reader.getLocalName();
+                if (depth > 0) {
+                    depth++;
+                    if (depth != 2) continue; // Only direct children of <testcase> carry the outcome.
+                    switch (element) {
+                        case "failure", "error" -> {
+                            status = element.equals("failure") ? Status.FAILED : Status.ERROR;
+                            message = failureMessage(reader);
+                            depth--; // failureMessage() consumed the element.
+                        }
+                        case "skipped" -> {
+                            status = Status.SKIPPED;
+                            message = reader.getAttributeValue(null, "message");
+                        }
+                        default -> {
+                            // system-out, system-err, properties and Surefire's flaky/rerun records: not the outcome.
+                        }
+                    }
+                } else if (element.equals("testsuite")) {
+                    suite = reader.getAttributeValue(null, "name");
+                } else if (element.equals("testcase")) {
+                    depth = 1;
+                    className = reader.getAttributeValue(null, "classname");
+                    if (className == null || className.isBlank()) className = suite;
+                    name = reader.getAttributeValue(null, "name");
+                    millis = seconds(reader.getAttributeValue(null, "time"));
+                    status = Status.PASSED;
+                    message = null;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && depth > 0) {
+                if (--depth == 0) cases.add(new TestCase(className, name, status, millis, message));
+            }
+        }
+        return cases;
+    }
+
+    /** The failure's message attribute, else the first line of its text (the stack trace); the element is consumed. */
+    private static String failureMessage(XMLStreamReader reader) throws XMLStreamException {
+        var message = reader.getAttributeValue(null, "message");
+        var type = reader.getAttributeValue(null, "type");
+        var text = reader.getElementText().strip();
+        if (message == null || message.isBlank()) {
+            var newline = text.indexOf('\n');
+            message = newline < 0 ? text : text.substring(0, newline).strip();
+        } else if (type != null && !message.startsWith(type)) {
+            message = type + ": " + message;
+        }
+        return message.length() > MAX_MESSAGE_CHARS ? message.substring(0, MAX_MESSAGE_CHARS) + "..." : message;
+    }
+
+    /** Report times are seconds, sometimes with thousands separators ("1,234.5"). */
+    private static long seconds(String value) {
+        if (value == null || value.isBlank()) return 0;
+        try {
+            return Math.round(Double.parseDouble(value.replace(",", "")) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
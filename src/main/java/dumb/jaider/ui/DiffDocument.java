@@ -0,0 +1,203 @@
+package dumb.jaider.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A unified diff split once into a line array, with the line ranges of every file section and hunk indexed up
+ * front, so a view can draw any window of it in time proportional to the window. Line kinds are classified lazily,
+ * the first time a line is asked for. Hunks can be accepted or rejected individually; {@link #acceptedDiff()}
+ * rebuilds a diff holding only the accepted ones, with later hunks' target line numbers shifted to match.
+ */
+public class DiffDocument {
+    public enum LineKind {FILE_HEADER, HUNK_HEADER, ADDED, REMOVED, CONTEXT, OTHER}
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@(.*)$");
+    private static final LineKind[] KINDS = LineKind.values();
+
+    private final String text;
+    private final String[] lines;
+    private final byte[] kinds; // 0 = not classified yet, else ordinal + 1.
+    private final int[] hunkStart;
+    private final int[] hunkEnd; // Exclusive.
+    private final int[] hunkFile; // Index into fileStart of the section a hunk belongs to.
+    private final int[] fileStart; // First header line ("diff --git", "---") of each file section.
+    private final BitSet rejected = new BitSet();
+
+    public DiffDocument(String diff) {
+        this.text = diff == null ? "" : diff;
+        this.lines = text.split("\n", -1);
+        this.kinds = new byte[lines.length];
+        var files = new ArrayList<Integer>();
+        var starts = new ArrayList<Integer>();
+        var ends = new ArrayList<Integer>();
+        var owners = new ArrayList<Integer>();
+        var oldLeft = 0;
+        var newLeft = 0;
+        var gitHeader = false;
+        for (var i = 0; i < lines.length; i++) {
+            var line = lines[i];
+            if (oldLeft > 0 || newLeft > 0) { // Hunk body, counted from its header so "--- x" lines are not mistaken for headers.
+                if (line.startsWith("-")) oldLeft--;
+                else if (line.startsWith("+")) newLeft--;
+                else if (!line.startsWith("\\")) {
+                    oldLeft--;
+                    newLeft--;
+                }
+                continue;
+            }
+            if (line.startsWith("diff --git ")) {
+                closeHunk(starts, ends, i);
+                files.add(i);
+                gitHeader = true;
+            } else if (line.startsWith("--- ") && !gitHeader && i + 1 < lines.length && lines[i + 1].startsWith("+++ ")) {
+                closeHunk(starts, ends, i);
+                files.add(i);
+            } else if (line.startsWith("@@")) {
+                closeHunk(starts, ends, i);
+                gitHeader = false;
+                if (files.isEmpty()) files.add(0);
+                starts.add(i);
+                owners.add(files.size() - 1);
+                var m = HUNK_HEADER.matcher(line);
+                if (m.matches()) {
+                    oldLeft = count(m.group(2));
+                    newLeft = count(m.group(4));
+                }
+            }
+        }
+        var last = lines.length > 0 && lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+        closeHunk(starts, ends, last);
+        this.fileStart = files.stream().mapToInt(Integer::intValue).toArray();
+        this.hunkStart = starts.stream().mapToInt(Integer::intValue).toArray();
+        this.hunkEnd = ends.stream().mapToInt(Integer::intValue).toArray();
+        this.hunkFile = owners.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void closeHunk(List<Integer> starts, List<Integer> ends, int at) {
+        if (ends.size() < starts.size()) ends.add(at);
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public int lineCount() {
+        return lines.length;
+    }
+
+    public String line(int i) {
+        return lines[i];
+    }
+
+    public LineKind kind(int i) {
+        if (kinds[i] == 0) {
+            kinds[i] = (byte) (classify(i).ordinal() + 1);
+        }
+        return KINDS[kinds[i] - 1];
+    }
+
+    private LineKind classify(int i) {
+        var line = lines[i];
+        var hunk = hunkAt(i);
+        if (hunk < 0 || i >= hunkEnd[hunk]) {
+            return line.startsWith("diff --git ") || line.startsWith("--- ") || line.startsWith("+++ ") || line.startsWith("index ")
+                    || line.startsWith("new file mode") || line.startsWith("deleted file mode") ? LineKind.FILE_HEADER : LineKind.OTHER;
+        }
+        if (i == hunkStart[hunk]) return LineKind.HUNK_HEADER;
+        if (line.startsWith("+")) return LineKind.ADDED;
+        if (line.startsWith("-")) return LineKind.REMOVED;
+        return line.startsWith(" ") || line.isEmpty() ? LineKind.CONTEXT : LineKind.OTHER;
+    }
+
+    public int hunkCount() {
+        return hunkStart.length;
+    }
+
+    /** Index of the hunk whose header is at or before line {@code i}, or -1. */
+    public int hunkAt(int i) {
+        var h = Arrays.binarySearch(hunkStart, i);
+        return h >= 0 ? h : -h - 2;
+    }
+
+    public int hunkStartLine(int hunk) {
+        return hunkStart[hunk];
+    }
+
+    public int hunkEndLine(int hunk) {
+        return hunkEnd[hunk];
+    }
+
+    public boolean isAccepted(int hunk) {
+        return !rejected.get(hunk);
+    }
+
+    public void setAccepted(int hunk, boolean accepted) {
+        rejected.set(hunk, !accepted);
+    }
+
+    public void setAllAccepted(boolean accepted) {
+        if (accepted) rejected.clear();
+        else rejected.set(0, hunkCount());
+    }
+
+    public int acceptedCount() {
+        return hunkCount() - rejected.cardinality();
+    }
+
+    public boolean hasRejections() {
+        return !rejected.isEmpty();
+    }
+
+    /**
+     * The diff with rejected hunks left out, and file sections without accepted hunks dropped. Within a file, the
+     * {@code +start} of each kept hunk is moved by the line delta of the rejected hunks before it.
+     */
+    public String acceptedDiff() {
+        if (!hasRejections()) return text;
+        var out = new StringBuilder();
+        for (var f = 0; f < fileStart.length; f++) {
+            var firstHunk = -1;
+            for (var h = 0; h < hunkCount(); h++) {
+                if (hunkFile[h] == f && isAccepted(h)) {
+                    firstHunk = h;
+                    break;
+                }
+            }
+            if (firstHunk < 0) continue;
+            var headerEnd = hunkStart[firstOfFile(f)];
+            for (var i = fileStart[f]; i < headerEnd; i++) out.append(lines[i]).append('\n');
+            var shift = 0;
+            for (var h = firstOfFile(f); h < hunkCount() && hunkFile[h] == f; h++) {
+                var m = HUNK_HEADER.matcher(lines[hunkStart[h]]);
+                if (!isAccepted(h)) {
+                    if (m.matches()) shift -= count(m.group(4)) - count(m.group(2));
+                    continue;
+                }
+                if (m.matches() && shift != 0) {
+                    out.append("@@ -").append(m.group(1)).append(m.group(2) == null ? "" : "," + m.group(2))
+                            .append(" +").append(Integer.parseInt(m.group(3)) + shift).append(m.group(4) == null ? "" : "," + m.group(4))
+                            .append(" @@").append(m.group(5)).append('\n');
+                } else {
+                    out.append(lines[hunkStart[h]]).append('\n');
+                }
+                for (var i = hunkStart[h] + 1; i < hunkEnd[h]; i++) out.append(lines[i]).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private int firstOfFile(int file) {
+        for (var h = 0; h < hunkCount(); h++) {
+            if (hunkFile[h] == file) return h;
+        }
+        return -1;
+    }
+
+    private static int count(String group) {
+        return group == null ? 1 : Integer.parseInt(group);
+    }
+}
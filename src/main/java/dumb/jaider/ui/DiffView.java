@@ -0,0 +1,275 @@
+package dumb.jaider.ui;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.gui2.AbstractInteractableComponent;
+import com.googlecode.lanterna.gui2.InteractableRenderer;
+import com.googlecode.lanterna.gui2.TextGUIGraphics;
+import com.googlecode.lanterna.input.KeyStroke;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Scrollable, read-only view of a {@link DiffDocument} that draws only the rows on screen, so opening and scrolling a
+ * diff of thousands of lines costs the same as a short one. Syntax colouring is computed per line when it first
+ * becomes visible and kept in a small cache.
+ * <p>
+ * Keys: arrows, PgUp/PgDn, Home/End scroll; {@code n}/{@code p} jump to the next/previous hunk; space toggles the
+ * current hunk, {@code a}/{@code r} accept/reject it, {@code A}/{@code R} accept/reject all hunks.
+ */
+public class DiffView extends AbstractInteractableComponent<DiffView> {
+    private static final int GUTTER = 4; // "[x] " on hunk headers, blank otherwise.
+    private static final int HIGHLIGHT_CACHE = 512;
+    private static final Pattern TOKENS = Pattern.compile("(//.*|#.*|/\\*.*?\\*/)|(\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)*')|(\\b[A-Za-z_]\\w*\\b)|(\\b\\d[\\w.]*\\b)");
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "boolean", "break", "case", "catch", "char", "class", "const", "continue", "def", "default", "do",
+            "double", "elif", "else", "enum", "extends", "false", "final", "finally", "float", "for", "fn", "from", "func",
+            "function", "if", "implements", "import", "in", "instanceof", "int", "interface", "let", "long", "new", "null",
+            "package", "private", "protected", "public", "record", "return", "static", "super", "switch", "this", "throw",
+            "throws", "true", "try", "var", "void", "while", "yield", "None", "True", "False", "self");
+
+    private record Span(int start, int end, TextColor color) {
+    }
+
+    private final DiffDocument document;
+    private final Map<Integer, List<Span>> highlights = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Span>> eldest) {
+            return size() > HIGHLIGHT_CACHE;
+        }
+    };
+    private Runnable onChange = () -> {
+    };
+    private int top;
+    private int cursor;
+    private int visibleRows = 20;
+
+    public DiffView(DiffDocument document) {
+        this.document = document;
+        if (document.hunkCount() > 0) cursor = document.hunkStartLine(0);
+    }
+
+    public DiffDocument document() {
+        return document;
+    }
+
+    /** Called after a hunk is accepted or rejected, e.g. to refresh a summary label. */
+    public DiffView setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+        return this;
+    }
+
+    public int cursorLine() {
+        return cursor;
+    }
+
+    public int topLine() {
+        return top;
+    }
+
+    /** Moves the cursor to a line, scrolling just enough to keep it on screen. */
+    public void moveTo(int line) {
+        cursor = Math.max(0, Math.min(line, document.lineCount() - 1));
+        if (cursor < top) top = cursor;
+        else if (cursor >= top + visibleRows) top = cursor - visibleRows + 1;
+        invalidate();
+    }
+
+    public void nextHunk() {
+        var h = document.hunkAt(cursor) + 1;
+        if (h < document.hunkCount()) jumpToHunk(h);
+    }
+
+    public void previousHunk() {
+        var h = document.hunkAt(cursor);
+        if (h >= 0 && document.hunkStartLine(h) < cursor) jumpToHunk(h);
+        else if (h > 0) jumpToHunk(h - 1);
+    }
+
+    private void jumpToHunk(int hunk) {
+        moveTo(document.hunkStartLine(hunk));
+        top = Math.max(0, Math.min(cursor, document.lineCount() - visibleRows)); // Show the hunk from its header.
+    }
+
+    /** Accepts or rejects the hunk under the cursor; does nothing outside hunks. */
+    public void setCurrentHunkAccepted(Boolean accepted) {
+        var h = currentHunk();
+        if (h < 0) return;
+        document.setAccepted(h, accepted == null ? !document.isAccepted(h) : accepted);
+        changed();
+    }
+
+    public void setAllAccepted(boolean accepted) {
+        document.setAllAccepted(accepted);
+        changed();
+    }
+
+    private int currentHunk() {
+        var h = document.hunkAt(cursor);
+        return h >= 0 && cursor < document.hunkEndLine(h) ? h : -1;
+    }
+
+    private void changed() {
+        onChange.run();
+        invalidate();
+    }
+
+    @Override
+    public Result handleKeyStroke(KeyStroke keyStroke) {
+        switch (keyStroke.getKeyType()) {
+            case ArrowUp -> moveTo(cursor - 1);
+            case ArrowDown -> moveTo(cursor + 1);
+            case PageUp -> moveTo(cursor - visibleRows);
+            case PageDown -> moveTo(cursor + visibleRows);
+            case Home -> moveTo(0);
+            case End -> moveTo(document.lineCount() - 1);
+            case Character -> {
+                switch (keyStroke.getCharacter()) {
+                    case 'n' -> nextHunk();
+                    case 'p' -> previousHunk();
+                    case ' ' -> setCurrentHunkAccepted(null);
+                    case 'a' -> setCurrentHunkAccepted(true);
+                    case 'r' -> setCurrentHunkAccepted(false);
+                    case 'A' -> setAllAccepted(true);
+                    case 'R' -> setAllAccepted(false);
+                    default -> {
+                        return super.handleKeyStroke(keyStroke);
+                    }
+                }
+            }
+            default -> {
+                return super.handleKeyStroke(keyStroke);
+            }
+        }
+        return Result.HANDLED;
+    }
+
+    @Override
+    protected InteractableRenderer<DiffView> createDefaultRenderer() {
+        return new Renderer();
+    }
+
+    /** Syntax spans of a diff line's code, computed on first display. Offsets are into the line without its +/-/space marker. */
+    private List<Span> highlight(int line) {
+        return highlights.computeIfAbsent(line, i -> {
+            var spans = new ArrayList<Span>();
+            var text = code(document.line(i));
+            var m = TOKENS.matcher(text);
+            while (m.find()) {
+                if (m.group(1) != null) spans.add(new Span(m.start(), m.end(), TextColor.ANSI.BLACK_BRIGHT));
+                else if (m.group(2) != null) spans.add(new Span(m.start(), m.end(), TextColor.ANSI.YELLOW));
+                else if (m.group(3) != null && KEYWORDS.contains(m.group(3))) spans.add(new Span(m.start(), m.end(), TextColor.ANSI.MAGENTA_BRIGHT));
+                else if (m.group(4) != null) spans.add(new Span(m.start(), m.end(), TextColor.ANSI.CYAN));
+            }
+            return spans;
+        });
+    }
+
+    private static String code(String line) {
+        return (line.isEmpty() ? "" : line.substring(1)).replace("\t", "    ");
+    }
+
+    private class Renderer implements InteractableRenderer<DiffView> {
+        @Override
+        public TerminalPosition getCursorLocation(DiffView component) {
+            return null; // The current line is shown by highlighting instead of a terminal cursor.
+        }
+
+        @Override
+        public TerminalSize getPreferredSize(DiffView component) {
+            return new TerminalSize(100, Math.min(25, Math.max(1, document.lineCount())));
+        }
+
+        @Override
+        public void drawComponent(TextGUIGraphics graphics, DiffView component) {
+            var size = graphics.getSize();
+            visibleRows = Math.max(1, size.getRows());
+            if (cursor >= top + visibleRows) top = cursor - visibleRows + 1;
+            graphics.setBackgroundColor(TextColor.ANSI.DEFAULT);
+            graphics.fill(' ');
+            for (var row = 0; row < visibleRows && top + row < document.lineCount(); row++) {
+                drawLine(graphics, row, top + row, size.getColumns());
+            }
+        }
+
+        private void drawLine(TextGUIGraphics graphics, int row, int line, int width) {
+            var kind = document.kind(line);
+            var hunk = document.hunkAt(line);
+            var accepted = hunk < 0 || line >= document.hunkEndLine(hunk) || document.isAccepted(hunk);
+            var selected = line == cursor && isFocused();
+            graphics.setBackgroundColor(selected ? TextColor.ANSI.BLUE : TextColor.ANSI.DEFAULT);
+            graphics.clearModifiers();
+            if (kind == DiffDocument.LineKind.HUNK_HEADER) {
+                graphics.setForegroundColor(accepted ? TextColor.ANSI.GREEN_BRIGHT : TextColor.ANSI.RED_BRIGHT);
+                graphics.putString(0, row, accepted ? "[x] " : "[ ] ");
+            } else {
+                graphics.putString(0, row, " ".repeat(GUTTER));
+            }
+            var text = document.line(line);
+            var available = Math.max(0, width - GUTTER);
+            if (!accepted) {
+                graphics.setForegroundColor(TextColor.ANSI.BLACK_BRIGHT);
+                graphics.putString(GUTTER, row, clip(text.replace("\t", "    "), available));
+                return;
+            }
+            switch (kind) {
+                case FILE_HEADER -> {
+                    graphics.enableModifiers(SGR.BOLD);
+                    graphics.setForegroundColor(TextColor.ANSI.WHITE_BRIGHT);
+                    graphics.putString(GUTTER, row, clip(text, available));
+                }
+                case HUNK_HEADER -> {
+                    graphics.setForegroundColor(TextColor.ANSI.CYAN);
+                    graphics.putString(GUTTER, row, clip(text, available));
+                }
+                case ADDED, REMOVED, CONTEXT -> drawCode(graphics, row, line, kind, available);
+                default -> {
+                    graphics.setForegroundColor(TextColor.ANSI.DEFAULT);
+                    graphics.putString(GUTTER, row, clip(text, available));
+                }
+            }
+        }
+
+        private void drawCode(TextGUIGraphics graphics, int row, int line, DiffDocument.LineKind kind, int available) {
+            var base = switch (kind) {
+                case ADDED -> TextColor.ANSI.GREEN;
+                case REMOVED -> TextColor.ANSI.RED;
+                default -> TextColor.ANSI.DEFAULT;
+            };
+            var text = document.line(line);
+            graphics.setForegroundColor(base);
+            graphics.putString(GUTTER, row, text.isEmpty() ? "" : text.substring(0, 1));
+            var code = code(text);
+            var width = available - 1;
+            var at = 0;
+            for (var span : highlight(line)) {
+                if (at >= width) break;
+                graphics.setForegroundColor(base);
+                graphics.putString(GUTTER + 1 + at, row, clip(code.substring(at, span.start()), width - at));
+                at = Math.min(span.start(), width);
+                if (at >= width) break;
+                // Keep +/- colour dominant on changed lines; only context lines get full syntax colours.
+                graphics.setForegroundColor(kind == DiffDocument.LineKind.CONTEXT ? span.color() : base);
+                if (kind != DiffDocument.LineKind.CONTEXT) graphics.enableModifiers(SGR.BOLD);
+                graphics.putString(GUTTER + 1 + at, row, clip(code.substring(span.start(), span.end()), width - at));
+                graphics.disableModifiers(SGR.BOLD);
+                at = span.end();
+            }
+            if (at < code.length() && at < width) {
+                graphics.setForegroundColor(base);
+                graphics.putString(GUTTER + 1 + at, row, clip(code.substring(at), width - at));
+            }
+        }
+
+        private static String clip(String s, int width) {
+            return width <= 0 ? "" : s.length() <= width ? s : s.substring(0, width);
+        }
+    }
+}
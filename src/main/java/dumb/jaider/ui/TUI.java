@@ -219,13 +219,22 @@ public class TUI implements UI {
             dialog.setCloseWindowWithEscape(true);
             var content = new Panel(new LinearLayout(Direction.VERTICAL));
             content.addComponent(new Label("Agent wants to apply these changes:"));
-            var diffTextBox = new TextBox(diff, TextBox.Style.MULTI_LINE);
-            diffTextBox.setReadOnly(true);
-            diffTextBox.setPreferredSize(new TerminalSize(80, 15));
-            content.addComponent(diffTextBox.withBorder(Borders.singleLine("Diff")));
+            // Only the visible rows are drawn, so large diffs open and scroll quickly; hunks can be rejected one by one.
+            var document = new DiffDocument(diff);
+            var diffView = new DiffView(document);
+            var summary = new Label(hunkSummary(document));
+            diffView.setOnChange(() -> summary.setText(hunkSummary(document)));
+            content.addComponent(diffView.withBorder(Borders.singleLine("Diff")));
+            content.addComponent(summary);
             var buttonPanel = new Panel(new LinearLayout(Direction.HORIZONTAL));
             buttonPanel.addComponent(new Button("Accept", () -> {
-                future.complete(new DiffInteractionResult(true, false, diff));
+                if (document.hunkCount() > 0 && document.acceptedCount() == 0) {
+                    future.complete(new DiffInteractionResult(false, false, null));
+                } else if (document.hasRejections()) {
+                    future.complete(new DiffInteractionResult(true, true, document.acceptedDiff()));
+                } else {
+                    future.complete(new DiffInteractionResult(true, false, diff));
+                }
                 dialog.close();
             }));
             buttonPanel.addComponent(new Button("Reject", () -> {
@@ -234,7 +243,7 @@ public class TUI implements UI {
             }));
             buttonPanel.addComponent(new Button("Edit", () -> {
                 dialog.close();
-                configEdit(diff).thenAccept(editedDiff -> {
+                configEdit(document.hasRejections() ? document.acceptedDiff() : diff).thenAccept(editedDiff -> {
                     if (editedDiff != null) future.complete(new DiffInteractionResult(true, true, editedDiff));
                     else future.complete(new DiffInteractionResult(false, false, null));
                 });
@@ -246,6 +255,10 @@ public class TUI implements UI {
         return future;
     }
 
+    private static String hunkSummary(DiffDocument document) {
+        return document.acceptedCount() + " of " + document.hunkCount() + " hunks accepted. n/p: next/previous hunk, space: toggle, a/r: accept/reject, A/R: all.";
+    }
+
     @Override
     public CompletableFuture<String> configEdit(String currentConfig) {
         var future = new CompletableFuture<String>();
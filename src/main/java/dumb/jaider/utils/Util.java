@@ -2,13 +2,22 @@ package dumb.jaider.utils;
 
 import com.github.difflib.UnifiedDiffUtils;
 import com.github.difflib.patch.Patch;
+import com.github.difflib.unifieddiff.UnifiedDiff;
+import com.github.difflib.unifieddiff.UnifiedDiffReader;
 import dev.langchain4j.data.message.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 public class Util {
 
+    /** Jaider's per-project state directory: journal, caches, run logs, sandboxes, session. */
+    public static final String JAIDER_DIR = ".jaider";
+
     private Util() {
         // Prevent instantiation
     }
@@ -42,4 +51,31 @@ public class Util {
         return UnifiedDiffUtils.parseUnifiedDiff(Arrays.asList(diff.split("\n")));
     }
 
+    /**
+     * Parses a unified diff that may touch several files. File names are returned without the {@code a/} and
+     * {@code b/} prefixes; created and deleted files use {@code /dev/null} on the missing side.
+     */
+    public static UnifiedDiff unifiedDiffReader(String diff) throws IOException {
+        if (diff == null) {
+            throw new IOException("Input diff string cannot be null.");
+        }
+        var text = diff.endsWith("\n") ? diff : diff + "\n";
+        return UnifiedDiffReader.parseUnifiedDiff(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Creates {@value #JAIDER_DIR} under {@code projectDir} with a {@code .gitignore} of {@code *}, so nothing Jaider keeps
+     * there shows up in git status or is committed with the project. An existing {@code .gitignore} is left alone.
+     *
+     * @return The directory.
+     */
+    public static Path jaiderDir(Path projectDir) throws IOException {
+        var dir = projectDir.resolve(JAIDER_DIR);
+        var ignore = dir.resolve(".gitignore");
+        if (!Files.exists(ignore)) {
+            Files.createDirectories(dir);
+            Files.writeString(ignore, "*\n");
+        }
+        return dir;
+    }
 }
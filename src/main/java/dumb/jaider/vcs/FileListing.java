@@ -0,0 +1,231 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Lists a project's files the way git sees them: everything in the index plus untracked files in the working tree,
+ * without {@code .gitignore}d paths. Ignored directories (build output, {@code node_modules}...) are never entered,
+ * and size and modification time come from the same directory scan, so even very large trees are listed in one
+ * pass. Outside a git repository it falls back to a plain directory walk.
+ * <p>
+ * Paths are relative to the project root with {@code /} separators. A listing can be limited to a sub-path, to files
+ * matching a glob, and to a number of levels below that path; {@link #format} renders it as a compact indented tree.
+ */
+public class FileListing {
+    public static final int DEFAULT_LIMIT = 2000;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    public enum Status {CLEAN, MODIFIED, UNTRACKED}
+
+    /** A file, or (with {@code directory} set) a folder left unexpanded because of the depth limit. */
+    public record Entry(String path, boolean directory, long size, Instant modified, Status status) {
+    }
+
+    private final Path dir;
+
+    public FileListing(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param path     sub-path to list (a directory or a single file); null or empty for the project root
+     * @param glob     file filter, matched against the file name if it has no {@code /}, otherwise against the path
+     *                 relative to {@code path}; null for all files
+     * @param maxDepth levels below {@code path} to expand, 0 for unlimited. Deeper directories are returned as
+     *                 unexpanded directory entries, unless a glob is given
+     */
+    public List<Entry> list(String path, String glob, int maxDepth) throws IOException {
+        var base = normalize(path);
+        var matcher = matcher(glob);
+        try {
+            return RepositoryService.of(dir).read(git -> walkRepository(git.getRepository(), base, matcher, maxDepth));
+        } catch (RepositoryNotFoundException e) {
+            return walkDirectory(base, matcher, maxDepth);
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private List<Entry> walkRepository(Repository repository, String base, Predicate<String> matcher, int maxDepth) throws IOException {
+        var result = new ArrayList<Entry>();
+        var baseDepth = base.isEmpty() ? 0 : base.split("/").length;
+        try (var walk = new TreeWalk(repository)) {
+            walk.addTree(new DirCacheIterator(RepositoryService.of(dir).dirCache()));
+            walk.addTree(new FileTreeIterator(repository));
+            if (!base.isEmpty()) walk.setFilter(PathFilter.create(base));
+            while (walk.next()) {
+                var index = walk.getTree(0, DirCacheIterator.class);
+                var work = walk.getTree(1, WorkingTreeIterator.class);
+                if (work == null) continue; // Deleted from the working tree.
+                if (index == null && work.isEntryIgnored()) continue;
+                var depth = walk.getDepth() + 1 - baseDepth; // 1 for the direct children of base.
+                if (walk.isSubtree()) {
+                    if (depth <= 0 || maxDepth <= 0 || depth < maxDepth) {
+                        walk.enterSubtree();
+                    } else if (matcher == null) {
+                        result.add(new Entry(walk.getPathString(), true, 0, work.getEntryLastModifiedInstant(), index == null ? Status.UNTRACKED : Status.CLEAN));
+                    }
+                    continue;
+                }
+                var entryPath = walk.getPathString();
+                if (matcher != null && !matcher.test(relative(base, entryPath))) continue;
+                var status = index == null ? Status.UNTRACKED
+                        : index.getDirCacheEntry() != null && work.isModified(index.getDirCacheEntry(), true, walk.getObjectReader()) ? Status.MODIFIED
+                        : Status.CLEAN;
+                result.add(new Entry(entryPath, false, work.getEntryLength(), work.getEntryLastModifiedInstant(), status));
+            }
+        }
+        return result;
+    }
+
+    private List<Entry> walkDirectory(String base, Predicate<String> matcher, int maxDepth) throws IOException {
+        var root = base.isEmpty() ? dir : dir.resolve(base);
+        if (!Files.exists(root)) return List.of();
+        var result = new ArrayList<Entry>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                if (d.equals(root)) return FileVisitResult.CONTINUE;
+                if (d.getFileName().toString().equals(".git")) return FileVisitResult.SKIP_SUBTREE;
+                if (maxDepth > 0 && root.relativize(d).getNameCount() >= maxDepth) {
+                    if (matcher == null) result.add(new Entry(projectPath(d), true, 0, attrs.lastModifiedTime().toInstant(), Status.CLEAN));
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                var path = projectPath(file);
+                if (matcher == null || matcher.test(relative(base, path))) {
+                    result.add(new Entry(path, false, attrs.size(), attrs.lastModifiedTime().toInstant(), Status.CLEAN));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        // Any order works for format() as long as a folder's entries are contiguous; sorting '/' first ensures that.
+        result.sort(Comparator.comparing(e -> e.path().replace('/', '\0')));
+        return result;
+    }
+
+    private String projectPath(Path p) {
+        return dir.relativize(p).toString().replace('\\', '/');
+    }
+
+    /**
+     * Renders entries as an indented tree under a one-line summary, e.g. {@code App.java  4.2K  2025-01-31 12:00  M}.
+     * At most {@code limit} entry lines are printed; the rest are counted in a closing note.
+     */
+    public static String format(List<Entry> entries, String path, int limit) {
+        var base = normalize(path);
+        long files = 0, modified = 0, untracked = 0;
+        for (var e : entries) {
+            if (e.directory()) continue;
+            files++;
+            if (e.status() == Status.MODIFIED) modified++;
+            else if (e.status() == Status.UNTRACKED) untracked++;
+        }
+        var out = new StringBuilder(base.isEmpty() ? "./" : base + (entries.size() == 1 && entries.get(0).path().equals(base) ? "" : "/"));
+        out.append(" (").append(files).append(files == 1 ? " file" : " files");
+        if (modified > 0) out.append(", ").append(modified).append(" modified [M]");
+        if (untracked > 0) out.append(", ").append(untracked).append(" untracked [?]");
+        out.append(")\n");
+
+        var open = new ArrayList<String>(); // Folders printed for the current entry's ancestors.
+        var shown = 0;
+        for (var e : entries) {
+            if (shown >= limit) break;
+            var rel = relative(base, e.path());
+            var parts = rel.split("/");
+            var folders = parts.length - 1;
+            var common = 0;
+            while (common < Math.min(folders, open.size()) && open.get(common).equals(parts[common])) common++;
+            while (open.size() > common) open.remove(open.size() - 1);
+            for (var i = common; i < folders; i++) {
+                out.append("  ".repeat(i + 1)).append(parts[i]).append("/\n");
+                open.add(parts[i]);
+            }
+            out.append("  ".repeat(folders + 1)).append(parts[folders]);
+            if (e.directory()) {
+                out.append("/ ...");
+            } else {
+                out.append("  ").append(size(e.size())).append("  ").append(TIME.format(e.modified()));
+                if (e.status() == Status.MODIFIED) out.append("  M");
+                else if (e.status() == Status.UNTRACKED) out.append("  ?");
+            }
+            out.append('\n');
+            shown++;
+        }
+        if (entries.size() > shown) {
+            out.append("... ").append(entries.size() - shown).append(" more entries not shown; narrow the listing with a path, glob or maxDepth.\n");
+        }
+        return out.toString();
+    }
+
+    static String size(long bytes) {
+        if (bytes < 1024) return bytes + "B";
+        if (bytes < 1024 * 1024) return String.format("%.1fK", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1fM", bytes / (1024.0 * 1024));
+        return String.format("%.1fG", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static String normalize(String path) {
+        var p = path == null ? "" : path.trim().replace('\\', '/');
+        while (p.startsWith("./")) p = p.substring(2);
+        while (p.startsWith("/")) p = p.substring(1);
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        if (p.equals(".")) p = "";
+        for (var part : p.split("/")) {
+            if (part.equals("..")) throw new IllegalArgumentException("Path is outside the project directory.");
+        }
+        return p;
+    }
+
+    /** Path of a project-relative entry relative to the listed base; a listed single file is its own name. */
+    private static String relative(String base, String path) {
+        if (base.isEmpty()) return path;
+        if (path.equals(base)) return path.substring(path.lastIndexOf('/') + 1);
+        return path.substring(base.length() + 1);
+    }
+
+    private static Predicate<String> matcher(String glob) {
+        if (glob == null || glob.isBlank()) return null;
+        var g = glob.trim();
+        var fs = FileSystems.getDefault();
+        if (!g.contains("/")) {
+            var byName = fs.getPathMatcher("glob:" + g);
+            return p -> byName.matches(Path.of(p.substring(p.lastIndexOf('/') + 1)));
+        }
+        var byPath = fs.getPathMatcher("glob:" + g);
+        // Let "**/x" also match x at the top level, as in .gitignore.
+        var atRoot = g.startsWith("**/") ? fs.getPathMatcher("glob:" + g.substring(3)) : null;
+        return p -> byPath.matches(Path.of(p)) || (atRoot != null && atRoot.matches(Path.of(p)));
+    }
+}
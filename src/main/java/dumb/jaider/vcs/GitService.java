@@ -3,6 +3,7 @@ package dumb.jaider.vcs;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.slf4j.Logger;
@@ -17,30 +18,23 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Git operations on a project. All instances for the same directory share one open repository through
+ * {@link RepositoryService}, so creating a {@code GitService} per call is cheap.
+ */
 public class GitService {
     private static final Logger logger = LoggerFactory.getLogger(GitService.class);
     private final Path dir;
+    private final RepositoryService repositories;
 
     public GitService(Path dir) {
         this.dir = dir;
+        this.repositories = RepositoryService.of(dir);
     }
 
     public String commitChanges(String message) {
-        try (var git = Git.open(dir.resolve(".git").toFile())) {
-            var status = git.status().call();
-            if (status.isClean() && status.getUntracked().isEmpty() && status.getMissing().isEmpty()) {
-                return "No changes to commit.";
-            }
-            git.add().addFilepattern(".").call();
-            status = git.status().call(); // Re-check
-            if (status.getAdded().isEmpty() &&
-                status.getChanged().isEmpty() &&
-                status.getModified().isEmpty() &&
-                status.getRemoved().isEmpty()) {
-                return "No changes to commit.";
-            }
-            git.commit().setMessage(message).setAuthor("Jaider Committer", "jaider@example.com").call();
-            return "Changes committed successfully.";
+        try {
+            return repositories.write(git -> commit(git, message));
         } catch (IOException | GitAPIException e) {
             if (e instanceof org.eclipse.jgit.errors.RepositoryNotFoundException ||
                 (e.getMessage() != null && e.getMessage().toLowerCase().contains("not a git repository"))) {
@@ -50,10 +44,25 @@ public class GitService {
         }
     }
 
+    private String commit(Git git, String message) throws IOException, GitAPIException {
+        var tracker = repositories.statusTracker();
+        var status = tracker.status();
+        if (status.isClean()) {
+            return "No changes to commit.";
+        }
+        git.add().addFilepattern(".").call();
+        status = tracker.status(); // Re-check
+        if (status.staged().isEmpty() && status.modified().isEmpty()) {
+            return "No changes to commit.";
+        }
+        git.commit().setMessage(message).setAuthor("Jaider Committer", "jaider@example.com").call();
+        return "Changes committed successfully.";
+    }
+
     public boolean isGitRepoClean() {
-        try (var git = Git.open(dir.resolve(".git").toFile())) {
-            return git.status().call().isClean();
-        } catch (IOException | GitAPIException e) {
+        try {
+            return repositories.statusTracker().isClean();
+        } catch (IOException e) {
             // It's common for this to be called on non-git dirs, so debug or trace might be better
             // For now, let's use warn, but this could be noisy if routinely called on non-git dirs.
             logger.warn("Not a git repository or git error during isClean check for directory '{}': {}", dir, e.getMessage());
@@ -64,17 +73,24 @@ public class GitService {
         }
     }
 
+    /** Modified, untracked, missing and staged paths, answered incrementally by the project's {@link StatusTracker}. */
+    public StatusTracker.Status status() throws IOException {
+        return repositories.statusTracker().status();
+    }
+
     public String undoFileChange(String relativeFilePath) {
-        try (var git = Git.open(dir.resolve(".git").toFile())) {
-            var status = git.status().call();
-            if (status.getAdded().contains(relativeFilePath)) {
-                git.reset().addPath(relativeFilePath).call();
-                Files.deleteIfExists(dir.resolve(relativeFilePath));
-                return "Unstaged and deleted new file: " + relativeFilePath;
-            } else {
-                git.checkout().addPath(relativeFilePath).call();
-                return "Reverted to last commit for file: " + relativeFilePath;
-            }
+        try {
+            return repositories.write(git -> {
+                var status = git.status().call();
+                if (status.getAdded().contains(relativeFilePath)) {
+                    git.reset().addPath(relativeFilePath).call();
+                    Files.deleteIfExists(dir.resolve(relativeFilePath));
+                    return "Unstaged and deleted new file: " + relativeFilePath;
+                } else {
+                    git.checkout().addPath(relativeFilePath).call();
+                    return "Reverted to last commit for file: " + relativeFilePath;
+                }
+            });
         } catch (IOException | GitAPIException e) {
             if (e instanceof org.eclipse.jgit.errors.RepositoryNotFoundException ||
                 (e.getMessage() != null && e.getMessage().toLowerCase().contains("not a git repository"))) {
@@ -85,7 +101,6 @@ public class GitService {
     }
 
     public List<String> listFiles(String relativePath) throws IOException {
-        Set<String> results = new HashSet<>();
         // Normalize relativePath: null or empty means root, ensure no leading/trailing slashes for directory logic later
         var normalizedPath = relativePath == null ? "" : relativePath.trim();
         if (normalizedPath.startsWith("/")) {
@@ -95,10 +110,24 @@ public class GitService {
             normalizedPath = normalizedPath.substring(0, normalizedPath.length() - 1);
         }
 
-        try (var repository = Git.open(dir.toFile()).getRepository();
-             var treeWalk = new TreeWalk(repository)) {
+        var path = normalizedPath;
+        try {
+            return repositories.read(git -> listTree(git.getRepository(), path));
+        } catch (org.eclipse.jgit.errors.RepositoryNotFoundException e) {
+            logger.warn("Attempted to list files on a non-Git directory: {}", dir, e);
+            throw e; // Re-throw, or return empty list if that's preferred for non-repos
+        } catch (IOException e) {
+            logger.error("Error listing files in Git repository at {}: {}", dir, e.getMessage(), e);
+            throw e; // Re-throw
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
 
-            var head = repository.resolve("HEAD^{tree}");
+    private List<String> listTree(Repository repository, String normalizedPath) throws IOException {
+        Set<String> results = new HashSet<>();
+        try (var treeWalk = new TreeWalk(repository)) {
+            var head = repositories.headTree();
             if (head == null) {
                 logger.warn("No HEAD commit found in repository at {}. Cannot list files.", dir);
                 return new ArrayList<>(); // Empty repository or no commits
@@ -143,12 +172,6 @@ public class GitService {
                     results.add(pathString);
                 }
             }
-        } catch (org.eclipse.jgit.errors.RepositoryNotFoundException e) {
-            logger.warn("Attempted to list files on a non-Git directory: {}", dir, e);
-            throw e; // Re-throw, or return empty list if that's preferred for non-repos
-        } catch (IOException e) {
-            logger.error("Error listing files in Git repository at {}: {}", dir, e.getMessage(), e);
-            throw e; // Re-throw
         }
         return results.stream().sorted().collect(Collectors.toList());
     }
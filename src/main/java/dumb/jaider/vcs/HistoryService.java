@@ -0,0 +1,365 @@
+package dumb.jaider.vcs;
+
+import dumb.jaider.utils.Util;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.FollowFilter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * History questions for agents ("who changed this, when and why"), answered from the project's shared
+ * {@link RepositoryService} handle in compact text capped at a character budget, so they cost few tokens.
+ * <p>
+ * Blame is the expensive part, so its results are cached per (path, blob id at HEAD): in memory, and as small JSON
+ * files under {@value #BLAME_CACHE_DIR} that survive restarts. A cached blame stays valid until the file is committed
+ * again, since a new commit gives it a new blob id.
+ */
+public class HistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryService.class);
+
+    public static final String BLAME_CACHE_DIR = ".jaider/cache/blame";
+    /** Default output budget, roughly 2k tokens. */
+    public static final int DEFAULT_MAX_CHARS = 8000;
+    private static final int MEMORY_CACHE_SIZE = 64;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+    private static final Map<Path, HistoryService> SERVICES = new ConcurrentHashMap<>();
+
+    /** The commit a line was last changed in. */
+    record Origin(String id, String author, long time, String summary) {
+    }
+
+    /** Blame of one file version: for each line, an index into {@code origins}. */
+    record Blame(List<Origin> origins, int[] lines) {
+    }
+
+    private final Path root;
+    private final Map<String, Blame> blames = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Blame> eldest) {
+            return size() > MEMORY_CACHE_SIZE;
+        }
+    };
+    private int blameComputations;
+
+    HistoryService(Path projectDir) {
+        this.root = projectDir.toAbsolutePath().normalize();
+    }
+
+    /** One instance per project directory, so the in-memory blame cache is shared by all tools. */
+    public static HistoryService of(Path projectDir) {
+        return SERVICES.computeIfAbsent(projectDir.toAbsolutePath().normalize(), HistoryService::new);
+    }
+
+    /** How many blames were computed rather than served from a cache; for tests. */
+    synchronized int blameComputations() {
+        return blameComputations;
+    }
+
+    /** Commits that changed a file, newest first, following renames: one line each with lines added/removed. */
+    public String fileHistory(String path, int maxCount, int maxChars) throws IOException {
+        var file = normalize(path);
+        var limit = maxCount <= 0 ? 20 : maxCount;
+        return read(git -> {
+            var repo = git.getRepository();
+            var head = repo.resolve(Constants.HEAD);
+            if (head == null) return "No commits yet.";
+            var out = new StringBuilder();
+            var shown = 0;
+            var more = false;
+            try (var walk = new RevWalk(repo); var diff = diffFormatter(repo, DisabledOutputStream.INSTANCE)) {
+                var follow = FollowFilter.create(file, repo.getConfig().get(DiffConfig.KEY));
+                walk.setTreeFilter(follow);
+                walk.sort(RevSort.COMMIT_TIME_DESC);
+                walk.markStart(walk.parseCommit(head));
+                var current = file;
+                for (var commit : walk) {
+                    if (shown == limit) {
+                        more = true;
+                        break;
+                    }
+                    // FollowFilter switches paths at a rename on its own, but reads ahead, so the rename is found
+                    // again here from the commit's own diff, where the file's name before the commit is needed.
+                    var entry = change(diff, walk, commit, current);
+                    var line = new StringBuilder(describe(commit));
+                    if (entry != null) {
+                        var counts = counts(diff, entry);
+                        line.append(" (+").append(counts[0]).append(" -").append(counts[1]).append(')');
+                        if (entry.getChangeType() == DiffEntry.ChangeType.RENAME) {
+                            line.append(" [renamed from ").append(entry.getOldPath()).append(']');
+                            current = entry.getOldPath();
+                        }
+                    }
+                    if (out.length() + line.length() + 1 > maxChars) {
+                        more = true;
+                        break;
+                    }
+                    out.append(line).append('\n');
+                    shown++;
+                }
+            }
+            if (shown == 0) return "No commits found for " + file + ".";
+            var header = "History of " + file + " (newest first, " + shown + (shown == 1 ? " commit" : " commits") + "):\n";
+            return header + out + (more ? "... older commits not shown; raise maxCount to see more.\n" : "");
+        });
+    }
+
+    /** Who last changed lines {@code startLine..endLine} (1-based, inclusive) of the HEAD version, in runs per commit. */
+    public String blameRange(String path, int startLine, int endLine, int maxChars) throws IOException {
+        var file = normalize(path);
+        return read(git -> {
+            var repo = git.getRepository();
+            var head = repo.resolve(Constants.HEAD);
+            if (head == null) return "No commits yet.";
+            var blob = blobAt(repo, head, file);
+            if (blob == null) return "Error: " + file + " is not in the last commit (HEAD).";
+            var blame = blame(git, head, file, blob);
+            var total = blame.lines().length;
+            if (total == 0) return file + " is empty at HEAD.";
+            var from = Math.max(1, startLine);
+            var to = endLine <= 0 ? total : Math.min(endLine, total);
+            if (from > to) return "Error: " + file + " has " + total + " lines at HEAD; requested " + startLine + "-" + endLine + ".";
+
+            var out = new StringBuilder("Blame of ").append(file).append(" lines ").append(from).append('-').append(to)
+                    .append(" (of ").append(total).append(") at HEAD ").append(head.abbreviate(7).name()).append(":\n");
+            if (hasLocalChanges(repo, file, blob)) {
+                out.append("(The file has uncommitted changes; line numbers refer to the committed version.)\n");
+            }
+            var runStart = from;
+            for (var line = from; line <= to; line++) {
+                if (line < to && blame.lines()[line] == blame.lines()[line - 1]) continue; // Same commit continues.
+                var origin = blame.origins().get(blame.lines()[line - 1]);
+                var range = runStart == line ? String.valueOf(line) : runStart + "-" + line;
+                var text = range + "  " + origin.id().substring(0, 7) + " " + DATE.format(Instant.ofEpochSecond(origin.time()))
+                        + " " + origin.author() + ": " + origin.summary() + "\n";
+                if (out.length() + text.length() > maxChars) {
+                    out.append("... lines ").append(runStart).append('-').append(to).append(" not shown; ask for a smaller range.\n");
+                    break;
+                }
+                out.append(text);
+                runStart = line + 1;
+            }
+            return out.toString();
+        });
+    }
+
+    /** A commit's message, file stats and diff against its first parent, optionally limited to a path. */
+    public String commitDiff(String revision, String path, int maxChars) throws IOException {
+        var filter = path == null || path.isBlank() ? null : normalize(path);
+        return read(git -> {
+            var repo = git.getRepository();
+            var id = repo.resolve(revision == null || revision.isBlank() ? Constants.HEAD : revision.trim());
+            if (id == null) return "Error: Unknown commit '" + revision + "'.";
+            try (var walk = new RevWalk(repo)) {
+                var commit = walk.parseCommit(id);
+                var parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+                var bytes = new ByteArrayOutputStream();
+                var out = new StringBuilder("commit ").append(commit.name()).append('\n')
+                        .append("Author: ").append(commit.getAuthorIdent().getName()).append(" <").append(commit.getAuthorIdent().getEmailAddress()).append(">\n")
+                        .append("Date:   ").append(DATE.format(Instant.ofEpochSecond(commit.getCommitTime()))).append("\n\n")
+                        .append(commit.getFullMessage().strip().indent(4)).append('\n');
+                try (var diff = diffFormatter(repo, bytes)) {
+                    if (filter != null) diff.setPathFilter(PathFilter.create(filter));
+                    var entries = diff.scan(parent == null ? null : parent.getTree(), commit.getTree());
+                    if (entries.isEmpty()) return out.append(filter == null ? "(no file changes)\n" : "(no changes under " + filter + ")\n").toString();
+                    for (var entry : entries) {
+                        var counts = counts(diff, entry);
+                        out.append(" ").append(entry.getChangeType().name().charAt(0)).append(' ').append(name(entry))
+                                .append(" (+").append(counts[0]).append(" -").append(counts[1]).append(")\n");
+                    }
+                    out.append('\n');
+                    diff.format(entries);
+                }
+                var patch = bytes.toString(StandardCharsets.UTF_8);
+                var room = maxChars - out.length();
+                if (patch.length() <= room) return out.append(patch).toString();
+                var cut = Math.max(0, patch.lastIndexOf('\n', Math.max(0, room - 120)) + 1);
+                return out.append(patch, 0, cut).append("... diff truncated (").append(patch.length() - cut).append(" of ")
+                        .append(patch.length()).append(" chars not shown); pass a file path to see one file's changes.\n").toString();
+            }
+        });
+    }
+
+    private Blame blame(Git git, ObjectId head, String file, ObjectId blob) throws IOException, GitAPIException {
+        var key = file + "@" + blob.name();
+        synchronized (this) {
+            var cached = blames.get(key);
+            if (cached != null) return cached;
+        }
+        var cacheFile = cacheFile(file, blob);
+        var blame = loadCached(cacheFile);
+        if (blame == null) {
+            var result = git.blame().setFilePath(file).setStartCommit(head).setFollowFileRenames(true).call();
+            if (result == null) throw new IOException("Cannot blame " + file);
+            var origins = new ArrayList<Origin>();
+            var index = new HashMap<String, Integer>();
+            var lines = new int[result.getResultContents().size()];
+            for (var i = 0; i < lines.length; i++) {
+                var commit = result.getSourceCommit(i);
+                lines[i] = index.computeIfAbsent(commit.name(), n -> {
+                    origins.add(new Origin(n, commit.getAuthorIdent().getName(), commit.getCommitTime(), commit.getShortMessage()));
+                    return origins.size() - 1;
+                });
+            }
+            blame = new Blame(origins, lines);
+            synchronized (this) {
+                blameComputations++;
+            }
+            store(root, cacheFile, file, blob, blame);
+        }
+        synchronized (this) {
+            blames.put(key, blame);
+        }
+        return blame;
+    }
+
+    private Path cacheFile(String file, ObjectId blob) {
+        var pathId = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, file.getBytes(StandardCharsets.UTF_8)).name();
+        return root.resolve(BLAME_CACHE_DIR).resolve(blob.name() + "-" + pathId.substring(0, 12) + ".json");
+    }
+
+    private static Blame loadCached(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) return null;
+        try {
+            var json = new JSONObject(Files.readString(cacheFile));
+            var origins = new ArrayList<Origin>();
+            var commits = json.getJSONArray("commits");
+            for (var i = 0; i < commits.length(); i++) {
+                var c = commits.getJSONArray(i);
+                origins.add(new Origin(c.getString(0), c.getString(1), c.getLong(2), c.getString(3)));
+            }
+            var array = json.getJSONArray("lines");
+            var lines = new int[array.length()];
+            for (var i = 0; i < lines.length; i++) lines[i] = array.getInt(i);
+            return new Blame(origins, lines);
+        } catch (Exception e) {
+            logger.debug("Ignoring unreadable blame cache {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void store(Path root, Path cacheFile, String file, ObjectId blob, Blame blame) {
+        var commits = new JSONArray();
+        for (var o : blame.origins()) commits.put(new JSONArray().put(o.id()).put(o.author()).put(o.time()).put(o.summary()));
+        var json = new JSONObject().put("path", file).put("blob", blob.name()).put("commits", commits).put("lines", new JSONArray(blame.lines()));
+        try {
+            Util.jaiderDir(root);
+            Files.createDirectories(cacheFile.getParent());
+            var tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            Files.writeString(tmp, json.toString());
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not cache blame of {}: {}", file, e.getMessage()); // Only costs a recomputation later.
+        }
+    }
+
+    private static ObjectId blobAt(Repository repo, ObjectId commitId, String file) throws IOException {
+        try (var walk = new RevWalk(repo); var tree = TreeWalk.forPath(repo, file, walk.parseCommit(commitId).getTree())) {
+            return tree == null ? null : tree.getObjectId(0);
+        }
+    }
+
+    private boolean hasLocalChanges(Repository repo, String file, ObjectId blob) {
+        var path = root.resolve(file);
+        try {
+            return !Files.isRegularFile(path) || !new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Files.readAllBytes(path)).equals(blob);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static DiffFormatter diffFormatter(Repository repo, java.io.OutputStream out) {
+        var diff = new DiffFormatter(out);
+        diff.setRepository(repo);
+        diff.setDiffComparator(RawTextComparator.DEFAULT);
+        diff.setDetectRenames(true);
+        return diff;
+    }
+
+    /** The change a commit made to {@code file}, matched by the file's name after the commit; null if none. */
+    private static DiffEntry change(DiffFormatter diff, RevWalk walk, RevCommit commit, String file) throws IOException {
+        var parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+        for (var entry : diff.scan(parent == null ? null : parent.getTree(), commit.getTree())) {
+            if (file.equals(entry.getNewPath()) || (entry.getChangeType() == DiffEntry.ChangeType.DELETE && file.equals(entry.getOldPath()))) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static int[] counts(DiffFormatter diff, DiffEntry entry) throws IOException {
+        var added = 0;
+        var removed = 0;
+        for (Edit edit : diff.toFileHeader(entry).toEditList()) {
+            added += edit.getLengthB();
+            removed += edit.getLengthA();
+        }
+        return new int[]{added, removed};
+    }
+
+    private static String name(DiffEntry entry) {
+        return switch (entry.getChangeType()) {
+            case DELETE -> entry.getOldPath();
+            case RENAME, COPY -> entry.getOldPath() + " -> " + entry.getNewPath();
+            default -> entry.getNewPath();
+        };
+    }
+
+    private static String describe(RevCommit commit) {
+        return commit.abbreviate(7).name() + " " + DATE.format(Instant.ofEpochSecond(commit.getCommitTime())) + " "
+                + commit.getAuthorIdent().getName() + ": " + commit.getShortMessage();
+    }
+
+    private <T> T read(RepositoryService.GitFunction<T> query) throws IOException {
+        try {
+            return RepositoryService.of(root).read(query);
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static String normalize(String path) {
+        if (path == null || path.isBlank()) throw new IllegalArgumentException("File path cannot be empty.");
+        var p = path.trim().replace('\\', '/');
+        while (p.startsWith("./")) p = p.substring(2);
+        while (p.startsWith("/")) p = p.substring(1);
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        for (var part : p.split("/")) {
+            if (part.equals("..")) throw new IllegalArgumentException("Path is outside the project directory.");
+        }
+        return p;
+    }
+}
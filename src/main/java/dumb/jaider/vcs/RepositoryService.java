@@ -0,0 +1,166 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One long-lived JGit {@link Repository} per project, so git config, refs, packs and the index are not re-read from
+ * disk on every call. JGit already re-checks refs and pack lists against file snapshots when the repository stays
+ * open; on top of that the index ({@link DirCache}) and the HEAD tree are cached here and reloaded only when the
+ * index file or HEAD's commit changes.
+ * <p>
+ * Readers ({@link #read}) run concurrently; operations that change the index, refs or work tree ({@link #write}) run
+ * exclusively. {@link #close(Path)} releases a project's handle, e.g. when switching projects, along with its
+ * {@link StatusTracker}.
+ */
+public final class RepositoryService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryService.class);
+    private static final Map<Path, RepositoryService> OPEN = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface GitFunction<T> {
+        T apply(Git git) throws IOException, GitAPIException;
+    }
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Repository repository;
+    private DirCache dirCache;
+    private ObjectId headCommit;
+    private ObjectId headTree;
+    private StatusTracker status;
+
+    private RepositoryService(Path dir) {
+        this.dir = dir;
+    }
+
+    /** The shared service for a project directory; the repository itself is opened on first use. */
+    public static RepositoryService of(Path projectDir) {
+        return OPEN.computeIfAbsent(projectDir.toAbsolutePath().normalize(), RepositoryService::new);
+    }
+
+    /** Closes and forgets the project's repository handle, if one is open. */
+    public static void close(Path projectDir) {
+        var service = OPEN.remove(projectDir.toAbsolutePath().normalize());
+        if (service != null) service.close();
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    /** The project's incremental status tracker, created on first use and closed with this service. */
+    public synchronized StatusTracker statusTracker() {
+        if (status == null) status = new StatusTracker(this);
+        return status;
+    }
+
+    /** Runs a read-only operation; several may run at once. */
+    public <T> T read(GitFunction<T> operation) throws IOException, GitAPIException {
+        lock.readLock().lock();
+        try {
+            return operation.apply(Git.wrap(repository()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Runs an operation that changes the repository or work tree, excluding all other operations. */
+    public <T> T write(GitFunction<T> operation) throws IOException, GitAPIException {
+        lock.writeLock().lock();
+        try {
+            return operation.apply(Git.wrap(repository()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The index, re-read only if the index file changed since it was last loaded. Treat it as read-only. */
+    public DirCache dirCache() throws IOException {
+        var repo = repository();
+        synchronized (this) {
+            if (dirCache == null || dirCache.isOutdated()) {
+                dirCache = DirCache.read(repo);
+            }
+            return dirCache;
+        }
+    }
+
+    /** The tree of HEAD's commit, or {@code null} in a repository without commits. Re-parsed only when HEAD moves. */
+    public ObjectId headTree() throws IOException {
+        var repo = repository();
+        var head = repo.resolve("HEAD");
+        synchronized (this) {
+            if (head == null) {
+                headCommit = headTree = null;
+                return null;
+            }
+            if (!head.equals(headCommit)) {
+                try (var walk = new RevWalk(repo)) {
+                    headTree = walk.parseCommit(head).getTree().copy();
+                }
+                headCommit = head.copy();
+            }
+            return headTree;
+        }
+    }
+
+    private synchronized Repository repository() throws IOException {
+        if (repository != null && !Files.isDirectory(repository.getDirectory().toPath())) {
+            // The .git directory was removed (or replaced) under us; drop the stale handle.
+            closeRepository();
+        }
+        if (repository == null) {
+            var key = RepositoryCache.FileKey.lenient(dir.toFile(), FS.DETECTED);
+            if (!RepositoryCache.FileKey.isGitRepository(key.getFile(), FS.DETECTED)) {
+                throw new RepositoryNotFoundException(dir.toFile());
+            }
+            repository = new FileRepositoryBuilder().setFS(FS.DETECTED).setGitDir(key.getFile()).setMustExist(true).build();
+            logger.debug("Opened git repository {} for {}", repository.getDirectory(), dir);
+        }
+        return repository;
+    }
+
+    private void closeRepository() {
+        repository.close();
+        repository = null;
+        dirCache = null;
+        headCommit = headTree = null;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            synchronized (this) {
+                if (status != null) {
+                    status.close();
+                    status = null;
+                }
+                if (repository != null) {
+                    logger.debug("Closing git repository for {}", dir);
+                    closeRepository();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
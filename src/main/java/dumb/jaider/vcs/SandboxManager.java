@@ -0,0 +1,348 @@
+package dumb.jaider.vcs;
+
+import dumb.jaider.tools.EditJournal;
+import dumb.jaider.utils.Util;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pool of scratch copies of the project under {@value #DIR}, so alternative agent attempts or validation runs can work
+ * side by side without touching the project directory, and only the winning attempt's changes are copied back.
+ * <p>
+ * Each sandbox is a git working tree on its own small repository that borrows the project's objects through
+ * {@code objects/info/alternates} (what {@code git clone --shared} does), so creating one copies no history. When a
+ * sandbox is leased it is reset to the project's HEAD and the project's uncommitted changes are copied over it; a
+ * reused sandbox only rewrites files that differ, and keeps its ignored files (build output), so repeated runs stay
+ * warm. {@link #promote} copies a sandbox's changes back through the {@link EditJournal}, so a promotion can be undone.
+ */
+public class SandboxManager {
+    private static final Logger logger = LoggerFactory.getLogger(SandboxManager.class);
+
+    public static final String DIR = ".jaider/sandboxes";
+    /** Idle sandboxes kept for reuse; sandboxes released beyond this are deleted. */
+    static final int MAX_IDLE = 4;
+    private static final Map<Path, SandboxManager> MANAGERS = new ConcurrentHashMap<>();
+
+    /** One attempt, run in its own sandbox. */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(Sandbox sandbox) throws Exception;
+    }
+
+    /** The outcome of a {@link Task}: its result, or the exception it failed with. The sandbox is still leased. */
+    public record Attempt<T>(Sandbox sandbox, T result, Exception error) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    private final Path root;
+    private final Path dir;
+    private final Deque<Sandbox> idle = new ArrayDeque<>();
+    private final Set<Path> leased = new HashSet<>();
+    private int created;
+
+    SandboxManager(Path projectDir) {
+        this.root = projectDir.toAbsolutePath().normalize();
+        this.dir = root.resolve(DIR);
+    }
+
+    /** The sandboxes of the given project; one instance per project directory, so the pool is shared. */
+    public static SandboxManager of(Path projectDir) {
+        return MANAGERS.computeIfAbsent(projectDir.toAbsolutePath().normalize(), SandboxManager::new);
+    }
+
+    /** Releases the git handles of a project's idle sandboxes, e.g. when switching projects. Directories stay for reuse. */
+    public static void close(Path projectDir) {
+        var manager = MANAGERS.remove(projectDir.toAbsolutePath().normalize());
+        if (manager != null) manager.closeIdle();
+    }
+
+    /** A leased copy of the project. {@link #close} returns it to the pool; its changes are kept only by {@link #promote}. */
+    public final class Sandbox implements AutoCloseable {
+        private final Path dir;
+        private ObjectId base;
+        /** Blob ids ({@code null} = absent) of the project's uncommitted files when the sandbox was prepared. */
+        private Map<String, ObjectId> overlay = Map.of();
+        private boolean closed;
+
+        private Sandbox(Path dir) {
+            this.dir = dir;
+        }
+
+        /** The sandbox's working tree; run tools and commands here instead of in the project directory. */
+        public Path dir() {
+            return dir;
+        }
+
+        /** Files whose content differs from the project's as it was when the sandbox was prepared. */
+        public Set<String> changedPaths() throws IOException {
+            var changed = new TreeSet<String>();
+            for (var path : candidates(this)) {
+                if (!Objects.equals(blobId(dir.resolve(path)), baseBlob(this, path))) changed.add(path);
+            }
+            return changed;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    /**
+     * Leases a sandbox matching the project's current state: HEAD plus uncommitted changes. Ignored files in the
+     * project (build output, {@code .jaider/}) are not copied.
+     */
+    public Sandbox acquire() throws IOException {
+        Sandbox sandbox;
+        synchronized (this) {
+            sandbox = idle.poll();
+            if (sandbox == null) {
+                var path = dir.resolve("sandbox-" + (++created));
+                while (leased.contains(path)) path = dir.resolve("sandbox-" + (++created));
+                sandbox = new Sandbox(path);
+            }
+            leased.add(sandbox.dir);
+            sandbox.closed = false;
+        }
+        try {
+            prepare(sandbox);
+            return sandbox;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                leased.remove(sandbox.dir);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs each task in its own sandbox, all in parallel, and returns their outcomes in task order. The sandboxes stay
+     * leased so the caller can compare them and {@link #promote} one; close them all afterwards.
+     */
+    public <T> List<Attempt<T>> runParallel(List<Task<T>> tasks) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<Attempt<T>>>();
+            for (var task : tasks) {
+                futures.add(executor.submit(() -> {
+                    var sandbox = acquire();
+                    try {
+                        return new Attempt<>(sandbox, task.run(sandbox), null);
+                    } catch (Exception e) {
+                        logger.info("Sandbox attempt in {} failed: {}", sandbox.dir, e.getMessage());
+                        return new Attempt<T>(sandbox, null, e);
+                    }
+                }));
+            }
+            var attempts = new ArrayList<Attempt<T>>();
+            for (var future : futures) {
+                try {
+                    attempts.add(future.get());
+                } catch (ExecutionException e) { // acquire() failed: there is no sandbox to report on.
+                    var cause = e.getCause() instanceof Exception ex ? ex : new IOException(e.getCause());
+                    attempts.add(new Attempt<>(null, null, cause));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    attempts.add(new Attempt<>(null, null, e));
+                }
+            }
+            return attempts;
+        }
+    }
+
+    /**
+     * Copies the sandbox's changes into the project directory as one undoable edit and returns the paths written or
+     * deleted. Nothing is written if any of those files was changed in the project since the sandbox was prepared; that
+     * is reported as an {@link IllegalStateException} naming them.
+     */
+    public synchronized List<String> promote(Sandbox sandbox) throws IOException {
+        var changed = sandbox.changedPaths();
+        var conflicts = new ArrayList<String>();
+        for (var path : changed) {
+            var current = blobId(root.resolve(path));
+            if (!Objects.equals(current, baseBlob(sandbox, path)) && !Objects.equals(current, blobId(sandbox.dir.resolve(path)))) {
+                conflicts.add(path);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Changed in the project since the sandbox was prepared: " + String.join(", ", conflicts));
+        }
+        var edit = EditJournal.of(root).begin("promote " + root.relativize(sandbox.dir) + ": " + String.join(", ", changed));
+        try {
+            for (var path : changed) {
+                var target = root.resolve(path);
+                edit.capture(target);
+                var source = sandbox.dir.resolve(path);
+                if (Files.isRegularFile(source)) {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(target);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            edit.commit(); // Files copied before the failure stay changed; keep them undoable.
+            throw e;
+        }
+        edit.commit();
+        logger.info("Promoted {} file(s) from {}", changed.size(), sandbox.dir);
+        return List.copyOf(changed);
+    }
+
+    /** Sandboxes currently idle in the pool; for tests. */
+    synchronized int idleCount() {
+        return idle.size();
+    }
+
+    private void release(Sandbox sandbox) {
+        synchronized (this) {
+            if (sandbox.closed) return;
+            sandbox.closed = true;
+            leased.remove(sandbox.dir);
+            if (idle.size() < MAX_IDLE) {
+                idle.push(sandbox); // Most recently used first: its files and build output are the freshest.
+                return;
+            }
+        }
+        RepositoryService.close(sandbox.dir);
+        try {
+            deleteRecursively(sandbox.dir);
+        } catch (IOException e) {
+            logger.warn("Could not delete surplus sandbox {}: {}", sandbox.dir, e.getMessage());
+        }
+    }
+
+    private synchronized void closeIdle() {
+        for (var sandbox : idle) RepositoryService.close(sandbox.dir);
+        idle.clear();
+    }
+
+    /** Resets the sandbox to the project's HEAD, then lays the project's uncommitted changes over it. */
+    private void prepare(Sandbox sandbox) throws IOException {
+        var project = RepositoryService.of(root);
+        var status = project.statusTracker().status();
+        ObjectId head;
+        try {
+            head = project.read(git -> git.getRepository().resolve(Constants.HEAD));
+            if (head == null) throw new IOException("The project has no commits yet; sandboxes start from HEAD.");
+            var objects = project.read(git -> git.getRepository().getDirectory().toPath().resolve("objects"));
+            init(sandbox.dir, objects);
+            RepositoryService.of(sandbox.dir).write(git -> {
+                git.reset().setMode(ResetCommand.ResetType.HARD).setRef(head.name()).call();
+                git.clean().setCleanDirectories(true).call(); // Keeps ignored files, e.g. a warm target/.
+                return null;
+            });
+        } catch (GitAPIException e) {
+            throw new IOException("Could not prepare sandbox " + sandbox.dir + ": " + e.getMessage(), e);
+        }
+
+        var overlay = new HashMap<String, ObjectId>();
+        for (var path : status.changedPaths()) {
+            if (path.equals(".jaider") || path.startsWith(".jaider/")) continue;
+            var source = root.resolve(path);
+            var target = sandbox.dir.resolve(path);
+            if (Files.isRegularFile(source)) {
+                Files.createDirectories(target.getParent());
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(target);
+            }
+            overlay.put(path, blobId(source));
+        }
+        sandbox.base = head;
+        sandbox.overlay = Collections.unmodifiableMap(overlay);
+        logger.debug("Prepared sandbox {} at {} with {} uncommitted file(s)", sandbox.dir, head.abbreviate(7).name(), overlay.size());
+    }
+
+    /** Paths the sandbox may differ in: its own git changes, plus the uncommitted files laid over it. */
+    private static Set<String> candidates(Sandbox sandbox) throws IOException {
+        var paths = new TreeSet<>(sandbox.overlay.keySet());
+        for (var path : RepositoryService.of(sandbox.dir).statusTracker().status().changedPaths()) {
+            if (!path.equals(".jaider") && !path.startsWith(".jaider/")) paths.add(path);
+        }
+        return paths;
+    }
+
+    /** The blob the project held at {@code path} when the sandbox was prepared; {@code null} if absent. */
+    private ObjectId baseBlob(Sandbox sandbox, String path) throws IOException {
+        if (sandbox.overlay.containsKey(path)) return sandbox.overlay.get(path);
+        try {
+            return RepositoryService.of(root).read(git -> {
+                try (var walk = new RevWalk(git.getRepository());
+                     var tree = TreeWalk.forPath(git.getRepository(), path, walk.parseCommit(sandbox.base).getTree())) {
+                    return tree == null ? null : tree.getObjectId(0);
+                }
+            });
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static ObjectId blobId(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Files.readAllBytes(file));
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Creates the sandbox repository on first use, borrowing the project's objects instead of copying them. */
+    private void init(Path sandboxDir, Path objects) throws IOException, GitAPIException {
+        if (Files.isDirectory(sandboxDir.resolve(".git"))) return;
+        Util.jaiderDir(root);
+        Files.createDirectories(dir);
+        var ignore = dir.resolve(".gitignore");
+        if (!Files.exists(ignore)) Files.writeString(ignore, "*\n"); // Keep sandboxes out of the project's status.
+        Git.init().setDirectory(sandboxDir.toFile()).call().close();
+        var alternates = sandboxDir.resolve(".git/objects/info/alternates");
+        Files.createDirectories(alternates.getParent());
+        Files.writeString(alternates, objects.toAbsolutePath() + "\n");
+        RepositoryService.close(sandboxDir); // Reopen with the alternates in place.
+    }
+}
@@ -0,0 +1,454 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Incremental {@code git status} for one project. It remembers each working-tree file's (size, mtime, inode) and
+ * whether its content matched the index the last time it was checked. A query re-stats files but hashes only those
+ * whose stat or index entry changed. On the first scan, files whose stat still matches the index entry are trusted
+ * without hashing, as git does. Files changed within {@link #RACY_MILLIS} of being checked are re-hashed on the next
+ * query, since a second write in the same timestamp tick would otherwise go unnoticed.
+ * <p>
+ * After {@link #watch()}, a {@link WatchService} reports changed directories and a query re-stats only those paths
+ * instead of walking the whole tree. It falls back to full scans if events overflow or the watch limit is hit.
+ * <p>
+ * Content is first compared as raw bytes. When those differ, the file is re-checked the way {@code git status} does,
+ * through JGit's working-tree iterator, which applies core.autocrlf, {@code .gitattributes} eol settings and clean
+ * filters (e.g. LFS); so a file that only differs by what those filters change counts as unmodified. Executable-bit
+ * changes are not taken into account.
+ */
+public class StatusTracker implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StatusTracker.class);
+    static final long RACY_MILLIS = 2000;
+
+    /** Paths are relative to the project root with {@code /} separators. */
+    public record Status(Set<String> modified, Set<String> untracked, Set<String> missing, Set<String> staged) {
+        public boolean isClean() {
+            return modified.isEmpty() && untracked.isEmpty() && missing.isEmpty() && staged.isEmpty();
+        }
+
+        public SortedSet<String> changedPaths() {
+            var all = new TreeSet<String>();
+            all.addAll(modified);
+            all.addAll(untracked);
+            all.addAll(missing);
+            all.addAll(staged);
+            return all;
+        }
+    }
+
+    private record Stat(long size, long modified, Object key) {
+    }
+
+    private static final class Known {
+        Stat stat;
+        boolean ignored;
+        boolean dirty;
+        boolean racy;
+        ObjectId checkedAgainst; // Index blob id the content was compared with; null if never compared.
+    }
+
+    private final RepositoryService repositories;
+    private final Path root;
+    private final TreeMap<String, Known> files = new TreeMap<>();
+    private final Map<String, IgnoreNode> ignores = new HashMap<>(); // By directory, "" for the root.
+    private IgnoreNode excludes;
+    private DirCache index;
+    private TreeMap<String, DirCacheEntry> entries = new TreeMap<>();
+    private final Set<String> conflicts = new TreeSet<>();
+    private long indexModified;
+    private ObjectId head;
+    private boolean stagedValid;
+    private Set<String> staged = Set.of();
+    private WatchService watcher;
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private boolean rescan = true;
+    private int hashes;
+
+    StatusTracker(RepositoryService repositories) {
+        this.repositories = repositories;
+        this.root = repositories.dir();
+    }
+
+    /**
+     * Starts watching the working tree, so later queries re-check only changed paths.
+     *
+     * @return false if the platform offers no watch service
+     */
+    public synchronized boolean watch() {
+        if (watcher != null) return true;
+        try {
+            watcher = root.getFileSystem().newWatchService();
+            rescan = true;
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Cannot watch {} for changes, falling back to scanning: {}", root, e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized boolean isWatching() {
+        return watcher != null;
+    }
+
+    /** The current status; throws {@link org.eclipse.jgit.errors.RepositoryNotFoundException} outside a repository. */
+    public Status status() throws IOException {
+        try {
+            return repositories.read(git -> compute(git.getRepository()));
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    public boolean isClean() throws IOException {
+        return status().isClean();
+    }
+
+    /** Number of files hashed so far; lets tests check that unchanged files are not re-read. */
+    synchronized int hashCount() {
+        return hashes;
+    }
+
+    private synchronized Status compute(Repository repository) throws IOException {
+        var dirCache = repositories.dirCache();
+        if (dirCache != index) {
+            reindex(dirCache, repository);
+            stagedValid = false;
+        }
+        var headTree = repositories.headTree();
+        if (!stagedValid || !Objects.equals(headTree, head)) {
+            staged = stagedPaths(repository, dirCache, headTree);
+            head = headTree;
+            stagedValid = true;
+        }
+
+        var pending = watcher == null ? null : drainEvents();
+        if (pending == null || rescan) {
+            fullScan(repository);
+        } else {
+            for (var path : pending) refresh(path);
+        }
+
+        var modified = new TreeSet<String>(conflicts);
+        var untracked = new TreeSet<String>();
+        for (var file : files.entrySet()) {
+            var known = file.getValue();
+            var entry = entries.get(file.getKey());
+            if (entry == null) {
+                if (!known.ignored) untracked.add(file.getKey());
+                continue;
+            }
+            if (needsCheck(known, entry)) check(repository, file.getKey(), known, entry);
+            if (known.dirty) modified.add(file.getKey());
+        }
+        var missing = new TreeSet<String>();
+        for (var entry : entries.entrySet()) {
+            if (!files.containsKey(entry.getKey()) && entry.getValue().getFileMode() != FileMode.GITLINK) missing.add(entry.getKey());
+        }
+        return new Status(Collections.unmodifiableSet(modified), Collections.unmodifiableSet(untracked),
+                Collections.unmodifiableSet(missing), staged);
+    }
+
+    private void reindex(DirCache dirCache, Repository repository) {
+        var byPath = new TreeMap<String, DirCacheEntry>();
+        conflicts.clear();
+        for (var i = 0; i < dirCache.getEntryCount(); i++) {
+            var entry = dirCache.getEntry(i);
+            if (entry.getStage() != DirCacheEntry.STAGE_0) conflicts.add(entry.getPathString());
+            else byPath.put(entry.getPathString(), entry);
+        }
+        index = dirCache;
+        entries = byPath;
+        indexModified = repository.getIndexFile().lastModified();
+    }
+
+    private static Set<String> stagedPaths(Repository repository, DirCache dirCache, ObjectId headTree) throws IOException {
+        var result = new TreeSet<String>();
+        try (var walk = new TreeWalk(repository)) {
+            if (headTree != null) walk.addTree(headTree);
+            else walk.addTree(new EmptyTreeIterator());
+            walk.addTree(new DirCacheIterator(dirCache));
+            walk.setRecursive(true);
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            while (walk.next()) result.add(walk.getPathString());
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static boolean needsCheck(Known known, DirCacheEntry entry) {
+        return known.checkedAgainst == null || known.racy || !known.checkedAgainst.equals(entry.getObjectId());
+    }
+
+    /** Decides whether a tracked file differs from its index entry, hashing it only when the stat cannot tell. */
+    private void check(Repository repository, String path, Known known, DirCacheEntry entry) {
+        var file = root.resolve(path);
+        var stat = known.stat;
+        if (known.racy) {
+            var fresh = stat(file);
+            if (fresh == null) return; // Deleted since the scan; the next scan drops it.
+            stat = known.stat = fresh;
+        }
+        var entryModified = entry.getLastModifiedInstant().toEpochMilli();
+        if (known.checkedAgainst == null && stat.size() == (entry.getLength() & 0xFFFFFFFFL) && stat.modified() == entryModified
+                && !entry.isSmudged() && entryModified < indexModified - RACY_MILLIS) {
+            known.dirty = false; // The index recorded this exact stat when it hashed the file.
+        } else {
+            try {
+                known.dirty = !hash(file).equals(entry.getObjectId()) && modifiedAfterFilters(repository, path);
+            } catch (IOException e) {
+                logger.debug("Cannot hash {}: {}", file, e.getMessage());
+                known.dirty = true;
+            }
+        }
+        known.checkedAgainst = entry.getObjectId();
+        known.racy = stat.modified() >= System.currentTimeMillis() - RACY_MILLIS;
+    }
+
+    /** Whether the file differs from the index once checkin filters (eol conversion, clean filters) are applied. */
+    private boolean modifiedAfterFilters(Repository repository, String path) throws IOException {
+        try (var walk = new TreeWalk(repository)) {
+            walk.setOperationType(TreeWalk.OperationType.CHECKIN_OP);
+            walk.addTree(new DirCacheIterator(index));
+            walk.addTree(new FileTreeIterator(repository));
+            walk.setFilter(PathFilter.create(path));
+            walk.setRecursive(true);
+            while (walk.next()) {
+                if (!walk.getPathString().equals(path)) continue;
+                var cached = walk.getTree(0, DirCacheIterator.class);
+                var working = walk.getTree(1, WorkingTreeIterator.class);
+                if (cached == null || working == null) return true;
+                working.setDirCacheIterator(walk, 0);
+                return working.isModified(cached.getDirCacheEntry(), true, walk.getObjectReader());
+            }
+        }
+        return true;
+    }
+
+    private ObjectId hash(Path file) throws IOException {
+        hashes++;
+        var bytes = Files.isSymbolicLink(file)
+                ? Files.readSymbolicLink(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8)
+                : Files.readAllBytes(file);
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, bytes);
+    }
+
+    private static Stat stat(Path file) {
+        try {
+            var attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attrs.isDirectory() ? null : stat(attrs);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Stat stat(BasicFileAttributes attrs) {
+        return new Stat(attrs.size(), attrs.lastModifiedTime().toMillis(), attrs.fileKey());
+    }
+
+    /** Records a file's stat, keeping its previous verdict if the stat is unchanged. */
+    private void record(String path, Stat stat, boolean ignored) {
+        var known = files.computeIfAbsent(path, p -> new Known());
+        if (!stat.equals(known.stat)) known.checkedAgainst = null;
+        known.stat = stat;
+        known.ignored = ignored;
+    }
+
+    private void fullScan(Repository repository) throws IOException {
+        ignores.clear();
+        excludes = load(repository.getDirectory().toPath().resolve("info").resolve("exclude"));
+        var seen = new LinkedHashSet<String>();
+        scan(root, false, seen);
+        files.keySet().retainAll(seen);
+        rescan = false;
+    }
+
+    /** Walks a directory, recording every file in {@code seen}; ignored folders are skipped unless they hold tracked files. */
+    private void scan(Path start, boolean startIgnored, Set<String> seen) throws IOException {
+        var ignoredDirs = new ArrayDeque<Boolean>();
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                var path = relative(dir);
+                var parentIgnored = ignoredDirs.isEmpty() ? startIgnored : ignoredDirs.peek();
+                if (!path.isEmpty()) {
+                    if (dir.getFileName().toString().equals(Constants.DOT_GIT)) return FileVisitResult.SKIP_SUBTREE;
+                    var entry = entries.get(path);
+                    if (entry != null && entry.getFileMode() == FileMode.GITLINK) return FileVisitResult.SKIP_SUBTREE;
+                }
+                var ignored = !path.isEmpty() && (parentIgnored || isIgnored(path, true));
+                if (ignored && !hasTrackedUnder(path)) return FileVisitResult.SKIP_SUBTREE;
+                var gitignore = load(dir.resolve(Constants.DOT_GIT_IGNORE));
+                if (gitignore != null) ignores.put(path, gitignore);
+                else ignores.remove(path);
+                register(dir);
+                ignoredDirs.push(ignored);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isDirectory()) return FileVisitResult.CONTINUE;
+                var path = relative(file);
+                var parentIgnored = ignoredDirs.isEmpty() ? startIgnored : ignoredDirs.peek();
+                seen.add(path);
+                record(path, stat(attrs), parentIgnored || isIgnored(path, false));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                ignoredDirs.pop();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Re-checks one path reported by the watcher: a new or changed file, a new directory, or something deleted. */
+    private void refresh(Path file) throws IOException {
+        var path = relative(file);
+        if (path.isEmpty() || path.equals(Constants.DOT_GIT) || path.startsWith(Constants.DOT_GIT + "/")) return;
+        if (file.getFileName().toString().equals(Constants.DOT_GIT_IGNORE)) {
+            rescan = true; // Ignore rules changed; easier to re-walk than to work out what they affect.
+            return;
+        }
+        files.subMap(path + "/", path + "0").clear(); // '0' follows '/', so this drops everything below path.
+        if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+            files.remove(path);
+            scan(file, ancestorsIgnored(path), new LinkedHashSet<>());
+            return;
+        }
+        var stat = stat(file);
+        if (stat == null) files.remove(path);
+        else record(path, stat, ancestorsIgnored(path) || isIgnored(path, false));
+    }
+
+    private boolean ancestorsIgnored(String path) {
+        for (var slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            if (isIgnored(path.substring(0, slash), true)) return true;
+        }
+        return false;
+    }
+
+    private boolean isIgnored(String path, boolean directory) {
+        var dir = path;
+        while (true) {
+            var slash = dir.lastIndexOf('/');
+            dir = slash < 0 ? "" : dir.substring(0, slash);
+            var node = ignores.get(dir);
+            if (node != null) {
+                var result = node.checkIgnored(dir.isEmpty() ? path : path.substring(dir.length() + 1), directory);
+                if (result != null) return result;
+            }
+            if (dir.isEmpty()) break;
+        }
+        if (excludes != null) {
+            var result = excludes.checkIgnored(path, directory);
+            if (result != null) return result;
+        }
+        return false;
+    }
+
+    private boolean hasTrackedUnder(String dir) {
+        var next = entries.ceilingKey(dir + "/");
+        return next != null && next.startsWith(dir + "/");
+    }
+
+    private static IgnoreNode load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        var node = new IgnoreNode();
+        try (var in = Files.newInputStream(file)) {
+            node.parse(file.toString(), in);
+        }
+        return node;
+    }
+
+    private String relative(Path p) {
+        return root.relativize(p).toString().replace('\\', '/');
+    }
+
+    private void register(Path dir) {
+        if (watcher == null) return;
+        try {
+            watched.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY), dir);
+        } catch (IOException e) {
+            logger.warn("Cannot watch {} ({}); falling back to scanning {}", dir, e.getMessage(), root);
+            stopWatching();
+        }
+    }
+
+    /** Paths changed since the last query, or null when a full scan is needed instead. */
+    private Set<Path> drainEvents() {
+        var changed = new LinkedHashSet<Path>();
+        WatchKey key;
+        while (watcher != null && (key = watcher.poll()) != null) {
+            var dir = watched.get(key);
+            for (var event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) rescan = true;
+                else changed.add(dir.resolve((Path) event.context()));
+            }
+            if (!key.reset()) watched.remove(key);
+        }
+        return watcher == null ? null : changed;
+    }
+
+    private void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            logger.debug("Error closing watch service for {}: {}", root, e.getMessage());
+        }
+        watcher = null;
+        watched.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        stopWatching();
+    }
+}
@@ -0,0 +1,84 @@
+package dumb.jaider.app;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dumb.jaider.agents.Agent;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.tools.StandardTools;
+import dumb.jaider.ui.DiffDocument;
+import dumb.jaider.ui.DiffInteractionResult;
+import dumb.jaider.ui.UI;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ToolLifecycleManagerTest {
+
+    @TempDir
+    Path projectDir;
+
+    @Mock
+    private App app;
+    @Mock
+    private AgentService agentService;
+    @Mock
+    private Agent agent;
+    @Mock
+    private UI ui;
+
+    @Test
+    void applyDiffReviewsTheDiffAndAppliesOnlyTheAcceptedHunks() throws Exception {
+        var lines = new StringBuilder();
+        for (var i = 1; i <= 20; i++) lines.append("line").append(i).append('\n');
+        var file = projectDir.resolve("A.txt");
+        Files.writeString(file, lines);
+        var model = new JaiderModel(projectDir, "test");
+        model.files.add(file);
+        var diff = """
+                --- a/A.txt
+                +++ b/A.txt
+                @@ -1,3 +1,3 @@
+                -line1
+                +first
+                 line2
+                 line3
+                @@ -18,3 +18,3 @@
+                 line18
+                 line19
+                -line20
+                +last
+                """;
+        var request = ToolExecutionRequest.builder().id("1").name("applyDiff")
+                .arguments(new JSONObject().put("diff", diff).toString()).build();
+        when(app.getUi()).thenReturn(ui);
+        when(agentService.getCurrentAgent()).thenReturn(agent);
+        when(agent.tools()).thenReturn(Set.of(new StandardTools(model, null, null)));
+        when(ui.diffInteraction(anyString())).thenAnswer(invocation -> {
+            // What the diff dialog does when the user rejects the second hunk and accepts.
+            var document = new DiffDocument(invocation.getArgument(0));
+            assertEquals(2, document.hunkCount(), "The reviewer must get the diff, not the tool call's JSON");
+            document.setAccepted(1, false);
+            return CompletableFuture.completedFuture(new DiffInteractionResult(true, true, document.acceptedDiff()));
+        });
+
+        new ToolLifecycleManager(app, agentService).handleToolExecution(request);
+
+        verify(app).finishTurnPublic(eq(request), startsWith("Diff applied"));
+        var content = Files.readString(file);
+        assertTrue(content.startsWith("first\nline2\n"), content);
+        assertTrue(content.endsWith("line19\nline20\n"), content);
+    }
+}
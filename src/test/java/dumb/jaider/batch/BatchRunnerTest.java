@@ -0,0 +1,190 @@
+package dumb.jaider.batch;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dumb.jaider.config.Config;
+import dumb.jaider.server.SessionRegistry;
+import dumb.jaider.vcs.SandboxManager;
+import org.eclipse.jgit.api.Git;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private final ChatModel fakeModel = new ChatModel() {
+        @Override
+        public ChatResponse doChat(ChatRequest request) {
+            return ChatResponse.builder()
+                    .aiMessage(AiMessage.from("1. Inspect\n2. Change"))
+                    .tokenUsage(new TokenUsage(7, 3))
+                    .build();
+        }
+    };
+
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(projectDir.resolve("A.java"), "class A {}");
+        Files.createDirectories(projectDir.resolve("target"));
+        Files.writeString(projectDir.resolve("target/ignored.class"), "x");
+        config = mock(Config.class);
+        when(config.getRunCommand()).thenReturn("");
+    }
+
+    private BatchRunner runner(AutoAnswerPolicy policy) {
+        var registry = new SessionRegistry(config, fakeModel, null, 2, 20);
+        return new BatchRunner(registry, projectDir, policy, 2, true);
+    }
+
+    @Test
+    void readTasks_acceptsJsonAndPlainLines() throws Exception {
+        var file = projectDir.resolve("tasks.jsonl");
+        Files.writeString(file, """
+                # comment
+                {"id": "nulls", "prompt": "Add null checks to A", "mode": "ask", "files": ["A.java"], "plan": true}
+
+                Rename A to B
+                """);
+
+        var tasks = BatchRunner.readTasks(file);
+
+        assertEquals(2, tasks.size());
+        assertEquals(new BatchTask("nulls", "Add null checks to A", "ask", List.of("A.java"), true), tasks.get(0));
+        assertEquals("task-4", tasks.get(1).id());
+        assertEquals("coder", tasks.get(1).mode());
+    }
+
+    @Test
+    void readTasks_rejectsEscapingAndDuplicateIds() throws Exception {
+        var file = projectDir.resolve("tasks.jsonl");
+        for (var id : List.of("../x", "/tmp/x", "a/b", "..")) {
+            Files.writeString(file, new JSONObject().put("id", id).put("prompt", "p").toString());
+            assertThrows(IllegalArgumentException.class, () -> BatchRunner.readTasks(file), id);
+        }
+        Files.writeString(file, """
+                {"id": "same", "prompt": "one"}
+                {"id": "same", "prompt": "two"}
+                """);
+        var e = assertThrows(IllegalArgumentException.class, () -> BatchRunner.readTasks(file));
+        assertTrue(e.getMessage().contains("duplicate task id 'same'"), e.getMessage());
+    }
+
+    @Test
+    void run_writesOneReportLinePerTaskWithUsage() throws Exception {
+        var tasks = List.of(
+                new BatchTask("t1", "Add null checks", "ask", List.of("A.java"), false),
+                new BatchTask("t2", "Add logging", "ask", List.of(), false));
+
+        var summary = runner(AutoAnswerPolicy.ACCEPT_ALL).run(tasks);
+
+        var lines = Files.readAllLines(Path.of(summary.getString("report")));
+        assertEquals(2, lines.size());
+        for (var line : lines) {
+            var row = new JSONObject(line);
+            assertEquals(1, row.getLong("llmCalls"));
+            assertEquals(7, row.getLong("inputTokens"));
+            assertTrue(row.has("latencyMs"));
+            assertTrue(row.has("validation"));
+            assertTrue(Files.exists(Path.of(row.getString("workDir")).resolve("A.java")));
+            assertFalse(Files.exists(Path.of(row.getString("workDir")).resolve("target")));
+        }
+        assertEquals(2, summary.getInt("tasks"));
+        assertEquals(14, summary.getLong("inputTokens"));
+    }
+
+    @Test
+    void run_usesPooledSandboxesInGitProjects() throws Exception {
+        try (var git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(projectDir.resolve(".gitignore"), "target/\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("init").setAuthor("Test", "test@example.com").call();
+        }
+        Files.writeString(projectDir.resolve("A.java"), "class A { int uncommitted; }");
+        var registry = new SessionRegistry(config, fakeModel, null, 1, 20);
+        var runner = new BatchRunner(registry, projectDir, AutoAnswerPolicy.ACCEPT_ALL, 1, false, true);
+
+        var summary = runner.run(List.of(new BatchTask("s1", "Explain A", "ask", List.of("A.java"), false),
+                new BatchTask("s2", "Explain A again", "ask", List.of(), false)));
+
+        var rows = Files.readAllLines(Path.of(summary.getString("report"))).stream().map(JSONObject::new).toList();
+        assertEquals(2, rows.size());
+        for (var row : rows) {
+            var workDir = Path.of(row.getString("workDir"));
+            assertTrue(workDir.startsWith(projectDir.resolve(SandboxManager.DIR)), workDir::toString);
+            assertEquals("class A { int uncommitted; }", Files.readString(workDir.resolve("A.java")));
+            assertTrue(row.getJSONArray("changedFiles").isEmpty());
+            assertEquals(1, row.getLong("llmCalls"));
+        }
+        assertEquals(rows.get(0).getString("workDir"), rows.get(1).getString("workDir"), "The sandbox goes back to the pool");
+        SandboxManager.close(projectDir);
+    }
+
+    @Test
+    void run_promotesTheAttemptThatPassesValidation() throws Exception {
+        try (var git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(projectDir.resolve(".gitignore"), "target/\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("init").setAuthor("Test", "test@example.com").call();
+        }
+        // The first attempt to ask writes a version that fails validation, the second one that passes.
+        var versions = new AtomicInteger();
+        var writer = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                if (request.messages().getLast() instanceof ToolExecutionResultMessage) {
+                    return ChatResponse.builder().aiMessage(AiMessage.from("Done")).tokenUsage(new TokenUsage(7, 3)).build();
+                }
+                var content = "class A { /* " + (versions.getAndIncrement() == 0 ? "bad" : "good") + " */ }";
+                var call = ToolExecutionRequest.builder().id("w").name("writeFile")
+                        .arguments(new JSONObject().put("arg0", "A.java").put("arg1", content).toString()).build();
+                return ChatResponse.builder().aiMessage(AiMessage.from(call)).tokenUsage(new TokenUsage(7, 3)).build();
+            }
+        };
+        when(config.getRunCommand()).thenReturn("grep -q good A.java");
+        var registry = new SessionRegistry(config, writer, null, 2, 20);
+        var runner = new BatchRunner(registry, projectDir, AutoAnswerPolicy.ACCEPT_ALL, 1, false, true, true);
+
+        var summary = runner.run(List.of(new BatchTask("fix", "Fix A", "coder", List.of("A.java"), false, 2)));
+
+        var row = new JSONObject(Files.readAllLines(Path.of(summary.getString("report"))).getFirst());
+        assertEquals(1, summary.getInt("succeeded"), row::toString);
+        assertEquals(2, row.getJSONArray("attempts").length());
+        assertEquals("validation-failed", row.getJSONArray("attempts").getJSONObject(1 - row.getInt("winner")).getString("status"));
+        assertEquals(List.of("A.java"), row.getJSONArray("promoted").toList());
+        assertEquals(28, row.getLong("inputTokens"));
+        assertEquals("class A { /* good */ }", Files.readString(projectDir.resolve("A.java")));
+        SandboxManager.close(projectDir);
+    }
+
+    @Test
+    void runTask_rejectedPlanStopsBeforeChanges() throws Exception {
+        var task = new BatchTask("p1", "Refactor A", "ask", List.of(), true);
+
+        var row = runner(new AutoAnswerPolicy(true, false, true)).runTask(task, projectDir.resolve(".jaider/batch/copy"));
+
+        assertEquals("plan-rejected", row.getString("status"));
+        assertEquals(1, row.getLong("llmCalls"));
+        assertEquals(1, row.getJSONObject("prompts").getInt("plansRejected"));
+        assertFalse(row.has("validation"));
+    }
+}
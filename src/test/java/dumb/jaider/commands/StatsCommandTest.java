@@ -0,0 +1,62 @@
+package dumb.jaider.commands;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dumb.jaider.llm.LlmMetrics;
+import dumb.jaider.llm.MeteredChatModel;
+import dumb.jaider.model.JaiderModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsCommandTest {
+
+    @Mock
+    private AppContext appContext;
+    @Mock
+    private JaiderModel model;
+
+    private String loggedText() {
+        var captor = ArgumentCaptor.forClass(AiMessage.class);
+        verify(model).addLog(captor.capture());
+        return captor.getValue().text();
+    }
+
+    @Test
+    void reportsWhenNothingRecorded() {
+        when(appContext.model()).thenReturn(model);
+
+        new StatsCommand(new LlmMetrics()).execute("", appContext);
+
+        assertTrue(loggedText().contains("No LLM calls recorded yet."));
+    }
+
+    @Test
+    void summarizesEachProviderAndModel() {
+        when(appContext.model()).thenReturn(model);
+        var metrics = new LlmMetrics();
+        var chat = new MeteredChatModel(new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                return ChatResponse.builder().aiMessage(AiMessage.from("ok")).tokenUsage(new TokenUsage(10, 5)).build();
+            }
+        }, metrics.series("chat", "ollama", "llama3"));
+        chat.chat(ChatRequest.builder().messages(UserMessage.from("hi")).build());
+
+        new StatsCommand(metrics).execute("", appContext);
+
+        var text = loggedText();
+        assertTrue(text.contains("chat ollama/llama3: 1 requests, 0 errors"), text);
+        assertTrue(text.contains("tokens in 10 / out 5"), text);
+    }
+}
@@ -1,58 +1,92 @@
 package dumb.jaider.commands;
 
+import dev.langchain4j.data.message.AiMessage;
 import dumb.jaider.model.JaiderModel;
+import dumb.jaider.tools.StandardTools;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.mockito.Mockito.verify;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class UndoCommandTest {
 
+    @TempDir
+    Path projectDir;
+
     @Mock
     private AppContext appContext;
 
-    @Mock
     private JaiderModel model;
-
-    @InjectMocks
-    private UndoCommand undoCommand;
+    private StandardTools tools;
 
     @BeforeEach
     void setUp() {
-        when(appContext.model()).thenReturn(model); // Corrected
+        model = new JaiderModel(projectDir, "test");
+        when(appContext.model()).thenReturn(model);
+        tools = new StandardTools(model, null, null);
+    }
+
+    private String lastLog() {
+        return ((AiMessage) model.log.getLast()).text();
+    }
+
+    @Test
+    void execute_withNothingToUndo_shouldSaySo() {
+        new UndoCommand().execute(null, appContext);
+
+        assertEquals("[Jaider] No change to undo.", lastLog());
+    }
+
+    @Test
+    void execute_withInvalidCount_shouldLogUsage() {
+        new UndoCommand().execute("some/file/path.txt", appContext);
+
+        assertTrue(lastLog().startsWith("[Jaider] Usage: /undo [N]"), lastLog());
     }
 
     @Test
-    void execute_shouldLogDisabledMessage() {
-        undoCommand.execute(null, appContext); // Corrected // Argument is not currently used by UndoCommand
+    void undoesSeveralStepsAndRedoesThem() throws Exception {
+        var file = projectDir.resolve("a.txt");
+        tools.writeFile("a.txt", "one");
+        tools.writeFile("a.txt", "two");
+        tools.writeFile("b.txt", "new");
+        Files.writeString(projectDir.resolve("untouched.txt"), "mine");
+
+        new UndoCommand().execute("2", appContext);
+
+        assertTrue(lastLog().startsWith("[Jaider] Undid 2 edits:"), lastLog());
+        assertEquals("one", Files.readString(file));
+        assertFalse(Files.exists(projectDir.resolve("b.txt")));
+        assertEquals("mine", Files.readString(projectDir.resolve("untouched.txt")));
 
-        var messageCaptor = ArgumentCaptor.forClass(dev.langchain4j.data.message.AiMessage.class); // Specific to AiMessage
-        verify(model).addLog(messageCaptor.capture()); // Corrected
+        new RedoCommand().execute("", appContext);
+        assertEquals("two", Files.readString(file));
+        assertFalse(Files.exists(projectDir.resolve("b.txt")));
 
-        var capturedMessage = messageCaptor.getValue().text(); // AiMessage has .text()
-        assertNotNull(capturedMessage);
-        assertEquals("[UndoCommand] Error: Undo functionality is temporarily disabled due to library issues.", capturedMessage);
+        new RedoCommand().execute("", appContext);
+        assertEquals("new", Files.readString(projectDir.resolve("b.txt")));
+        assertTrue(model.files.contains(projectDir.resolve("b.txt")));
     }
 
     @Test
-    void execute_withArguments_shouldStillLogDisabledMessage() {
-        // Verify that arguments don't change the "disabled" message.
-        undoCommand.execute("some/file/path.txt", appContext); // Corrected
+    void refusesToOverwriteFileChangedOutsideJaider() throws Exception {
+        tools.writeFile("a.txt", "one");
+        tools.writeFile("a.txt", "two");
+        Files.writeString(projectDir.resolve("a.txt"), "edited by hand");
 
-        var messageCaptor = ArgumentCaptor.forClass(dev.langchain4j.data.message.AiMessage.class); // Specific to AiMessage
-        verify(model).addLog(messageCaptor.capture()); // Corrected
+        new UndoCommand().execute("", appContext);
 
-        var capturedMessage = messageCaptor.getValue().text(); // AiMessage has .text()
-        assertNotNull(capturedMessage);
-        assertEquals("[UndoCommand] Error: Undo functionality is temporarily disabled due to library issues.", capturedMessage);
+        assertTrue(lastLog().startsWith("[Error] Cannot undo edit"), lastLog());
+        assertTrue(lastLog().contains("a.txt"));
+        assertEquals("edited by hand", Files.readString(projectDir.resolve("a.txt")));
     }
 }
@@ -0,0 +1,93 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatchingEmbeddingModelTest {
+
+    /** Encodes each segment's index in its vector so ordering can be checked. */
+    private static class RecordingModel implements EmbeddingModel {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger failuresLeft;
+
+        RecordingModel(int failures) {
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                batchSizes.add(segments.size());
+                if (failuresLeft.getAndDecrement() > 0) throw new RuntimeException("server overloaded");
+                return Response.from(segments.stream()
+                        .map(s -> new Embedding(new float[]{Float.parseFloat(s.text().substring(0, s.text().indexOf(' ')))}))
+                        .toList());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<TextSegment> segments(int count) {
+        // ~100 estimated tokens each
+        return IntStream.range(0, count).mapToObj(i -> TextSegment.from(i + " " + "x".repeat(400))).toList();
+    }
+
+    private static AdaptiveBatchingEmbeddingModel.Settings settings() {
+        return new AdaptiveBatchingEmbeddingModel.Settings(1000, 200, 4000, 2, 4, 10_000, 3);
+    }
+
+    @Test
+    void splitsIntoTokenSizedBatchesAndKeepsOrder() {
+        var delegate = new RecordingModel(0);
+        try (var model = new AdaptiveBatchingEmbeddingModel(delegate, settings())) {
+            var result = model.embedAll(segments(100)).content();
+
+            assertEquals(100, result.size());
+            for (var i = 0; i < 100; i++) assertEquals(i, result.get(i).vector()[0], 0.0f);
+            assertTrue(delegate.batchSizes.size() > 1, "Work should be split into several batches");
+            assertTrue(delegate.batchSizes.stream().allMatch(n -> n <= 4000 / 101 + 1), "Batches must respect the max token budget");
+            assertTrue(delegate.maxInFlight.get() <= 4);
+            assertTrue(model.lastSegmentsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    void retriesOnlyFailedBatches() {
+        var delegate = new RecordingModel(1);
+        try (var model = new AdaptiveBatchingEmbeddingModel(delegate, new AdaptiveBatchingEmbeddingModel.Settings(1000, 200, 4000, 1, 1, 10_000, 3))) {
+            var result = model.embedAll(segments(20)).content();
+
+            assertEquals(20, result.size());
+            for (var i = 0; i < 20; i++) assertEquals(i, result.get(i).vector()[0], 0.0f);
+            var embedded = delegate.batchSizes.stream().mapToInt(Integer::intValue).sum();
+            assertEquals(20 + delegate.batchSizes.getFirst(), embedded, "Only the failed first batch should be sent twice");
+        }
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        var delegate = new RecordingModel(Integer.MAX_VALUE);
+        try (var model = new AdaptiveBatchingEmbeddingModel(delegate, new AdaptiveBatchingEmbeddingModel.Settings(1000, 200, 4000, 1, 1, 10_000, 2))) {
+            var e = assertThrows(RuntimeException.class, () -> model.embedAll(segments(1)));
+            assertTrue(e.getMessage().contains("after 3 attempts"), e.getMessage());
+        }
+    }
+}
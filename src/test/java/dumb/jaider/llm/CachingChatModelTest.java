@@ -0,0 +1,113 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingChatModelTest {
+
+    private static final String ENDPOINT = "ollama@http://localhost:11434";
+
+    @TempDir
+    Path cacheDir;
+
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+
+    private final ChatModel delegate = new ChatModel() {
+        @Override
+        public ChatResponse doChat(ChatRequest request) {
+            var n = delegateCalls.incrementAndGet();
+            return ChatResponse.builder()
+                    .aiMessage(AiMessage.from("answer " + n, java.util.List.of(ToolExecutionRequest.builder().id("t" + n).name("readFile").arguments("{}").build())))
+                    .tokenUsage(new TokenUsage(11, 4))
+                    .finishReason(FinishReason.TOOL_EXECUTION)
+                    .build();
+        }
+    };
+
+    private static ChatRequest request(String text, ToolSpecification... tools) {
+        return ChatRequest.builder().messages(UserMessage.from(text)).toolSpecifications(tools).build();
+    }
+
+    @Test
+    void identicalRequestIsServedFromCache() {
+        var cache = new CachingChatModel(delegate, ENDPOINT, cacheDir, 10, false);
+
+        var first = cache.chat(request("hello"));
+        var second = cache.chat(request("hello"));
+
+        assertEquals(1, delegateCalls.get());
+        assertEquals(first.aiMessage(), second.aiMessage());
+        assertEquals(1, cache.hits());
+        cache.chat(request("different"));
+        assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    void toolOrderDoesNotChangeKey() {
+        var cache = new CachingChatModel(delegate, ENDPOINT, cacheDir, 10, false);
+        var a = ToolSpecification.builder().name("a").description("A").build();
+        var b = ToolSpecification.builder().name("b").description("B").build();
+
+        assertEquals(cache.key(request("x", a, b)), cache.key(request("x", b, a)));
+        assertNotEquals(cache.key(request("x", a)), cache.key(request("x", a, b)));
+    }
+
+    @Test
+    void endpointsServingTheSameModelDoNotShareEntries() {
+        new CachingChatModel(delegate, ENDPOINT, cacheDir, 10, false).chat(request("hello"));
+
+        var other = new CachingChatModel(delegate, "genericopenai@http://gpu-box:8000/v1", cacheDir, 10, false);
+        other.chat(request("hello"));
+
+        assertEquals(2, delegateCalls.get());
+        assertEquals(0, other.hits());
+    }
+
+    @Test
+    void persistedEntriesReplayOfflineAfterRestart() {
+        new CachingChatModel(delegate, ENDPOINT, cacheDir, 10, false).chat(request("persist me"));
+
+        var reloaded = new CachingChatModel(delegate, ENDPOINT, cacheDir, 10, true);
+        var response = reloaded.chat(request("persist me"));
+
+        assertEquals(1, delegateCalls.get());
+        assertEquals("answer 1", response.aiMessage().text());
+        assertEquals("readFile", response.aiMessage().toolExecutionRequests().getFirst().name());
+        assertEquals(11, response.tokenUsage().inputTokenCount());
+        assertEquals(FinishReason.TOOL_EXECUTION, response.finishReason());
+        assertThrows(IllegalStateException.class, () -> reloaded.chat(request("never seen")));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedAndFileIsCompacted() throws Exception {
+        var cache = new CachingChatModel(delegate, ENDPOINT, cacheDir, 2, false);
+        cache.chat(request("one"));
+        cache.chat(request("two"));
+        cache.chat(request("one")); // touch "one" so "two" is the eldest
+        cache.chat(request("three"));
+        cache.chat(request("four"));
+        cache.chat(request("five")); // fifth append exceeds 2 * maxEntries and triggers compaction
+
+        assertEquals(2, cache.size());
+        assertEquals(2, Files.readAllLines(cacheDir.resolve(CachingChatModel.CACHE_FILE)).size());
+
+        var reloaded = new CachingChatModel(delegate, ENDPOINT, cacheDir, 2, true);
+        assertEquals("answer 5", reloaded.chat(request("five")).aiMessage().text());
+        assertThrows(IllegalStateException.class, () -> reloaded.chat(request("two")));
+    }
+}
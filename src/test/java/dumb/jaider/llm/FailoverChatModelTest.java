@@ -0,0 +1,100 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailoverChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder().messages(UserMessage.from("hi")).build();
+
+    private static ChatModel model(String answer, long delayMillis, boolean fail, AtomicInteger calls) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                calls.incrementAndGet();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("cancelled");
+                }
+                if (fail) throw new RuntimeException(answer + " is down");
+                return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+            }
+        };
+    }
+
+    private static FailoverChatModel.Settings settings(boolean hedging, long hedgeDelay, long timeout) {
+        return new FailoverChatModel.Settings(hedging, hedgeDelay, 10, timeout, 2, 60_000);
+    }
+
+    @Test
+    void failsOverToNextProviderOnError() {
+        var primaryCalls = new AtomicInteger();
+        var secondaryCalls = new AtomicInteger();
+        try (var failover = new FailoverChatModel(List.of(
+                Map.entry("primary", model("primary", 0, true, primaryCalls)),
+                Map.entry("secondary", model("secondary", 0, false, secondaryCalls))), settings(false, 1000, 5000))) {
+
+            assertEquals("secondary", failover.chat(REQUEST).aiMessage().text());
+            assertEquals(1, failover.stats().getJSONObject("providers").getJSONObject("primary").getLong("failures"));
+        }
+    }
+
+    @Test
+    void breakerSkipsProviderAfterRepeatedFailures() {
+        var primaryCalls = new AtomicInteger();
+        var secondaryCalls = new AtomicInteger();
+        try (var failover = new FailoverChatModel(List.of(
+                Map.entry("primary", model("primary", 0, true, primaryCalls)),
+                Map.entry("secondary", model("secondary", 0, false, secondaryCalls))), settings(false, 1000, 5000))) {
+
+            for (var i = 0; i < 5; i++) failover.chat(REQUEST);
+
+            assertEquals(2, primaryCalls.get(), "Breaker should open after two failures");
+            assertEquals(5, secondaryCalls.get());
+            assertEquals("OPEN", failover.stats().getJSONObject("providers").getJSONObject("primary").getString("breaker"));
+        }
+    }
+
+    @Test
+    void hedgesSlowPrimaryAndTakesFirstResponse() {
+        var primaryCalls = new AtomicInteger();
+        var secondaryCalls = new AtomicInteger();
+        try (var failover = new FailoverChatModel(List.of(
+                Map.entry("primary", model("primary", 2000, false, primaryCalls)),
+                Map.entry("secondary", model("secondary", 10, false, secondaryCalls))), settings(true, 50, 5000))) {
+
+            var start = System.nanoTime();
+            assertEquals("secondary", failover.chat(REQUEST).aiMessage().text());
+            assertTrue(System.nanoTime() - start < 1_500_000_000L, "Hedged request should not wait for the slow primary");
+
+            var stats = failover.stats();
+            assertEquals(1, stats.getLong("hedgesFired"));
+            assertEquals(1, stats.getJSONObject("providers").getJSONObject("secondary").getLong("hedgeWins"));
+        }
+    }
+
+    @Test
+    void timeoutCountsAsFailureAndFailsOver() {
+        var primaryCalls = new AtomicInteger();
+        var secondaryCalls = new AtomicInteger();
+        try (var failover = new FailoverChatModel(List.of(
+                Map.entry("primary", model("primary", 2000, false, primaryCalls)),
+                Map.entry("secondary", model("secondary", 0, false, secondaryCalls))), settings(false, 1000, 100))) {
+
+            assertEquals("secondary", failover.chat(REQUEST).aiMessage().text());
+            assertEquals(1, failover.stats().getJSONObject("providers").getJSONObject("primary").getLong("timeouts"));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final ChatRequest REQUEST = ChatRequest.builder().messages(UserMessage.from("hi")).build();
+
+    private static ChatModel model(boolean fail) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                if (fail) throw new RuntimeException("rate limited");
+                return ChatResponse.builder().aiMessage(AiMessage.from("ok")).tokenUsage(new TokenUsage(100, 20)).build();
+            }
+        };
+    }
+
+    private static JSONObject only(LlmMetrics metrics) {
+        var series = metrics.snapshot().getJSONArray("series");
+        assertEquals(1, series.length());
+        return series.getJSONObject(0);
+    }
+
+    @Test
+    void recordsRequestsTokensAndErrorsPerProviderAndModel() {
+        var metrics = new LlmMetrics();
+        var series = metrics.series("chat", "Ollama", "llama3");
+        var ok = new MeteredChatModel(model(false), series);
+        var failing = new MeteredChatModel(model(true), series);
+
+        ok.chat(REQUEST);
+        ok.chat(REQUEST);
+        ok.chat(REQUEST);
+        assertThrows(RuntimeException.class, () -> failing.chat(REQUEST));
+
+        var json = only(metrics);
+        assertEquals("ollama", json.getString("provider"));
+        assertEquals("llama3", json.getString("model"));
+        assertEquals(4, json.getLong("requests"));
+        assertEquals(1, json.getLong("errors"));
+        assertEquals(0.25, json.getDouble("errorRate"), 1e-9);
+        assertEquals(300, json.getLong("inputTokens"));
+        assertEquals(60, json.getLong("outputTokens"));
+        assertEquals(4, json.getJSONObject("latencyHistogram").getLong("le100ms"));
+    }
+
+    @Test
+    void countsEmbeddedSegments() {
+        var metrics = new LlmMetrics();
+        EmbeddingModel fake = segments -> Response.from(segments.stream().map(s -> new Embedding(new float[]{1f})).toList());
+        var metered = new MeteredEmbeddingModel(fake, metrics.series("embedding", "openai", "text-embedding-ada-002"));
+
+        metered.embedAll(List.of(TextSegment.from("a"), TextSegment.from("b")));
+
+        var json = only(metrics);
+        assertEquals(1, json.getLong("requests"));
+        assertEquals(2, json.getLong("items"));
+    }
+
+    @Test
+    void flushWritesSnapshotWithComponentStats() throws Exception {
+        var metrics = new LlmMetrics();
+        new MeteredChatModel(model(false), metrics.series("chat", "openai", "gpt-4o")).chat(REQUEST);
+        metrics.registerStats("failover", () -> new JSONObject().put("requests", 1));
+
+        var file = metrics.flush(tempDir.resolve(".jaider/metrics"));
+
+        var json = new JSONObject(Files.readString(file));
+        assertEquals(1, json.getJSONArray("series").length());
+        assertEquals(1, json.getJSONObject("components").getJSONObject("failover").getInt("requests"));
+        assertFalse(Files.exists(file.resolveSibling(LlmMetrics.FILE_NAME + ".tmp")));
+    }
+
+    @Test
+    void projectsKeepSeparateMetricsAndFlushDirectories() throws Exception {
+        var a = LlmMetrics.of(tempDir.resolve("a"));
+        var b = LlmMetrics.of(tempDir.resolve("b"));
+        assertSame(a, LlmMetrics.of(tempDir.resolve("a/../a")));
+        assertNotSame(a, b);
+        assertNotEquals(a.id(), b.id());
+
+        new MeteredChatModel(model(false), a.series("chat", "openai", "gpt-4o")).chat(REQUEST);
+        a.startFlushing(tempDir.resolve("a/metrics"), 0);
+        a.startFlushing(tempDir.resolve("b/metrics"), 0); // Ignored: the directory is fixed by the first call.
+        a.flushQuietly();
+        b.flushQuietly();
+
+        assertTrue(Files.exists(tempDir.resolve("a/metrics").resolve(LlmMetrics.FILE_NAME)));
+        assertFalse(Files.exists(tempDir.resolve("b/metrics")));
+        assertTrue(b.snapshot().getJSONArray("series").isEmpty());
+    }
+}
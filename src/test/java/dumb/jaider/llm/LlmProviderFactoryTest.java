@@ -6,11 +6,18 @@ import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import dumb.jaider.config.Config;
 import dumb.jaider.model.JaiderModel;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
@@ -193,4 +200,57 @@ class LlmProviderFactoryTest {
         assertNotNull(embeddingModel);
         assertInstanceOf(NoOpEmbeddingModel.class, embeddingModel, "Should fall back to NoOpEmbeddingModel on exception.");
     }
+
+    @Test
+    void testCreateChatModel_SameSettingsAcrossFactories_ShouldReuseClient() {
+        var registry = new LlmClientRegistry();
+        when(mockConfig.getLlm()).thenReturn("openai");
+        when(mockConfig.getOpenaiApiKey()).thenReturn("test-api-key");
+        when(mockConfig.getOpenaiModelName()).thenReturn("gpt-4o-mini");
+
+        var first = new LlmProviderFactory(mockConfig, mockJaiderModel, registry).createChatModel();
+        var second = new LlmProviderFactory(mockConfig, mockJaiderModel, registry).createChatModel();
+        assertSame(first, second, "Unchanged settings should reuse the warm client");
+        assertEquals(1, registry.builtCount());
+        assertEquals(1, registry.reusedCount());
+
+        when(mockConfig.getOpenaiModelName()).thenReturn("gpt-4o");
+        var third = new LlmProviderFactory(mockConfig, mockJaiderModel, registry).createChatModel();
+        assertNotSame(first, third, "A different model name must build a new client");
+
+        when(mockConfig.getOpenaiApiKey()).thenReturn("other-key");
+        var fourth = new LlmProviderFactory(mockConfig, mockJaiderModel, registry).createChatModel();
+        assertNotSame(third, fourth, "A different API key must build a new client");
+        assertEquals(3, registry.builtCount());
+    }
+
+    @Test
+    void testCreateChatModel_CachedClientIsNotSharedAcrossProjects(@TempDir Path projectA, @TempDir Path projectB) {
+        var registry = new LlmClientRegistry();
+        when(mockConfig.getLlm()).thenReturn("openai");
+        when(mockConfig.getOpenaiApiKey()).thenReturn("test-api-key");
+        when(mockConfig.getOpenaiModelName()).thenReturn("gpt-4o-mini");
+        when(mockConfig.getSection("llmCache")).thenReturn(new JSONObject().put("enabled", true));
+
+        var a = new LlmProviderFactory(mockConfig, new JaiderModel(projectA, "a"), registry).createChatModel();
+        var b = new LlmProviderFactory(mockConfig, new JaiderModel(projectB, "b"), registry).createChatModel();
+        var againA = new LlmProviderFactory(mockConfig, new JaiderModel(projectA, "a"), registry).createChatModel();
+
+        assertInstanceOf(CachingChatModel.class, a);
+        assertNotSame(a, b, "Each project caches responses in its own directory");
+        assertSame(a, againA);
+    }
+
+    @Test
+    void testUnreferencedRoutingTargets_OldAgentWiringIsReported() {
+        when(mockConfig.getSection("modelRouting")).thenReturn(new JSONObject().put("enabled", true)
+                .put("bindings", new JSONObject().put("coder", "auto").put("ask", "small").put("summarize", "small")));
+        var oldAgent = new JSONObject().put("id", "coderAgent").put("constructorArgs", new JSONArray().put(new JSONObject().put("ref", "appChatModel")));
+        var newAgent = new JSONObject().put("id", "askAgent").put("constructorArgs", new JSONArray().put(new JSONObject().put("ref", "askChatModel")));
+
+        assertEquals(List.of("coder"), llmProviderFactory.unreferencedRoutingTargets(Map.of("coderAgent", oldAgent, "askAgent", newAgent)));
+
+        when(mockConfig.getSection("modelRouting")).thenReturn(new JSONObject());
+        assertTrue(llmProviderFactory.unreferencedRoutingTargets(Map.of("coderAgent", oldAgent)).isEmpty());
+    }
 }
@@ -0,0 +1,328 @@
+package dumb.jaider.llm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-process server for the parts of the OpenAI HTTP API that {@code LlmProviderFactory} uses for the
+ * {@code genericOpenai} provider: {@code /v1/chat/completions} (plain and {@code stream: true} SSE) and
+ * {@code /v1/embeddings}. Point {@code genericOpenaiBaseUrl} at {@link #baseUrl()}.
+ * <p>
+ * Chat replies come from a FIFO script ({@link #enqueue}); when it is empty, the fallback function is asked with
+ * the parsed request body, so load tests can answer indefinitely. Every call first sleeps for a delay drawn from the
+ * configured {@link Latency}, and streamed replies additionally pause between chunks.
+ */
+public class MockOpenAiServer implements AutoCloseable {
+
+    /** Simulated model latency in milliseconds. */
+    @FunctionalInterface
+    public interface Latency {
+        long nextMillis(Random random);
+
+        static Latency none() {
+            return r -> 0;
+        }
+
+        static Latency fixed(long millis) {
+            return r -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return r -> minMillis + (long) (r.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /** Long-tailed, like real LLM endpoints: {@code median * exp(sigma * N(0,1))}. */
+        static Latency logNormal(long medianMillis, double sigma) {
+            return r -> Math.round(medianMillis * Math.exp(sigma * r.nextGaussian()));
+        }
+    }
+
+    /** One scripted assistant message: text, tool calls, or both. */
+    public record Reply(String text, List<ToolCall> toolCalls) {
+        public static Reply text(String text) {
+            return new Reply(text, List.of());
+        }
+
+        public static Reply toolCall(String name, JSONObject arguments) {
+            return new Reply(null, List.of(new ToolCall(name, arguments.toString())));
+        }
+
+        /** Raw arguments, e.g. deliberately malformed JSON. */
+        public static Reply toolCall(String name, String arguments) {
+            return new Reply(null, List.of(new ToolCall(name, arguments)));
+        }
+    }
+
+    public record ToolCall(String name, String arguments) {
+    }
+
+    private final HttpServer server;
+    private final ConcurrentLinkedQueue<Reply> script = new ConcurrentLinkedQueue<>();
+    private final List<JSONObject> chatRequests = Collections.synchronizedList(new ArrayList<>());
+    private final Random random;
+    private final AtomicLong callIds = new AtomicLong();
+    private final AtomicLong serverNanos = new AtomicLong();
+    private final AtomicLong embeddingCalls = new AtomicLong();
+    private volatile Function<JSONObject, Reply> fallback = request -> Reply.text("OK");
+    private volatile Latency latency = Latency.none();
+    private volatile long chunkDelayMillis;
+    private volatile int chunkSize = 8;
+    private volatile int embeddingDimension = 8;
+
+    public MockOpenAiServer() throws IOException {
+        this(42);
+    }
+
+    public MockOpenAiServer(long seed) throws IOException {
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", this::handleChat);
+        server.createContext("/v1/embeddings", this::handleEmbeddings);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public MockOpenAiServer enqueue(Reply... replies) {
+        script.addAll(List.of(replies));
+        return this;
+    }
+
+    /** Answers requests once the script is exhausted; receives the parsed request body. */
+    public MockOpenAiServer fallback(Function<JSONObject, Reply> fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    public MockOpenAiServer latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Streaming only: characters per content chunk and the pause between chunks. */
+    public MockOpenAiServer streaming(int chunkSize, long chunkDelayMillis) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkDelayMillis = chunkDelayMillis;
+        return this;
+    }
+
+    public MockOpenAiServer embeddingDimension(int dimension) {
+        this.embeddingDimension = dimension;
+        return this;
+    }
+
+    /** Bodies of all chat requests received so far, in arrival order. */
+    public List<JSONObject> chatRequests() {
+        synchronized (chatRequests) {
+            return List.copyOf(chatRequests);
+        }
+    }
+
+    public long embeddingCalls() {
+        return embeddingCalls.get();
+    }
+
+    /** Total time spent inside request handlers, including simulated latency, up to sending each reply. */
+    public long serverNanos() {
+        return serverNanos.get();
+    }
+
+    /** Name of the first parameter of an offered tool, so scripted calls work whatever the compiler named it. */
+    public static String firstParameter(JSONObject request, String toolName) {
+        var tools = request.optJSONArray("tools");
+        if (tools == null) return null;
+        for (var i = 0; i < tools.length(); i++) {
+            var function = tools.getJSONObject(i).getJSONObject("function");
+            if (toolName.equals(function.getString("name"))) {
+                var properties = function.optJSONObject("parameters") == null ? null : function.getJSONObject("parameters").optJSONObject("properties");
+                return properties == null || properties.isEmpty() ? null : properties.keys().next();
+            }
+        }
+        return null;
+    }
+
+    /** True when the newest message of the request is a tool result, i.e. the agent is mid tool loop. */
+    public static boolean lastMessageIsToolResult(JSONObject request) {
+        var messages = request.getJSONArray("messages");
+        return !messages.isEmpty() && "tool".equals(messages.getJSONObject(messages.length() - 1).optString("role"));
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        var start = System.nanoTime();
+        try (exchange) {
+            var request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            chatRequests.add(request);
+            var reply = script.poll();
+            if (reply == null) reply = fallback.apply(request);
+            sleep(nextLatency());
+            var model = request.optString("model", "mock");
+            var id = "chatcmpl-" + callIds.incrementAndGet();
+            if (request.optBoolean("stream", false)) {
+                stream(exchange, id, model, reply, start);
+            } else {
+                var body = completion(id, model, reply, request).toString();
+                serverNanos.addAndGet(System.nanoTime() - start); // before sending, so clients never see it lag behind
+                send(exchange, 200, "application/json", body);
+            }
+        }
+    }
+
+    private JSONObject completion(String id, String model, Reply reply, JSONObject request) {
+        var message = new JSONObject().put("role", "assistant").put("content", reply.text() == null ? JSONObject.NULL : reply.text());
+        if (!reply.toolCalls().isEmpty()) {
+            message.put("tool_calls", toolCalls(reply, false));
+        }
+        return new JSONObject()
+                .put("id", id)
+                .put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model)
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("message", message)
+                        .put("finish_reason", reply.toolCalls().isEmpty() ? "stop" : "tool_calls")))
+                .put("usage", usage(request.getJSONArray("messages").toString().length() / 4, reply));
+    }
+
+    private void stream(HttpExchange exchange, String id, String model, Reply reply, long start) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        var out = exchange.getResponseBody();
+        event(out, chunk(id, model, new JSONObject().put("role", "assistant").put("content", ""), null));
+        var text = reply.text() == null ? "" : reply.text();
+        for (var i = 0; i < text.length(); i += chunkSize) {
+            sleep(chunkDelayMillis);
+            event(out, chunk(id, model, new JSONObject().put("content", text.substring(i, Math.min(text.length(), i + chunkSize))), null));
+        }
+        if (!reply.toolCalls().isEmpty()) {
+            event(out, chunk(id, model, new JSONObject().put("tool_calls", toolCalls(reply, true)), null));
+        }
+        serverNanos.addAndGet(System.nanoTime() - start);
+        event(out, chunk(id, model, new JSONObject(), reply.toolCalls().isEmpty() ? "stop" : "tool_calls"));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static JSONObject chunk(String id, String model, JSONObject delta, String finishReason) {
+        return new JSONObject()
+                .put("id", id)
+                .put("object", "chat.completion.chunk")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model)
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("delta", delta)
+                        .put("finish_reason", finishReason == null ? JSONObject.NULL : finishReason)));
+    }
+
+    private JSONArray toolCalls(Reply reply, boolean streaming) {
+        var calls = new JSONArray();
+        for (var i = 0; i < reply.toolCalls().size(); i++) {
+            var call = reply.toolCalls().get(i);
+            var json = new JSONObject()
+                    .put("id", "call_" + callIds.incrementAndGet())
+                    .put("type", "function")
+                    .put("function", new JSONObject().put("name", call.name()).put("arguments", call.arguments()));
+            if (streaming) json.put("index", i);
+            calls.put(json);
+        }
+        return calls;
+    }
+
+    private static JSONObject usage(int promptTokens, Reply reply) {
+        var completionTokens = (reply.text() == null ? 0 : reply.text().length() / 4 + 1)
+                + reply.toolCalls().stream().mapToInt(c -> c.arguments().length() / 4 + 1).sum();
+        return new JSONObject()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private void handleEmbeddings(HttpExchange exchange) throws IOException {
+        var start = System.nanoTime();
+        try (exchange) {
+            var request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            embeddingCalls.incrementAndGet();
+            sleep(nextLatency());
+            var input = request.get("input");
+            var texts = new ArrayList<String>();
+            if (input instanceof JSONArray array) {
+                for (var i = 0; i < array.length(); i++) texts.add(array.getString(i));
+            } else {
+                texts.add(input.toString());
+            }
+            var data = new JSONArray();
+            var tokens = 0;
+            for (var i = 0; i < texts.size(); i++) {
+                data.put(new JSONObject().put("object", "embedding").put("index", i).put("embedding", vector(texts.get(i))));
+                tokens += texts.get(i).length() / 4 + 1;
+            }
+            var body = new JSONObject()
+                    .put("object", "list")
+                    .put("data", data)
+                    .put("model", request.optString("model", "mock-embedding"))
+                    .put("usage", new JSONObject().put("prompt_tokens", tokens).put("total_tokens", tokens))
+                    .toString();
+            serverNanos.addAndGet(System.nanoTime() - start);
+            send(exchange, 200, "application/json", body);
+        }
+    }
+
+    /** Deterministic per text, so equal texts get equal vectors. */
+    private JSONArray vector(String text) {
+        var r = new Random(text.hashCode());
+        var v = new JSONArray();
+        for (var i = 0; i < embeddingDimension; i++) v.put(r.nextFloat() * 2 - 1);
+        return v;
+    }
+
+    private long nextLatency() {
+        synchronized (random) {
+            return Math.max(0, latency.nextMillis(random));
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void event(OutputStream out, JSONObject json) throws IOException {
+        out.write(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
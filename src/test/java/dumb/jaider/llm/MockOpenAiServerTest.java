@@ -0,0 +1,119 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockOpenAiServerTest {
+
+    private MockOpenAiServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockOpenAiServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private OpenAiChatModel chatModel() {
+        return OpenAiChatModel.builder().baseUrl(server.baseUrl()).apiKey("test").modelName("mock-model").build();
+    }
+
+    @Test
+    void replaysScriptedTextThenFallback() {
+        server.enqueue(MockOpenAiServer.Reply.text("scripted")).fallback(request -> MockOpenAiServer.Reply.text("fallback"));
+        var model = chatModel();
+
+        assertEquals("scripted", model.chat("hi"));
+        assertEquals("fallback", model.chat("hi again"));
+        assertEquals(2, server.chatRequests().size());
+        assertEquals("mock-model", server.chatRequests().getFirst().getString("model"));
+    }
+
+    @Test
+    void returnsToolCalls() {
+        server.enqueue(MockOpenAiServer.Reply.toolCall("readFile", new JSONObject().put("fileName", "README.md")));
+        var request = ChatRequest.builder()
+                .messages(UserMessage.from("show the readme"))
+                .toolSpecifications(ToolSpecification.builder().name("readFile").description("Reads a file").build())
+                .build();
+
+        var response = chatModel().chat(request);
+
+        assertTrue(response.aiMessage().hasToolExecutionRequests());
+        var call = response.aiMessage().toolExecutionRequests().getFirst();
+        assertEquals("readFile", call.name());
+        assertEquals("README.md", new JSONObject(call.arguments()).getString("fileName"));
+        assertEquals("readFile", server.chatRequests().getFirst().getJSONArray("tools").getJSONObject(0).getJSONObject("function").getString("name"));
+    }
+
+    @Test
+    void streamsChunks() throws Exception {
+        server.enqueue(MockOpenAiServer.Reply.text("streamed answer from the mock")).streaming(4, 1);
+        var model = OpenAiStreamingChatModel.builder().baseUrl(server.baseUrl()).apiKey("test").modelName("mock-model").build();
+        var partials = new StringBuilder();
+        var done = new CompletableFuture<ChatResponse>();
+
+        model.chat("hi", new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                partials.append(partialResponse).append('|');
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                done.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+        });
+
+        assertEquals("streamed answer from the mock", done.get(10, TimeUnit.SECONDS).aiMessage().text());
+        assertTrue(partials.toString().startsWith("stre|amed|"), partials.toString());
+    }
+
+    @Test
+    void servesDeterministicEmbeddings() {
+        var model = OpenAiEmbeddingModel.builder().baseUrl(server.baseUrl()).apiKey("test").modelName("mock-embedding").build();
+
+        var embeddings = model.embedAll(List.of(TextSegment.from("a"), TextSegment.from("b"), TextSegment.from("a"))).content();
+
+        assertEquals(3, embeddings.size());
+        assertEquals(8, embeddings.getFirst().dimension());
+        assertArrayEquals(embeddings.get(0).vector(), embeddings.get(2).vector());
+        assertEquals(1, server.embeddingCalls());
+    }
+
+    @Test
+    void appliesConfiguredLatency() {
+        server.latency(MockOpenAiServer.Latency.fixed(50));
+        var start = System.nanoTime();
+
+        chatModel().chat("hi");
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(server.serverNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+}
@@ -0,0 +1,98 @@
+package dumb.jaider.llm;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingChatModelTest {
+
+    private static final ToolSpecification APPLY_DIFF = ToolSpecification.builder().name("applyDiff").description("Applies a diff").build();
+
+    private final List<String> calls = new ArrayList<>();
+
+    private ChatModel model(String name, Supplier<AiMessage> answer) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                calls.add(name);
+                return ChatResponse.builder().aiMessage(answer.get()).build();
+            }
+        };
+    }
+
+    private RoutingChatModel router(String binding, ChatModel small, ChatModel large) {
+        return new RoutingChatModel("coder", List.of(new RoutingChatModel.Tier("small", small), new RoutingChatModel.Tier("large", large)),
+                binding, new TaskClassifier(200), true);
+    }
+
+    private static ChatRequest request(List<ChatMessage> messages, boolean withTools) {
+        var builder = ChatRequest.builder().messages(messages);
+        if (withTools) builder.toolSpecifications(APPLY_DIFF);
+        return builder.build();
+    }
+
+    @Test
+    void autoBindingSendsSimpleQuestionsToSmallTierAndCodeToLargeTier() {
+        var routing = router(RoutingChatModel.AUTO, model("small", () -> AiMessage.from("ok")), model("large", () -> AiMessage.from("ok")));
+
+        routing.chat(request(List.of(UserMessage.from("What does this project do?")), true));
+        routing.chat(request(List.of(UserMessage.from("Fix this:\n```java\npublic int f() { return 1; }\n```")), true));
+
+        assertEquals(List.of("small", "large"), calls);
+        assertEquals(1, routing.stats().getJSONObject("routed").getLong("small"));
+    }
+
+    @Test
+    void fixedBindingAlwaysUsesItsTier() {
+        var routing = router("large", model("small", () -> AiMessage.from("ok")), model("large", () -> AiMessage.from("ok")));
+
+        routing.chat(request(List.of(UserMessage.from("hi")), false));
+
+        assertEquals(List.of("large"), calls);
+    }
+
+    @Test
+    void escalatesOnMalformedToolCall() {
+        var badCall = AiMessage.from(ToolExecutionRequest.builder().id("1").name("applyDiff").arguments("{\"diff\": ").build());
+        var routing = router(RoutingChatModel.AUTO, model("small", () -> badCall), model("large", () -> AiMessage.from("done")));
+
+        var response = routing.chat(request(List.of(UserMessage.from("hi")), true));
+
+        assertEquals("done", response.aiMessage().text());
+        assertEquals(List.of("small", "large"), calls);
+        assertEquals(1, routing.stats().getLong("escalations"));
+    }
+
+    @Test
+    void escalatesWhenSmallTierFails() {
+        var routing = router("small", model("small", () -> { throw new RuntimeException("context length exceeded"); }),
+                model("large", () -> AiMessage.from("done")));
+
+        assertEquals("done", routing.chat(request(List.of(UserMessage.from("hi")), false)).aiMessage().text());
+        assertEquals(List.of("small", "large"), calls);
+    }
+
+    @Test
+    void turnAfterFailedValidationStartsOnLargerTier() {
+        var routing = router("small", model("small", () -> AiMessage.from("ok")), model("large", () -> AiMessage.from("ok")));
+        var call = ToolExecutionRequest.builder().id("1").name("runValidationCommand").arguments("{}").build();
+        var failedRun = ToolExecutionResultMessage.from(call, "{\"exitCode\": 1, \"success\": false, \"output\": \"BUILD FAILURE\"}");
+
+        routing.chat(request(List.of(UserMessage.from("run the tests"), AiMessage.from(call), failedRun), true));
+
+        assertEquals(List.of("large"), calls);
+    }
+}
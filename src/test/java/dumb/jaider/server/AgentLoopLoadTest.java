@@ -0,0 +1,124 @@
+package dumb.jaider.server;
+
+import dumb.jaider.config.Config;
+import dumb.jaider.llm.LatencyStats;
+import dumb.jaider.llm.LlmClientRegistry;
+import dumb.jaider.llm.LlmProviderFactory;
+import dumb.jaider.llm.MockOpenAiServer;
+import dumb.jaider.model.JaiderModel;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load driver for the agent loop against {@link MockOpenAiServer}: real {@code genericOpenai} client,
+ * {@link SessionRegistry}, Coder agent and {@code StandardTools}. Each turn makes two LLM calls (a {@code readFile}
+ * tool call, then a final answer), so the numbers cover request building, HTTP, tool execution and memory handling.
+ * <p>
+ * "Overhead" is turn wall time minus time spent inside the mock server, i.e. what Jaider and the client library add.
+ * The test runs a small load; {@link #main} runs a bigger one: {@code sessions turnsPerSession medianLatencyMs}.
+ */
+class AgentLoopLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(AgentLoopLoadTest.class);
+
+    @TempDir
+    Path tempDir;
+
+    static JSONObject run(Path projectDir, MockOpenAiServer server, int sessions, int turnsPerSession) throws Exception {
+        Files.writeString(projectDir.resolve("README.md"), "# Load test project\n" + "Some text to read.\n".repeat(50));
+        Files.writeString(projectDir.resolve(".jaider.json"), new JSONObject()
+                .put("llmProvider", "genericOpenai")
+                .put("genericOpenaiBaseUrl", server.baseUrl())
+                .put("genericOpenaiModelName", "mock-model")
+                .put("genericOpenaiEmbeddingModelName", "mock-embedding")
+                .put("apiKeys", new JSONObject().put("genericOpenai", "test"))
+                .toString(2));
+        server.fallback(request -> {
+            if (MockOpenAiServer.lastMessageIsToolResult(request)) {
+                return MockOpenAiServer.Reply.text("The README describes the load test project.");
+            }
+            var parameter = MockOpenAiServer.firstParameter(request, "readFile");
+            return MockOpenAiServer.Reply.toolCall("readFile", new JSONObject().put(parameter == null ? "fileName" : parameter, "README.md"));
+        });
+
+        var config = new Config(projectDir);
+        var factory = new LlmProviderFactory(config, new JaiderModel(projectDir), new LlmClientRegistry());
+        var registry = new SessionRegistry(config, factory.createChatModel(), factory.createEmbeddingModel(), sessions, 20);
+        var turnLatency = new LatencyStats(sessions * turnsPerSession);
+        var turnNanos = new AtomicLong();
+        var serverNanosBefore = server.serverNanos();
+        var requestsBefore = server.chatRequests().size();
+
+        var start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var workers = new ArrayList<Callable<Void>>();
+            for (var s = 0; s < sessions; s++) {
+                var session = registry.create("coder", projectDir);
+                workers.add(() -> {
+                    for (var t = 0; t < turnsPerSession; t++) {
+                        var turnStart = System.nanoTime();
+                        registry.send(session.id(), "Summarize README.md");
+                        var elapsed = System.nanoTime() - turnStart;
+                        turnNanos.addAndGet(elapsed);
+                        turnLatency.record(TimeUnit.NANOSECONDS.toMillis(elapsed));
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(workers)) future.get();
+        }
+        var wallNanos = System.nanoTime() - start;
+
+        var turns = sessions * turnsPerSession;
+        var serverNanos = server.serverNanos() - serverNanosBefore;
+        return new JSONObject()
+                .put("sessions", sessions)
+                .put("turns", turns)
+                .put("llmCalls", server.chatRequests().size() - requestsBefore)
+                .put("turnsPerSecond", turns / (wallNanos / 1e9))
+                .put("turnP50Ms", turnLatency.percentile(0.50))
+                .put("turnP95Ms", turnLatency.percentile(0.95))
+                .put("serverMsPerTurn", serverNanos / 1e6 / turns)
+                .put("overheadMsPerTurn", (turnNanos.get() - serverNanos) / 1e6 / turns);
+    }
+
+    @Test
+    void measuresTurnThroughputAndOverhead() throws Exception {
+        try (var server = new MockOpenAiServer()) {
+            server.latency(MockOpenAiServer.Latency.uniform(5, 15));
+
+            var report = run(tempDir, server, 4, 5);
+            logger.info("Agent loop load report: {}", report.toString(2));
+
+            assertEquals(20, report.getInt("turns"));
+            assertEquals(40, report.getInt("llmCalls"), "Each turn should make a tool call and a final answer call");
+            assertTrue(report.getDouble("turnsPerSecond") > 0);
+            assertTrue(report.getDouble("serverMsPerTurn") >= 10, "Two calls of at least 5 ms each per turn");
+            var toolResult = server.chatRequests().stream().filter(MockOpenAiServer::lastMessageIsToolResult).findFirst().orElseThrow();
+            assertTrue(toolResult.toString().contains("Load test project"), "readFile should have run against the project");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var sessions = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        var turnsPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+        var medianLatency = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        var dir = Files.createTempDirectory("jaider-load");
+        try (var server = new MockOpenAiServer()) {
+            server.latency(MockOpenAiServer.Latency.logNormal(medianLatency, 0.5));
+            System.out.println(run(dir, server, sessions, turnsPerSession).toString(2));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dumb.jaider.server;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dumb.jaider.config.Config;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class JaiderServerTest {
+
+    private static final String TOKEN = "test-token";
+
+    @TempDir
+    Path tempDir;
+
+    private static HttpResponse<String> post(JaiderServer server, String path, JSONObject body) throws Exception {
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+                .header("Authorization", "Bearer " + TOKEN).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void contextFilesStayInsideTheProject() {
+        var root = tempDir.toAbsolutePath().normalize();
+        assertEquals(List.of(root.resolve("src/A.java"), root.resolve("B.java")),
+                JaiderServer.contextFiles(tempDir, new JSONArray(List.of("src/A.java", "src/../B.java"))));
+        assertThrows(IllegalArgumentException.class, () -> JaiderServer.contextFiles(tempDir, new JSONArray(List.of("../../etc/passwd"))));
+        assertThrows(IllegalArgumentException.class, () -> JaiderServer.contextFiles(tempDir, new JSONArray(List.of("/etc/passwd"))));
+    }
+
+    @Test
+    void sessionWithEscapingFileIsRejected() throws Exception {
+        var registry = new SessionRegistry(mock(Config.class), mock(ChatModel.class), null, 1, 5);
+        try (var server = new JaiderServer(registry, 0, TOKEN)) {
+            server.start();
+            var body = new JSONObject().put("mode", "ask").put("projectDir", tempDir.toString()).put("files", new JSONArray(List.of("../outside.txt")));
+            var response = post(server, "/sessions", body);
+
+            assertEquals(400, response.statusCode());
+            assertTrue(new JSONObject(response.body()).getString("error").contains("outside the project"));
+            assertEquals(0, registry.metrics().getInt("sessions"));
+        }
+    }
+
+    @Test
+    void requestsWithoutTokenFromWebPagesOrNotJsonAreRefused() throws Exception {
+        var registry = new SessionRegistry(mock(Config.class), mock(ChatModel.class), null, 1, 5);
+        try (var server = new JaiderServer(registry, 0, TOKEN)) {
+            server.start();
+            var uri = URI.create("http://127.0.0.1:" + server.port() + "/sessions");
+            var body = HttpRequest.BodyPublishers.ofString(new JSONObject().put("mode", "ask").put("projectDir", tempDir.toString()).toString());
+            var client = HttpClient.newHttpClient();
+
+            var noToken = client.send(HttpRequest.newBuilder(uri).header("Content-Type", "application/json").POST(body).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            var wrongToken = client.send(HttpRequest.newBuilder(uri).header("Authorization", "Bearer wrong")
+                    .header("Content-Type", "application/json").POST(body).build(), HttpResponse.BodyHandlers.ofString());
+            var fromPage = client.send(HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + TOKEN)
+                    .header("Origin", "https://example.com").header("Content-Type", "application/json").POST(body).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            var plainText = client.send(HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + TOKEN)
+                    .header("Content-Type", "text/plain").POST(body).build(), HttpResponse.BodyHandlers.ofString());
+            var metrics = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(401, noToken.statusCode());
+            assertEquals(401, wrongToken.statusCode());
+            assertEquals(403, fromPage.statusCode());
+            assertEquals(415, plainText.statusCode());
+            assertEquals(401, metrics.statusCode());
+            assertEquals(0, registry.metrics().getInt("sessions"));
+            assertEquals(201, post(server, "/sessions", new JSONObject().put("mode", "ask").put("projectDir", tempDir.toString())).statusCode());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void projectIsIndexedOnceAndSharedWithItsSessions() throws Exception {
+        Files.writeString(tempDir.resolve("A.java"), "class A {}");
+        var embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> Response.from(((List<TextSegment>) invocation.getArgument(0))
+                .stream().map(segment -> Embedding.from(new float[]{1, 0})).toList()));
+        var registry = new SessionRegistry(mock(Config.class), mock(ChatModel.class), embeddingModel, 1, 5);
+        try (var server = new JaiderServer(registry, 0, TOKEN)) {
+            server.start();
+            var create = new JSONObject().put("mode", "ask").put("projectDir", tempDir.toString());
+            var first = new JSONObject(post(server, "/sessions", create).body()).getString("sessionId");
+            var second = new JSONObject(post(server, "/sessions", create).body()).getString("sessionId");
+
+            assertEquals(200, post(server, "/sessions/" + first + "/index", new JSONObject()).statusCode());
+            assertEquals(200, post(server, "/sessions/" + second + "/index", new JSONObject()).statusCode());
+            var third = registry.create("ask", tempDir);
+
+            verify(embeddingModel, times(1)).embedAll(anyList());
+            var store = registry.get(first).model().embeddings;
+            assertNotNull(store);
+            assertSame(store, registry.get(second).model().embeddings);
+            assertSame(store, third.model().embeddings);
+            assertTrue(third.model().isIndexed);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package dumb.jaider.server;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import dumb.jaider.config.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SessionRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final ChatModel fakeModel = new ChatModel() {
+        @Override
+        public ChatResponse doChat(ChatRequest request) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return ChatResponse.builder()
+                    .aiMessage(AiMessage.from("echo " + request.messages().size()))
+                    .tokenUsage(new TokenUsage(10, 5))
+                    .build();
+        }
+    };
+
+    private SessionRegistry registry(int maxConcurrentTurns) {
+        return new SessionRegistry(mock(Config.class), fakeModel, null, maxConcurrentTurns, 20);
+    }
+
+    @Test
+    void sessionsKeepSeparateMemoryAndUsage() throws Exception {
+        var registry = registry(2);
+        var a = registry.create("ask", tempDir);
+        var b = registry.create("ask", tempDir);
+
+        registry.send(a.id(), "hello");
+        registry.send(a.id(), "again");
+        registry.send(b.id(), "hi");
+
+        // Both memories start with the same system prompt; only the exchanges differ.
+        assertEquals(2, a.memory().messages().size() - b.memory().messages().size());
+        assertEquals(2, a.usage().calls());
+        assertEquals(20, a.usage().inputTokens());
+        assertEquals(1, b.usage().calls());
+        assertEquals(2, a.metrics().getLong("turns"));
+        assertEquals(3, registry.metrics().getLong("completedTurns"));
+    }
+
+    @Test
+    void concurrentTurnsAreBoundedByPermits() throws Exception {
+        var registry = registry(2);
+        var tasks = new ArrayList<Callable<String>>();
+        for (var i = 0; i < 6; i++) {
+            var session = registry.create("ask", tempDir);
+            tasks.add(() -> registry.send(session.id(), "question"));
+        }
+        try (var pool = Executors.newFixedThreadPool(6)) {
+            for (var future : pool.invokeAll(tasks)) {
+                assertTrue(future.get().startsWith("echo"));
+            }
+        }
+        assertTrue(maxInFlight.get() <= 2, "At most two turns may run at once, saw " + maxInFlight.get());
+        assertEquals(6, registry.metrics().getLong("completedTurns"));
+    }
+
+    @Test
+    void closedSessionIsRejected() {
+        var registry = registry(1);
+        var session = registry.create("ask", tempDir);
+        assertTrue(registry.close(session.id()));
+        assertThrows(NoSuchElementException.class, () -> registry.send(session.id(), "hello"));
+    }
+}
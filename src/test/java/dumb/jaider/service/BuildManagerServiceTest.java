@@ -0,0 +1,129 @@
+package dumb.jaider.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BuildManagerServiceTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildManagerServiceTest.class);
+    private static final String[] COMPILE = {"mvn", "-o", "-B", "compile"};
+
+    private static final String POM = """
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>test</groupId>
+              <artifactId>warm</artifactId>
+              <version>1</version>
+              <properties>
+                <maven.compiler.release>21</maven.compiler.release>
+                <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+              </properties>
+              <build>
+                <plugins>
+                  <plugin>
+                    <groupId>org.apache.maven.plugins</groupId>
+                    <artifactId>maven-compiler-plugin</artifactId>
+                    <version>3.14.0</version>
+                  </plugin>
+                </plugins>
+              </build>
+            </project>
+            """;
+
+    @TempDir
+    Path projectDir;
+
+    private final BuildManagerService warm = new BuildManagerService(true);
+
+    @AfterEach
+    void tearDown() {
+        warm.closeWorker();
+    }
+
+    @Test
+    void timingsAreSplitPerGoal() {
+        var timings = new BuildTimings();
+        timings.accept("[INFO] Scanning for projects...");
+        timings.accept("[INFO] --- resources:3.3.1:resources (default-resources) @ app ---");
+        timings.accept("[INFO] --- maven-compiler-plugin:3.8.1:compile (default-compile) @ app ---");
+        timings.accept("[INFO] --- maven-compiler-plugin:3.8.1:compile (other) @ app ---");
+        timings.accept("[INFO] BUILD SUCCESS");
+
+        var phases = timings.finish();
+        assertEquals(java.util.List.of(BuildTimings.STARTUP, "resources:resources", "maven-compiler-plugin:compile", BuildTimings.TOTAL),
+                java.util.List.copyOf(phases.keySet()));
+    }
+
+    @Test
+    void projectsWithJvmConfigGetTheirOwnJvm() throws Exception {
+        assumeTrue(System.getenv("MAVEN_OPTS") == null, "MAVEN_OPTS is set");
+        assertFalse(BuildWorker.needsOwnJvm(projectDir.toFile()));
+
+        Files.createDirectories(projectDir.resolve(".mvn"));
+        Files.writeString(projectDir.resolve(".mvn/jvm.config"), "-Xmx512m\n");
+        Files.createDirectories(projectDir.resolve("module"));
+
+        assertTrue(BuildWorker.needsOwnJvm(projectDir.toFile()));
+        assertTrue(BuildWorker.needsOwnJvm(projectDir.resolve("module").toFile()));
+    }
+
+    @Test
+    void warmWorkerBuildsLikeMaven() throws Exception {
+        writeProject();
+        var skipped = warm.executeMavenCommand(new String[]{"mvn", "-o", "-B", "-Dmaven.main.skip=true", "compile"}, projectDir.toFile());
+        assumeTrue(skipped.success() || !skipped.output().contains("offline"), "plugins not in the local repository");
+        assertTrue(skipped.success(), skipped.output());
+        assertFalse(Files.exists(projectDir.resolve("target/classes/p/A.class")));
+
+        var first = warm.executeMavenCommand(COMPILE, projectDir.toFile());
+        assertTrue(first.success(), first.output());
+        assertTrue(first.timings().containsKey("compiler:compile"), first.timings().toString());
+        assertTrue(Files.exists(projectDir.resolve("target/classes/p/A.class")), "-D options of the previous build leaked into this one");
+
+        Files.writeString(projectDir.resolve("src/main/java/p/A.java"), "package p;\npublic class A { B b; }\n");
+        var broken = warm.executeMavenCommand(COMPILE, projectDir.toFile());
+        assertFalse(broken.success());
+        assertTrue(broken.output().contains("cannot find symbol"), broken.output());
+    }
+
+    /** Builds a small project repeatedly in the warm worker and in new processes; logs timings rather than asserting on them. */
+    @Test
+    void warmWorkerBenchmark() throws Exception {
+        assumeTrue(Boolean.getBoolean(JGitServiceTest.BENCHMARKS), "benchmarks run with -D" + JGitServiceTest.BENCHMARKS + "=true");
+        writeProject();
+        var first = warm.executeMavenCommand(COMPILE, projectDir.toFile());
+        assumeTrue(first.success(), first.output());
+
+        var rounds = 3;
+        var warmMillis = 0L;
+        var coldMillis = 0L;
+        var cold = new BuildManagerService(false);
+        for (var i = 0; i < rounds; i++) {
+            var w = warm.executeMavenCommand(COMPILE, projectDir.toFile());
+            assertTrue(w.success(), w.output());
+            warmMillis += w.timings().get(BuildTimings.TOTAL);
+            var c = cold.executeMavenCommand(COMPILE, projectDir.toFile());
+            assertTrue(c.success(), c.output());
+            coldMillis += c.timings().get(BuildTimings.TOTAL);
+        }
+        logger.info("mvn compile x{}: warm worker {} ms, new process {} ms ({}x)",
+                rounds, warmMillis, coldMillis, String.format("%.1f", (double) coldMillis / Math.max(1, warmMillis)));
+    }
+
+    private void writeProject() throws Exception {
+        assumeTrue(BuildWorker.findMavenHome() != null, "no local Maven installation");
+        assumeTrue(!BuildWorker.needsOwnJvm(projectDir.toFile()), "MAVEN_OPTS is set: builds do not use the worker");
+        Files.writeString(projectDir.resolve("pom.xml"), POM);
+        Files.createDirectories(projectDir.resolve("src/main/java/p"));
+        Files.writeString(projectDir.resolve("src/main/java/p/A.java"), "package p;\npublic class A {}\n");
+    }
+}
@@ -0,0 +1,159 @@
+package dumb.jaider.service;
+
+import dumb.jaider.vcs.RepositoryService;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JGitServiceTest {
+    private static final Logger logger = LoggerFactory.getLogger(JGitServiceTest.class);
+    /** Set {@code -Djaider.benchmarks=true} to run the timing comparisons. */
+    static final String BENCHMARKS = "jaider.benchmarks";
+
+    private static final String DIFF = """
+            --- a/A.java
+            +++ b/A.java
+            @@ -1,3 +1,3 @@
+             class A {
+            -    int x = 1;
+            +    int x = 2;
+             }
+            """;
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+    private final JGitService service = new JGitService();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        git.getRepository().getConfig().setString("user", null, "name", "Test");
+        git.getRepository().getConfig().setString("user", null, "email", "test@example.com");
+        git.getRepository().getConfig().save();
+        Files.writeString(projectDir.resolve("A.java"), "class A {\n    int x = 1;\n}\n");
+        Files.writeString(projectDir.resolve("B.java"), "class B {}\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("init").call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RepositoryService.close(projectDir);
+        git.close();
+    }
+
+    @Test
+    void appliesCommitsAndRevertsUpdates() throws Exception {
+        var root = projectDir.toFile();
+        assertTrue(service.isWorkingDirectoryClean(root));
+
+        assertTrue(service.applyDiff(root, "A.java", DIFF));
+        assertEquals("class A {\n    int x = 2;\n}\n", Files.readString(projectDir.resolve("A.java")));
+        assertFalse(service.isWorkingDirectoryClean(root));
+
+        var hash = service.commitChanges(root, "A.java", "Update A");
+        assertNotNull(hash);
+        assertEquals(hash, git.getRepository().resolve("HEAD").getName());
+        assertTrue(service.isWorkingDirectoryClean(root));
+
+        assertTrue(service.revertLastCommittedUpdate(root, hash));
+        assertEquals("class A {\n    int x = 1;\n}\n", Files.readString(projectDir.resolve("A.java")));
+        assertTrue(service.isWorkingDirectoryClean(root));
+        assertFalse(service.revertLastCommittedUpdate(root, "0000000000000000000000000000000000000000"));
+    }
+
+    @Test
+    void failedDiffLeavesEveryFileUntouched() throws Exception {
+        var diff = """
+                --- a/B.java
+                +++ b/B.java
+                @@ -1 +1 @@
+                -class B {}
+                +class B { int y; }
+                --- a/A.java
+                +++ b/A.java
+                @@ -1,3 +1,3 @@
+                 class A {
+                -    int x = 99;
+                +    int x = 2;
+                 }
+                """;
+
+        assertFalse(service.applyDiff(projectDir.toFile(), "B.java", diff));
+        assertEquals("class B {}\n", Files.readString(projectDir.resolve("B.java")));
+        assertTrue(service.isWorkingDirectoryClean(projectDir.toFile()));
+        assertFalse(service.applyDiff(projectDir.toFile(), "A.java", "not a diff"));
+    }
+
+    @Test
+    void revertChangesRestoresPreviousCommitOfFile() throws Exception {
+        var root = projectDir.toFile();
+        Files.writeString(projectDir.resolve("A.java"), "class A {}\n");
+        service.commitChanges(root, "A.java", "Shrink A");
+
+        assertTrue(service.revertChanges(root, "A.java"));
+
+        assertEquals("class A {\n    int x = 1;\n}\n", Files.readString(projectDir.resolve("A.java")));
+        assertTrue(git.log().setMaxCount(1).call().iterator().next().getFullMessage().startsWith("Rollback: Reverted changes to A.java"));
+    }
+
+    /** Runs the self-update git sequence with both implementations; logs timings rather than asserting on them. */
+    @Test
+    void benchmarkAgainstSubprocessGit(@TempDir Path other) throws Exception {
+        assumeTrue(Boolean.getBoolean(BENCHMARKS), "benchmarks run with -D" + BENCHMARKS + "=true");
+        assumeTrue(gitAvailable(), "git executable not available");
+        var local = new LocalGitService();
+        try (var otherGit = Git.init().setDirectory(other.toFile()).setInitialBranch("main").call()) {
+            otherGit.getRepository().getConfig().setString("user", null, "name", "Test");
+            otherGit.getRepository().getConfig().setString("user", null, "email", "test@example.com");
+            otherGit.getRepository().getConfig().save();
+            Files.writeString(other.resolve("A.java"), "class A {\n    int x = 1;\n}\n");
+            otherGit.add().addFilepattern(".").call();
+            otherGit.commit().setMessage("init").call();
+        }
+
+        sequence(service, projectDir.toFile(), 10); // Warm up class loading and JIT for both.
+        sequence(local, other.toFile(), 10);
+        var rounds = 10;
+        var jgitNanos = sequence(service, projectDir.toFile(), rounds);
+        var localNanos = sequence(local, other.toFile(), rounds);
+
+        logger.info("Self-update git sequence x{}: JGitService {} ms, LocalGitService {} ms ({}x)", rounds,
+                String.format("%.1f", jgitNanos / 1e6), String.format("%.1f", localNanos / 1e6), String.format("%.1f", (double) localNanos / jgitNanos));
+        assertEquals(Files.readString(other.resolve("A.java")), Files.readString(projectDir.resolve("A.java")));
+    }
+
+    /** clean check, apply, commit, then revert the commit: what one self-update and its rollback do. */
+    private static long sequence(GitService service, File root, int rounds) {
+        var start = System.nanoTime();
+        for (var i = 0; i < rounds; i++) {
+            assertTrue(service.isWorkingDirectoryClean(root));
+            assertTrue(service.applyDiff(root, "A.java", DIFF));
+            var hash = service.commitChanges(root, "A.java", "Update " + i);
+            assertNotNull(hash);
+            assertTrue(service.revertLastCommittedUpdate(root, hash));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static boolean gitAvailable() {
+        try {
+            return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -316,4 +316,123 @@ class DiffApplierTest {
         var result7 = diffApplier.apply(model, emptyPatch, "", "");
         assertEquals(errorMsg, result7, "Scenario 7 failed: Both empty");
     }
+
+    @Test
+    void testApplyAllChangesSeveralFilesInOneStep() throws IOException {
+        var doomed = tempDir.resolve("doomed.txt");
+        Files.write(doomed, List.of("bye"));
+        model.files.add(doomed);
+        var diff = """
+                --- a/existingFile.txt
+                +++ b/existingFile.txt
+                @@ -1,3 +1,3 @@
+                 line1
+                -line2
+                +line2_changed
+                 line3
+                --- /dev/null
+                +++ b/src/created.txt
+                @@ -0,0 +1,1 @@
+                +hello
+                --- a/doomed.txt
+                +++ /dev/null
+                @@ -1,1 +0,0 @@
+                -bye
+                """;
+
+        var result = diffApplier.applyAll(model, dumb.jaider.utils.Util.unifiedDiffReader(diff));
+
+        assertEquals("Diff applied successfully to 3 files: existingFile.txt (modified), src/created.txt (created), doomed.txt (deleted).", result);
+        assertEquals(List.of("line1", "line2_changed", "line3"), Files.readAllLines(tempDir.resolve("existingFile.txt")));
+        assertEquals(List.of("hello"), Files.readAllLines(tempDir.resolve("src/created.txt")));
+        assertFalse(Files.exists(doomed));
+        assertTrue(model.files.contains(tempDir.resolve("src/created.txt")));
+        assertFalse(model.files.contains(doomed));
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".jaider-tmp")), "Temp files must be cleaned up");
+        }
+    }
+
+    @Test
+    void testApplyAllWritesNothingWhenAnyHunkFails() throws IOException {
+        var diff = """
+                --- a/existingFile.txt
+                +++ b/existingFile.txt
+                @@ -1,3 +1,3 @@
+                 line1
+                -line2
+                +line2_changed
+                 line3
+                --- /dev/null
+                +++ b/newFile.txt
+                @@ -0,0 +1,1 @@
+                +hello
+                --- a/existingFile.txt
+                +++ b/existingFile.txt
+                @@ -1,3 +1,3 @@
+                 line1
+                -not_there
+                +whatever
+                 line3
+                """;
+
+        var result = diffApplier.applyAll(model, dumb.jaider.utils.Util.unifiedDiffReader(diff));
+
+        assertTrue(result.startsWith("Error: Diff not applied; no files were changed. 1 of 3 file sections failed"), result);
+        assertTrue(result.contains("existingFile.txt: Patch application failed"), result);
+        assertEquals(List.of("line1", "line2", "line3"), Files.readAllLines(tempDir.resolve("existingFile.txt")));
+        assertFalse(Files.exists(tempDir.resolve("newFile.txt")));
+    }
+
+    @Test
+    void testApplyAllRollbackLeavesNothingInTheJournal() throws IOException {
+        Files.writeString(tempDir.resolve("blocker"), "a file where a directory is needed");
+        var diff = """
+                --- a/existingFile.txt
+                +++ b/existingFile.txt
+                @@ -1,3 +1,3 @@
+                 line1
+                -line2
+                +line2_changed
+                 line3
+                --- /dev/null
+                +++ b/blocker/new.txt
+                @@ -0,0 +1,1 @@
+                +hello
+                """;
+
+        var result = diffApplier.applyAll(model, dumb.jaider.utils.Util.unifiedDiffReader(diff));
+
+        assertTrue(result.startsWith("Error"), result);
+        assertEquals(List.of("line1", "line2", "line3"), Files.readAllLines(tempDir.resolve("existingFile.txt")));
+        assertTrue(EditJournal.of(tempDir).undoable().isEmpty());
+        var blobs = tempDir.resolve(EditJournal.DIR).resolve("blobs");
+        if (Files.exists(blobs)) {
+            try (var files = Files.walk(blobs)) {
+                assertTrue(files.noneMatch(Files::isRegularFile), "Captured blobs of the rolled-back edit must be discarded");
+            }
+        }
+    }
+
+    @Test
+    void testApplyAllRejectsFilesOutsideContextOrProject() throws IOException {
+        Files.write(tempDir.resolve("notInContext.txt"), List.of("a"));
+        var diff = """
+                --- a/notInContext.txt
+                +++ b/notInContext.txt
+                @@ -1,1 +1,1 @@
+                -a
+                +b
+                --- /dev/null
+                +++ b/../escape.txt
+                @@ -0,0 +1,1 @@
+                +x
+                """;
+
+        var result = diffApplier.applyAll(model, dumb.jaider.utils.Util.unifiedDiffReader(diff));
+
+        assertTrue(result.contains("notInContext.txt: Cannot apply diff to an existing file not in context."), result);
+        assertTrue(result.contains("../escape.txt: path is outside the project directory."), result);
+        assertEquals(List.of("a"), Files.readAllLines(tempDir.resolve("notInContext.txt")));
+    }
 }
@@ -0,0 +1,134 @@
+package dumb.jaider.tools;
+
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.utils.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditJournalTest {
+
+    @TempDir
+    Path projectDir;
+
+    private EditJournal.Entry write(EditJournal journal, String name, String content) throws Exception {
+        var file = projectDir.resolve(name);
+        var edit = journal.begin("write " + name);
+        edit.capture(file);
+        Files.writeString(file, content);
+        return edit.commit();
+    }
+
+    @Test
+    void recordsOnlyChangedFiles() throws Exception {
+        var journal = new EditJournal(projectDir);
+        Files.writeString(projectDir.resolve("same.txt"), "x");
+        var edit = journal.begin("noop");
+        edit.capture(projectDir.resolve("same.txt"));
+        assertNull(edit.commit());
+        var unchanged = EditJournal.hash("x".getBytes());
+        assertFalse(Files.exists(projectDir.resolve(EditJournal.DIR).resolve("blobs").resolve(unchanged.substring(0, 2)).resolve(unchanged.substring(2))),
+                "A blob no edit records is not kept");
+
+        var entry = write(journal, "a.txt", "hello");
+        assertEquals(1, entry.files().size());
+        assertNull(entry.files().getFirst().before());
+        assertEquals(EditJournal.hash("hello".getBytes()), entry.files().getFirst().after());
+        assertTrue(Files.exists(projectDir.resolve(EditJournal.DIR).resolve("blobs").resolve(entry.files().getFirst().after().substring(0, 2))));
+    }
+
+    @Test
+    void reportsPathsChangedSinceAPosition() throws Exception {
+        var journal = new EditJournal(projectDir);
+        write(journal, "old.txt", "1");
+        var mark = journal.lastSeq();
+        write(journal, "a.txt", "1");
+        journal.undo(2); // Undoing an edit from before the mark changes old.txt too.
+        assertEquals(java.util.Set.of("a.txt", "old.txt"), journal.pathsChangedSince(mark));
+        assertEquals(java.util.Set.of(), journal.pathsChangedSince(journal.lastSeq()));
+
+        var reopened = new EditJournal(projectDir);
+        assertEquals(journal.lastSeq(), reopened.lastSeq());
+        assertEquals(java.util.Set.of("a.txt", "old.txt"), reopened.pathsChangedSince(mark));
+    }
+
+    @Test
+    void stacksSurviveRestartAndIgnoreTornLine() throws Exception {
+        var journal = new EditJournal(projectDir);
+        write(journal, "a.txt", "1");
+        write(journal, "a.txt", "2");
+        write(journal, "a.txt", "3");
+        journal.undo(1);
+        Files.writeString(projectDir.resolve(EditJournal.DIR).resolve(EditJournal.LOG_FILE), "{\"seq\":9,\"ty", StandardOpenOption.APPEND);
+
+        var reopened = new EditJournal(projectDir);
+        assertEquals(2, reopened.undoable().size());
+        assertEquals(1, reopened.redoable().size());
+
+        reopened.undo(5);
+        assertFalse(Files.exists(projectDir.resolve("a.txt")));
+        reopened.redo(2);
+        assertEquals("2", Files.readString(projectDir.resolve("a.txt")));
+
+        write(reopened, "a.txt", "other");
+        assertTrue(reopened.redoable().isEmpty(), "A new edit discards the redo history");
+    }
+
+    @Test
+    void multiFileDiffIsOneUndoStep() throws Exception {
+        var model = new JaiderModel(projectDir, "test");
+        var a = projectDir.resolve("a.txt");
+        Files.writeString(a, "alpha\n");
+        model.files.add(a);
+        var diff = """
+                --- a/a.txt
+                +++ b/a.txt
+                @@ -1 +1 @@
+                -alpha
+                +ALPHA
+                --- /dev/null
+                +++ b/b.txt
+                @@ -0,0 +1 @@
+                +beta
+                """;
+
+        var result = new DiffApplier().applyAll(model, Util.unifiedDiffReader(diff));
+        assertTrue(result.startsWith("Diff applied successfully to 2 files"), result);
+
+        var undone = EditJournal.of(projectDir).undo(1);
+
+        assertEquals(1, undone.size());
+        assertEquals(2, undone.getFirst().files().size());
+        assertEquals("alpha\n", Files.readString(a));
+        assertFalse(Files.exists(projectDir.resolve("b.txt")));
+    }
+
+    @Test
+    void isGitIgnoredAndKeepsOnlyRecentEdits() throws Exception {
+        var journal = new EditJournal(projectDir, 4);
+        for (var i = 0; i < 5; i++) write(journal, "a.txt", "v" + i);
+        assertEquals("*\n", Files.readString(projectDir.resolve(".jaider/.gitignore")));
+        assertEquals(5, journal.undoable().size(), "Compaction waits until the stack is a quarter past the limit");
+
+        write(journal, "a.txt", "v5");
+
+        assertEquals(4, journal.undoable().size());
+        assertEquals(4, Files.readAllLines(projectDir.resolve(EditJournal.DIR).resolve(EditJournal.LOG_FILE)).size());
+        assertNull(journal.pathsChangedSince(1), "Events 1 and 2 are gone, so what changed since 1 is unknown");
+        assertEquals(java.util.Set.of("a.txt"), journal.pathsChangedSince(2));
+        try (var blobs = Files.walk(projectDir.resolve(EditJournal.DIR).resolve("blobs"))) {
+            assertEquals(5, blobs.filter(Files::isRegularFile).count(), "v1..v5 are still needed, v0 is not");
+        }
+        var reopened = new EditJournal(projectDir, 4);
+        assertEquals(journal.undoable(), reopened.undoable());
+        assertNull(reopened.pathsChangedSince(1));
+        assertEquals(java.util.Set.of("a.txt"), reopened.pathsChangedSince(2));
+        reopened.undo(4);
+        assertEquals("v1", Files.readString(projectDir.resolve("a.txt")));
+    }
+}
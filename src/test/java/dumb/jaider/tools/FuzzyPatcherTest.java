@@ -0,0 +1,209 @@
+package dumb.jaider.tools;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.patch.Patch;
+import com.github.difflib.patch.PatchFailedException;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FuzzyPatcherTest {
+    /** Set {@code -Djaider.benchmarks=true} to run the timing comparison. */
+    private static final String BENCHMARKS = "jaider.benchmarks";
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyPatcherTest.class);
+
+    private final FuzzyPatcher patcher = new FuzzyPatcher(FuzzyPatcher.Settings.DEFAULTS);
+
+    private static List<String> lines(String text) {
+        return Arrays.asList(text.split("\n"));
+    }
+
+    private static Patch<String> parse(String diff) {
+        return UnifiedDiffUtils.parseUnifiedDiff(lines(diff));
+    }
+
+    /** A unified diff with three lines of context, as an LLM would write it, parsed back into a patch. */
+    private static Patch<String> unified(List<String> original, List<String> revised) {
+        var text = UnifiedDiffUtils.generateUnifiedDiff("a/F.java", "b/F.java", original, DiffUtils.diff(original, revised), 3);
+        return UnifiedDiffUtils.parseUnifiedDiff(text);
+    }
+
+    private static List<String> javaFile(int methods) {
+        var out = new ArrayList<String>();
+        out.add("class Big {");
+        for (var i = 0; i < methods; i++) {
+            out.add("    int method" + i + "(int x) {");
+            out.add("        var y = x * " + i + ";");
+            out.add("        return y + 1;");
+            out.add("    }");
+            out.add("");
+        }
+        out.add("}");
+        return out;
+    }
+
+    @Test
+    void exactPatchIsReportedAsExact() throws Exception {
+        var original = lines("a\nb\nc\nd");
+        var result = patcher.apply(original, unified(original, lines("a\nB\nc\nd")));
+
+        assertEquals(lines("a\nB\nc\nd"), result.lines());
+        assertTrue(result.exact());
+        assertEquals(1.0, result.confidence());
+        assertEquals("", result.summary());
+    }
+
+    @Test
+    void toleratesLineOffsetDrift() throws Exception {
+        var original = javaFile(20);
+        var revised = new ArrayList<>(original);
+        revised.set(52, "        return y + 2;");
+        var patch = unified(original, revised);
+        var drifted = new ArrayList<String>();
+        IntStream.range(0, 17).forEach(i -> drifted.add("// header " + i));
+        drifted.addAll(original);
+
+        var result = patcher.apply(drifted, patch);
+
+        assertEquals("        return y + 2;", result.lines().get(52 + 17));
+        assertEquals(drifted.size(), result.lines().size());
+        var hunk = result.hunks().getFirst();
+        assertEquals(hunk.expectedLine() + 17, hunk.actualLine());
+        assertTrue(result.confidence() < 1.0 && result.confidence() > 0.9, "confidence " + result.confidence());
+        assertTrue(result.summary().contains("instead of"), result.summary());
+    }
+
+    @Test
+    void ignoresWhitespaceDriftAndKeepsFileIndentation() throws Exception {
+        var original = lines("class A {\n\tint x = 1;\n\tint y = 2;\n\tint z = 3;\n}");
+        var patch = parse("""
+                --- a/A.java
+                +++ b/A.java
+                @@ -1,5 +1,5 @@
+                 class A {
+                     int x = 1;
+                -    int y = 2;
+                +    int y = 20;
+                     int z = 3;
+                 }
+                """);
+
+        var result = patcher.apply(original, patch);
+
+        assertEquals(lines("class A {\n\tint x = 1;\n    int y = 20;\n\tint z = 3;\n}"), result.lines());
+        assertTrue(result.hunks().getFirst().whitespaceInsensitive());
+    }
+
+    @Test
+    void dropsMismatchedOuterContextWithinFuzz() throws Exception {
+        var original = lines("one\ntwo\nthree\nfour\nfive");
+        var patch = parse("""
+                --- a/f.txt
+                +++ b/f.txt
+                @@ -1,5 +1,5 @@
+                 ONE (remembered wrongly)
+                 two
+                -three
+                +THREE
+                 four
+                 five
+                """);
+
+        var result = patcher.apply(original, patch);
+
+        assertEquals(lines("one\ntwo\nTHREE\nfour\nfive"), result.lines());
+        assertEquals(1, result.hunks().getFirst().fuzz());
+    }
+
+    @Test
+    void failsWhenRemovedLinesAreMissing() {
+        var original = lines("one\ntwo\nthree");
+        var patch = parse("""
+                --- a/f.txt
+                +++ b/f.txt
+                @@ -1,3 +1,3 @@
+                 one
+                -not in the file
+                +x
+                 three
+                """);
+
+        assertThrows(PatchFailedException.class, () -> patcher.apply(original, patch));
+    }
+
+    @Test
+    void respectsMaxOffset() {
+        var original = javaFile(5);
+        var revised = new ArrayList<>(original);
+        revised.set(3, "        return y + 2;");
+        var patch = unified(original, revised);
+        var drifted = new ArrayList<String>();
+        IntStream.range(0, 50).forEach(i -> drifted.add("// header " + i));
+        drifted.addAll(original);
+
+        var strict = new FuzzyPatcher(new FuzzyPatcher.Settings(true, 10, 0, false, 0.5));
+
+        assertThrows(PatchFailedException.class, () -> strict.apply(drifted, patch));
+    }
+
+    /** The 50-hunk patch for a 10k-line file, and the same file after 37 lines were inserted at the top. */
+    private record LargeCase(List<String> original, List<String> revised, List<String> drifted, Patch<String> patch) {
+        static LargeCase build() {
+            var original = javaFile(2000);
+            var revised = new ArrayList<>(original);
+            for (var i = 0; i < 50; i++) revised.set(3 + i * 200, "        return y + 42;");
+            var drifted = new ArrayList<String>();
+            IntStream.range(0, 37).forEach(i -> drifted.add("// header " + i));
+            drifted.addAll(original);
+            return new LargeCase(original, revised, drifted, unified(original, revised));
+        }
+    }
+
+    @Test
+    void placesEveryHunkOfALargePatchAfterDrift() throws Exception {
+        var large = LargeCase.build();
+
+        assertThrows(PatchFailedException.class, () -> large.patch().applyTo(large.drifted()),
+                "The strict path only handles the exact case");
+        assertEquals(large.revised(), patcher.apply(large.original(), large.patch()).lines());
+        var drift = patcher.apply(large.drifted(), large.patch()).lines();
+        assertEquals(large.drifted().subList(0, 37), drift.subList(0, 37));
+        assertEquals(large.revised(), drift.subList(37, drift.size()));
+    }
+
+    /** Benchmark against the strict {@code Patch.applyTo} path on a 10k-line file with 50 hunks. */
+    @Test
+    void benchmarkAgainstStrictApply() throws Exception {
+        assumeTrue(Boolean.getBoolean(BENCHMARKS), "benchmarks run with -D" + BENCHMARKS + "=true");
+        var large = LargeCase.build();
+        var patch = large.patch();
+
+        var iterations = 20;
+        for (var i = 0; i < 5; i++) { // warm-up
+            patch.applyTo(large.original());
+            patcher.apply(large.drifted(), patch);
+        }
+        var t0 = System.nanoTime();
+        for (var i = 0; i < iterations; i++) patch.applyTo(large.original());
+        var strictNanos = (System.nanoTime() - t0) / iterations;
+        t0 = System.nanoTime();
+        for (var i = 0; i < iterations; i++) patcher.apply(large.original(), patch);
+        var fuzzyExactNanos = (System.nanoTime() - t0) / iterations;
+        t0 = System.nanoTime();
+        for (var i = 0; i < iterations; i++) patcher.apply(large.drifted(), patch);
+        var fuzzyDriftNanos = (System.nanoTime() - t0) / iterations;
+
+        logger.info("Patch benchmark ({} lines, {} hunks): strict applyTo {} us, fuzzy exact {} us, fuzzy with 37-line drift {} us",
+                large.original().size(), patch.getDeltas().size(), strictNanos / 1000,
+                fuzzyExactNanos / 1000, fuzzyDriftNanos / 1000);
+    }
+}
@@ -0,0 +1,122 @@
+package dumb.jaider.tools;
+
+import dumb.jaider.model.JaiderModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final MappedFileReader reader = new MappedFileReader(4);
+
+    @Test
+    void readsLineWindowWithTotals() throws Exception {
+        var file = dir.resolve("big.log");
+        Files.writeString(file, IntStream.rangeClosed(1, 100_000).mapToObj(i -> "line " + i).collect(Collectors.joining("\n", "", "\n")));
+
+        var slice = reader.lines(file, 50_000, 3);
+
+        assertEquals("line 50000\nline 50001\nline 50002", slice.text());
+        assertEquals(50_000, slice.firstLine());
+        assertEquals(50_002, slice.lastLine());
+        assertEquals(100_000, slice.totalLines());
+        assertEquals(Files.size(file), slice.totalBytes());
+
+        var tail = reader.lines(file, 99_999, 10);
+        assertEquals("line 99999\nline 100000", tail.text());
+        assertTrue(reader.lines(file, 200_000, 5).text().isEmpty());
+    }
+
+    @Test
+    void readsByteRangeAndReportsLines() throws Exception {
+        var file = dir.resolve("f.txt");
+        Files.writeString(file, "alpha\r\nbeta\r\ngamma");
+
+        var slice = reader.bytes(file, 7, 8);
+
+        assertEquals("beta\r\nga", slice.text());
+        assertEquals(2, slice.firstLine());
+        assertEquals(3, slice.lastLine());
+        assertEquals(3, slice.totalLines());
+        assertEquals("beta\ngamma", reader.lines(file, 2, 2).text());
+    }
+
+    @Test
+    void rebuildsIndexWhenFileChanges() throws Exception {
+        var file = dir.resolve("f.txt");
+        Files.writeString(file, "a\nb\n");
+        assertEquals(2, reader.lines(file, 1, 10).totalLines());
+
+        Files.writeString(file, "a\nb\nc\nd\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        var slice = reader.lines(file, 3, 10);
+        assertEquals("c\nd", slice.text());
+        assertEquals(4, slice.totalLines());
+    }
+
+    @Test
+    void findsDeclarationBeforeEarlierUsages() throws Exception {
+        var file = dir.resolve("Foo.java");
+        Files.writeString(file, """
+                class Foo {
+                    void run() {
+                        compute(1);
+                        int computed = 2;
+                    }
+
+                    private int compute(int x) {
+                        return x;
+                    }
+                }
+                """);
+
+        assertEquals(7, reader.findSymbol(file, "compute"));
+        assertEquals(1, reader.findSymbol(file, "Foo"));
+        assertEquals(-1, reader.findSymbol(file, "missing"));
+    }
+
+    @Test
+    void handlesEmptyFile() throws Exception {
+        var file = dir.resolve("empty.txt");
+        Files.createFile(file);
+
+        var slice = reader.lines(file, 1, 10);
+
+        assertEquals(0, slice.totalLines());
+        assertTrue(slice.lastLine() < slice.firstLine());
+        assertEquals(-1, reader.findSymbol(file, "x"));
+    }
+
+    @Test
+    void toolsReturnSlicesAndCapLargeReadFile() throws Exception {
+        var model = new JaiderModel(dir, "test");
+        var tools = new StandardTools(model, null, null);
+        var body = IntStream.rangeClosed(1, 20_000).mapToObj(i -> "    int field" + i + " = " + i + ";").collect(Collectors.joining("\n"));
+        Files.writeString(dir.resolve("Gen.java"), "class Gen {\n" + body + "\n    void target() {}\n}\n");
+
+        var range = tools.readFileRange("Gen.java", 2, 2);
+        assertEquals("--- Gen.java (lines 2-3 of 20003, " + Files.size(dir.resolve("Gen.java")) + " bytes) ---\n"
+                + "2:     int field1 = 1;\n3:     int field2 = 2;\n", range);
+
+        var around = tools.readAroundSymbol("Gen.java", "target", 1);
+        assertTrue(around.startsWith("Symbol 'target' at line 20002."), around);
+        assertTrue(around.contains("20001:     int field20000 = 20000;\n20002:     void target() {}\n20003: }\n"), around);
+
+        var whole = tools.readFile("Gen.java");
+        assertTrue(whole.contains("only the first lines are shown"));
+        assertFalse(whole.contains("field20000"));
+
+        assertTrue(tools.readFileRange("../outside.txt", 1, 1).startsWith("Error"));
+    }
+}
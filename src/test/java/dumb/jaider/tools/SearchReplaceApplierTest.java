@@ -0,0 +1,196 @@
+package dumb.jaider.tools;
+
+import dumb.jaider.model.JaiderModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchReplaceApplierTest {
+
+    @TempDir
+    Path projectDir;
+
+    private JaiderModel model;
+    private final SearchReplaceApplier applier = new SearchReplaceApplier();
+
+    @BeforeEach
+    void setUp() {
+        model = new JaiderModel(projectDir, "test");
+    }
+
+    private Path file(String name, String content) throws Exception {
+        var path = projectDir.resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        model.files.add(path);
+        return path;
+    }
+
+    @Test
+    void parsesBlocksWithFencesAndReusedFileName() {
+        var blocks = SearchReplaceApplier.parse("""
+                Here is the change:
+                ```java
+                src/A.java
+                <<<<<<< SEARCH
+                old
+                =======
+                new
+                >>>>>>> REPLACE
+                <<<<<<< SEARCH
+                x
+                =======
+                >>>>>>> REPLACE
+                ```
+                """);
+
+        assertEquals(2, blocks.size());
+        assertEquals("src/A.java", blocks.get(0).file());
+        assertEquals("old\n", blocks.get(0).search());
+        assertEquals("new\n", blocks.get(0).replace());
+        assertEquals("src/A.java", blocks.get(1).file());
+        assertEquals("", blocks.get(1).replace());
+        assertThrows(IllegalArgumentException.class, () -> SearchReplaceApplier.parse("A.java\n<<<<<<< SEARCH\nx\n"));
+    }
+
+    @Test
+    void appliesBlocksAcrossFilesAndCreatesNewOnes() throws Exception {
+        var a = file("A.java", "class A {\n    int x = 1;\n    int y = 2;\n}\n");
+        var b = file("B.java", "class B {\n}\n");
+
+        var result = applier.apply(model, """
+                A.java
+                <<<<<<< SEARCH
+                    int x = 1;
+                =======
+                    int x = 10;
+                >>>>>>> REPLACE
+                A.java
+                <<<<<<< SEARCH
+                    int y = 2;
+                =======
+                >>>>>>> REPLACE
+                B.java
+                <<<<<<< SEARCH
+                class B {
+                =======
+                class B extends A {
+                >>>>>>> REPLACE
+                C.java
+                <<<<<<< SEARCH
+                =======
+                class C {}
+                >>>>>>> REPLACE
+                """);
+
+        assertTrue(result.startsWith("Edits applied successfully: 4 blocks in A.java, B.java, C.java (created)."), result);
+        assertTrue(result.contains("block 1 (A.java): applied at line 2"), result);
+        assertEquals("class A {\n    int x = 10;\n}\n", Files.readString(a));
+        assertEquals("class B extends A {\n}\n", Files.readString(b));
+        assertEquals("class C {}\n", Files.readString(projectDir.resolve("C.java")));
+        assertTrue(model.files.contains(projectDir.resolve("C.java")));
+    }
+
+    @Test
+    void matchesIgnoringWhitespaceAndKeepsFileIndentation() throws Exception {
+        var a = file("A.java", "class A {\n\tvoid f() {\n\t\treturn;\n\t}\n}");
+
+        var result = applier.apply(model, """
+                A.java
+                <<<<<<< SEARCH
+                    void f() {
+                        return;
+                    }
+                =======
+                    void f() {
+                        g();
+                    }
+                >>>>>>> REPLACE
+                """);
+
+        assertTrue(result.contains("ignoring whitespace"), result);
+        assertEquals("class A {\n\tvoid f() {\n\t    g();\n\t}\n}", Files.readString(a));
+    }
+
+    @Test
+    void failingBlockLeavesEveryFileUntouched() throws Exception {
+        var a = file("A.java", "one\ntwo\n");
+        var b = file("B.java", "dup\ndup\n");
+
+        var result = applier.apply(model, """
+                A.java
+                <<<<<<< SEARCH
+                one
+                =======
+                ONE
+                >>>>>>> REPLACE
+                B.java
+                <<<<<<< SEARCH
+                dup
+                =======
+                x
+                >>>>>>> REPLACE
+                A.java
+                <<<<<<< SEARCH
+                three
+                =======
+                3
+                >>>>>>> REPLACE
+                """);
+
+        assertTrue(result.startsWith("Error: Edits not applied; no files were changed. 2 of 3 blocks failed:"), result);
+        assertTrue(result.contains("block 2 (B.java): SEARCH text occurs more than once"), result);
+        assertTrue(result.contains("block 3 (A.java): SEARCH text not found"), result);
+        assertEquals("one\ntwo\n", Files.readString(a));
+        assertEquals("dup\ndup\n", Files.readString(b));
+    }
+
+    @Test
+    void rejectsFilesOutsideContextOrProject() throws Exception {
+        Files.writeString(projectDir.resolve("Hidden.java"), "x\n");
+
+        var result = applier.apply(model, "Hidden.java\n<<<<<<< SEARCH\nx\n=======\ny\n>>>>>>> REPLACE\n"
+                + "../Out.java\n<<<<<<< SEARCH\n=======\ny\n>>>>>>> REPLACE\n");
+
+        assertTrue(result.contains("not in context"), result);
+        assertTrue(result.contains("outside the project"), result);
+        assertFalse(Files.exists(projectDir.resolveSibling("Out.java")));
+    }
+
+    @Test
+    void failedWriteLeavesNothingInTheJournal() throws Exception {
+        var a = file("A.java", "a\n");
+        Files.writeString(projectDir.resolve("blocker"), "a file where a directory is needed");
+
+        var result = applier.apply(model, "A.java\n<<<<<<< SEARCH\na\n=======\nb\n>>>>>>> REPLACE\n"
+                + "blocker/New.java\n<<<<<<< SEARCH\n=======\nc\n>>>>>>> REPLACE\n");
+
+        assertTrue(result.startsWith("Error"), result);
+        assertEquals("a\n", Files.readString(a));
+        assertTrue(EditJournal.of(projectDir).undoable().isEmpty());
+        var blobs = projectDir.resolve(EditJournal.DIR).resolve("blobs");
+        if (Files.exists(blobs)) {
+            try (var files = Files.walk(blobs)) {
+                assertTrue(files.noneMatch(Files::isRegularFile), "Captured blobs of the rolled-back edit must be discarded");
+            }
+        }
+    }
+
+    @Test
+    void previewIsUnifiedDiffThatApplyDiffAccepts() throws Exception {
+        var a = file("A.java", "a\nb\nc\n");
+        var tools = new StandardTools(model, null, null);
+
+        var preview = tools.previewEdits("A.java\n<<<<<<< SEARCH\nb\n=======\nB\n>>>>>>> REPLACE\n");
+
+        assertTrue(preview.startsWith("--- a/A.java\n+++ b/A.java\n"), preview);
+        assertEquals("a\nb\nc\n", Files.readString(a), "Preview must not write");
+        assertTrue(tools.applyDiff(preview).startsWith("Diff applied successfully"));
+        assertEquals("a\nB\nc\n", Files.readString(a));
+    }
+}
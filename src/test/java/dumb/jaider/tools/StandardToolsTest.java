@@ -324,4 +324,87 @@ public class StandardToolsTest {
         assertEquals(1, result.getInt("exitCode"));
         assertTrue(result.getString("output").contains("Command execution timed out after 1 seconds."));
     }
+
+    @Test
+    void runValidationCommand_largeOutputIsBoundedAndSpilled() throws Exception {
+        Path scriptFile = tempDir.resolve("noisy_script.sh");
+        String scriptContent = """
+                #!/bin/bash
+                for i in $(seq 1 5000); do echo "line $i"; done
+                exit 0
+                """;
+        Files.writeString(scriptFile, scriptContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        makeScriptExecutable(scriptFile);
+
+        when(config.getRunCommand()).thenReturn(scriptFile.toString());
+
+        JSONObject result = new JSONObject(standardTools.runValidationCommand(null));
+
+        assertTrue(result.getBoolean("success"));
+        assertTrue(result.getBoolean("outputTruncated"));
+        assertEquals(5000, result.getLong("totalLines"));
+        String output = result.getString("output");
+        assertTrue(output.startsWith("line 1\n"));
+        assertTrue(output.endsWith("line 5000"));
+        assertFalse(output.contains("line 2500\n"));
+        assertTrue(output.contains("lines omitted"));
+
+        String page = standardTools.readRunLog(result.getString("runId"), 2500, 2);
+        assertEquals("2500: line 2500\n2501: line 2501\n", page);
+        String rerunId = new JSONObject(standardTools.runValidationCommand(null)).getString("runId");
+        assertNotEquals(result.getString("runId"), rerunId, "Runs in the same millisecond must not share a log");
+        assertTrue(standardTools.readRunLog("../../etc/passwd", 1, 1).startsWith("Error:"));
+    }
+
+    @Test
+    void runValidationCommand_parsesSurefireFailuresIncrementally() throws Exception {
+        Path scriptFile = tempDir.resolve("mvn");
+        String scriptContent = """
+                #!/bin/bash
+                echo "[ERROR] com.example.FooTest.bar -- Time elapsed: 0.01 s <<< FAILURE!"
+                echo "org.opentest4j.AssertionFailedError: expected: <1> but was: <2>"
+                echo "[ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0"
+                exit 1
+                """;
+        Files.writeString(scriptFile, scriptContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        makeScriptExecutable(scriptFile);
+
+        when(config.getRunCommand()).thenReturn(scriptFile + " test");
+
+        JSONObject result = new JSONObject(standardTools.runValidationCommand(null));
+
+        assertFalse(result.getBoolean("success"));
+        var failure = result.getJSONArray("testReport").getJSONObject(0);
+        assertEquals("com.example.FooTest", failure.getString("testClass"));
+        assertEquals("bar", failure.getString("testMethod"));
+        assertTrue(failure.getString("errorMessage").startsWith("org.opentest4j.AssertionFailedError"));
+        assertEquals("Tests run: 3, Failures: 1, Errors: 0, Skipped: 0", result.getString("testTotals"));
+    }
+
+    @Test
+    void runValidationCommand_readsJUnitXmlReportsOfAnyRunner() throws Exception {
+        Path scriptFile = tempDir.resolve("check.sh");
+        var reports = tempDir.resolve("target/surefire-reports");
+        Files.createDirectories(reports);
+        Files.writeString(tempDir.resolve("report.xml"), TestReportParserTest.REPORT);
+        String scriptContent = "#!/bin/bash\ncp " + tempDir.resolve("report.xml") + " " + reports.resolve("TEST-com.example.FooTest.xml") + "\nexit 1\n";
+        Files.writeString(scriptFile, scriptContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        makeScriptExecutable(scriptFile);
+
+        when(config.getRunCommand()).thenReturn(scriptFile.toString());
+
+        JSONObject result = new JSONObject(standardTools.runValidationCommand(null));
+
+        var failures = result.getJSONArray("testReport");
+        assertEquals(2, failures.length());
+        assertEquals("fails", failures.getJSONObject(0).getString("testMethod"));
+        assertEquals("FAILED", failures.getJSONObject(0).getString("status"));
+        assertEquals("Tests run: 5, Failures: 1, Errors: 1, Skipped: 1", result.getString("testTotals"));
+        assertEquals("com.example.FooTest#errors", result.getJSONArray("slowTests").getJSONObject(0).getString("test"));
+        assertTrue(Files.exists(tempDir.resolve(TestHistory.FILE)));
+
+        var again = new JSONObject(standardTools.runValidationCommand(null)).getJSONArray("historicalSlowTests").getJSONObject(0);
+        assertEquals("com.example.FooTest#errors", again.getString("test"));
+        assertEquals(2, again.getInt("runs"));
+    }
 }
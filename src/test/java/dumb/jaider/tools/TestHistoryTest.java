@@ -0,0 +1,41 @@
+package dumb.jaider.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestHistoryTest {
+
+    @TempDir
+    Path projectDir;
+
+    private static TestReportParser.TestCase test(String className, String name, TestReportParser.Status status, long millis) {
+        return new TestReportParser.TestCase(className, name, status, millis, null);
+    }
+
+    @Test
+    void smoothsDurationsAndKeepsThemAcrossInstances() {
+        var history = new TestHistory(projectDir);
+        history.record(List.of(
+                test("a.SlowTest", "one", TestReportParser.Status.PASSED, 1000),
+                test("a.FastTest", "one", TestReportParser.Status.PASSED, 10),
+                test("a.FastTest", "two", TestReportParser.Status.PASSED, 20),
+                test("a.BrokenTest", "one", TestReportParser.Status.FAILED, 500),
+                test("a.SkippedTest", "one", TestReportParser.Status.SKIPPED, 0)));
+        history.record(List.of(test("a.SlowTest", "one", TestReportParser.Status.PASSED, 2000)));
+
+        var slowest = history.slowest(2);
+        assertEquals("a.SlowTest#one", slowest.getFirst().id());
+        assertEquals(Math.round(TestHistory.ALPHA * 2000 + (1 - TestHistory.ALPHA) * 1000), slowest.getFirst().averageMillis());
+        assertEquals(2, slowest.getFirst().runs());
+
+        var reopened = new TestHistory(projectDir).slowest(5);
+        assertEquals(List.of("a.SlowTest#one", "a.BrokenTest#one", "a.FastTest#two", "a.FastTest#one"),
+                reopened.stream().map(TestHistory.Stats::id).toList());
+        assertTrue(reopened.get(1).lastFailed());
+    }
+}
@@ -0,0 +1,79 @@
+package dumb.jaider.tools;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestImpactAnalyzerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private TestImpactAnalyzer analyzer;
+
+    private void write(String path, String content) throws Exception {
+        var file = projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        write("pom.xml", "<project/>");
+        write("src/main/java/p/A.java", "package p;\npublic class A {}\n");
+        write("src/main/java/p/B.java", "package p;\nclass B { A a; }\n");
+        write("src/main/java/p/C.java", "package p;\n// Mentions A only in a comment.\nclass C { String s = \"A\"; }\n");
+        write("src/main/java/q/D.java", "package q;\nimport static p.A.*;\npublic class D {}\n");
+        write("src/test/java/p/BTest.java", "package p;\nclass BTest { B b = new B(); }\n");
+        write("src/test/java/p/CTest.java", "package p;\nclass CTest { C c; }\n");
+        write("src/test/java/q/WildTest.java", "package q;\nimport p.*;\nclass WildTest { A a; }\n");
+        write("src/test/java/q/DTest.java", "package q;\nclass DTest { D d; }\n");
+        write("src/test/java/r/QualifiedTest.java", "package r;\nclass QualifiedTest { q.D d; }\n");
+        analyzer = new TestImpactAnalyzer(projectDir);
+    }
+
+    @Test
+    void selectsTestsThatTransitivelyDependOnTheChange() {
+        var selection = analyzer.select(List.of("src/main/java/p/A.java"));
+
+        assertFalse(selection.full(), selection.reason());
+        assertEquals(List.of("p.BTest", "q.DTest", "q.WildTest", "r.QualifiedTest"), selection.tests());
+        assertEquals(List.of("p.CTest"), analyzer.select(List.of("src/main/java/p/C.java")).tests());
+        assertEquals(List.of("p.CTest"), analyzer.select(List.of("src/test/java/p/CTest.java")).tests());
+    }
+
+    @Test
+    void picksUpEditedSourcesAndFallsBackWhenUncertain() throws Exception {
+        assertEquals(List.of("p.CTest"), analyzer.select(List.of("src/main/java/p/C.java")).tests());
+        write("src/main/java/p/C.java", "package p;\nclass C { B b; }\n");
+        Files.setLastModifiedTime(projectDir.resolve("src/main/java/p/C.java"), java.nio.file.attribute.FileTime.fromMillis(0));
+        assertEquals(List.of("p.BTest", "p.CTest"), analyzer.select(List.of("src/main/java/p/B.java")).tests());
+
+        assertTrue(analyzer.select(List.of()).full());
+        assertTrue(analyzer.select(List.of("pom.xml")).full());
+        assertTrue(analyzer.select(List.of("src/main/java/p/A.java", "src/main/resources/app.properties")).full());
+        assertTrue(analyzer.select(List.of("src/main/java/p/Deleted.java")).full());
+        write("src/main/java/p/Unused.java", "package p;\nclass Unused {}\n");
+        var none = analyzer.select(List.of("src/main/java/p/Unused.java"));
+        assertTrue(none.full());
+        assertTrue(none.reason().contains("No test class"), none.reason());
+    }
+
+    @Test
+    void narrowsMavenAndGradleCommands() {
+        var selection = new TestImpactAnalyzer.Selection(List.of("p.BTest", "q.WildTest"), "");
+
+        assertEquals("mvn test -Dtest=p.BTest,q.WildTest -Dsurefire.failIfNoSpecifiedTests=false",
+                TestImpactAnalyzer.command("mvn clean test", selection));
+        assertEquals("./gradlew test --tests p.BTest --tests q.WildTest", TestImpactAnalyzer.command("./gradlew clean test", selection));
+        assertNull(TestImpactAnalyzer.command("npm test", selection));
+        assertNull(TestImpactAnalyzer.command("mvn test -Dtest=Other", selection));
+        assertNull(TestImpactAnalyzer.command("mvn clean test", new TestImpactAnalyzer.Selection(null, "full")));
+    }
+}
@@ -0,0 +1,82 @@
+package dumb.jaider.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestReportParserTest {
+
+    static final String REPORT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <testsuite name="com.example.FooTest" tests="5" failures="1" errors="1" skipped="1">
+              <properties><property name="java.version" value="21"/></properties>
+              <testcase name="passes" classname="com.example.FooTest" time="0.012"/>
+              <testcase name="fails" classname="com.example.FooTest" time="1.5">
+                <failure message="expected: &lt;1&gt; but was: &lt;2&gt;" type="org.opentest4j.AssertionFailedError"><![CDATA[org.opentest4j.AssertionFailedError: expected: <1> but was: <2>
+                at com.example.FooTest.fails(FooTest.java:10)]]></failure>
+                <system-out><![CDATA[lots of output]]></system-out>
+              </testcase>
+              <testcase name="errors" classname="com.example.FooTest" time="1,234.5">
+                <error type="java.lang.IllegalStateException"><![CDATA[java.lang.IllegalStateException: boom
+                at com.example.FooTest.errors(FooTest.java:20)]]></error>
+              </testcase>
+              <testcase name="skipped" classname="com.example.FooTest" time="0">
+                <skipped message="not today"/>
+              </testcase>
+              <testcase name="flaky" classname="com.example.FooTest" time="0.2">
+                <flakyFailure message="first try" type="java.lang.AssertionError"><stackTrace>at x</stackTrace></flakyFailure>
+              </testcase>
+            </testsuite>
+            """;
+
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void readsStatusTimeAndMessagePerTest() throws Exception {
+        var report = projectDir.resolve("TEST-com.example.FooTest.xml");
+        Files.writeString(report, REPORT);
+
+        var cases = TestReportParser.parse(report);
+
+        assertEquals(List.of("passes", "fails", "errors", "skipped", "flaky"), cases.stream().map(TestReportParser.TestCase::name).toList());
+        var passes = cases.get(0);
+        assertEquals(TestReportParser.Status.PASSED, passes.status());
+        assertEquals(12, passes.millis());
+        assertNull(passes.message());
+        var fails = cases.get(1);
+        assertEquals(TestReportParser.Status.FAILED, fails.status());
+        assertEquals("org.opentest4j.AssertionFailedError: expected: <1> but was: <2>", fails.message());
+        assertEquals("com.example.FooTest#fails", fails.id());
+        var errors = cases.get(2);
+        assertEquals(TestReportParser.Status.ERROR, errors.status());
+        assertEquals(1_234_500, errors.millis());
+        assertEquals("java.lang.IllegalStateException: boom", errors.message());
+        assertEquals(TestReportParser.Status.SKIPPED, cases.get(3).status());
+        assertEquals("not today", cases.get(3).message());
+        assertEquals(TestReportParser.Status.PASSED, cases.get(4).status(), "A test that passed on rerun passed");
+    }
+
+    @Test
+    void collectsOnlyReportsFromThisRunInAnyModule() throws Exception {
+        var fresh = projectDir.resolve("module/target/surefire-reports/TEST-com.example.FooTest.xml");
+        var stale = projectDir.resolve("target/surefire-reports/TEST-com.example.OldTest.xml");
+        var elsewhere = projectDir.resolve("docs/TEST-com.example.DocTest.xml");
+        for (var file : List.of(fresh, stale, elsewhere)) {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, REPORT);
+        }
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        Files.writeString(projectDir.resolve("target/surefire-reports/TEST-broken.xml"), "<testsuite><testcase");
+
+        var cases = TestReportParser.collect(projectDir, System.currentTimeMillis() - 10_000);
+
+        assertEquals(5, cases.size());
+    }
+}
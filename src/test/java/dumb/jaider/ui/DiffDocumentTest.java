@@ -0,0 +1,131 @@
+package dumb.jaider.ui;
+
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import dumb.jaider.model.JaiderModel;
+import dumb.jaider.tools.DiffApplier;
+import dumb.jaider.utils.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffDocumentTest {
+
+    private static final String DIFF = """
+            diff --git a/f.txt b/f.txt
+            index 111..222 100644
+            --- a/f.txt
+            +++ b/f.txt
+            @@ -1,3 +1,4 @@
+             a
+            +a2
+             b
+             c
+            @@ -8,3 +9,3 @@
+             h
+            --- i was removed
+            +I
+             j
+            --- a/g.txt
+            +++ b/g.txt
+            @@ -1 +1 @@
+            -x
+            +y
+            """;
+
+    @Test
+    void indexesFilesAndHunksAndClassifiesLines() {
+        var doc = new DiffDocument(DIFF);
+
+        assertEquals(3, doc.hunkCount());
+        assertEquals(4, doc.hunkStartLine(0));
+        assertEquals(9, doc.hunkStartLine(1));
+        assertEquals(14, doc.hunkEndLine(1), "A removed line starting with '--' must not end the hunk");
+        assertEquals(DiffDocument.LineKind.FILE_HEADER, doc.kind(0));
+        assertEquals(DiffDocument.LineKind.FILE_HEADER, doc.kind(2));
+        assertEquals(DiffDocument.LineKind.HUNK_HEADER, doc.kind(4));
+        assertEquals(DiffDocument.LineKind.ADDED, doc.kind(6));
+        assertEquals(DiffDocument.LineKind.REMOVED, doc.kind(11));
+        assertEquals(DiffDocument.LineKind.CONTEXT, doc.kind(10));
+        assertEquals(DiffDocument.LineKind.FILE_HEADER, doc.kind(14));
+    }
+
+    @Test
+    void acceptedDiffDropsRejectedHunksAndShiftsLaterHeaders() {
+        var doc = new DiffDocument(DIFF);
+        assertSame(DIFF, doc.acceptedDiff());
+
+        doc.setAccepted(0, false);
+        var filtered = doc.acceptedDiff();
+        assertTrue(filtered.contains("@@ -8,3 +8,3 @@"), filtered);
+        assertFalse(filtered.contains("+a2"));
+        assertTrue(filtered.contains("--- a/g.txt"));
+
+        doc.setAccepted(1, false);
+        assertFalse(doc.acceptedDiff().contains("f.txt"), "A file with no accepted hunks is left out");
+        assertEquals(1, doc.acceptedCount());
+    }
+
+    @Test
+    void partiallyAcceptedDiffAppliesCleanly(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("f.txt");
+        Files.writeString(file, IntStream.rangeClosed(1, 40).mapToObj(i -> "line" + i).collect(Collectors.joining("\n", "", "\n")));
+        var model = new JaiderModel(dir, "test");
+        model.files.add(file);
+        var diff = """
+                --- a/f.txt
+                +++ b/f.txt
+                @@ -2,0 +3,2 @@
+                +new1
+                +new2
+                @@ -30,1 +32,1 @@
+                -line30
+                +LINE30
+                """;
+        var doc = new DiffDocument(diff);
+        doc.setAccepted(0, false);
+
+        var result = new DiffApplier().applyAll(model, Util.unifiedDiffReader(doc.acceptedDiff()));
+
+        assertTrue(result.startsWith("Diff applied successfully"), result);
+        var lines = Files.readAllLines(file);
+        assertEquals(40, lines.size());
+        assertEquals("LINE30", lines.get(29));
+    }
+
+    @Test
+    void viewNavigatesAndTogglesHunksWithoutRenderingEverything() {
+        var body = IntStream.range(0, 20_000).mapToObj(i -> "@@ -" + (i * 10 + 1) + ",1 +" + (i * 10 + 1) + ",1 @@\n-old" + i + "\n+new" + i)
+                .collect(Collectors.joining("\n", "--- a/big.txt\n+++ b/big.txt\n", "\n"));
+        var start = System.nanoTime();
+        var doc = new DiffDocument(body);
+        var view = new DiffView(doc);
+        var elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs < 2000, "Indexing 60k diff lines took " + elapsedMs + " ms");
+
+        var changes = new int[1];
+        view.setOnChange(() -> changes[0]++);
+        assertEquals(2, view.cursorLine());
+        view.handleKeyStroke(new KeyStroke('n', false, false));
+        assertEquals(5, view.cursorLine());
+        view.handleKeyStroke(new KeyStroke('r', false, false));
+        assertFalse(doc.isAccepted(1));
+        view.handleKeyStroke(new KeyStroke(KeyType.ArrowDown));
+        view.handleKeyStroke(new KeyStroke(' ', false, false));
+        assertTrue(doc.isAccepted(1), "Space toggles the hunk under the cursor");
+        view.handleKeyStroke(new KeyStroke('R', false, false));
+        assertEquals(0, doc.acceptedCount());
+        assertEquals(3, changes[0]);
+
+        view.handleKeyStroke(new KeyStroke(KeyType.End));
+        assertEquals(doc.lineCount() - 1, view.cursorLine());
+        view.handleKeyStroke(new KeyStroke('p', false, false));
+        assertEquals(doc.hunkStartLine(doc.hunkCount() - 1), view.cursorLine());
+    }
+}
@@ -0,0 +1,126 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileListingTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+
+    @AfterEach
+    void tearDown() {
+        RepositoryService.close(projectDir);
+        if (git != null) git.close();
+    }
+
+    private void write(String path, String content) throws Exception {
+        var file = projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void initRepository() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        write(".gitignore", "target/\n*.log\n");
+        write("src/main/A.java", "class A {}");
+        write("src/main/util/B.java", "class B {}");
+        write("README.md", "readme");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("init").setAuthor("Test", "test@example.com").call();
+        write("src/main/A.java", "class A { int x; }");
+        write("src/main/C.java", "class C {}");
+        write("target/classes/A.class", "bytes");
+        write("run.log", "log");
+    }
+
+    private static String paths(List<FileListing.Entry> entries) {
+        return String.join(",", entries.stream().map(e -> e.path() + (e.directory() ? "/" : "") + ":" + e.status()).toList());
+    }
+
+    @Test
+    void combinesIndexAndWorkingTreeWithoutIgnoredFiles() throws Exception {
+        initRepository();
+
+        var entries = new FileListing(projectDir).list("", null, 0);
+
+        assertEquals(".gitignore:CLEAN,README.md:CLEAN,src/main/A.java:MODIFIED,src/main/C.java:UNTRACKED,src/main/util/B.java:CLEAN",
+                paths(entries));
+        var a = entries.get(2);
+        assertEquals(Files.size(projectDir.resolve("src/main/A.java")), a.size());
+        assertNotNull(a.modified());
+    }
+
+    @Test
+    void globAndDepthLimitTheListing() throws Exception {
+        initRepository();
+        var listing = new FileListing(projectDir);
+
+        assertEquals("src/main/A.java:MODIFIED,src/main/C.java:UNTRACKED,src/main/util/B.java:CLEAN", paths(listing.list("src", "*.java", 0)));
+        assertEquals("src/main/util/B.java:CLEAN", paths(listing.list("", "src/**/util/*.java", 0)));
+        assertEquals("src/main/A.java:MODIFIED,src/main/C.java:UNTRACKED", paths(listing.list("src", "*.java", 2)));
+        assertEquals(".gitignore:CLEAN,README.md:CLEAN,src/:CLEAN", paths(listing.list("", null, 1)));
+        assertEquals("src/main/util/B.java:CLEAN", paths(listing.list("src/main/util/B.java", null, 1)));
+        assertThrows(IllegalArgumentException.class, () -> listing.list("../x", null, 0));
+    }
+
+    @Test
+    void formatsACompactTree() throws Exception {
+        initRepository();
+        var entries = new FileListing(projectDir).list("src", null, 0);
+
+        var tree = FileListing.format(entries, "src", FileListing.DEFAULT_LIMIT);
+
+        var lines = tree.split("\n");
+        assertEquals("src/ (3 files, 1 modified [M], 1 untracked [?])", lines[0]);
+        assertEquals("  main/", lines[1]);
+        assertTrue(lines[2].matches("    A\\.java  18B  \\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d  M"), lines[2]);
+        assertTrue(lines[3].endsWith("  ?"), lines[3]);
+        assertEquals("    util/", lines[4]);
+        assertTrue(lines[5].startsWith("      B.java  10B  "), lines[5]);
+
+        var truncated = FileListing.format(entries, "src", 1);
+        assertTrue(truncated.endsWith("... 2 more entries not shown; narrow the listing with a path, glob or maxDepth.\n"), truncated);
+    }
+
+    @Test
+    void fallsBackToDirectoryWalkOutsideGit() throws Exception {
+        write("b/c.txt", "c");
+        write("a.txt", "a");
+        write("b/d/e.txt", "e");
+
+        var listing = new FileListing(projectDir);
+
+        assertEquals("a.txt:CLEAN,b/c.txt:CLEAN,b/d/e.txt:CLEAN", paths(listing.list("", null, 0)));
+        assertEquals("a.txt:CLEAN,b/:CLEAN", paths(listing.list("", null, 1)));
+        assertEquals("b/d/e.txt:CLEAN", paths(listing.list("b", "d/*.txt", 0)));
+    }
+
+    @Test
+    void listsManyDirectoriesInOnePassAndTruncatesTheTree() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).call();
+        write(".gitignore", "build/\n");
+        for (var d = 0; d < 20; d++) {
+            for (var f = 0; f < 20; f++) write("pkg" + d + "/F" + f + ".java", "x");
+        }
+        for (var f = 0; f < 50; f++) write("build/out" + f + ".class", "x");
+        git.add().addFilepattern(".").call();
+
+        var entries = new FileListing(projectDir).list("", "*.java", 0);
+
+        assertEquals(400, entries.size());
+        var tree = FileListing.format(entries, "", 100);
+        assertTrue(tree.startsWith("./ (400 files)\n"), tree.substring(0, 40));
+        assertTrue(tree.contains("more entries not shown"));
+    }
+}
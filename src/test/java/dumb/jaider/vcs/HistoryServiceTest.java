@@ -0,0 +1,103 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryServiceTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        commit("Alice", "Old.java", "class Old {\n    int a;\n    int b;\n    int c;\n}\n", "Add Old");
+        Files.move(projectDir.resolve("Old.java"), projectDir.resolve("New.java"));
+        git.rm().addFilepattern("Old.java").call();
+        commit("Bob", "New.java", "class Old {\n    int a;\n    int b;\n    int c;\n}\n", "Rename Old to New");
+        commit("Carol", "New.java", "class Old {\n    int a;\n    int bb;\n    int c;\n}\n", "Widen b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RepositoryService.close(projectDir);
+        git.close();
+    }
+
+    private void commit(String author, String path, String content, String message) throws Exception {
+        Files.writeString(projectDir.resolve(path), content);
+        git.add().addFilepattern(path).call();
+        git.commit().setMessage(message).setAuthor(author, author.toLowerCase() + "@example.com").call();
+    }
+
+    @Test
+    void fileHistoryFollowsRenames() throws Exception {
+        var history = new HistoryService(projectDir).fileHistory("New.java", 10, HistoryService.DEFAULT_MAX_CHARS);
+
+        var lines = history.lines().toList();
+        assertEquals(4, lines.size(), history);
+        assertTrue(lines.get(1).contains("Carol: Widen b (+1 -1)"), history);
+        assertTrue(lines.get(2).contains("Bob: Rename Old to New") && lines.get(2).contains("[renamed from Old.java]"), history);
+        assertTrue(lines.get(3).contains("Alice: Add Old (+5 -0)"), history);
+
+        var limited = new HistoryService(projectDir).fileHistory("New.java", 1, HistoryService.DEFAULT_MAX_CHARS);
+        assertTrue(limited.contains("Widen b") && !limited.contains("Add Old") && limited.contains("older commits not shown"), limited);
+    }
+
+    @Test
+    void blameGroupsRunsAndIsCachedPerBlob() throws Exception {
+        var service = new HistoryService(projectDir);
+        var blame = service.blameRange("New.java", 1, 5, HistoryService.DEFAULT_MAX_CHARS);
+
+        assertTrue(blame.contains("\n1-2  ") && blame.contains("Alice: Add Old"), blame);
+        assertTrue(blame.contains("\n3  ") && blame.contains("Carol: Widen b"), blame);
+        assertTrue(blame.contains("\n4-5  "), blame);
+        assertFalse(blame.contains("uncommitted changes"), blame);
+        assertEquals(1, service.blameComputations());
+
+        assertEquals(blame, service.blameRange("New.java", 1, 5, HistoryService.DEFAULT_MAX_CHARS));
+        assertEquals(1, service.blameComputations(), "Second query is served from memory");
+
+        var restarted = new HistoryService(projectDir);
+        assertEquals(blame, restarted.blameRange("New.java", 1, 5, HistoryService.DEFAULT_MAX_CHARS));
+        assertEquals(0, restarted.blameComputations(), "A new instance reads the blame cached on disk");
+        try (var cached = Files.list(projectDir.resolve(HistoryService.BLAME_CACHE_DIR))) {
+            assertEquals(1, cached.count());
+        }
+
+        Files.writeString(projectDir.resolve("New.java"), "// edited\n", java.nio.file.StandardOpenOption.APPEND);
+        assertTrue(restarted.blameRange("New.java", 3, 3, HistoryService.DEFAULT_MAX_CHARS).contains("uncommitted changes"));
+        assertTrue(restarted.blameRange("Missing.java", 1, 1, HistoryService.DEFAULT_MAX_CHARS).startsWith("Error:"));
+    }
+
+    @Test
+    void commitDiffShowsStatsAndTruncatesLongDiffs() throws Exception {
+        var service = new HistoryService(projectDir);
+        var diff = service.commitDiff("HEAD", null, HistoryService.DEFAULT_MAX_CHARS);
+        assertTrue(diff.contains("Author: Carol") && diff.contains("Widen b"), diff);
+        assertTrue(diff.contains(" M New.java (+1 -1)"), diff);
+        assertTrue(diff.contains("-    int b;\n+    int bb;"), diff);
+
+        assertTrue(service.commitDiff("HEAD~1", null, HistoryService.DEFAULT_MAX_CHARS).contains(" R Old.java -> New.java (+0 -0)"));
+        assertTrue(service.commitDiff("HEAD", "Other.java", HistoryService.DEFAULT_MAX_CHARS).contains("(no changes under Other.java)"));
+        assertTrue(service.commitDiff("nope", null, HistoryService.DEFAULT_MAX_CHARS).startsWith("Error:"));
+
+        var big = IntStream.range(0, 2000).mapToObj(i -> "line " + i).collect(Collectors.joining("\n"));
+        commit("Dave", "Big.txt", big, "Add a big file");
+        var truncated = service.commitDiff("HEAD", null, 2000);
+        assertTrue(truncated.length() <= 2000, "length " + truncated.length());
+        assertTrue(truncated.contains(" A Big.txt (+2000 -0)") && truncated.contains("diff truncated"), truncated);
+    }
+}
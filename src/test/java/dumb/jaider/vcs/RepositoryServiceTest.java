@@ -0,0 +1,96 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryServiceTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        Files.writeString(projectDir.resolve("a.txt"), "a");
+        git.add().addFilepattern("a.txt").call();
+        git.commit().setMessage("first").setAuthor("Test", "test@example.com").call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RepositoryService.close(projectDir);
+        git.close();
+    }
+
+    @Test
+    void sharesOneRepositoryPerProjectUntilClosed() throws Exception {
+        var service = RepositoryService.of(projectDir);
+        assertSame(service, RepositoryService.of(projectDir.resolve(".").resolve("sub").getParent()));
+
+        var first = service.read(Git::getRepository);
+        assertSame(first, service.read(Git::getRepository));
+
+        RepositoryService.close(projectDir);
+        var reopened = RepositoryService.of(projectDir);
+        assertNotSame(service, reopened);
+        assertNotSame(first, reopened.read(Git::getRepository));
+    }
+
+    @Test
+    void cachedIndexAndHeadTreeFollowChangesMadeOutsideTheService() throws Exception {
+        var service = RepositoryService.of(projectDir);
+        var index = service.dirCache();
+        var tree = service.headTree();
+        assertSame(index, service.dirCache(), "Unchanged index is not re-read");
+        assertSame(tree, service.headTree(), "Unchanged HEAD is not re-parsed");
+        assertTrue(index.findEntry("b.txt") < 0);
+
+        Files.writeString(projectDir.resolve("b.txt"), "b");
+        git.add().addFilepattern("b.txt").call();
+        assertTrue(service.dirCache().findEntry("b.txt") >= 0, "Index change seen through the cached handle");
+
+        git.commit().setMessage("second").setAuthor("Test", "test@example.com").call();
+        assertNotEquals(tree, service.headTree(), "New commit seen through the cached handle");
+        assertEquals(List.of("a.txt", "b.txt"), new GitService(projectDir).listFiles(""));
+    }
+
+    @Test
+    void concurrentReadersShareTheHandle() throws Exception {
+        var service = RepositoryService.of(projectDir);
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var tasks = new ArrayList<Callable<Boolean>>();
+            for (var i = 0; i < 16; i++) tasks.add(() -> service.read(g -> g.status().call().isClean()));
+            for (var f : pool.invokeAll(tasks)) assertTrue(f.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void nonRepositoryFailsUntilInitialised(@TempDir Path other) throws Exception {
+        var service = RepositoryService.of(other);
+        try {
+            assertThrows(RepositoryNotFoundException.class, () -> service.read(Git::getRepository));
+            Git.init().setDirectory(other.toFile()).call().close();
+            assertNotNull(service.read(Git::getRepository));
+        } finally {
+            RepositoryService.close(other);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package dumb.jaider.vcs;
+
+import dumb.jaider.tools.EditJournal;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SandboxManagerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+    private SandboxManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        Files.writeString(projectDir.resolve(".gitignore"), "target/\n");
+        Files.writeString(projectDir.resolve("A.txt"), "a\n");
+        Files.writeString(projectDir.resolve("B.txt"), "b\n");
+        Files.writeString(projectDir.resolve("Gone.txt"), "gone\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("init").setAuthor("Test", "test@example.com").call();
+        // Uncommitted work the sandboxes must start from.
+        Files.writeString(projectDir.resolve("A.txt"), "a, edited\n");
+        Files.writeString(projectDir.resolve("New.txt"), "untracked\n");
+        Files.delete(projectDir.resolve("Gone.txt"));
+        manager = new SandboxManager(projectDir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (var dirs = Files.list(projectDir.resolve(SandboxManager.DIR))) {
+            dirs.forEach(RepositoryService::close);
+        }
+        RepositoryService.close(projectDir);
+        git.close();
+    }
+
+    @Test
+    void sandboxStartsFromProjectStateAndIsReusedClean() throws Exception {
+        Path first;
+        try (var sandbox = manager.acquire()) {
+            first = sandbox.dir();
+            assertTrue(first.startsWith(projectDir.resolve(SandboxManager.DIR)));
+            assertEquals("a, edited\n", Files.readString(first.resolve("A.txt")));
+            assertEquals("b\n", Files.readString(first.resolve("B.txt")));
+            assertEquals("untracked\n", Files.readString(first.resolve("New.txt")));
+            assertFalse(Files.exists(first.resolve("Gone.txt")));
+            assertFalse(Files.exists(first.resolve(".jaider")), "The project's .jaider/ is not copied");
+            assertTrue(sandbox.changedPaths().isEmpty());
+
+            Files.writeString(first.resolve("B.txt"), "scratch\n");
+            Files.writeString(first.resolve("Scratch.txt"), "scratch\n");
+            Files.createDirectories(first.resolve("target"));
+            Files.writeString(first.resolve("target/out.class"), "warm build output");
+            assertEquals(Set.of("B.txt", "Scratch.txt"), sandbox.changedPaths());
+        }
+        assertEquals(1, manager.idleCount());
+        assertTrue(RepositoryService.of(projectDir).statusTracker().status().untracked().stream().noneMatch(p -> p.contains("sandbox")),
+                "Sandboxes stay out of the project's status");
+
+        try (var again = manager.acquire()) {
+            assertEquals(first, again.dir(), "The idle sandbox is reused");
+            assertEquals("b\n", Files.readString(first.resolve("B.txt")));
+            assertFalse(Files.exists(first.resolve("Scratch.txt")));
+            assertTrue(Files.exists(first.resolve("target/out.class")), "Ignored build output survives reuse");
+            assertTrue(again.changedPaths().isEmpty());
+        }
+    }
+
+    @Test
+    void runsAttemptsInParallelAndPromotesTheWinner() throws Exception {
+        List<SandboxManager.Task<Integer>> tasks = List.of(
+                sandbox -> {
+                    Files.writeString(sandbox.dir().resolve("B.txt"), "b, attempt 1\n");
+                    return 1;
+                },
+                sandbox -> {
+                    Files.writeString(sandbox.dir().resolve("B.txt"), "b, attempt 2\n");
+                    Files.writeString(sandbox.dir().resolve("C.txt"), "c\n");
+                    Files.delete(sandbox.dir().resolve("New.txt"));
+                    return 2;
+                },
+                sandbox -> {
+                    throw new IllegalStateException("attempt 3 gave up");
+                });
+
+        var attempts = manager.runParallel(tasks);
+        try {
+            assertEquals(3, attempts.size());
+            assertEquals(1, attempts.get(0).result());
+            assertFalse(attempts.get(2).succeeded());
+            assertEquals(3, attempts.stream().map(a -> a.sandbox().dir()).distinct().count());
+            assertEquals("b\n", Files.readString(projectDir.resolve("B.txt")), "Attempts do not touch the project");
+
+            var winner = attempts.get(1);
+            assertEquals(List.of("B.txt", "C.txt", "New.txt"), manager.promote(winner.sandbox()));
+            assertEquals("b, attempt 2\n", Files.readString(projectDir.resolve("B.txt")));
+            assertEquals("c\n", Files.readString(projectDir.resolve("C.txt")));
+            assertFalse(Files.exists(projectDir.resolve("New.txt")));
+            assertEquals("a, edited\n", Files.readString(projectDir.resolve("A.txt")), "Unchanged files are left alone");
+
+            var loser = attempts.get(0).sandbox();
+            var conflict = assertThrows(IllegalStateException.class, () -> manager.promote(loser));
+            assertTrue(conflict.getMessage().contains("B.txt"));
+            assertEquals("b, attempt 2\n", Files.readString(projectDir.resolve("B.txt")), "A conflicting promotion writes nothing");
+
+            EditJournal.of(projectDir).undo(1);
+            assertEquals("b\n", Files.readString(projectDir.resolve("B.txt")));
+            assertEquals("untracked\n", Files.readString(projectDir.resolve("New.txt")));
+        } finally {
+            attempts.forEach(a -> a.sandbox().close());
+        }
+        assertEquals(3, manager.idleCount());
+    }
+}
@@ -0,0 +1,145 @@
+package dumb.jaider.vcs;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusTrackerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private Git git;
+    private StatusTracker tracker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        git = Git.init().setDirectory(projectDir.toFile()).setInitialBranch("main").call();
+        write(".gitignore", "build/\n");
+        for (var i = 0; i < 50; i++) write("src/F" + i + ".txt", "file " + i);
+        write("build/tracked.txt", "forced");
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern("build/tracked.txt").call();
+        git.commit().setMessage("init").setAuthor("Test", "test@example.com").call();
+        tracker = RepositoryService.of(projectDir).statusTracker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RepositoryService.close(projectDir);
+        git.close();
+    }
+
+    private void write(String path, String content) throws Exception {
+        var file = projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        // Back-date the file so it is not "racily clean" and the tracker may trust its stat.
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 10 * StatusTracker.RACY_MILLIS));
+    }
+
+    @Test
+    void matchesGitStatusAndHashesOnlyChangedFiles() throws Exception {
+        var initial = tracker.status();
+        assertTrue(initial.isClean(), initial::toString);
+        var initialHashes = tracker.hashCount();
+
+        write("src/F1.txt", "changed");
+        write("src/New.txt", "new");
+        write("build/out.class", "ignored");
+        Files.delete(projectDir.resolve("src/F2.txt"));
+        write("src/F3.txt", "staged");
+        git.add().addFilepattern("src/F3.txt").call();
+
+        var status = tracker.status();
+        var jgit = git.status().call();
+        assertEquals(Set.of("src/F1.txt"), status.modified());
+        assertEquals(jgit.getModified(), status.modified());
+        assertEquals(jgit.getUntracked(), status.untracked());
+        assertEquals(jgit.getMissing(), status.missing());
+        assertEquals(Set.of("src/F3.txt"), status.staged());
+        assertFalse(status.isClean());
+        assertEquals(Set.of("src/F1.txt", "src/F2.txt", "src/F3.txt", "src/New.txt"), status.changedPaths());
+        assertTrue(tracker.hashCount() - initialHashes <= 2, "Only changed files are hashed, not all " + 50);
+
+        var before = tracker.hashCount();
+        tracker.status();
+        assertEquals(before, tracker.hashCount(), "Nothing changed, nothing re-hashed");
+    }
+
+    @Test
+    void touchedButUnchangedFileIsNotDirty() throws Exception {
+        write("src/F5.txt", "file 5");
+        Files.setLastModifiedTime(projectDir.resolve("src/F5.txt"), FileTime.fromMillis(1_000_000));
+
+        assertTrue(tracker.isClean());
+    }
+
+    @Test
+    void commitChangesUsesTrackerAndLeavesRepositoryClean() throws Exception {
+        var service = new GitService(projectDir);
+        assertEquals("No changes to commit.", service.commitChanges("noop"));
+
+        write("src/F7.txt", "edited");
+        assertEquals("Changes committed successfully.", service.commitChanges("edit"));
+        assertTrue(service.isGitRepoClean());
+        assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    void watcherPicksUpChangesWithoutFullScans() throws Exception {
+        assertTrue(tracker.watch());
+        assertTrue(tracker.isClean());
+
+        write("src/F9.txt", "changed by someone else");
+        write("src/sub/Added.txt", "new dir");
+        var status = tracker.status();
+        for (var i = 0; i < 50 && (status.modified().isEmpty() || status.untracked().isEmpty()); i++) {
+            Thread.sleep(100); // Watch events arrive asynchronously.
+            status = tracker.status();
+        }
+        assertEquals(Set.of("src/F9.txt"), status.modified());
+        assertEquals(Set.of("src/sub/Added.txt"), status.untracked());
+
+        Files.delete(projectDir.resolve("src/sub/Added.txt"));
+        Files.delete(projectDir.resolve("src/sub"));
+        for (var i = 0; i < 50 && !status.untracked().isEmpty(); i++) {
+            Thread.sleep(100);
+            status = tracker.status();
+        }
+        assertTrue(status.untracked().isEmpty());
+    }
+
+    @Test
+    void lineEndingFiltersAreAppliedBeforeReportingAChange() throws Exception {
+        var config = git.getRepository().getConfig();
+        config.setString("core", null, "autocrlf", "true");
+        config.save();
+        write(".gitattributes", "*.bat text eol=crlf\n");
+        write("crlf.txt", "a\r\nb\r\n"); // Stored with LF, checked out with CRLF.
+        write("run.bat", "echo\r\n");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("eol").setAuthor("Test", "test@example.com").call();
+        assertTrue(tracker.status().isClean());
+
+        // A new mtime forces the content check; the raw bytes differ from the LF blobs, the filtered ones do not.
+        for (var path : Set.of("crlf.txt", "run.bat")) {
+            Files.setLastModifiedTime(projectDir.resolve(path), FileTime.fromMillis(System.currentTimeMillis() - 5 * StatusTracker.RACY_MILLIS));
+        }
+        var status = tracker.status();
+        assertTrue(status.isClean(), status::toString);
+        assertTrue(git.status().call().isClean());
+
+        write("crlf.txt", "a\r\nchanged\r\n");
+        assertEquals(Set.of("crlf.txt"), tracker.status().modified());
+    }
+}